@@ -0,0 +1,64 @@
+#!/bin/bash
+
+# 阻塞模式 vs 响应式模式 报告生成压测脚本
+# 用法: ./benchmark-reactive.sh [并发数] [服务地址]
+# 对 /report/generate 与 /report/generate/reactive 各发起 N 个并发请求，
+# 统计总耗时、成功数，并通过 actuator 采样 JVM 存活线程数峰值
+
+CONCURRENCY=${1:-50}
+BASE_URL=${2:-http://localhost:8080}
+RESULT_DIR="report-result/benchmark"
+BODY='{"question":"查询各部门的销售额","topK":3,"generateChart":false,"generateWord":false}'
+
+mkdir -p "$RESULT_DIR"
+
+# 读取 JVM 存活线程数
+live_threads() {
+    curl -s "$BASE_URL/actuator/metrics/jvm.threads.live" | sed -n 's/.*"value":\([0-9.]*\).*/\1/p' | cut -d. -f1
+}
+
+run_mode() {
+    local name=$1
+    local path=$2
+    local out="$RESULT_DIR/$name"
+    rm -rf "$out" && mkdir -p "$out"
+
+    echo "=== $name 模式: $CONCURRENCY 个并发请求 -> $path ==="
+    local baseline
+    baseline=$(live_threads)
+    local start
+    start=$(date +%s)
+
+    for i in $(seq 1 "$CONCURRENCY"); do
+        curl -s -o "$out/$i.json" -w "%{http_code} %{time_total}\n" \
+            -H "Content-Type: application/json" -d "$BODY" \
+            "$BASE_URL$path" > "$out/$i.status" &
+    done
+
+    # 请求进行期间每秒采样线程数
+    local peak=${baseline:-0}
+    while [ "$(jobs -r | wc -l)" -gt 0 ]; do
+        local current
+        current=$(live_threads)
+        if [ -n "$current" ] && [ "$current" -gt "$peak" ]; then
+            peak=$current
+        fi
+        sleep 1
+    done
+    wait
+
+    local elapsed=$(( $(date +%s) - start ))
+    local ok
+    ok=$(grep -l '"success":true' "$out"/*.json 2>/dev/null | wc -l)
+    local p99
+    p99=$(cut -d' ' -f2 "$out"/*.status | sort -n | awk '{a[NR]=$1} END {idx=int(NR*0.99); if (idx<1) idx=1; print a[idx]}')
+
+    echo "成功: $ok/$CONCURRENCY，总耗时: ${elapsed}s，p99: ${p99}s，线程数: ${baseline} -> 峰值 ${peak}"
+    echo ""
+}
+
+run_mode "blocking" "/report/generate"
+run_mode "reactive" "/report/generate/reactive"
+
+echo "明细结果见 $RESULT_DIR"
+echo "提示: 报告缓存会让重复问题直接命中，压测阻塞模式前可设置 report.cache.enabled=false"
@@ -0,0 +1,87 @@
+#!/bin/bash
+
+# AOT + CDS 启动脚本
+# 用法: ./run-cds.sh [build|run|measure]
+#   build   : 使用 aot profile 打包，解压为 CDS 友好的目录结构，并通过一次训练运行生成 CDS 归档
+#   run     : 使用 AOT 初始化代码和 CDS 归档启动应用（默认）
+#   measure : 分别以普通方式和 AOT+CDS 方式启动，输出启动耗时（供 CI 记录）
+# 需要 JDK 17+，Spring Boot 3.3+ 的 jarmode=tools
+
+set -e
+
+JAR_NAME="ai-report-1.0.0.jar"
+WORK_DIR="target/cds"
+ARCHIVE="$WORK_DIR/application.jsa"
+RESULT_DIR="report-result/startup"
+
+build() {
+    echo "=== 打包（Spring AOT 处理）==="
+    mvn -B -Paot clean package -DskipTests
+
+    echo "=== 解压可执行 jar ==="
+    rm -rf "$WORK_DIR"
+    java -Djarmode=tools -jar "target/$JAR_NAME" extract --destination "$WORK_DIR"
+
+    # 训练运行：上下文刷新完成后立即退出，退出时写入加载过的类
+    echo "=== 生成 CDS 归档 ==="
+    java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+        -jar "$WORK_DIR/$JAR_NAME"
+    echo "CDS 归档: $ARCHIVE"
+}
+
+run() {
+    if [ ! -f "$ARCHIVE" ]; then
+        build
+    fi
+    exec java -XX:SharedArchiveFile="$ARCHIVE" -Dspring.aot.enabled=true -jar "$WORK_DIR/$JAR_NAME" "$@"
+}
+
+# 启动应用直到输出 "Started ... in X seconds"，返回该耗时
+startup_seconds() {
+    local name=$1
+    shift
+    local log="$RESULT_DIR/$name.log"
+    "$@" --server.port=0 > "$log" 2>&1 &
+    local pid=$!
+    local seconds=""
+    for _ in $(seq 1 120); do
+        seconds=$(sed -n 's/.*Started .* in \([0-9.]*\) seconds.*/\1/p' "$log" | head -1)
+        if [ -n "$seconds" ] || ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        sleep 1
+    done
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    if [ -z "$seconds" ]; then
+        echo "$name 启动失败，日志: $log" >&2
+        return 1
+    fi
+    echo "$seconds"
+}
+
+measure() {
+    if [ ! -f "$ARCHIVE" ]; then
+        build
+    fi
+    mkdir -p "$RESULT_DIR"
+
+    local plain
+    plain=$(startup_seconds plain java -jar "$WORK_DIR/$JAR_NAME")
+    local cds
+    cds=$(startup_seconds aot-cds java -XX:SharedArchiveFile="$ARCHIVE" -Dspring.aot.enabled=true \
+        -jar "$WORK_DIR/$JAR_NAME")
+
+    echo "========================================="
+    echo "普通启动:     ${plain}s"
+    echo "AOT+CDS 启动: ${cds}s"
+    echo "========================================="
+    printf 'mode,startup_seconds\nplain,%s\naot-cds,%s\n' "$plain" "$cds" > "$RESULT_DIR/startup.csv"
+}
+
+case "${1:-run}" in
+    build) build ;;
+    measure) measure ;;
+    run) shift || true; run "$@" ;;
+    *) echo "用法: $0 [build|run|measure]"; exit 1 ;;
+esac
@@ -0,0 +1,90 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 相似度计算内核基准测试：标量实现与 Vector API 实现的余弦相似度、int8 点积对比
+ * 运行方式：mvn -Psimd,jmh test-compile exec:exec（结果见 README“向量存储”一节）
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SimilarityKernelBenchmark {
+
+    private static final String VECTOR_KERNEL_CLASS = "com.sdecloud.dubhe.ai.report.util.VectorApiSimilarityKernel";
+
+    /** 内核实现：scalar 为标量实现，vector 为 Vector API 实现（需使用 simd profile 编译） */
+    @Param({"scalar", "vector"})
+    private String kernelName;
+
+    /** 向量维度，text-embedding-v3 默认 1024 维 */
+    @Param({"512", "1024"})
+    private int dimension;
+
+    private SimilarityKernel kernel;
+    private float[] a;
+    private float[] b;
+    private byte[] codeA;
+    private byte[] codeB;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        kernel = "scalar".equals(kernelName)
+                ? new ScalarSimilarityKernel()
+                : (SimilarityKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        Random random = new Random(42);
+        a = new float[dimension];
+        b = new float[dimension];
+        codeA = new byte[dimension];
+        codeB = new byte[dimension];
+        for (int i = 0; i < dimension; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian();
+            codeA[i] = (byte) (random.nextInt(255) - 127);
+            codeB[i] = (byte) (random.nextInt(255) - 127);
+        }
+    }
+
+    @Benchmark
+    public float cosine() {
+        return kernel.cosine(a, b);
+    }
+
+    @Benchmark
+    public float dotFloatInt8() {
+        return kernel.dot(a, codeB);
+    }
+
+    @Benchmark
+    public int dotInt8() {
+        return kernel.dot(codeA, codeB);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SimilarityKernelBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
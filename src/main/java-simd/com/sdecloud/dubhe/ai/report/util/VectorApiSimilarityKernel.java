@@ -0,0 +1,112 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 Java Vector API（jdk.incubator.vector）的 SIMD 相似度计算内核
+ * 仅在 simd profile 中编译，运行时需要 --add-modules jdk.incubator.vector，由 {@link SimilarityKernels} 通过反射加载
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+
+    /** int8 加载宽度：至少 64 位，转换为浮点/整型时按 part 拆分成多个首选宽度的向量 */
+    private static final VectorSpecies<Byte> BYTE = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(64, FLOAT.length() * Byte.SIZE)));
+    private static final int BYTE_PARTS = BYTE.length() / FLOAT.length();
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        FloatVector sum = FloatVector.zero(FLOAT);
+        int i = 0;
+        int bound = FLOAT.loopBound(a.length);
+        for (; i < bound; i += FLOAT.length()) {
+            sum = FloatVector.fromArray(FLOAT, a, i).fma(FloatVector.fromArray(FLOAT, b, i), sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    @Override
+    public float dot(float[] a, byte[] code) {
+        FloatVector sum = FloatVector.zero(FLOAT);
+        int i = 0;
+        int bound = BYTE.loopBound(a.length);
+        for (; i < bound; i += BYTE.length()) {
+            ByteVector bytes = ByteVector.fromArray(BYTE, code, i);
+            for (int part = 0; part < BYTE_PARTS; part++) {
+                FloatVector b = (FloatVector) bytes.convertShape(VectorOperators.B2F, FLOAT, part);
+                sum = FloatVector.fromArray(FLOAT, a, i + part * FLOAT.length()).fma(b, sum);
+            }
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * code[i];
+        }
+        return result;
+    }
+
+    @Override
+    public int dot(byte[] a, byte[] b) {
+        IntVector sum = IntVector.zero(INT);
+        int parts = BYTE.length() / INT.length();
+        int i = 0;
+        int bound = BYTE.loopBound(a.length);
+        for (; i < bound; i += BYTE.length()) {
+            ByteVector va = ByteVector.fromArray(BYTE, a, i);
+            ByteVector vb = ByteVector.fromArray(BYTE, b, i);
+            for (int part = 0; part < parts; part++) {
+                IntVector ia = (IntVector) va.convertShape(VectorOperators.B2I, INT, part);
+                IntVector ib = (IntVector) vb.convertShape(VectorOperators.B2I, INT, part);
+                sum = sum.add(ia.mul(ib));
+            }
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    @Override
+    public float cosine(float[] a, float[] b) {
+        FloatVector dot = FloatVector.zero(FLOAT);
+        FloatVector normA = FloatVector.zero(FLOAT);
+        FloatVector normB = FloatVector.zero(FLOAT);
+        int i = 0;
+        int bound = FLOAT.loopBound(a.length);
+        for (; i < bound; i += FLOAT.length()) {
+            FloatVector va = FloatVector.fromArray(FLOAT, a, i);
+            FloatVector vb = FloatVector.fromArray(FLOAT, b, i);
+            dot = va.fma(vb, dot);
+            normA = va.fma(va, normA);
+            normB = vb.fma(vb, normB);
+        }
+        float d = dot.reduceLanes(VectorOperators.ADD);
+        float na = normA.reduceLanes(VectorOperators.ADD);
+        float nb = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            d += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return na == 0f || nb == 0f ? 0f : (float) (d / Math.sqrt((double) na * nb));
+    }
+
+    @Override
+    public String name() {
+        return "vector-api-" + FLOAT.vectorBitSize() + "bit";
+    }
+}
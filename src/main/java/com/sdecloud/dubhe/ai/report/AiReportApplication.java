@@ -2,6 +2,7 @@ package com.sdecloud.dubhe.ai.report;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * AI Report 主应用程序
@@ -10,6 +11,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @since 2025-10-14
  */
 @SpringBootApplication
+@EnableScheduling
 public class AiReportApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,55 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.DependencyGuard;
+import com.sdecloud.dubhe.ai.report.service.QueryEmbeddingCache;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * 带查询向量缓存的向量模型
+ * 仅对单条文本（检索问题）走缓存，文档向量化仍直接调用原始模型；
+ * 调用原始模型经过熔断器和隔离舱，熔断期间已缓存的检索问题仍可使用
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final DependencyGuard guard;
+
+    CachingEmbeddingModel(EmbeddingModel delegate, QueryEmbeddingCache queryEmbeddingCache, DependencyGuard guard) {
+        this.delegate = delegate;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.guard = guard;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] cached = queryEmbeddingCache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        float[] embedding = guard.call(DependencyGuard.EMBEDDING, () -> delegate.embed(text));
+        queryEmbeddingCache.put(text, embedding);
+        return embedding;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return guard.call(DependencyGuard.EMBEDDING, () -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return guard.call(DependencyGuard.EMBEDDING, () -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
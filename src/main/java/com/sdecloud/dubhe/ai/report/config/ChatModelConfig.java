@@ -0,0 +1,46 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
+import com.sdecloud.dubhe.ai.report.service.AdaptiveConcurrencyLimiter;
+import com.sdecloud.dubhe.ai.report.service.DependencyGuard;
+import com.sdecloud.dubhe.ai.report.service.HedgedRequestExecutor;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * 大模型配置类
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Configuration
+public class ChatModelConfig {
+
+	/**
+	 * 所有 ChatClient 共用的大模型，DashScope 调用先经过对冲，再经过熔断器和隔离舱、自适应并发限制，实际调用记录 JFR 事件。
+	 * 对冲在最外层，原始请求和对冲请求各自经过熔断、隔离和并发限制；
+	 * 熔断器放在限制器外层，熔断期间调用不排队、也不影响限制器的耗时基线；大模型隔离舱容量不小于限制器的并发上限与排队上限之和，
+	 * 排队和拒绝由限制器按优先级决定
+	 *
+	 * @param dashScopeChatModel DashScope 大模型
+	 * @param limiter            并发限制器
+	 * @param properties         并发限制配置
+	 * @param guard              依赖熔断与隔离
+	 * @param hedgedExecutor     对冲请求执行器
+	 * @return ChatModel 实例
+	 */
+	@Bean
+	@Primary
+	public ChatModel limitedChatModel(DashScopeChatModel dashScopeChatModel, AdaptiveConcurrencyLimiter limiter,
+	                                  LlmLimiterProperties properties, DependencyGuard guard,
+	                                  HedgedRequestExecutor hedgedExecutor) {
+		ChatModel recorded = new RecordingChatModel(dashScopeChatModel);
+		ChatModel chatModel = properties.isEnabled()
+				? new ConcurrencyLimitedChatModel(recorded, limiter)
+				: recorded;
+		return new HedgingChatModel(new GuardedChatModel(chatModel, guard), hedgedExecutor);
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.service.AdaptiveConcurrencyLimiter;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 受并发限制的大模型
+ * 每次调用（包括工具调用的多轮往返）占用一个许可，优先级取自当前线程的 {@link ChatPriority}，
+ * 流式调用取自 Reactor Context
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class ConcurrencyLimitedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    ConcurrencyLimitedChatModel(ChatModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(ChatPriority.current());
+        boolean throttled = false;
+        try {
+            return delegate.call(prompt);
+        } catch (RuntimeException e) {
+            throttled = AdaptiveConcurrencyLimiter.isThrottled(e);
+            throw e;
+        } finally {
+            limiter.release(permit, throttled);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        // 排队期间不占用线程，获得许可后再发起流式调用；优先级优先取 Reactor Context
+        ChatPriority assembled = ChatPriority.current();
+        return Mono.deferContextual(context -> Mono.fromFuture(
+                        limiter.acquireAsync(context.getOrDefault(ChatPriority.CONTEXT_KEY, assembled))))
+                .flatMapMany(permit -> {
+                    AtomicBoolean throttled = new AtomicBoolean();
+                    return delegate.stream(prompt)
+                            .doOnError(e -> throttled.set(AdaptiveConcurrencyLimiter.isThrottled(e)))
+                            .doFinally(signal -> limiter.release(permit, throttled.get()));
+                });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
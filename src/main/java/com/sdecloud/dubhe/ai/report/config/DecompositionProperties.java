@@ -0,0 +1,38 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 问题拆分配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.decompose")
+public class DecompositionProperties {
+
+    /** 是否将复合问题拆分为并行执行的子查询 */
+    private boolean enabled = true;
+
+    /** 问题包含这些连接词时才调用大模型规划拆分，其他问题直接生成单条 SQL；“和”“与”“、”多用于连接同一查询的条件（如“技术部和销售部”），不作为拆分信号 */
+    private String compositePattern = "及|并且|同时|分别|；|;";
+
+    /** 单个问题最多拆分的子查询数量 */
+    private int maxSubQueries = 4;
+
+    /** 子查询 SQL 生成和执行的并发度 */
+    private int concurrency = 4;
+
+    /** 一组子查询的总超时时间（毫秒） */
+    private long timeoutMs = 180000;
+
+    /** 所有请求共享的子查询线程数上限 */
+    private int maxThreads = 16;
+
+    /** 线程都忙时等待执行的子查询工作任务上限，已满时子查询在调用线程上依次执行 */
+    private int queueCapacity = 32;
+}
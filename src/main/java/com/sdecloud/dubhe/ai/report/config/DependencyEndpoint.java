@@ -0,0 +1,38 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.DependencyGuard;
+import com.sdecloud.dubhe.ai.report.service.McpConnectionManager;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 下游依赖状态端点：/actuator/dependencies
+ * 展示各依赖的熔断器状态、失败率、隔离舱占用，以及 MCP 连接状态
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Component
+@Endpoint(id = "dependencies")
+public class DependencyEndpoint {
+
+    private final DependencyGuard guard;
+    private final McpConnectionManager mcpConnectionManager;
+
+    public DependencyEndpoint(DependencyGuard guard, McpConnectionManager mcpConnectionManager) {
+        this.guard = guard;
+        this.mcpConnectionManager = mcpConnectionManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> dependencies() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("breakers", guard.snapshots());
+        result.put("mcpConnections", mcpConnectionManager.states());
+        return result;
+    }
+}
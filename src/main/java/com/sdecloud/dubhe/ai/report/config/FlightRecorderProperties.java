@@ -0,0 +1,43 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * JFR 持续录制与慢请求转储配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.jfr")
+public class FlightRecorderProperties {
+
+    /** 是否启用持续录制和慢请求转储 */
+    private boolean enabled = true;
+
+    /** JFR 配置名称：default（约 1% 开销）或 profile（开销较高，信息更详细） */
+    private String settings = "default";
+
+    /** 报告运行耗时超过该值时转储（毫秒） */
+    private long slowThresholdMs = 60000;
+
+    /** 录制保留时长 */
+    private Duration maxAge = Duration.ofMinutes(10);
+
+    /** 录制保留的最大磁盘占用（MB） */
+    private int maxSizeMb = 100;
+
+    /** 两次转储的最小间隔（毫秒），避免大量慢请求时频繁转储 */
+    private long minDumpIntervalMs = 60000;
+
+    /** 转储目录 */
+    private String dumpDir = "report-result/slow-runs";
+
+    /** 状态摘要中字符串值保留的最大字符数 */
+    private int stateValueMaxChars = 200;
+}
@@ -0,0 +1,55 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 时间序列预测配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.forecast")
+public class ForecastProperties {
+
+    /** 是否在报告流程中对月度序列做预测 */
+    private boolean enabled = true;
+
+    /** 问题匹配该正则时才做预测 */
+    private String questionPattern = "预测|预计|预估|未来|趋势|展望";
+
+    /** 预测月数 */
+    private int horizon = 3;
+
+    /** 季节周期（月） */
+    private int period = 12;
+
+    /** 预测区间的置信水平 */
+    private double confidence = 0.95;
+
+    /** 每个查询结果最多预测的指标列数 */
+    private int maxMeasures = 3;
+
+    /**
+     * 绑定时校验预测月数，至少预测 1 个月
+     */
+    public void setHorizon(int horizon) {
+        if (horizon < 1) {
+            throw new IllegalArgumentException("report.forecast.horizon 至少为 1: " + horizon);
+        }
+        this.horizon = horizon;
+    }
+
+    /**
+     * 绑定时校验置信水平，必须在 (0, 1) 之间
+     */
+    public void setConfidence(double confidence) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("report.forecast.confidence 必须在 (0, 1) 之间: " + confidence);
+        }
+        this.confidence = confidence;
+    }
+}
@@ -0,0 +1,57 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.DependencyGuard;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 受熔断器和隔离舱保护的大模型
+ * 熔断期间调用立即失败；流式调用在流结束时归还许可，被取消的流不计入失败率，
+ * 需要等待隔离舱许可时在 boundedElastic 线程上等待，不阻塞订阅线程
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class GuardedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final DependencyGuard guard;
+
+    GuardedChatModel(ChatModel delegate, DependencyGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return guard.call(DependencyGuard.CHAT, () -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return guard.acquireReactive(DependencyGuard.CHAT)
+                .flatMapMany(permit -> {
+                    AtomicReference<Throwable> error = new AtomicReference<>();
+                    return delegate.stream(prompt)
+                            .doOnError(error::set)
+                            .doFinally(signal -> {
+                                if (signal == SignalType.CANCEL) {
+                                    guard.cancel(permit);
+                                } else {
+                                    guard.release(permit, error.get());
+                                }
+                            });
+                });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
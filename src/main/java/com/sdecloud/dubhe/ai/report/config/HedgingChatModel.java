@@ -0,0 +1,42 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.HedgedRequestExecutor;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * 支持对冲请求的大模型
+ * 同步调用按当前节点（{@link HedgedRequestExecutor#currentNode()}）的配置对冲，每个请求都经过内层的熔断、隔离和并发限制；
+ * 流式调用不对冲
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class HedgingChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final HedgedRequestExecutor executor;
+
+    HedgingChatModel(ChatModel delegate, HedgedRequestExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return executor.execute(HedgedRequestExecutor.currentNode(), () -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return delegate.stream(prompt);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
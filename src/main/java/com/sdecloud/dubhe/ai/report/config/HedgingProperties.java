@@ -0,0 +1,47 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 大模型对冲请求配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.llm.hedging")
+public class HedgingProperties {
+
+    /** 是否启用对冲请求 */
+    private boolean enabled = false;
+
+    /** 启用对冲的节点（节点名见 ReportGraphRoutes），工具调用节点会重复执行工具，默认不对冲 */
+    private List<String> nodes = new ArrayList<>(List.of("nl2sql", "reportGenerate"));
+
+    /** 调用超过该分位耗时后发出对冲请求 */
+    private double percentile = 0.95;
+
+    /** 对冲预算：额外调用数占总调用数的比例上限 */
+    private double budgetRatio = 0.05;
+
+    /** 对冲预算允许的最大突发次数 */
+    private int maxBurst = 5;
+
+    /** 每个节点统计耗时的最近调用数 */
+    private int windowSize = 200;
+
+    /** 样本数达到该值后才开始对冲 */
+    private int minSamples = 20;
+
+    /** 对冲等待时间下限（毫秒） */
+    private long minDelayMs = 500;
+
+    /** 同时进行的对冲请求上限（对冲线程池大小），已满时不再对冲 */
+    private int maxConcurrent = 8;
+}
@@ -0,0 +1,34 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.KnowledgeBaseService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 知识库健康检查，加入 readiness 组：知识库加载完成前实例不接收流量
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Component
+public class KnowledgeBaseHealthIndicator implements HealthIndicator {
+
+    private final KnowledgeBaseService knowledgeBaseService;
+
+    public KnowledgeBaseHealthIndicator(KnowledgeBaseService knowledgeBaseService) {
+        this.knowledgeBaseService = knowledgeBaseService;
+    }
+
+    @Override
+    public Health health() {
+        if (knowledgeBaseService.isReady()) {
+            return Health.up().build();
+        }
+        Health.Builder builder = Health.outOfService().withDetail("status", "loading");
+        if (knowledgeBaseService.getLastError() != null) {
+            builder.withDetail("lastError", knowledgeBaseService.getLastError());
+        }
+        return builder.build();
+    }
+}
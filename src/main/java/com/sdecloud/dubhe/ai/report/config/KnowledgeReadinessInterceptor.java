@@ -0,0 +1,67 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.service.KnowledgeBaseService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 知识库就绪拦截器
+ * 知识库在后台加载完成前，依赖知识库的接口最多等待 ready-wait-ms，仍未就绪时返回 503 和 Retry-After
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Component
+public class KnowledgeReadinessInterceptor implements HandlerInterceptor {
+
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 请求等待知识库就绪的最长时间（毫秒），0 表示立即返回 503 */
+    @Value("${report.knowledge.ready-wait-ms:0}")
+    private long readyWaitMs;
+
+    /** 503 响应中建议客户端的重试间隔（秒） */
+    @Value("${report.knowledge.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    public KnowledgeReadinessInterceptor(KnowledgeBaseService knowledgeBaseService) {
+        this.knowledgeBaseService = knowledgeBaseService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (knowledgeBaseService.awaitReady(readyWaitMs)) {
+            return true;
+        }
+        log.info("知识库尚未就绪，拒绝请求: {}", request.getRequestURI());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("errorCode", "KNOWLEDGE_NOT_READY");
+        body.put("errorMessage", "知识库正在加载，请稍后重试");
+        if (knowledgeBaseService.getLastError() != null) {
+            body.put("lastError", knowledgeBaseService.getLastError());
+        }
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+        return false;
+    }
+}
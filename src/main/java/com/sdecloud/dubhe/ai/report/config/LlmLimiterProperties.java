@@ -0,0 +1,44 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 大模型调用自适应并发限制配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.llm.limiter")
+public class LlmLimiterProperties {
+
+    /** 是否启用并发限制 */
+    private boolean enabled = true;
+
+    /** 初始并发上限 */
+    private int initialLimit = 4;
+
+    /** 最小并发上限 */
+    private int minLimit = 1;
+
+    /** 最大并发上限 */
+    private int maxLimit = 20;
+
+    /** 排队等待超时时间（毫秒） */
+    private long queueTimeoutMs = 30000;
+
+    /** 排队请求数上限，超出后直接拒绝 */
+    private int maxQueueSize = 200;
+
+    /** 调用耗时超过基线耗时的该倍数时视为拥塞，缩小并发上限 */
+    private double latencyTolerance = 2.0;
+
+    /** 耗时拥塞时的缩小比例 */
+    private double latencyBackoffRatio = 0.9;
+
+    /** 被服务端限流或超时时的缩小比例 */
+    private double throttleBackoffRatio = 0.5;
+}
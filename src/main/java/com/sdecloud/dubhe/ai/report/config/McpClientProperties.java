@@ -0,0 +1,55 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MCP 客户端连接配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.mcp.client")
+public class McpClientProperties {
+
+    /** 客户端名称，与连接名组成工具名前缀（与 Spring AI starter 的命名保持一致） */
+    private String name = "spring-ai-mcp-client";
+
+    /** 客户端版本 */
+    private String version = "1.0.0";
+
+    /** 单次请求超时时间 */
+    private Duration requestTimeout = Duration.ofSeconds(60);
+
+    /** 保活 ping 间隔（毫秒） */
+    private long pingIntervalMs = 30000;
+
+    /** 重连初始退避时间（毫秒） */
+    private long initialBackoffMs = 1000;
+
+    /** 重连最大退避时间（毫秒） */
+    private long maxBackoffMs = 60000;
+
+    /** 退避时间随机抖动比例，避免多个实例同时重连 */
+    private double jitterRatio = 0.3;
+
+    /** SSE 连接：连接名 → 服务地址 */
+    private Map<String, Connection> connections = new LinkedHashMap<>();
+
+    @Data
+    public static class Connection {
+
+        /** MCP 服务地址 */
+        private String url;
+
+        /** SSE 端点 */
+        private String sseEndpoint = "/sse";
+    }
+}
@@ -0,0 +1,52 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按节点路由大模型的配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.llm.routing")
+public class ModelRoutingProperties {
+
+    /** 节点名称 → 模型参数，未配置的节点使用 spring.ai.dashscope.chat.options 中的默认模型 */
+    private Map<String, ModelProfile> nodes = new HashMap<>();
+
+    /** NL2SQL 校验失败时升级到大模型 */
+    private Escalation escalation = new Escalation();
+
+    @Data
+    public static class ModelProfile {
+
+        /** 模型名称 */
+        private String model;
+
+        /** 温度参数，为空时使用默认值 */
+        private Double temperature;
+
+        /** 最大输出 Token 数，为空时使用默认值 */
+        private Integer maxTokens;
+    }
+
+    @Data
+    public static class Escalation {
+
+        /** 是否启用升级 */
+        private boolean enabled = true;
+
+        /** 升级使用的模型 */
+        private String model = "qwen3-max";
+
+        /** 表结构缓存不可用时是否通过 EXPLAIN 校验 SQL（需要访问数据库，表结构已缓存时在本地校验） */
+        private boolean explain = true;
+    }
+}
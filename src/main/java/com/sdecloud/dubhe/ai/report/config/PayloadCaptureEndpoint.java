@@ -0,0 +1,46 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.PayloadLogPolicy;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * 单个运行完整日志开关端点：/actuator/payloadcapture
+ * POST /actuator/payloadcapture/{runId} 开始完整记录该运行的提示词、查询结果和响应，DELETE 停止
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Component
+@Endpoint(id = "payloadcapture")
+public class PayloadCaptureEndpoint {
+
+    private final PayloadLogPolicy policy;
+
+    public PayloadCaptureEndpoint(PayloadLogPolicy policy) {
+        this.policy = policy;
+    }
+
+    @ReadOperation
+    public Set<String> captured() {
+        return policy.capturedRunIds();
+    }
+
+    @WriteOperation
+    public Set<String> capture(@Selector String runId) {
+        policy.capture(runId);
+        return policy.capturedRunIds();
+    }
+
+    @DeleteOperation
+    public Set<String> release(@Selector String runId) {
+        policy.release(runId);
+        return policy.capturedRunIds();
+    }
+}
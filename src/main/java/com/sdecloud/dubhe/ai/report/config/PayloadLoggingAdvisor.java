@@ -0,0 +1,70 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import com.sdecloud.dubhe.ai.report.service.PayloadLogPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * 大模型请求与响应日志 Advisor（替代 SimpleLoggerAdvisor）
+ * 按 {@link PayloadLogPolicy} 记录提示词和响应：默认只输出长度和摘要哈希，抽样运行输出截断内容，指定运行完整记录
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Component
+public class PayloadLoggingAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final PayloadLogPolicy policy;
+
+    public PayloadLoggingAdvisor(PayloadLogPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        RunContext.Run run = RunContext.current();
+        policy.log(log, run, "大模型请求", request.prompt().getContents());
+        ChatClientResponse response = chain.nextCall(request);
+        logResponse(run, response);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.deferContextual(context -> {
+            RunContext.Run run = context.getOrDefault(RunContext.CONTEXT_KEY, RunContext.current());
+            policy.log(log, run, "大模型请求", request.prompt().getContents());
+            return new ChatClientMessageAggregator().aggregateChatClientResponse(chain.nextStream(request),
+                    response -> logResponse(run, response));
+        });
+    }
+
+    private void logResponse(RunContext.Run run, ChatClientResponse response) {
+        ChatResponse chatResponse = response.chatResponse();
+        if (chatResponse == null || chatResponse.getResult() == null) {
+            return;
+        }
+        policy.log(log, run, "大模型响应", chatResponse.getResult().getOutput().getText());
+    }
+
+    @Override
+    public String getName() {
+        return PayloadLoggingAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
@@ -0,0 +1,29 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 提示词、查询结果、报告正文等大段内容的日志策略配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.payload-logging")
+public class PayloadLoggingProperties {
+
+    /** 按运行抽样输出截断内容的比例（0~1），未抽中的运行只在 DEBUG 级别输出长度和摘要哈希 */
+    private double sampleRate = 0.01;
+
+    /** 抽样输出时内容保留的最大字符数 */
+    private int maxChars = 500;
+
+    /** 启动时即完整记录内容的运行ID，运行时可通过 /actuator/payloadcapture 增删 */
+    private List<String> captureRunIds = new ArrayList<>();
+}
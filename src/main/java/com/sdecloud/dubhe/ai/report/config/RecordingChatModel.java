@@ -0,0 +1,88 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.jfr.ChatCallEvent;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 记录 JFR 大模型调用事件的大模型
+ * 直接包装 DashScope 模型，事件耗时为实际调用耗时（不含并发限制的排队时间），运行ID取自 {@link RunContext}
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class RecordingChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+
+    RecordingChatModel(ChatModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        ChatCallEvent event = new ChatCallEvent();
+        event.begin();
+        ChatResponse response = null;
+        String outcome = "error";
+        try {
+            response = delegate.call(prompt);
+            outcome = "success";
+            return response;
+        } finally {
+            commit(event, RunContext.current(), prompt, response, outcome, false);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.deferContextual(context -> {
+            RunContext.Run run = context.getOrDefault(RunContext.CONTEXT_KEY, RunContext.current());
+            ChatCallEvent event = new ChatCallEvent();
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+            AtomicReference<String> outcome = new AtomicReference<>("cancelled");
+            event.begin();
+            return delegate.stream(prompt)
+                    .doOnNext(last::set)
+                    .doOnComplete(() -> outcome.set("success"))
+                    .doOnError(e -> outcome.set("error"))
+                    .doFinally(signal -> commit(event, run, prompt, last.get(), outcome.get(), true));
+        });
+    }
+
+    private static void commit(ChatCallEvent event, RunContext.Run run, Prompt prompt, ChatResponse response,
+                               String outcome, boolean streaming) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.runId = run.runId();
+        event.node = run.node();
+        event.streaming = streaming;
+        event.outcome = outcome;
+        event.model = prompt.getOptions() != null ? prompt.getOptions().getModel() : null;
+        if (response != null && response.getMetadata() != null) {
+            if (response.getMetadata().getModel() != null && !response.getMetadata().getModel().isEmpty()) {
+                event.model = response.getMetadata().getModel();
+            }
+            Usage usage = response.getMetadata().getUsage();
+            if (usage != null) {
+                event.promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+                event.completionTokens = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+            }
+        }
+        event.commit();
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
@@ -0,0 +1,60 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 报告缓存与预计算配置
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.cache")
+public class ReportCacheProperties {
+
+    /** 是否启用报告缓存 */
+    private boolean enabled = true;
+
+    /** 数据版本探测SQL，返回结果变化即视为数据已更新；为空时按 Prompt 可注入的全部表自动生成 */
+    private String versionSql = "";
+
+    /** 后台探测数据版本的间隔（毫秒），请求只读取最近一次探测结果 */
+    private long versionProbeIntervalMs = 60000;
+
+    /** 数据更新后仍可返回旧报告的最长时间（毫秒），期间在后台刷新一次；超过后同步重新生成 */
+    private long maxStalenessMs = 21600000;
+
+    /** 最多缓存的报告数量 */
+    private int maxEntries = 500;
+
+    /** 缓存占用内存上限（MB），超出后淘汰最久未使用的报告 */
+    private long maxMemoryMb = 64;
+
+    /** 报告正文 + 查询结果超过该字符数时写入磁盘，内存中只保留索引 */
+    private int spillThresholdChars = 20000;
+
+    /** 大报告落盘目录 */
+    private String spillDir = "report-cache";
+
+    /** 热门报告预计算 */
+    private Precompute precompute = new Precompute();
+
+    @Data
+    public static class Precompute {
+
+        /** 是否启用预计算 */
+        private boolean enabled = true;
+
+        /** 预计算执行时间（默认每天 05:30，上班前） */
+        private String cron = "0 30 5 * * *";
+
+        /** 预计算的热门报告数量 */
+        private int topN = 10;
+
+        /** 最多统计的不同请求数，超出后提前衰减并淘汰低频请求 */
+        private int maxTracked = 10000;
+    }
+}
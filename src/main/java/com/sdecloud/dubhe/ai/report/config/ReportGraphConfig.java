@@ -5,20 +5,28 @@ import com.alibaba.cloud.ai.graph.GraphRepresentation;
 import com.alibaba.cloud.ai.graph.KeyStrategy;
 import com.alibaba.cloud.ai.graph.KeyStrategyFactory;
 import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.action.AsyncEdgeAction;
 import com.alibaba.cloud.ai.graph.action.AsyncNodeAction;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.cloud.ai.graph.exception.GraphStateException;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
 import com.sdecloud.dubhe.ai.report.graph.*;
+import com.sdecloud.dubhe.ai.report.service.BlobStore;
+import com.sdecloud.dubhe.ai.report.service.ReportCheckpointStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 报告生成Graph配置
  * 定义报告生成的完整流程：NL2SQL → SQL执行 → 图表生成 → 报告生成 → Word转换
+ * 关键步骤失败时经条件边直接进入错误节点，未启用的步骤（图表、Word）直接跳过
  *
  * @author liangjun
  * @since 2025-10-14
@@ -30,9 +38,13 @@ public class ReportGraphConfig {
 
     private final Nl2SqlNode nl2SqlNode;
     private final SqlExecuteNode sqlExecuteNode;
+    private final ForecastNode forecastNode;
     private final ChartGenerateNode chartGenerateNode;
     private final ReportGenerateNode reportGenerateNode;
     private final WordConvertNode wordConvertNode;
+    private final ErrorHandleNode errorHandleNode;
+    private final ReportCheckpointStore checkpointStore;
+    private final BlobStore blobStore;
 
     /**
      * 创建键策略工厂Bean
@@ -44,37 +56,47 @@ public class ReportGraphConfig {
             HashMap<String, KeyStrategy> keyStrategyHashMap = new HashMap<>();
             
             // 输入参数
-            keyStrategyHashMap.put("question", new ReplaceStrategy());
-            keyStrategyHashMap.put("topK", new ReplaceStrategy());
-            keyStrategyHashMap.put("generateChart", new ReplaceStrategy());
-            keyStrategyHashMap.put("generateWord", new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.QUESTION, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.RUN_ID, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.RESUME_FROM, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.TOP_K, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.GENERATE_CHART, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.GENERATE_WORD, new ReplaceStrategy());
             
             // NL2SQL结果
-            keyStrategyHashMap.put("sql", new ReplaceStrategy());
-            keyStrategyHashMap.put("nl2sql_success", new ReplaceStrategy());
-            keyStrategyHashMap.put("nl2sql_error", new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.SQL, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.SUB_QUERIES, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.NL2SQL_SUCCESS, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.NL2SQL_ERROR, new ReplaceStrategy());
             
             // SQL执行结果
-            keyStrategyHashMap.put("queryResult", new ReplaceStrategy());
-            keyStrategyHashMap.put("sql_execute_success", new ReplaceStrategy());
-            keyStrategyHashMap.put("sql_execute_error", new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.QUERY_RESULT, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.SQL_EXECUTE_SUCCESS, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.SQL_EXECUTE_ERROR, new ReplaceStrategy());
             
+            // 预测结果
+            keyStrategyHashMap.put(GraphStateKeys.FORECAST, new ReplaceStrategy());
+
             // 图表生成结果
-            keyStrategyHashMap.put("chartUrl", new ReplaceStrategy());
-            keyStrategyHashMap.put("chartType", new ReplaceStrategy());
-            keyStrategyHashMap.put("chart_generate_success", new ReplaceStrategy());
-            keyStrategyHashMap.put("chart_generate_error", new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.CHART_URL, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.CHART_TYPE, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.CHART_GENERATE_SUCCESS, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.CHART_GENERATE_ERROR, new ReplaceStrategy());
             
             // 报告生成结果
-            keyStrategyHashMap.put("report", new ReplaceStrategy());
-            keyStrategyHashMap.put("reportFilePath", new ReplaceStrategy());
-            keyStrategyHashMap.put("report_generate_success", new ReplaceStrategy());
-            keyStrategyHashMap.put("report_generate_error", new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.REPORT, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.REPORT_FILE_PATH, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.REPORT_GENERATE_SUCCESS, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.REPORT_GENERATE_ERROR, new ReplaceStrategy());
             
             // Word转换结果
-            keyStrategyHashMap.put("wordFilePath", new ReplaceStrategy());
-            keyStrategyHashMap.put("word_convert_success", new ReplaceStrategy());
-            keyStrategyHashMap.put("word_convert_error", new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.WORD_FILE_PATH, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.WORD_CONVERT_SUCCESS, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.WORD_CONVERT_ERROR, new ReplaceStrategy());
+
+            // 错误处理
+            keyStrategyHashMap.put(GraphStateKeys.ERROR_STEP, new ReplaceStrategy());
+            keyStrategyHashMap.put(GraphStateKeys.ERROR_MESSAGE, new ReplaceStrategy());
             
             return keyStrategyHashMap;
         };
@@ -82,33 +104,48 @@ public class ReportGraphConfig {
 
     /**
      * 创建报告生成Graph
-     * 流程：NL2SQL → SQL执行 → 图表生成 → 报告生成 → Word转换
+     * 流程：NL2SQL → SQL执行 → 预测 →（图表生成）→ 报告生成 →（Word转换）
+     * NL2SQL、SQL执行、报告生成失败时跳转到错误节点；携带 resumeFrom 时从指定节点续跑
      */
     @Bean
     public StateGraph reportGraph(KeyStrategyFactory keyStrategyFactory) throws GraphStateException {
         log.info("创建报告生成Graph");
 
         StateGraph stateGraph = new StateGraph(keyStrategyFactory)
-                // 添加节点
-                .addNode("nl2sql", AsyncNodeAction.node_async(nl2SqlNode))
-                .addNode("sqlExecute", AsyncNodeAction.node_async(sqlExecuteNode))
-                .addNode("chartGenerate", AsyncNodeAction.node_async(chartGenerateNode))
-                .addNode("reportGenerate", AsyncNodeAction.node_async(reportGenerateNode))
-                .addNode("wordConvert", AsyncNodeAction.node_async(wordConvertNode))
-                // 定义节点之间的连接关系
-                .addEdge(StateGraph.START, "nl2sql")
-                .addEdge("nl2sql", "sqlExecute")
-                .addEdge("sqlExecute", "chartGenerate")
-                .addEdge("chartGenerate", "reportGenerate")
-                .addEdge("reportGenerate", "wordConvert")
-                .addEdge("wordConvert", StateGraph.END);
-
-        // 添加 PlantUML 打印
-        GraphRepresentation representation = stateGraph.getGraph(GraphRepresentation.Type.PLANTUML,
-                "数据分析报告生成流程");
-        log.info("\n=== 数据分析报告生成流程 UML ===");
-        log.info(representation.content());
-        log.info("==================================\n");
+                // 添加节点（成功后写入检查点，支持断点续跑）
+                .addNode(ReportGraphRoutes.NL2SQL, checkpointed(ReportGraphRoutes.NL2SQL, nl2SqlNode))
+                .addNode(ReportGraphRoutes.SQL_EXECUTE, checkpointed(ReportGraphRoutes.SQL_EXECUTE, sqlExecuteNode))
+                .addNode(ReportGraphRoutes.FORECAST, checkpointed(ReportGraphRoutes.FORECAST, forecastNode))
+                .addNode(ReportGraphRoutes.CHART_GENERATE, checkpointed(ReportGraphRoutes.CHART_GENERATE, chartGenerateNode))
+                .addNode(ReportGraphRoutes.REPORT_GENERATE, checkpointed(ReportGraphRoutes.REPORT_GENERATE, reportGenerateNode))
+                .addNode(ReportGraphRoutes.WORD_CONVERT, checkpointed(ReportGraphRoutes.WORD_CONVERT, wordConvertNode))
+                .addNode(ReportGraphRoutes.ERROR, AsyncNodeAction.node_async(errorHandleNode))
+                // 定义节点之间的连接关系（续跑时从检查点的下一节点开始）
+                .addConditionalEdges(StateGraph.START, route(ReportGraphRoutes::fromStart),
+                        mappings(ReportGraphRoutes.NL2SQL, ReportGraphRoutes.SQL_EXECUTE, ReportGraphRoutes.FORECAST,
+                                ReportGraphRoutes.CHART_GENERATE, ReportGraphRoutes.REPORT_GENERATE,
+                                ReportGraphRoutes.WORD_CONVERT, ReportGraphRoutes.ERROR))
+                .addConditionalEdges(ReportGraphRoutes.NL2SQL, route(ReportGraphRoutes::afterNl2Sql),
+                        mappings(ReportGraphRoutes.SQL_EXECUTE, ReportGraphRoutes.ERROR))
+                .addConditionalEdges(ReportGraphRoutes.SQL_EXECUTE, route(ReportGraphRoutes::afterSqlExecute),
+                        mappings(ReportGraphRoutes.FORECAST, ReportGraphRoutes.ERROR))
+                .addConditionalEdges(ReportGraphRoutes.FORECAST, route(ReportGraphRoutes::afterForecast),
+                        mappings(ReportGraphRoutes.CHART_GENERATE, ReportGraphRoutes.REPORT_GENERATE))
+                // 图表生成失败不影响报告生成
+                .addEdge(ReportGraphRoutes.CHART_GENERATE, ReportGraphRoutes.REPORT_GENERATE)
+                .addConditionalEdges(ReportGraphRoutes.REPORT_GENERATE, route(ReportGraphRoutes::afterReportGenerate),
+                        mappings(ReportGraphRoutes.WORD_CONVERT, StateGraph.END, ReportGraphRoutes.ERROR))
+                .addEdge(ReportGraphRoutes.WORD_CONVERT, StateGraph.END)
+                .addEdge(ReportGraphRoutes.ERROR, StateGraph.END);
+
+        // PlantUML 仅在 DEBUG 级别渲染打印，避免每次启动的额外开销
+        if (log.isDebugEnabled()) {
+            GraphRepresentation representation = stateGraph.getGraph(GraphRepresentation.Type.PLANTUML,
+                    "数据分析报告生成流程");
+            log.debug("\n=== 数据分析报告生成流程 UML ===");
+            log.debug(representation.content());
+            log.debug("==================================\n");
+        }
 
         return stateGraph;
     }
@@ -133,19 +170,24 @@ public class ReportGraphConfig {
 
         StateGraph stateGraph = new StateGraph(keyStrategyFactory)
                 // 只添加查询相关的节点
-                .addNode("nl2sql", AsyncNodeAction.node_async(nl2SqlNode))
-                .addNode("sqlExecute", AsyncNodeAction.node_async(sqlExecuteNode))
+                .addNode(ReportGraphRoutes.NL2SQL, AsyncNodeAction.node_async(nl2SqlNode))
+                .addNode(ReportGraphRoutes.SQL_EXECUTE, AsyncNodeAction.node_async(sqlExecuteNode))
+                .addNode(ReportGraphRoutes.ERROR, AsyncNodeAction.node_async(errorHandleNode))
                 // 定义简单的流程
-                .addEdge(StateGraph.START, "nl2sql")
-                .addEdge("nl2sql", "sqlExecute")
-                .addEdge("sqlExecute", StateGraph.END);
+                .addEdge(StateGraph.START, ReportGraphRoutes.NL2SQL)
+                .addConditionalEdges(ReportGraphRoutes.NL2SQL, route(ReportGraphRoutes::afterNl2Sql),
+                        mappings(ReportGraphRoutes.SQL_EXECUTE, ReportGraphRoutes.ERROR))
+                .addEdge(ReportGraphRoutes.SQL_EXECUTE, StateGraph.END)
+                .addEdge(ReportGraphRoutes.ERROR, StateGraph.END);
 
-        // 添加 PlantUML 打印
-        GraphRepresentation representation = stateGraph.getGraph(GraphRepresentation.Type.PLANTUML,
-                "查询流程");
-        log.info("\n=== 查询流程 UML ===");
-        log.info(representation.content());
-        log.info("====================\n");
+        // PlantUML 仅在 DEBUG 级别渲染打印，避免每次启动的额外开销
+        if (log.isDebugEnabled()) {
+            GraphRepresentation representation = stateGraph.getGraph(GraphRepresentation.Type.PLANTUML,
+                    "查询流程");
+            log.debug("\n=== 查询流程 UML ===");
+            log.debug(representation.content());
+            log.debug("====================\n");
+        }
 
         return stateGraph;
     }
@@ -158,4 +200,29 @@ public class ReportGraphConfig {
         log.info("编译查询Graph（一次性编译，提升性能）");
         return queryGraph.compile();
     }
+
+    /**
+     * 包装节点：成功完成后写入检查点
+     */
+    private AsyncNodeAction checkpointed(String nodeId, NodeAction node) {
+        return AsyncNodeAction.node_async(new CheckpointingNodeAction(nodeId, node, checkpointStore, blobStore));
+    }
+
+    /**
+     * 基于状态数据的路由规则转换为异步条件边
+     */
+    private static AsyncEdgeAction route(Function<Map<String, Object>, String> rule) {
+        return AsyncEdgeAction.edge_async(state -> rule.apply(state.data()));
+    }
+
+    /**
+     * 条件边目标映射（路由结果即节点名）
+     */
+    private static Map<String, String> mappings(String... targets) {
+        Map<String, String> mappings = new HashMap<>();
+        for (String target : targets) {
+            mappings.put(target, target);
+        }
+        return mappings;
+    }
 }
@@ -0,0 +1,83 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 下游依赖熔断与隔离配置
+ * 依赖名：chat（大模型）、embedding（向量模型）、mcp-{连接名}（各 MCP 服务）
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.resilience")
+public class ResilienceProperties {
+
+    /** 是否启用熔断与隔离 */
+    private boolean enabled = true;
+
+    /** 未单独配置的依赖使用的策略 */
+    private Policy defaults = new Policy();
+
+    /** 按依赖名单独配置的策略（未填写的字段取 Policy 的默认值，而不是 defaults） */
+    private Map<String, Policy> dependencies = new LinkedHashMap<>();
+
+    /**
+     * 获取依赖的策略
+     *
+     * @param dependency 依赖名
+     * @return 策略
+     */
+    public Policy policyFor(String dependency) {
+        return dependencies.getOrDefault(dependency, defaults);
+    }
+
+    @Data
+    public static class Policy {
+
+        /** 失败率达到该值时熔断 */
+        private double failureRateThreshold = 0.5;
+
+        /** 统计失败率的最近调用数 */
+        private int windowSize = 20;
+
+        /** 窗口内调用数达到该值后才计算失败率 */
+        private int minimumCalls = 10;
+
+        /** 熔断持续时间（毫秒），之后进入半开状态放行试探调用 */
+        private long openDurationMs = 30000;
+
+        /** 半开状态允许的试探调用数，全部成功后关闭熔断 */
+        private int halfOpenCalls = 3;
+
+        /** 隔离舱：同时进行的最大调用数 */
+        private int maxConcurrent = 20;
+
+        /** 隔离舱已满时的最长等待时间（毫秒），0 表示立即失败 */
+        private long maxWaitMs = 0;
+
+        /**
+         * 复制策略并替换隔离舱并发上限
+         *
+         * @param maxConcurrent 并发上限
+         * @return 新策略
+         */
+        public Policy withMaxConcurrent(int maxConcurrent) {
+            Policy copy = new Policy();
+            copy.setFailureRateThreshold(failureRateThreshold);
+            copy.setWindowSize(windowSize);
+            copy.setMinimumCalls(minimumCalls);
+            copy.setOpenDurationMs(openDurationMs);
+            copy.setHalfOpenCalls(halfOpenCalls);
+            copy.setMaxConcurrent(maxConcurrent);
+            copy.setMaxWaitMs(maxWaitMs);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询结果缓存（透视/下钻）配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.results")
+public class ResultSetProperties {
+
+    /** 最多缓存的结果集数量，超出后淘汰最久未使用的结果集 */
+    private int maxEntries = 200;
+
+    /** 结果集最后一次使用后的保留时间（毫秒） */
+    private long ttlMs = 3600000;
+
+    /** 超过该行数的结果不缓存 */
+    private int maxRows = 100000;
+
+    /** 透视结果最多返回的行数 */
+    private int maxResponseRows = 1000;
+}
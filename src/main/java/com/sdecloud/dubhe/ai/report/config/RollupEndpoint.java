@@ -0,0 +1,38 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import com.sdecloud.dubhe.ai.report.service.RollupManager;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 汇总表状态端点：/actuator/rollups
+ * 展示汇总表是否可用、构建时的数据版本和改写命中率，POST 立即重建
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Component
+@Endpoint(id = "rollups")
+public class RollupEndpoint {
+
+    private final RollupManager rollupManager;
+
+    public RollupEndpoint(RollupManager rollupManager) {
+        this.rollupManager = rollupManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return rollupManager.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> refresh() {
+        rollupManager.refresh();
+        return rollupManager.status();
+    }
+}
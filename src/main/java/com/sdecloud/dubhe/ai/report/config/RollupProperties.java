@@ -0,0 +1,29 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 销售汇总表配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.rollup")
+public class RollupProperties {
+
+    /** 是否维护汇总表并改写查询（需要 mysqlDataQuery 工具有建表和写入权限） */
+    private boolean enabled = false;
+
+    /** 汇总表名，重建时使用 {表名}_build、{表名}_old 两张临时表 */
+    private String table = "sales_rollup_month";
+
+    /** 检查数据版本、在数据变化后重建汇总表的间隔（毫秒） */
+    private long refreshIntervalMs = 600000;
+
+    /** 改写的查询同时在原表上执行并比对结果的比例（0~1），不一致时停用汇总表并重建 */
+    private double verifySampleRate = 0.0;
+}
@@ -0,0 +1,40 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据库Schema元数据配置
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.schema")
+public class SchemaProperties {
+
+    /** 是否从 information_schema 动态加载表结构，关闭时使用 Prompt 中的静态表结构 */
+    private boolean enabled = true;
+
+    /** 启动时未能加载表结构（如 MCP 连接尚未建立）时的重试间隔（毫秒） */
+    private long loadRetryMs = 30000;
+
+    /** 单个 Prompt 最多注入的表数量 */
+    private int maxTables = 8;
+
+    /** 单表最多注入的列数量（主键和外键始终保留） */
+    private int maxColumnsPerTable = 15;
+
+    /** 表的业务别名，用于将问题中的中文术语关联到表，如 dept: [部门] */
+    private Map<String, List<String>> aliases = new HashMap<>();
+
+    /** 不注入 Prompt 的表，如内部维护的汇总表 */
+    private List<String> excludedTables = new ArrayList<>();
+}
@@ -0,0 +1,32 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会话追问配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.session")
+public class SessionProperties {
+
+    /** 最多保留的会话数量，超出后淘汰最久未使用的会话 */
+    private int maxSessions = 1000;
+
+    /** 会话最后一次提问后的保留时间（毫秒） */
+    private long ttlMs = 1800000;
+
+    /** 追问的最大长度（字符），更长的问题按独立问题完整执行 */
+    private int followUpMaxChars = 30;
+
+    /** 上一轮结果行数不超过该值时保留解析后的行，用于直接在缓存结果上筛选 */
+    private int maxCachedRows = 5000;
+
+    /** 上一轮结果摘要的最大字符数 */
+    private int summaryMaxChars = 500;
+}
@@ -1,30 +1,50 @@
 package com.sdecloud.dubhe.ai.report.config;
 
+import com.sdecloud.dubhe.ai.report.service.DependencyGuard;
+import com.sdecloud.dubhe.ai.report.service.KernelSimpleVectorStore;
+import com.sdecloud.dubhe.ai.report.service.MappedVectorStore;
+import com.sdecloud.dubhe.ai.report.service.QueryEmbeddingCache;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 /**
  * 向量存储配置类
  *
  * @author liangjun
  * @since 2025-10-14
  */
+@Slf4j
 @Configuration
 public class VectorStoreConfig {
 
 	/**
-	 * 创建内存向量存储 Bean
-	 * SimpleVectorStore 是一个简单的内存向量存储实现
+	 * 创建向量存储 Bean
+	 * simple：内存向量存储（SimpleVectorStore，检索使用相似度内核）；mapped：int8 量化 + 内存映射文件存储，向量和文档不占用堆内存。
+	 * 检索问题的向量经过缓存，向量模型调用经过熔断器和隔离舱
 	 *
-	 * @param embeddingModel 向量模型
+	 * @param embeddingModel      向量模型
+	 * @param queryEmbeddingCache 查询向量缓存
+	 * @param guard               依赖熔断与隔离
+	 * @param properties          向量存储配置
 	 * @return VectorStore 实例
 	 */
 	@Bean
-	public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-		return SimpleVectorStore.builder(embeddingModel).build();
+	public VectorStore vectorStore(EmbeddingModel embeddingModel, QueryEmbeddingCache queryEmbeddingCache,
+	                               DependencyGuard guard, VectorStoreProperties properties) throws IOException {
+		EmbeddingModel cachingModel = new CachingEmbeddingModel(embeddingModel, queryEmbeddingCache, guard);
+		if (VectorStoreProperties.TYPE_MAPPED.equals(properties.getType())) {
+			log.info("使用内存映射向量存储: {}", properties.getDir());
+			return new MappedVectorStore(cachingModel, Paths.get(properties.getDir()),
+					properties.getChunkMb() * 1024 * 1024, properties.getRescoreFactor(), properties.getParallelThreshold());
+		}
+		return new KernelSimpleVectorStore(SimpleVectorStore.builder(cachingModel));
 	}
 
 }
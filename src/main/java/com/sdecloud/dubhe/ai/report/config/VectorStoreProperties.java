@@ -0,0 +1,38 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 向量存储配置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "report.vector-store")
+public class VectorStoreProperties {
+
+    /** 内存向量存储（SimpleVectorStore） */
+    public static final String TYPE_SIMPLE = "simple";
+
+    /** int8 量化 + 内存映射文件向量存储（MappedVectorStore） */
+    public static final String TYPE_MAPPED = "mapped";
+
+    /** 向量存储类型：simple 或 mapped */
+    private String type = TYPE_SIMPLE;
+
+    /** mapped 存储的数据目录，同一主机上的多个实例可共用，共享页缓存 */
+    private String dir = "vector-store";
+
+    /** 量化检索的候选数 = topK × 该倍数，候选再用全精度向量重新打分 */
+    private int rescoreFactor = 4;
+
+    /** 检索时每个并行扫描分区的最少记录数，记录数不足时单线程扫描 */
+    private int parallelThreshold = 20000;
+
+    /** 内存映射块大小（MB） */
+    private int chunkMb = 64;
+}
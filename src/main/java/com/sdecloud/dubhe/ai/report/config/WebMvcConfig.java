@@ -0,0 +1,28 @@
+package com.sdecloud.dubhe.ai.report.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web MVC 配置
+ * 依赖知识库的接口（报告、RAG、知识库检索）在知识库就绪前由 {@link KnowledgeReadinessInterceptor} 拦截
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final KnowledgeReadinessInterceptor knowledgeReadinessInterceptor;
+
+    public WebMvcConfig(KnowledgeReadinessInterceptor knowledgeReadinessInterceptor) {
+        this.knowledgeReadinessInterceptor = knowledgeReadinessInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(knowledgeReadinessInterceptor)
+                .addPathPatterns("/report/**", "/rag/**", "/knowledge/**");
+    }
+}
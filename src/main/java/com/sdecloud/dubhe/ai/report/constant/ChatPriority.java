@@ -0,0 +1,71 @@
+package com.sdecloud.dubhe.ai.report.constant;
+
+import java.util.function.Supplier;
+
+/**
+ * 大模型调用优先级
+ * 并发受限时按优先级出队，数值越小越优先
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public enum ChatPriority {
+
+    /** 交互式问答（/ai/chat、/rag/chat） */
+    INTERACTIVE,
+
+    /** 单个报告生成 */
+    REPORT,
+
+    /** 批量报告、预计算和后台刷新 */
+    BATCH;
+
+    /** 响应式调用链中传递优先级的 Reactor Context 键 */
+    public static final String CONTEXT_KEY = ChatPriority.class.getName();
+
+    private static final ThreadLocal<ChatPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 当前线程的调用优先级，未设置时为 REPORT
+     *
+     * @return 优先级
+     */
+    public static ChatPriority current() {
+        ChatPriority priority = CURRENT.get();
+        return priority != null ? priority : REPORT;
+    }
+
+    /**
+     * 以指定优先级执行任务，结束后恢复原优先级
+     *
+     * @param priority 优先级
+     * @param task     任务
+     */
+    public static void run(ChatPriority priority, Runnable task) {
+        call(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 以指定优先级执行任务并返回结果，结束后恢复原优先级
+     *
+     * @param priority 优先级
+     * @param task     任务
+     * @return 任务结果
+     */
+    public static <T> T call(ChatPriority priority, Supplier<T> task) {
+        ChatPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
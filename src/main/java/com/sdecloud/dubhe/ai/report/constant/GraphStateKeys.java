@@ -23,9 +23,17 @@ public final class GraphStateKeys {
     /** 是否生成Word文档 */
     public static final String GENERATE_WORD = "generateWord";
 
+    // ========== 运行控制 ==========
+    /** 运行ID（断点续跑的检查点标识） */
+    public static final String RUN_ID = "runId";
+    /** 续跑时的起始节点 */
+    public static final String RESUME_FROM = "resumeFrom";
+
     // ========== NL2SQL结果 ==========
     /** 生成的SQL */
     public static final String SQL = "sql";
+    /** 复合问题拆分出的子查询（名称、问题、SQL），为空时只有单条SQL */
+    public static final String SUB_QUERIES = "subQueries";
     /** NL2SQL是否成功 */
     public static final String NL2SQL_SUCCESS = "nl2sql_success";
     /** NL2SQL错误信息 */
@@ -39,6 +47,10 @@ public final class GraphStateKeys {
     /** SQL执行错误信息 */
     public static final String SQL_EXECUTE_ERROR = "sql_execute_error";
 
+    // ========== 预测结果 ==========
+    /** 月度序列的预测值和预测区间（JSON），问题不含预测意图或没有月度序列时不存在 */
+    public static final String FORECAST = "forecast";
+
     // ========== 图表生成结果 ==========
     /** 图表URL */
     public static final String CHART_URL = "chartUrl";
@@ -66,5 +78,11 @@ public final class GraphStateKeys {
     public static final String WORD_CONVERT_SUCCESS = "word_convert_success";
     /** Word转换错误信息 */
     public static final String WORD_CONVERT_ERROR = "word_convert_error";
+
+    // ========== 错误处理 ==========
+    /** 失败的步骤 */
+    public static final String ERROR_STEP = "error_step";
+    /** 失败原因 */
+    public static final String ERROR_MESSAGE = "error_message";
 }
 
@@ -1,5 +1,6 @@
 package com.sdecloud.dubhe.ai.report.controller;
 
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,10 +32,10 @@ public class ChatController {
 	 */
 	@GetMapping("/chat")
 	public String chat(@RequestParam(value = "message", defaultValue = "你好") String message) {
-		return chatClient.prompt()
+		return ChatPriority.call(ChatPriority.INTERACTIVE, () -> chatClient.prompt()
 				.user(message)
 				.call()
-				.content();
+				.content());
 	}
 
 }
@@ -1,20 +1,26 @@
 package com.sdecloud.dubhe.ai.report.controller;
 
 import com.alibaba.cloud.ai.graph.OverAllState;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
 import com.sdecloud.dubhe.ai.report.graph.Nl2SqlNode;
+import com.sdecloud.dubhe.ai.report.service.ContextPacker;
 import com.sdecloud.dubhe.ai.report.service.KnowledgeBaseService;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.Document;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * RAG (检索增强生成) 控制器
@@ -29,13 +35,16 @@ public class RagController {
 
 	private final ChatClient chatClient;
 	private final KnowledgeBaseService knowledgeBaseService;
+	private final ContextPacker contextPacker;
 	private final Nl2SqlNode nl2SqlNode;
 
 	public RagController(ChatModel chatModel, 
 	                     KnowledgeBaseService knowledgeBaseService,
+	                     ContextPacker contextPacker,
 	                     Nl2SqlNode nl2SqlNode) {
 		this.chatClient = ChatClient.builder(chatModel).build();
 		this.knowledgeBaseService = knowledgeBaseService;
+		this.contextPacker = contextPacker;
 		this.nl2SqlNode = nl2SqlNode;
 	}
 
@@ -56,28 +65,37 @@ public class RagController {
 		// 1. 从知识库检索相关内容
 		List<Document> similarDocs = knowledgeBaseService.searchSimilarDocuments(question, topK);
 
-		// 2. 构建上下文
-		String context = similarDocs.stream()
-				.map(Document::getText)
-				.collect(Collectors.joining("\n\n"));
+		// 2. 在 Token 预算内构建上下文并构建提示词
+		String prompt = buildPrompt(similarDocs, question);
 
-		// 3. 构建提示词
-		String prompt = String.format("""
-				你是一个专业的数据分析助手。请根据以下知识库内容回答用户的问题。
-				
-				知识库内容：
-				%s
-				
-				用户问题：%s
-				
-				请基于知识库内容给出准确、详细的回答。如果知识库中没有相关信息，请明确告知用户。
-				""", context, question);
-
-		// 4. 调用大模型
-		return chatClient.prompt()
+		// 3. 调用大模型（交互式请求优先）
+		return ChatPriority.call(ChatPriority.INTERACTIVE, () -> chatClient.prompt()
 				.user(prompt)
 				.call()
-				.content();
+				.content());
+	}
+
+	/**
+	 * RAG 流式问答接口
+	 * 与 /chat 相同，回答以 SSE 逐段返回，等待大模型期间不占用请求线程
+	 *
+	 * @param question 用户问题
+	 * @param topK     检索相似文档数量
+	 * @return AI 回答片段流
+	 */
+	@GetMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<String> chatStream(
+			@RequestParam("question") String question,
+			@RequestParam(value = "topK", defaultValue = "3") int topK) {
+
+		// 知识库检索需要调用向量模型（阻塞），切换到 boundedElastic 执行
+		return Mono.fromCallable(() -> buildPrompt(knowledgeBaseService.searchSimilarDocuments(question, topK), question))
+				.subscribeOn(Schedulers.boundedElastic())
+				.flatMapMany(prompt -> chatClient.prompt()
+						.user(prompt)
+						.stream()
+						.content())
+				.contextWrite(Context.of(ChatPriority.CONTEXT_KEY, ChatPriority.INTERACTIVE));
 	}
 
 	/**
@@ -101,11 +119,27 @@ public class RagController {
 		state.input(input);
 
 		// 调用节点
-		Map<String, Object> result = nl2SqlNode.apply(state);
+		Map<String, Object> result = ChatPriority.call(ChatPriority.INTERACTIVE, () -> nl2SqlNode.apply(state));
 		
 		// 返回SQL
 		return (String) result.get("sql");
 	}
 
-}
+	/**
+	 * 在 Token 预算内构建上下文并生成提示词
+	 */
+	private String buildPrompt(List<Document> similarDocs, String question) {
+		String context = contextPacker.pack(similarDocs, "rag").text();
+		return String.format("""
+				你是一个专业的数据分析助手。请根据以下知识库内容回答用户的问题。
+				
+				知识库内容：
+				%s
+				
+				用户问题：%s
+				
+				请基于知识库内容给出准确、详细的回答。如果知识库中没有相关信息，请明确告知用户。
+				""", context, question);
+	}
 
+}
@@ -1,12 +1,24 @@
 package com.sdecloud.dubhe.ai.report.controller;
 
+import com.sdecloud.dubhe.ai.report.model.PivotRequest;
+import com.sdecloud.dubhe.ai.report.model.PivotResponse;
 import com.sdecloud.dubhe.ai.report.model.ReportRequest;
 import com.sdecloud.dubhe.ai.report.model.ReportResponse;
 import com.sdecloud.dubhe.ai.report.model.QueryResponse;
+import com.sdecloud.dubhe.ai.report.service.BatchReportService;
+import com.sdecloud.dubhe.ai.report.service.ConversationService;
+import com.sdecloud.dubhe.ai.report.service.PivotService;
+import com.sdecloud.dubhe.ai.report.service.ReactiveReportService;
 import com.sdecloud.dubhe.ai.report.service.ReportGenerationService;
 import com.sdecloud.dubhe.ai.report.util.FileUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 /**
  * 数据分析报告控制器
@@ -21,11 +33,21 @@ import org.springframework.web.bind.annotation.*;
 public class ReportController {
 
 	private final ReportGenerationService reportGenerationService;
+	private final BatchReportService batchReportService;
+	private final ReactiveReportService reactiveReportService;
+	private final ConversationService conversationService;
+	private final PivotService pivotService;
 	@SuppressWarnings("unused") // 用于初始化报告目录
 	private final FileUtils fileUtils;
 	
-	public ReportController(ReportGenerationService reportGenerationService, FileUtils fileUtils) {
+	public ReportController(ReportGenerationService reportGenerationService, BatchReportService batchReportService,
+	                        ReactiveReportService reactiveReportService, ConversationService conversationService,
+	                        PivotService pivotService, FileUtils fileUtils) {
 		this.reportGenerationService = reportGenerationService;
+		this.batchReportService = batchReportService;
+		this.reactiveReportService = reactiveReportService;
+		this.conversationService = conversationService;
+		this.pivotService = pivotService;
 		this.fileUtils = fileUtils;
 		// 确保报告目录存在
 		fileUtils.ensureReportDirectory();
@@ -45,6 +67,21 @@ public class ReportController {
 		return reportGenerationService.query(question, topK);
 	}
 
+	/**
+	 * 透视 /query 返回的结果
+	 * 在缓存的结果上执行筛选、分组聚合、排序和取前 N 行，不调用大模型和数据库；返回新的结果ID，可继续下钻
+	 *
+	 * @param resultId /query 或上一次透视返回的结果ID
+	 * @param request  透视请求
+	 * @return 透视结果；请求无效时状态码为 400，结果不存在或已过期时为 404
+	 */
+	@PostMapping("/results/{resultId}/pivot")
+	public ResponseEntity<PivotResponse> pivot(@PathVariable("resultId") String resultId,
+	                                           @RequestBody PivotRequest request) {
+		PivotResponse response = pivotService.pivot(resultId, request);
+		return ResponseEntity.status(response.getStatus()).body(response);
+	}
+
 	/**
 	 * 生成完整的数据分析报告
 	 * 流程：NL2SQL → 执行查询 → 生成图表 → 生成报告
@@ -57,5 +94,68 @@ public class ReportController {
 		return reportGenerationService.generateReport(request);
 	}
 
+	/**
+	 * 响应式生成完整的数据分析报告
+	 * 流程与 /generate 相同，等待大模型期间不占用请求线程，适合大量并发的慢请求
+	 *
+	 * @param request 报告生成请求
+	 * @return 完整的分析报告（Markdown 格式）
+	 */
+	@PostMapping("/generate/reactive")
+	public Mono<ReportResponse> generateReportReactive(@RequestBody ReportRequest request) {
+		return reactiveReportService.generateReport(request);
+	}
+
+	/**
+	 * 批量生成报告
+	 * 共享向量检索、相同问题只生成一次 SQL、相同 SQL 只查询一次，
+	 * 以 SSE 逐项返回结果（item 事件），最后返回汇总和吞吐量（summary 事件）
+	 *
+	 * @param requests 报告生成请求列表
+	 * @return SSE 结果流
+	 */
+	@PostMapping(value = "/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter batchGenerate(@RequestBody List<ReportRequest> requests) {
+		return batchReportService.generate(requests);
+	}
+
+	/**
+	 * 从检查点续跑失败的报告生成流程
+	 * 从最后一个成功的节点之后继续，不重复已完成的 NL2SQL 和 SQL 查询
+	 *
+	 * @param runId 报告生成时返回的运行ID
+	 * @return 完整的分析报告
+	 */
+	@PostMapping("/runs/{runId}/resume")
+	public ReportResponse resumeReport(@PathVariable("runId") String runId) {
+		return reportGenerationService.resumeReport(runId);
+	}
+
+	/**
+	 * 在会话中提问
+	 * 追问（如“只看技术部”“按季度呢”）能从上一轮结果筛选时不再查询数据库，否则在上一轮 SQL 基础上改写，
+	 * 独立问题完整执行；响应中的 followUpRoute 为本轮的执行方式
+	 *
+	 * @param sessionId 会话ID（由调用方生成，同一会话的多轮提问使用同一ID）
+	 * @param request   问题及报告参数
+	 * @param report    是否生成报告，默认只返回 SQL 和查询结果
+	 * @return 响应
+	 */
+	@PostMapping("/sessions/{sessionId}/ask")
+	public ReportResponse ask(@PathVariable("sessionId") String sessionId, @RequestBody ReportRequest request,
+	                          @RequestParam(value = "report", defaultValue = "false") boolean report) {
+		return conversationService.ask(sessionId, request, report);
+	}
+
+	/**
+	 * 结束会话，释放缓存的上一轮结果
+	 *
+	 * @param sessionId 会话ID
+	 */
+	@DeleteMapping("/sessions/{sessionId}")
+	public void closeSession(@PathVariable("sessionId") String sessionId) {
+		conversationService.close(sessionId);
+	}
+
 }
 
@@ -2,34 +2,49 @@ package com.sdecloud.dubhe.ai.report.graph;
 
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.config.PayloadLoggingAdvisor;
 import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import com.sdecloud.dubhe.ai.report.service.BlobStore;
+import com.sdecloud.dubhe.ai.report.service.ModelRouter;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 绘制图表节点
- * 负责根据查询结果生成图表（通过MCP antvChart工具）
+ * 负责根据查询结果生成图表（通过MCP antvChart工具），有预测结果时在同一折线图中展示历史值、预测值和预测区间；
+ * 查询结果流式读取前若干行作为图表数据，不整体载入内存
  *
  * @author liangjun
  * @since 2025-10-14
  */
 @Slf4j
 @Component
-public class ChartGenerateNode implements NodeAction {
+public class ChartGenerateNode implements NodeAction, ReactiveNodeAction {
 
     private final ChatClient chatClient;
+    private final ToolCallbackProvider tools;
+    private final ModelRouter modelRouter;
+    private final BlobStore blobStore;
 
-    public ChartGenerateNode(ChatModel chatModel, ToolCallbackProvider tools) {
+    public ChartGenerateNode(ChatModel chatModel, PayloadLoggingAdvisor payloadLoggingAdvisor,
+                             ToolCallbackProvider tools, ModelRouter modelRouter, BlobStore blobStore) {
         this.chatClient = ChatClient.builder(chatModel)
-                .defaultAdvisors(new SimpleLoggerAdvisor())
-                .defaultToolCallbacks(tools)
+                .defaultAdvisors(payloadLoggingAdvisor)
                 .build();
+        // MCP 工具在每次请求时获取，启动时连接未建立或重连后工具变化都不影响
+        this.tools = tools;
+        this.modelRouter = modelRouter;
+        this.blobStore = blobStore;
     }
 
     @Override
@@ -37,78 +52,150 @@ public class ChartGenerateNode implements NodeAction {
         log.info("执行图表生成节点");
 
         String sql = state.value(GraphStateKeys.SQL, "");
-        String queryResult = state.value(GraphStateKeys.QUERY_RESULT, "");
-        Boolean sqlExecuteSuccess = state.value(GraphStateKeys.SQL_EXECUTE_SUCCESS, false);
-        Boolean generateChart = state.value(GraphStateKeys.GENERATE_CHART, true);
-
-        if (!sqlExecuteSuccess) {
-            throw new IllegalStateException("SQL执行失败，无法生成图表");
-        }
-
-        if (queryResult == null || queryResult.trim().isEmpty()) {
-            throw new IllegalArgumentException("查询结果不能为空");
-        }
-
-        // 如果不需要生成图表，直接跳过
-        if (!generateChart) {
-            log.info("跳过图表生成");
-            return Map.of(
-                    GraphStateKeys.CHART_GENERATE_SUCCESS, true,
-                    GraphStateKeys.CHART_URL, null
-            );
+        // 仅在 SQL 执行成功且启用图表时由条件边路由到此节点；大结果在状态中是句柄，只读取预览
+        QueryResultParser.Preview queryResult = blobStore.preview(state.value(GraphStateKeys.QUERY_RESULT, ""));
+        String forecast = state.value(GraphStateKeys.FORECAST, "");
+        if (QueryResultParser.isEmpty(queryResult.text())) {
+            return skipped();
         }
 
         try {
             // 智能推荐图表类型
-            String chartType = recommendChartType(sql, queryResult);
+            String chartType = recommendChartType(sql, forecast);
             log.info("推荐图表类型: {}", chartType);
+            String prompt = buildPrompt(chartType, queryResult, forecast);
+
+            // ChatClient 会自动检测并调用可用的 MCP 工具
+            Map<String, Object> toolContext = RunContext.toolContext(RunContext.current());
+            String chartUrl = modelRouter.call(ReportGraphRoutes.CHART_GENERATE, options -> chatClient.prompt()
+                    .options(options)
+                    .toolCallbacks(tools.getToolCallbacks())
+                    .toolContext(toolContext)
+                    .user(prompt)
+                    .call()
+                    .content());
+
+            return result(chartUrl, chartType);
+
+        } catch (Exception e) {
+            return failure(e);
+        }
+    }
+
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        log.info("执行图表生成节点（响应式）");
+
+        String sql = state.value(GraphStateKeys.SQL, "");
+        String forecast = state.value(GraphStateKeys.FORECAST, "");
+        // 读取落盘的查询结果是阻塞 IO，切换到 boundedElastic 执行
+        return Mono.fromCallable(() -> blobStore.preview(state.value(GraphStateKeys.QUERY_RESULT, "")))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(queryResult -> {
+                    if (QueryResultParser.isEmpty(queryResult.text())) {
+                        return Mono.just(skipped());
+                    }
+                    String chartType = recommendChartType(sql, forecast);
+                    log.info("推荐图表类型: {}", chartType);
+                    return generateReactive(chartType, buildPrompt(chartType, queryResult, forecast));
+                });
+    }
 
-            // 构建明确的工具调用提示词
-            String prompt = String.format("""
+    /**
+     * 工具调用在 boundedElastic 线程执行，运行信息通过工具上下文传递
+     */
+    private Mono<Map<String, Object>> generateReactive(String chartType, String prompt) {
+        return Mono.deferContextual(context -> {
+                    Map<String, Object> toolContext = RunContext.toolContext(
+                            context.getOrDefault(RunContext.CONTEXT_KEY, RunContext.current()));
+                    return modelRouter.callReactive(ReportGraphRoutes.CHART_GENERATE, options -> chatClient.prompt()
+                            .options(options)
+                            .toolCallbacks(tools.getToolCallbacks())
+                            .toolContext(toolContext)
+                            .user(prompt)
+                            .stream()
+                            .content()
+                            .collect(Collectors.joining()));
+                })
+                .map(chartUrl -> result(chartUrl, chartType))
+                .onErrorResume(e -> Mono.just(failure(e)));
+    }
+
+    /**
+     * 构建明确的工具调用提示词
+     */
+    private String buildPrompt(String chartType, QueryResultParser.Preview queryResult, String forecast) {
+        if (forecast != null && !forecast.isBlank()) {
+            return String.format("""
                     请使用 antvChart 工具生成图表：
                     
                     图表类型: %s
-                    数据: %s
+                    预测数据: %s
                     
-                    请调用 antvChart 工具，传入参数：{"chartType": "%s", "data": "%s"}
+                    预测数据中 history 为历史值，forecast 为模型预测值（lower、upper 为预测区间）。
+                    请在同一图表中用不同系列展示历史值、预测值和预测区间上下限，不要自行计算或修改预测数值。
+                    请调用 antvChart 工具，传入参数：{"chartType": "%s", "data": 上述数据整理后的系列}
                     然后返回图表 URL。
-                    """, chartType, queryResult, chartType, queryResult);
+                    """, chartType, forecast, chartType);
+        }
 
-            log.debug("图表生成工具调用提示: {}", prompt);
+        String data = queryResult.text();
+        String note = queryResult.truncated() ? "数据行数较多，以上只列出了前面部分行，请按这些行绘制并在标题中注明。\n" : "";
+        String prompt = String.format("""
+                请使用 antvChart 工具生成图表：
+                
+                图表类型: %s
+                数据: %s
+                %s
+                请调用 antvChart 工具，传入参数：{"chartType": "%s", "data": "%s"}
+                然后返回图表 URL。
+                """, chartType, data, note, chartType, data);
+
+        return prompt;
+    }
 
-            // ChatClient 会自动检测并调用可用的 MCP 工具
-            String chartUrl = chatClient.prompt()
-                    .user(prompt)
-                    .call()
-                    .content();
+    private Map<String, Object> result(String chartUrl, String chartType) {
+        log.info("图表生成成功: {}", chartUrl);
 
-            log.info("图表生成成功: {}", chartUrl);
+        return Map.of(
+                GraphStateKeys.CHART_URL, chartUrl,
+                GraphStateKeys.CHART_TYPE, chartType,
+                GraphStateKeys.CHART_GENERATE_SUCCESS, true
+        );
+    }
 
-            return Map.of(
-                    GraphStateKeys.CHART_URL, chartUrl,
-                    GraphStateKeys.CHART_TYPE, chartType,
-                    GraphStateKeys.CHART_GENERATE_SUCCESS, true
-            );
+    /**
+     * 查询结果没有数据时不调用图表工具
+     */
+    private Map<String, Object> skipped() {
+        log.info("查询结果为空，跳过图表生成");
+        return Map.of(
+                GraphStateKeys.CHART_GENERATE_SUCCESS, false,
+                GraphStateKeys.CHART_GENERATE_ERROR, "查询结果为空，未生成图表"
+        );
+    }
 
-        } catch (Exception e) {
-            log.error("图表生成失败", e);
-            // 图表生成失败不应该中断整个流程，只记录错误
-            log.warn("图表生成失败，继续执行后续步骤: {}", e.getMessage());
-            return Map.of(
-                    GraphStateKeys.CHART_GENERATE_SUCCESS, false,
-                    GraphStateKeys.CHART_GENERATE_ERROR, e.getMessage()
-            );
-        }
+    private Map<String, Object> failure(Throwable e) {
+        log.error("图表生成失败", e);
+        // 图表生成失败不应该中断整个流程，只记录错误
+        log.warn("图表生成失败，继续执行后续步骤: {}", e.getMessage());
+        return Map.of(
+                GraphStateKeys.CHART_GENERATE_SUCCESS, false,
+                GraphStateKeys.CHART_GENERATE_ERROR, String.valueOf(e.getMessage())
+        );
     }
 
     /**
      * 智能推荐图表类型
      *
-     * @param sql         SQL 语句
-     * @param queryResult 查询结果
+     * @param sql      SQL 语句
+     * @param forecast 预测结果
      * @return 推荐的图表类型
      */
-    private String recommendChartType(String sql, String queryResult) {
+    private String recommendChartType(String sql, String forecast) {
+        if (forecast != null && !forecast.isBlank()) {
+            return "line"; // 历史与预测用折线图
+        }
         String sqlLower = sql.toLowerCase();
 
         // 基于 SQL 关键字推荐图表类型
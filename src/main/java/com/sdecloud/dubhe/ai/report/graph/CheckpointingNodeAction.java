@@ -0,0 +1,78 @@
+package com.sdecloud.dubhe.ai.report.graph;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.jfr.NodeExecutionEvent;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import com.sdecloud.dubhe.ai.report.service.BlobStore;
+import com.sdecloud.dubhe.ai.report.service.ReportCheckpointStore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 检查点节点装饰器
+ * 节点成功完成后把合并后的状态写入检查点，失败的节点不覆盖上一个成功快照；
+ * 节点执行期间设置运行上下文并记录 JFR 节点执行事件；超过阈值的输出值先写入 {@link BlobStore}，状态和检查点中只保留句柄
+ *
+ * @author liangjun
+ * @since 2025-10-21
+ */
+public class CheckpointingNodeAction implements NodeAction {
+
+    private final String nodeId;
+    private final NodeAction delegate;
+    private final ReportCheckpointStore checkpointStore;
+    private final BlobStore blobStore;
+
+    public CheckpointingNodeAction(String nodeId, NodeAction delegate, ReportCheckpointStore checkpointStore,
+                                   BlobStore blobStore) {
+        this.nodeId = nodeId;
+        this.delegate = delegate;
+        this.checkpointStore = checkpointStore;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public Map<String, Object> apply(OverAllState state) throws Exception {
+        String runId = state.value(GraphStateKeys.RUN_ID, "");
+        NodeExecutionEvent event = new NodeExecutionEvent();
+        event.begin();
+        Map<String, Object> result = null;
+        try (RunContext.Scope ignored = RunContext.enter(new RunContext.Run(runId, nodeId))) {
+            result = delegate.apply(state);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.runId = runId;
+                event.node = nodeId;
+                event.success = result != null && succeeded(result);
+                event.commit();
+            }
+        }
+
+        if (runId.isEmpty() || !succeeded(result)) {
+            return result;
+        }
+
+        result = blobStore.spillAll(runId, result);
+        Map<String, Object> snapshot = new HashMap<>(state.data());
+        snapshot.putAll(result);
+        snapshot.remove(GraphStateKeys.RESUME_FROM);
+        checkpointStore.save(runId, nodeId, snapshot);
+        return result;
+    }
+
+    /**
+     * 节点输出中任一 *_success 为 false 即视为失败
+     *
+     * @param result 节点输出
+     * @return 是否成功
+     */
+    public static boolean succeeded(Map<String, Object> result) {
+        return result.entrySet().stream()
+                .filter(e -> e.getKey().endsWith("_success"))
+                .noneMatch(e -> Boolean.FALSE.equals(e.getValue()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.sdecloud.dubhe.ai.report.graph;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * 错误终止节点
+ * 关键步骤失败时由条件边直接路由到此节点，汇总失败步骤和原因后结束流程
+ *
+ * @author liangjun
+ * @since 2025-10-21
+ */
+@Slf4j
+@Component
+public class ErrorHandleNode implements NodeAction, ReactiveNodeAction {
+
+    @Override
+    public Map<String, Object> apply(OverAllState state) {
+        String step;
+        String message;
+        if (!state.value(GraphStateKeys.NL2SQL_SUCCESS, false)) {
+            step = "nl2sql";
+            message = state.value(GraphStateKeys.NL2SQL_ERROR, "SQL生成失败");
+        } else if (!state.value(GraphStateKeys.SQL_EXECUTE_SUCCESS, false)) {
+            step = "sqlExecute";
+            message = state.value(GraphStateKeys.SQL_EXECUTE_ERROR, "SQL执行失败");
+        } else {
+            step = "reportGenerate";
+            message = state.value(GraphStateKeys.REPORT_GENERATE_ERROR, "报告生成失败");
+        }
+
+        message = String.valueOf(message);
+        log.warn("流程在 {} 步骤失败，提前结束: {}", step, message);
+        return Map.of(
+                GraphStateKeys.ERROR_STEP, step,
+                GraphStateKeys.ERROR_MESSAGE, message
+        );
+    }
+
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        return Mono.fromSupplier(() -> apply(state));
+    }
+}
@@ -0,0 +1,69 @@
+package com.sdecloud.dubhe.ai.report.graph;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.service.BlobStore;
+import com.sdecloud.dubhe.ai.report.service.ForecastService;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+
+/**
+ * 预测节点
+ * 问题包含预测意图时，对查询结果中的月度序列拟合时间序列模型，预测值和预测区间写入状态供图表和报告使用；
+ * 没有可预测的序列时不输出任何内容，不影响后续节点；查询结果流式读取，行数超过预览上限（明细数据）时不预测
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Component
+public class ForecastNode implements NodeAction, ReactiveNodeAction {
+
+    private final ForecastService forecastService;
+    private final BlobStore blobStore;
+
+    public ForecastNode(ForecastService forecastService, BlobStore blobStore) {
+        this.forecastService = forecastService;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public Map<String, Object> apply(OverAllState state) {
+        String question = state.value(GraphStateKeys.QUESTION, "");
+        if (!forecastService.requested(question)) {
+            return Map.of();
+        }
+        log.info("执行预测节点");
+
+        try {
+            QueryResultParser.Preview queryResult = blobStore.preview(state.value(GraphStateKeys.QUERY_RESULT, ""));
+            if (queryResult.truncated()) {
+                log.info("查询结果行数超过预览上限，跳过预测");
+                return Map.of();
+            }
+            return forecastService.forecast(queryResult.text(), question)
+                    .<Map<String, Object>>map(forecast -> Map.of(GraphStateKeys.FORECAST, forecast))
+                    .orElseGet(() -> {
+                        log.info("查询结果中没有可预测的月度序列");
+                        return Map.of();
+                    });
+        } catch (Exception e) {
+            // 预测失败不影响报告生成，由大模型按原有方式解读
+            log.warn("预测失败，继续执行后续步骤: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        // 读取落盘的查询结果是阻塞 IO，切换到 boundedElastic 执行
+        return Mono.fromCallable(() -> apply(state))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
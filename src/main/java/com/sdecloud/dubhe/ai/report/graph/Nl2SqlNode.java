@@ -2,49 +2,88 @@ package com.sdecloud.dubhe.ai.report.graph;
 
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.config.PayloadLoggingAdvisor;
 import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.service.ContextPacker;
 import com.sdecloud.dubhe.ai.report.service.KnowledgeBaseService;
+import com.sdecloud.dubhe.ai.report.service.ModelRouter;
+import com.sdecloud.dubhe.ai.report.service.QuestionPlanner;
+import com.sdecloud.dubhe.ai.report.service.SchemaMetadataService;
+import com.sdecloud.dubhe.ai.report.service.SqlValidator;
+import com.sdecloud.dubhe.ai.report.service.SubQueryExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.chat.prompt.SystemPromptTemplate;
 import org.springframework.ai.document.Document;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 自然语言转换SQL节点
- * 负责将用户问题转换为SQL查询语句
+ * 负责将用户问题转换为SQL查询语句，先使用快速模型，生成的SQL校验失败时升级到大模型重新生成。
+ * 复合问题先由 {@link QuestionPlanner} 拆分为命名子问题，各子问题并发生成 SQL，结果写入 subQueries 由SQL执行节点并发执行
  *
  * @author liangjun
  * @since 2025-10-14
  */
 @Slf4j
 @Component
-public class Nl2SqlNode implements NodeAction {
+public class Nl2SqlNode implements NodeAction, ReactiveNodeAction {
 
     private final ChatClient chatClient;
     private final KnowledgeBaseService knowledgeBaseService;
+    private final ContextPacker contextPacker;
+    private final SchemaMetadataService schemaMetadataService;
+    private final ModelRouter modelRouter;
+    private final SqlValidator sqlValidator;
+    private final QuestionPlanner questionPlanner;
+    private final SubQueryExecutor subQueryExecutor;
     private final SystemPromptTemplate systemPromptTemplate;
     private final PromptTemplate userPromptTemplate;
+    private final PromptTemplate refinePromptTemplate;
+    private final String defaultSchema;
 
-    public Nl2SqlNode(ChatModel chatModel, KnowledgeBaseService knowledgeBaseService,
+    public Nl2SqlNode(ChatModel chatModel, PayloadLoggingAdvisor payloadLoggingAdvisor,
+                      KnowledgeBaseService knowledgeBaseService, ContextPacker contextPacker,
+                      SchemaMetadataService schemaMetadataService, ModelRouter modelRouter, SqlValidator sqlValidator,
+                      QuestionPlanner questionPlanner, SubQueryExecutor subQueryExecutor,
                       @Value("classpath:prompts/nl2sql-system-prompt.txt") Resource systemPromptResource,
-                      @Value("classpath:prompts/nl2sql-user-prompt.txt") Resource userPromptResource) {
-        this.chatClient = ChatClient.builder(chatModel).defaultAdvisors(new SimpleLoggerAdvisor()).build();
+                      @Value("classpath:prompts/nl2sql-user-prompt.txt") Resource userPromptResource,
+                      @Value("classpath:prompts/nl2sql-refine-prompt.txt") Resource refinePromptResource,
+                      @Value("classpath:prompts/nl2sql-default-schema.txt") Resource defaultSchemaResource) throws IOException {
+        this.chatClient = ChatClient.builder(chatModel).defaultAdvisors(payloadLoggingAdvisor).build();
         this.knowledgeBaseService = knowledgeBaseService;
+        this.contextPacker = contextPacker;
+        this.schemaMetadataService = schemaMetadataService;
+        this.modelRouter = modelRouter;
+        this.sqlValidator = sqlValidator;
+        this.questionPlanner = questionPlanner;
+        this.subQueryExecutor = subQueryExecutor;
         
         // 初始化 Prompt 模板（只创建一次）
         this.systemPromptTemplate = new SystemPromptTemplate(systemPromptResource);
         this.userPromptTemplate = new PromptTemplate(userPromptResource);
+        this.refinePromptTemplate = new PromptTemplate(refinePromptResource);
+        // 元数据不可用时使用的静态表结构
+        this.defaultSchema = defaultSchemaResource.getContentAsString(StandardCharsets.UTF_8);
     }
 
     @Override
@@ -55,50 +94,242 @@ public class Nl2SqlNode implements NodeAction {
         Integer topK = state.value(GraphStateKeys.TOP_K, 5);
 
         if (question == null || question.trim().isEmpty()) {
-            throw new IllegalArgumentException("问题不能为空");
+            return Map.of(
+                    GraphStateKeys.NL2SQL_SUCCESS, false,
+                    GraphStateKeys.NL2SQL_ERROR, "问题不能为空"
+            );
         }
 
         log.debug("转换问题: {}, topK: {}", question, topK);
 
         try {
-            // 1. 从知识库检索相关内容
-            List<Document> similarDocs = knowledgeBaseService.searchSimilarDocuments(question, topK);
-            log.debug("检索到 {} 个相似文档", similarDocs.size());
+            // 复合问题拆分为子问题，并发生成各自的 SQL
+            List<QuestionPlanner.SubQuestion> plan = questionPlanner.plan(question);
+            if (!plan.isEmpty()) {
+                List<Supplier<String>> tasks = plan.stream()
+                        .<Supplier<String>>map(sub -> () -> generateSql(sub.question(), topK))
+                        .toList();
+                return subQueriesResult(plan, subQueryExecutor.invokeAll(tasks));
+            }
 
-            // 2. 构建知识库上下文
-            String context = similarDocs.stream()
-                    .map(Document::getText)
-                    .collect(Collectors.joining("\n\n"));
+            return result(generateSql(question, topK));
 
-            // 3. 创建系统 Prompt 模板（系统角色提示）
-            Message systemMessage = systemPromptTemplate.createMessage();
+        } catch (Exception e) {
+            return failure(e);
+        }
+    }
 
-            // 4. 创建用户 Prompt 模板（用户问题 + 知识库上下文）
-            Message userMessage = userPromptTemplate.createMessage(
-                    Map.of("context", context, "question", question)
-            );
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        log.info("执行自然语言转换SQL节点（响应式）");
 
-            // 5. 调用大模型生成 SQL
-            log.debug("调用大模型生成 SQL...");
-            String sql = chatClient.prompt()
-                    .messages(systemMessage, userMessage)
-                    .call()
-                    .content();
+        String question = state.value(GraphStateKeys.QUESTION, "");
+        Integer topK = state.value(GraphStateKeys.TOP_K, 5);
 
-            log.info("SQL转换成功，长度: {} 字符", sql.length());
-            log.debug("生成的SQL: {}", sql);
+        if (question == null || question.trim().isEmpty()) {
+            return Mono.just(Map.of(
+                    GraphStateKeys.NL2SQL_SUCCESS, false,
+                    GraphStateKeys.NL2SQL_ERROR, "问题不能为空"
+            ));
+        }
 
-            return Map.of(
-                    GraphStateKeys.SQL, sql,
-                    GraphStateKeys.NL2SQL_SUCCESS, true
+        // 拆分规划和知识库检索都是阻塞调用，切换到 boundedElastic 执行
+        return Mono.fromCallable(() -> questionPlanner.plan(question))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(plan -> plan.isEmpty()
+                        ? generateSqlReactive(question, topK).map(this::result)
+                        : Flux.fromIterable(plan)
+                                .flatMapSequential(sub -> generateSqlReactive(sub.question(), topK),
+                                        subQueryExecutor.concurrency())
+                                .collectList()
+                                .map(sqls -> subQueriesResult(plan, sqls)))
+                .onErrorResume(e -> Mono.just(failure(e)));
+    }
+
+    /**
+     * 在上一轮 SQL 基础上改写出回答追问的 SQL（会话追问使用）
+     * 不再检索知识库，Prompt 只包含与问题相关的表结构、上一轮问题、SQL 和结果摘要
+     *
+     * @param previousQuestion 上一轮问题
+     * @param previousSql      上一轮 SQL
+     * @param summary          上一轮结果摘要
+     * @param question         追问
+     * @return 与 {@link #apply(OverAllState)} 相同格式的结果
+     */
+    public Map<String, Object> refine(String previousQuestion, String previousSql, String summary, String question) {
+        log.info("执行追问SQL改写");
+        try {
+            String schema = schemaMetadataService.renderRelevantSchema(previousQuestion + " " + question);
+            Message systemMessage = systemPromptTemplate.createMessage(
+                    Map.of("schema", schema != null ? schema : defaultSchema)
             );
+            Message userMessage = refinePromptTemplate.createMessage(Map.of(
+                    "previousQuestion", previousQuestion,
+                    "previousSql", previousSql,
+                    "summary", summary != null ? summary : "",
+                    "question", question
+            ));
+            List<Message> messages = List.of(systemMessage, userMessage);
+
+            String sql = modelRouter.call(ReportGraphRoutes.NL2SQL, options -> generate(options, messages));
+            if (modelRouter.canEscalate(ReportGraphRoutes.NL2SQL)) {
+                Optional<String> invalid = sqlValidator.validate(sql, modelRouter.isExplainEnabled());
+                if (invalid.isPresent()) {
+                    log.info("改写的SQL校验失败（{}），升级到大模型重新生成", invalid.get());
+                    sql = modelRouter.callEscalated(ReportGraphRoutes.NL2SQL, options -> generate(options, messages));
+                }
+            }
+            return result(sql);
 
         } catch (Exception e) {
-            log.error("SQL转换失败", e);
+            return failure(e);
+        }
+    }
+
+    /**
+     * 生成单个问题的 SQL：构建 Prompt、调用模型，快速模型生成的 SQL 校验失败时升级到大模型
+     */
+    private String generateSql(String question, Integer topK) {
+        // 1. 构建 Prompt（知识库上下文 + 与问题相关的表结构）
+        List<Message> messages = buildMessages(question, topK);
+
+        // 2. 调用大模型生成 SQL
+        log.debug("调用大模型生成 SQL...");
+        String sql = modelRouter.call(ReportGraphRoutes.NL2SQL, options -> generate(options, messages));
+
+        // 3. 快速模型生成的 SQL 校验失败时升级到大模型
+        if (modelRouter.canEscalate(ReportGraphRoutes.NL2SQL)) {
+            Optional<String> invalid = sqlValidator.validate(sql, modelRouter.isExplainEnabled());
+            if (invalid.isPresent()) {
+                log.info("SQL校验失败（{}），升级到大模型重新生成", invalid.get());
+                sql = modelRouter.callEscalated(ReportGraphRoutes.NL2SQL, options -> generate(options, messages));
+            }
+        }
+        return sql;
+    }
+
+    private Mono<String> generateSqlReactive(String question, Integer topK) {
+        // 知识库检索需要调用向量模型（阻塞），切换到 boundedElastic 执行
+        return Mono.fromCallable(() -> buildMessages(question, topK))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(messages -> modelRouter.callReactive(ReportGraphRoutes.NL2SQL,
+                                options -> generateReactive(options, messages))
+                        .flatMap(sql -> escalateIfInvalid(sql, messages)));
+    }
+
+    /**
+     * 构建 Prompt：知识库上下文 + 与问题相关的表结构
+     */
+    private List<Message> buildMessages(String question, Integer topK) {
+        // 1. 从知识库检索相关内容
+        List<Document> similarDocs = knowledgeBaseService.searchSimilarDocuments(question, topK);
+        log.debug("检索到 {} 个相似文档", similarDocs.size());
+
+        // 2. 在 Token 预算内构建知识库上下文
+        String context = contextPacker.pack(similarDocs, "nl2sql").text();
+
+        // 3. 创建系统 Prompt 模板（系统角色提示 + 与问题相关的表结构）
+        String schema = schemaMetadataService.renderRelevantSchema(question);
+        Message systemMessage = systemPromptTemplate.createMessage(
+                Map.of("schema", schema != null ? schema : defaultSchema)
+        );
+
+        // 4. 创建用户 Prompt 模板（用户问题 + 知识库上下文）
+        Message userMessage = userPromptTemplate.createMessage(
+                Map.of("context", context, "question", question)
+        );
+        return List.of(systemMessage, userMessage);
+    }
+
+    private String generate(ChatOptions options, List<Message> messages) {
+        return chatClient.prompt()
+                .options(options)
+                .messages(messages)
+                .call()
+                .content();
+    }
+
+    private Mono<String> generateReactive(ChatOptions options, List<Message> messages) {
+        return chatClient.prompt()
+                .options(options)
+                .messages(messages)
+                .stream()
+                .content()
+                .collect(Collectors.joining());
+    }
+
+    private Mono<String> escalateIfInvalid(String sql, List<Message> messages) {
+        if (!modelRouter.canEscalate(ReportGraphRoutes.NL2SQL)) {
+            return Mono.just(sql);
+        }
+        return Mono.fromCallable(() -> sqlValidator.validate(sql, modelRouter.isExplainEnabled()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(invalid -> {
+                    if (invalid.isEmpty()) {
+                        return Mono.just(sql);
+                    }
+                    log.info("SQL校验失败（{}），升级到大模型重新生成", invalid.get());
+                    return modelRouter.callEscalatedReactive(ReportGraphRoutes.NL2SQL,
+                            options -> generateReactive(options, messages));
+                });
+    }
+
+    private Map<String, Object> result(String sql) {
+        if (sql == null || sql.isBlank()) {
             return Map.of(
                     GraphStateKeys.NL2SQL_SUCCESS, false,
-                    GraphStateKeys.NL2SQL_ERROR, e.getMessage()
+                    GraphStateKeys.NL2SQL_ERROR, "模型未返回SQL"
             );
         }
+
+        log.info("SQL转换成功，长度: {} 字符", sql.length());
+        log.debug("生成的SQL: {}", sql);
+
+        return Map.of(
+                GraphStateKeys.SQL, sql,
+                GraphStateKeys.NL2SQL_SUCCESS, true
+        );
+    }
+
+    /**
+     * 子查询结果：subQueries 保存各子查询的名称、问题和 SQL，sql 为带名称注释的全部 SQL（用于展示）
+     */
+    private Map<String, Object> subQueriesResult(List<QuestionPlanner.SubQuestion> plan, List<String> sqls) {
+        List<Map<String, Object>> subQueries = new ArrayList<>();
+        StringBuilder combined = new StringBuilder();
+        for (int i = 0; i < plan.size(); i++) {
+            String sql = sqls.get(i);
+            if (sql == null || sql.isBlank()) {
+                log.warn("子查询 {} 未生成SQL，已跳过", plan.get(i).name());
+                continue;
+            }
+            Map<String, Object> subQuery = new LinkedHashMap<>();
+            subQuery.put("name", plan.get(i).name());
+            subQuery.put("question", plan.get(i).question());
+            subQuery.put("sql", sql);
+            subQueries.add(subQuery);
+            if (!combined.isEmpty()) {
+                combined.append("\n\n");
+            }
+            combined.append("-- ").append(plan.get(i).name()).append('\n').append(sql);
+        }
+        if (subQueries.isEmpty()) {
+            return result(null);
+        }
+
+        log.info("子查询SQL生成完成，共 {} 个", subQueries.size());
+        return Map.of(
+                GraphStateKeys.SQL, combined.toString(),
+                GraphStateKeys.SUB_QUERIES, subQueries,
+                GraphStateKeys.NL2SQL_SUCCESS, true
+        );
+    }
+
+    private Map<String, Object> failure(Throwable e) {
+        log.error("SQL转换失败", e);
+        return Map.of(
+                GraphStateKeys.NL2SQL_SUCCESS, false,
+                GraphStateKeys.NL2SQL_ERROR, String.valueOf(e.getMessage())
+        );
     }
 }
@@ -0,0 +1,25 @@
+package com.sdecloud.dubhe.ai.report.graph;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * 响应式节点动作
+ * 节点以非阻塞方式执行：大模型调用基于 ChatClient.stream()，
+ * 阻塞的向量检索、文件读写和外部进程切换到 boundedElastic 线程池执行
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public interface ReactiveNodeAction {
+
+    /**
+     * 执行节点
+     *
+     * @param state 当前状态
+     * @return 节点输出（与阻塞模式的 apply 相同）
+     */
+    Mono<Map<String, Object>> applyReactive(OverAllState state);
+}
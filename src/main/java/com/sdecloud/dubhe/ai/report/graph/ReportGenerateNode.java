@@ -2,13 +2,14 @@ package com.sdecloud.dubhe.ai.report.graph;
 
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.config.PayloadLoggingAdvisor;
 import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.service.BlobStore;
+import com.sdecloud.dubhe.ai.report.service.ModelRouter;
 import com.sdecloud.dubhe.ai.report.util.FileUtils;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.PromptTemplate;
@@ -16,8 +17,15 @@ import org.springframework.ai.chat.prompt.SystemPromptTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 输出MD文档节点
@@ -28,19 +36,24 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-public class ReportGenerateNode implements NodeAction {
+public class ReportGenerateNode implements NodeAction, ReactiveNodeAction {
 
     private final ChatClient chatClient;
+    private final ModelRouter modelRouter;
     private final FileUtils fileUtils;
+    private final BlobStore blobStore;
     private final ObjectMapper objectMapper;
     private final SystemPromptTemplate reportSystemPromptTemplate;
     private final PromptTemplate reportUserPromptTemplate;
 
-    public ReportGenerateNode(ChatModel chatModel, FileUtils fileUtils,
+    public ReportGenerateNode(ChatModel chatModel, PayloadLoggingAdvisor payloadLoggingAdvisor,
+                              FileUtils fileUtils, ModelRouter modelRouter, BlobStore blobStore,
                               @Value("classpath:prompts/report-analyst-system-prompt.txt") Resource reportSystemPromptResource,
                               @Value("classpath:prompts/report-analyst-user-prompt.txt") Resource reportUserPromptResource) {
-        this.chatClient = ChatClient.builder(chatModel).defaultAdvisors(new SimpleLoggerAdvisor()).build();
+        this.chatClient = ChatClient.builder(chatModel).defaultAdvisors(payloadLoggingAdvisor).build();
         this.fileUtils = fileUtils;
+        this.modelRouter = modelRouter;
+        this.blobStore = blobStore;
         this.objectMapper = new ObjectMapper();
         
         // 初始化 Prompt 模板（只创建一次）
@@ -53,93 +66,119 @@ public class ReportGenerateNode implements NodeAction {
         log.info("执行报告生成节点");
 
         String question = state.value(GraphStateKeys.QUESTION, "");
-        String sql = state.value(GraphStateKeys.SQL, "");
-        String queryResult = state.value(GraphStateKeys.QUERY_RESULT, "");
-        String chartUrl = state.value(GraphStateKeys.CHART_URL, "");
-        Boolean sqlExecuteSuccess = state.value(GraphStateKeys.SQL_EXECUTE_SUCCESS, false);
-
-        if (question == null || question.trim().isEmpty()) {
-            throw new IllegalArgumentException("问题不能为空");
-        }
-
-        if (!sqlExecuteSuccess) {
-            throw new IllegalStateException("SQL执行失败，无法生成报告");
-        }
-
-        if (sql == null || sql.trim().isEmpty()) {
-            throw new IllegalArgumentException("SQL语句不能为空");
-        }
-
-        if (queryResult == null || queryResult.trim().isEmpty()) {
-            throw new IllegalArgumentException("查询结果不能为空");
-        }
-
 
         try {
             log.info("开始生成数据分析报告");
+            List<Message> messages = buildMessages(state);
 
-            // 确保所有参数都有非 null 值
-            String safeQuestion = question != null ? question : "";
-            String safeSql = sql != null ? sql : "";
-            String safeQueryResult = formatQueryResult(queryResult != null ? queryResult : "{}");
-            String safeChartUrl = chartUrl != null && !chartUrl.trim().isEmpty() ? chartUrl : "暂无图表";
+            // 3. 调用大模型生成报告
+            log.debug("调用大模型生成分析报告...");
+            String report = modelRouter.call(ReportGraphRoutes.REPORT_GENERATE, options -> chatClient.prompt()
+                    .options(options)
+                    .messages(messages)
+                    .call()
+                    .content());
 
-            // 1. 创建系统 Prompt（数据分析师角色）
-            Message systemMessage = reportSystemPromptTemplate.createMessage();
+            return saveReport(report, question);
 
-            // 2. 创建用户 Prompt（问题 + SQL + 结果 + 图表）
-            Map<String, Object> params = Map.of(
-                    "question", safeQuestion,
-                    "sql", safeSql,
-                    "queryResult", safeQueryResult,
-                    "chartUrl", safeChartUrl
-            );
+        } catch (Exception e) {
+            return failure(e);
+        }
+    }
 
-            log.debug("Prompt 参数: {}", params);
-            Message userMessage = reportUserPromptTemplate.createMessage(params);
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        log.info("执行报告生成节点（响应式）");
 
-            // 3. 调用大模型生成报告
-            log.debug("调用大模型生成分析报告...");
-            String report = chatClient.prompt()
-                    .messages(systemMessage, userMessage)
-                    .call()
-                    .content();
+        String question = state.value(GraphStateKeys.QUESTION, "");
+        return Mono.fromCallable(() -> buildMessages(state))
+                .flatMap(messages -> modelRouter.callReactive(ReportGraphRoutes.REPORT_GENERATE,
+                        options -> chatClient.prompt()
+                                .options(options)
+                                .messages(messages)
+                                .stream()
+                                .content()
+                                .collect(Collectors.joining())))
+                // 报告落盘是阻塞 IO，切换到 boundedElastic 执行
+                .publishOn(Schedulers.boundedElastic())
+                .map(report -> saveReport(report, question))
+                .onErrorResume(e -> Mono.just(failure(e)));
+    }
 
-            log.info("分析报告生成完成，长度: {} 字符", report.length());
+    /**
+     * 构建 Prompt：数据分析师角色 + 问题、SQL、查询结果、预测结果和图表
+     */
+    private List<Message> buildMessages(OverAllState state) {
+        String question = state.value(GraphStateKeys.QUESTION, "");
+        String sql = state.value(GraphStateKeys.SQL, "");
+        String queryResult = state.value(GraphStateKeys.QUERY_RESULT, "");
+        // 仅在 SQL 执行成功时由条件边路由到此节点
+        String chartUrl = state.value(GraphStateKeys.CHART_URL, "");
+        String forecast = state.value(GraphStateKeys.FORECAST, "");
+
+        // 确保所有参数都有非 null 值
+        String safeQuestion = question != null ? question : "";
+        String safeSql = sql != null ? sql : "";
+        String safeQueryResult = formatQueryResult(queryResult != null ? queryResult : "{}");
+        String safeChartUrl = chartUrl != null && !chartUrl.trim().isEmpty() ? chartUrl : "暂无图表";
+        String safeForecast = forecast != null && !forecast.isBlank() ? formatQueryResult(forecast) : "无";
+
+        // 1. 创建系统 Prompt（数据分析师角色）
+        Message systemMessage = reportSystemPromptTemplate.createMessage();
+
+        // 2. 创建用户 Prompt（问题 + SQL + 结果 + 图表）
+        Map<String, Object> params = Map.of(
+                "question", safeQuestion,
+                "sql", safeSql,
+                "queryResult", safeQueryResult,
+                "chartUrl", safeChartUrl,
+                "forecast", safeForecast
+        );
+
+        Message userMessage = reportUserPromptTemplate.createMessage(params);
+        return List.of(systemMessage, userMessage);
+    }
 
-            // 保存报告到文件
-            String reportFilePath = fileUtils.saveReportToFile(report, question);
-            log.info("报告已保存至: {}", reportFilePath);
+    /**
+     * 保存报告到文件（保存失败时不写入路径，后续跳过Word转换）
+     */
+    private Map<String, Object> saveReport(String report, String question) {
+        log.info("分析报告生成完成，长度: {} 字符", report.length());
 
-            return Map.of(
-                GraphStateKeys.REPORT, report,
-                GraphStateKeys.REPORT_FILE_PATH, reportFilePath,
-                GraphStateKeys.REPORT_GENERATE_SUCCESS, true
-            );
+        String reportFilePath = fileUtils.saveReportToFile(report, question);
+        log.info("报告已保存至: {}", reportFilePath);
 
-        } catch (Exception e) {
-            log.error("报告生成失败", e);
-            return Map.of(
-                GraphStateKeys.REPORT_GENERATE_SUCCESS, false,
-                GraphStateKeys.REPORT_GENERATE_ERROR, e.getMessage()
-            );
+        Map<String, Object> result = new HashMap<>();
+        result.put(GraphStateKeys.REPORT, report);
+        result.put(GraphStateKeys.REPORT_GENERATE_SUCCESS, true);
+        if (reportFilePath != null) {
+            result.put(GraphStateKeys.REPORT_FILE_PATH, reportFilePath);
         }
+        return result;
+    }
+
+    private Map<String, Object> failure(Throwable e) {
+        log.error("报告生成失败", e);
+        return Map.of(
+            GraphStateKeys.REPORT_GENERATE_SUCCESS, false,
+            GraphStateKeys.REPORT_GENERATE_ERROR, String.valueOf(e.getMessage())
+        );
     }
 
     /**
-     * 格式化查询结果，使其更易读
+     * 格式化查询结果，使其更易读（大结果从大对象存储流式解析，不先读成字符串）
      *
-     * @param queryResult 原始查询结果
+     * @param queryResult 原始查询结果或大对象句柄
      * @return 格式化后的结果
      */
-    private String formatQueryResult(String queryResult) {
-        try {
+    private String formatQueryResult(Object queryResult) {
+        try (Reader reader = blobStore.openReader(queryResult)) {
             // 尝试解析 JSON 并格式化
-            Object jsonObject = objectMapper.readValue(queryResult, Object.class);
+            Object jsonObject = objectMapper.readValue(reader, Object.class);
             return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonObject);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.debug("查询结果不是 JSON 格式，直接返回原始内容");
-            return queryResult;
+            return blobStore.read(queryResult);
         }
     }
 }
@@ -0,0 +1,107 @@
+package com.sdecloud.dubhe.ai.report.graph;
+
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+
+import java.util.Map;
+
+/**
+ * 报告Graph路由规则
+ * 条件边和断点续跑共用同一套规则，保证续跑时选择的下一节点与正常执行一致
+ *
+ * @author liangjun
+ * @since 2025-10-21
+ */
+public final class ReportGraphRoutes {
+
+    public static final String NL2SQL = "nl2sql";
+    public static final String SQL_EXECUTE = "sqlExecute";
+    public static final String FORECAST = "forecast";
+    public static final String CHART_GENERATE = "chartGenerate";
+    public static final String REPORT_GENERATE = "reportGenerate";
+    public static final String WORD_CONVERT = "wordConvert";
+    public static final String ERROR = "error";
+
+    private ReportGraphRoutes() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * 入口路由：携带续跑节点时直接跳转；报告已生成仅 Word 转换失败的状态回到 Word 转换；否则从NL2SQL开始
+     */
+    public static String fromStart(Map<String, Object> data) {
+        Object resumeFrom = data.get(GraphStateKeys.RESUME_FROM);
+        if (resumeFrom instanceof String node && !node.isBlank()) {
+            return node;
+        }
+        return wordConvertPending(data) ? WORD_CONVERT : NL2SQL;
+    }
+
+    /**
+     * NL2SQL之后的路由：失败进入错误节点
+     */
+    public static String afterNl2Sql(Map<String, Object> data) {
+        return flag(data, GraphStateKeys.NL2SQL_SUCCESS, false) ? SQL_EXECUTE : ERROR;
+    }
+
+    /**
+     * SQL执行之后的路由：失败进入错误节点，成功后进入预测节点
+     */
+    public static String afterSqlExecute(Map<String, Object> data) {
+        return flag(data, GraphStateKeys.SQL_EXECUTE_SUCCESS, false) ? FORECAST : ERROR;
+    }
+
+    /**
+     * 预测之后的路由：未启用图表时直接生成报告
+     */
+    public static String afterForecast(Map<String, Object> data) {
+        return flag(data, GraphStateKeys.GENERATE_CHART, true) ? CHART_GENERATE : REPORT_GENERATE;
+    }
+
+    /**
+     * 报告生成之后的路由：失败进入错误节点，未启用Word或报告文件不存在时直接结束
+     */
+    public static String afterReportGenerate(Map<String, Object> data) {
+        if (!flag(data, GraphStateKeys.REPORT_GENERATE_SUCCESS, false)) {
+            return ERROR;
+        }
+        Object reportFilePath = data.get(GraphStateKeys.REPORT_FILE_PATH);
+        boolean hasFile = reportFilePath instanceof String path && !path.isBlank();
+        return flag(data, GraphStateKeys.GENERATE_WORD, false) && hasFile ? WORD_CONVERT : StateGraph.END;
+    }
+
+    /**
+     * 报告已生成、需要 Word 文档但 Word 转换尚未成功（失败或未执行）
+     * 此时流程仍可续跑，检查点和落盘结果需要保留
+     *
+     * @param data 流程状态
+     * @return 是否需要（重新）执行 Word 转换
+     */
+    public static boolean wordConvertPending(Map<String, Object> data) {
+        return WORD_CONVERT.equals(afterReportGenerate(data))
+                && !flag(data, GraphStateKeys.WORD_CONVERT_SUCCESS, false);
+    }
+
+    /**
+     * 已完成节点的下一个节点
+     *
+     * @param completedNode 最后成功完成的节点
+     * @param data          该节点完成后的状态
+     * @return 下一个节点，流程已结束时返回 {@link StateGraph#END}
+     */
+    public static String next(String completedNode, Map<String, Object> data) {
+        return switch (completedNode) {
+            case NL2SQL -> afterNl2Sql(data);
+            case SQL_EXECUTE -> afterSqlExecute(data);
+            case FORECAST -> afterForecast(data);
+            case CHART_GENERATE -> REPORT_GENERATE;
+            case REPORT_GENERATE -> afterReportGenerate(data);
+            default -> StateGraph.END;
+        };
+    }
+
+    private static boolean flag(Map<String, Object> data, String key, boolean defaultValue) {
+        Object value = data.get(key);
+        return value instanceof Boolean b ? b : defaultValue;
+    }
+}
@@ -2,87 +2,365 @@ package com.sdecloud.dubhe.ai.report.graph;
 
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.config.PayloadLoggingAdvisor;
 import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import com.sdecloud.dubhe.ai.report.service.BlobStore;
+import com.sdecloud.dubhe.ai.report.service.McpToolService;
+import com.sdecloud.dubhe.ai.report.service.ModelRouter;
+import com.sdecloud.dubhe.ai.report.service.RollupManager;
+import com.sdecloud.dubhe.ai.report.service.SubQueryExecutor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * SQL执行节点
- * 负责执行SQL查询并获取结果（通过MCP mysqlDataQuery工具）
+ * 负责执行SQL查询并获取结果（通过MCP mysqlDataQuery工具）。
+ * 存在子查询时在有界线程池中并发执行，结果按子查询名称合并为一个 JSON 对象，部分子查询失败时保留其余结果。
+ * 能在销售汇总表上等价计算的聚合查询改写后执行，状态中保留原 SQL。
+ * 超过落盘阈值的工具输出在工具回调中直接写入大对象存储，大模型只收到简短说明，状态中保存句柄；
+ * 子查询结果边读边写合并，不在内存中拼接完整结果
  *
  * @author liangjun
  * @since 2025-10-14
  */
 @Slf4j
 @Component
-public class SqlExecuteNode implements NodeAction {
+public class SqlExecuteNode implements NodeAction, ReactiveNodeAction {
 
     private final ChatClient chatClient;
+    private final ToolCallbackProvider tools;
+    private final ModelRouter modelRouter;
+    private final SubQueryExecutor subQueryExecutor;
+    private final RollupManager rollupManager;
+    private final McpToolService mcpToolService;
+    private final BlobStore blobStore;
+    private final JsonFactory jsonFactory = new JsonFactory();
 
-    public SqlExecuteNode(ChatModel chatModel, ToolCallbackProvider tools) {
+    public SqlExecuteNode(ChatModel chatModel, PayloadLoggingAdvisor payloadLoggingAdvisor,
+                          ToolCallbackProvider tools, ModelRouter modelRouter, SubQueryExecutor subQueryExecutor,
+                          RollupManager rollupManager, McpToolService mcpToolService, BlobStore blobStore) {
         this.chatClient = ChatClient.builder(chatModel)
-                .defaultAdvisors(new SimpleLoggerAdvisor())
-                .defaultToolCallbacks(tools)
+                .defaultAdvisors(payloadLoggingAdvisor)
                 .build();
+        // MCP 工具在每次请求时获取，启动时连接未建立或重连后工具变化都不影响
+        this.tools = tools;
+        this.modelRouter = modelRouter;
+        this.subQueryExecutor = subQueryExecutor;
+        this.rollupManager = rollupManager;
+        this.mcpToolService = mcpToolService;
+        this.blobStore = blobStore;
     }
 
     @Override
     public Map<String, Object> apply(OverAllState state) {
         log.info("执行SQL查询节点");
 
+        // 仅在 NL2SQL 成功时由条件边路由到此节点
         String sql = state.value(GraphStateKeys.SQL, "");
-        Boolean nl2sqlSuccess = state.value(GraphStateKeys.NL2SQL_SUCCESS, false);
+        String runId = state.value(GraphStateKeys.RUN_ID, "");
+        List<Map<String, Object>> subQueries = state.value(GraphStateKeys.SUB_QUERIES, List.of());
 
-        if (sql == null || sql.trim().isEmpty()) {
-            throw new IllegalArgumentException("SQL语句不能为空");
+        try {
+            if (!subQueries.isEmpty()) {
+                List<Supplier<SubQueryResult>> tasks = subQueries.stream()
+                        .<Supplier<SubQueryResult>>map(sub -> () -> executeSubQuery(sub, runId))
+                        .toList();
+                return mergeSubQueries(subQueryExecutor.invokeAll(tasks), runId);
+            }
+
+            return result(execute(sql, runId));
+
+        } catch (Exception e) {
+            return failure(e);
         }
+    }
+
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        log.info("执行SQL查询节点（响应式）");
 
-        if (!nl2sqlSuccess) {
-            throw new IllegalStateException("NL2SQL转换失败，无法执行SQL");
+        String sql = state.value(GraphStateKeys.SQL, "");
+        String runId = state.value(GraphStateKeys.RUN_ID, "");
+        List<Map<String, Object>> subQueries = state.value(GraphStateKeys.SUB_QUERIES, List.of());
+        if (!subQueries.isEmpty()) {
+            return Flux.fromIterable(subQueries)
+                    .flatMapSequential(sub -> executeReactive(String.valueOf(sub.get("sql")), runId)
+                                    .map(queryResult -> new SubQueryResult(name(sub), queryResult, null))
+                                    .onErrorResume(e -> Mono.just(subQueryFailure(sub, e))),
+                            subQueryExecutor.concurrency())
+                    .collectList()
+                    // 合并时读写落盘文件，不在事件循环线程执行
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(results -> mergeSubQueries(results, runId))
+                    .onErrorResume(e -> Mono.just(failure(e)));
         }
 
+        return executeReactive(sql, runId)
+                .map(this::result)
+                .onErrorResume(e -> Mono.just(failure(e)));
+    }
+
+    /**
+     * 执行 SQL，查询结果落盘时返回句柄，否则返回大模型回复的结果
+     */
+    private String execute(String sql, String runId) {
+        String prompt = buildPrompt(rollupManager.rewrite(sql));
+        AtomicReference<String> spilled = new AtomicReference<>();
+
+        // ChatClient 会自动检测并调用可用的 MCP 工具
+        Map<String, Object> toolContext = RunContext.toolContext(RunContext.current());
+        String content = modelRouter.call(ReportGraphRoutes.SQL_EXECUTE, options -> chatClient.prompt()
+                .options(options)
+                .toolCallbacks(toolCallbacks(runId, spilled))
+                .toolContext(toolContext)
+                .user(prompt)
+                .call()
+                .content());
+        return spilled.get() != null ? spilled.get() : content;
+    }
+
+    private Mono<String> executeReactive(String sql, String runId) {
+        // 汇总表过期时会提交后台重建任务，不在事件循环线程执行
+        return Mono.fromCallable(() -> buildPrompt(rollupManager.rewrite(sql)))
+                .subscribeOn(Schedulers.boundedElastic())
+                // 流式调用中的 MCP 工具调用由 Spring AI 在 boundedElastic 线程池执行，运行信息通过工具上下文传递
+                .flatMap(prompt -> Mono.deferContextual(context -> {
+                    AtomicReference<String> spilled = new AtomicReference<>();
+                    Map<String, Object> toolContext = RunContext.toolContext(
+                            context.getOrDefault(RunContext.CONTEXT_KEY, RunContext.current()));
+                    return modelRouter.callReactive(ReportGraphRoutes.SQL_EXECUTE, options -> chatClient.prompt()
+                                    .options(options)
+                                    .toolCallbacks(toolCallbacks(runId, spilled))
+                                    .toolContext(toolContext)
+                                    .user(prompt)
+                                    .stream()
+                                    .content()
+                                    .collect(Collectors.joining()))
+                            .map(content -> spilled.get() != null ? spilled.get() : content);
+                }));
+    }
+
+    /**
+     * 当前的 MCP 工具，SQL 工具包装为输出超过阈值时落盘
+     */
+    private ToolCallback[] toolCallbacks(String runId, AtomicReference<String> spilled) {
+        return Arrays.stream(tools.getToolCallbacks())
+                .map(tool -> mcpToolService.isSqlTool(tool) ? new SpillingToolCallback(tool, runId, spilled) : tool)
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * 执行单个子查询，失败时记录错误而不影响其他子查询
+     */
+    private SubQueryResult executeSubQuery(Map<String, Object> subQuery, String runId) {
+        try {
+            return new SubQueryResult(name(subQuery), execute(String.valueOf(subQuery.get("sql")), runId), null);
+        } catch (Exception e) {
+            return subQueryFailure(subQuery, e);
+        }
+    }
+
+    private SubQueryResult subQueryFailure(Map<String, Object> subQuery, Throwable e) {
+        log.warn("子查询 {} 执行失败: {}", name(subQuery), e.getMessage());
+        return new SubQueryResult(name(subQuery), null, String.valueOf(e.getMessage()));
+    }
+
+    /**
+     * 按子查询名称合并结果：结果是 JSON 时保留结构，否则保留原文，失败的子查询记录 error；全部失败时节点失败。
+     * 各子查询结果（可能是句柄）流式复制到合并结果，超过阈值时合并结果直接写入大对象存储
+     */
+    private Map<String, Object> mergeSubQueries(List<SubQueryResult> results, String runId) {
+        Map<String, SubQueryResult> byName = new LinkedHashMap<>();
+        List<String> errors = results.stream()
+                .filter(r -> r.error() != null)
+                .map(r -> r.name() + ": " + r.error())
+                .toList();
+        if (errors.size() == results.size()) {
+            return failure(new IllegalStateException("全部子查询执行失败（" + String.join("；", errors) + "）"));
+        }
+        results.forEach(r -> byName.put(r.name(), r));
+
+        try (BlobStore.BlobWriter writer = blobStore.openWriter(runId)) {
+            try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+                generator.writeStartObject();
+                for (SubQueryResult r : byName.values()) {
+                    generator.writeFieldName(r.name());
+                    if (r.error() != null) {
+                        generator.writeStartObject();
+                        generator.writeStringField("error", r.error());
+                        generator.writeEndObject();
+                    } else {
+                        copy(r.queryResult(), generator);
+                    }
+                }
+                generator.writeEndObject();
+            }
+            writer.close();
+            log.info("子查询执行完成，共 {} 个，失败 {} 个", results.size(), errors.size());
+            return result(writer.value());
+        } catch (IOException e) {
+            return failure(e);
+        }
+    }
+
+    /**
+     * 复制单个子查询结果：是 JSON 时按结构复制，否则作为字符串写入
+     */
+    private void copy(String queryResult, JsonGenerator generator) throws IOException {
+        if (queryResult == null) {
+            generator.writeString("");
+            return;
+        }
+        if (isJson(queryResult)) {
+            try (Reader reader = blobStore.openReader(queryResult); JsonParser parser = jsonFactory.createParser(reader)) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        } else {
+            try (Reader reader = blobStore.openReader(queryResult)) {
+                generator.writeString(reader, -1);
+            }
+        }
+    }
+
+    private boolean isJson(String queryResult) throws IOException {
+        try (Reader reader = blobStore.openReader(queryResult); JsonParser parser = jsonFactory.createParser(reader)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            return true;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    private static String name(Map<String, Object> subQuery) {
+        return String.valueOf(subQuery.get("name"));
+    }
+
+    /**
+     * 构建明确的工具调用提示词
+     */
+    private String buildPrompt(String sql) {
         log.info("执行 SQL 查询，长度: {} 字符", sql.length());
         log.debug("SQL: {}", sql);
 
-        try {
-            // 构建明确的工具调用提示词
-            String prompt = String.format("""
-                    请使用 mysqlDataQuery 工具执行以下 SQL 查询：
-                    
-                    SQL: %s
-                    
-                    请调用 mysqlDataQuery 工具，传入参数：{"sql": "%s"}
-                    然后返回查询结果。
-                    """, sql, sql);
-
-            log.debug("执行工具调用提示: {}", prompt);
-
-            // ChatClient 会自动检测并调用可用的 MCP 工具
-            String queryResult = chatClient.prompt()
-                    .user(prompt)
-                    .call()
-                    .content();
-
-            log.info("SQL执行成功，结果长度: {} 字符", queryResult.length());
-            log.debug("查询结果: {}", queryResult);
-
-            return Map.of(
-                GraphStateKeys.QUERY_RESULT, queryResult,
-                GraphStateKeys.SQL_EXECUTE_SUCCESS, true
-            );
+        String prompt = String.format("""
+                请使用 mysqlDataQuery 工具执行以下 SQL 查询：
+                
+                SQL: %s
+                
+                请调用 mysqlDataQuery 工具，传入参数：{"sql": "%s"}
+                然后返回查询结果。
+                """, sql, sql);
 
-        } catch (Exception e) {
-            log.error("SQL执行失败", e);
-            return Map.of(
-                GraphStateKeys.SQL_EXECUTE_SUCCESS, false,
-                GraphStateKeys.SQL_EXECUTE_ERROR, e.getMessage()
-            );
+        return prompt;
+    }
+
+    private Map<String, Object> result(String queryResult) {
+        log.info("SQL执行成功，结果长度: {} 字符", queryResult.length());
+
+        return Map.of(
+            GraphStateKeys.QUERY_RESULT, queryResult,
+            GraphStateKeys.SQL_EXECUTE_SUCCESS, true
+        );
+    }
+
+    private Map<String, Object> failure(Throwable e) {
+        log.error("SQL执行失败", e);
+        return Map.of(
+            GraphStateKeys.SQL_EXECUTE_SUCCESS, false,
+            GraphStateKeys.SQL_EXECUTE_ERROR, String.valueOf(e.getMessage())
+        );
+    }
+
+    /**
+     * SQL 工具回调包装：工具输出超过落盘阈值时提取文本写入大对象存储，记录句柄，
+     * 返回给大模型的只是简短说明，避免大模型复述完整结果
+     */
+    private class SpillingToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+        private final String runId;
+        private final AtomicReference<String> spilled;
+
+        SpillingToolCallback(ToolCallback delegate, String runId, AtomicReference<String> spilled) {
+            this.delegate = delegate;
+            this.runId = runId;
+            this.spilled = spilled;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
         }
+
+        @Override
+        public String call(String toolInput) {
+            return spill(delegate.call(toolInput));
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return spill(delegate.call(toolInput, toolContext));
+        }
+
+        private String spill(String output) {
+            if (output == null) {
+                return null;
+            }
+            String value;
+            try (BlobStore.BlobWriter writer = blobStore.openWriter(runId)) {
+                mcpToolService.unwrapContent(output, writer);
+                writer.close();
+                value = writer.value();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!BlobStore.isHandle(value)) {
+                return output;
+            }
+            spilled.set(value);
+            log.info("SQL 工具输出 {} 字符，已写入大对象存储", output.length());
+            return "查询已成功执行，结果共 " + output.length() + " 字符，已由系统直接保存，无需在回复中复述。请只回复：查询已完成";
+        }
+    }
+
+    /**
+     * 子查询执行结果，失败时 queryResult 为 null
+     */
+    private record SubQueryResult(String name, String queryResult, String error) {
     }
 }
@@ -3,9 +3,12 @@ package com.sdecloud.dubhe.ai.report.graph;
 import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
 import com.sdecloud.dubhe.ai.report.util.PandocUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Map;
 
@@ -18,32 +21,14 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-public class WordConvertNode implements NodeAction {
+public class WordConvertNode implements NodeAction, ReactiveNodeAction {
 
     @Override
     public Map<String, Object> apply(OverAllState state) {
         log.info("执行Word转换节点");
 
+        // 仅在报告已保存且启用Word时由条件边路由到此节点
         String reportFilePath = state.value(GraphStateKeys.REPORT_FILE_PATH, "");
-        Boolean reportGenerateSuccess = state.value(GraphStateKeys.REPORT_GENERATE_SUCCESS, false);
-        Boolean generateWord = state.value(GraphStateKeys.GENERATE_WORD, false);
-
-        if (reportFilePath == null || reportFilePath.trim().isEmpty()) {
-            throw new IllegalArgumentException("报告文件路径不能为空");
-        }
-
-        if (!reportGenerateSuccess) {
-            throw new IllegalStateException("报告生成失败，无法转换Word");
-        }
-
-        // 如果不需要生成Word文档，直接跳过
-        if (!generateWord) {
-            log.info("跳过Word转换");
-            return Map.of(
-                GraphStateKeys.WORD_CONVERT_SUCCESS, true,
-                GraphStateKeys.WORD_FILE_PATH, null
-            );
-        }
 
         try {
             // 转换Markdown为Word
@@ -74,4 +59,20 @@ public class WordConvertNode implements NodeAction {
             );
         }
     }
+
+    @Override
+    public Mono<Map<String, Object>> applyReactive(OverAllState state) {
+        // Pandoc 转换是外部进程，切换到 boundedElastic 执行；运行信息从 Reactor Context 恢复到执行线程，
+        // 使 Pandoc 转换事件带上运行ID
+        RunContext.Run assembled = RunContext.current();
+        return Mono.deferContextual(context -> {
+                    RunContext.Run run = context.getOrDefault(RunContext.CONTEXT_KEY, assembled);
+                    return Mono.fromCallable(() -> {
+                        try (RunContext.Scope ignored = RunContext.enter(run)) {
+                            return apply(state);
+                        }
+                    });
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
 }
@@ -0,0 +1,43 @@
+package com.sdecloud.dubhe.ai.report.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 大模型调用事件（不含排队时间，包含模型内部的工具调用往返）
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Name("com.sdecloud.report.ChatCall")
+@Label("Chat Model Call")
+@Category({"AI Report", "Remote"})
+@Description("一次大模型调用")
+@StackTrace(false)
+public class ChatCallEvent extends Event {
+
+    @Label("Run Id")
+    public String runId;
+
+    @Label("Node")
+    public String node;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Prompt Tokens")
+    public int promptTokens;
+
+    @Label("Completion Tokens")
+    public int completionTokens;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,37 @@
+package com.sdecloud.dubhe.ai.report.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * MCP 工具调用事件
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Name("com.sdecloud.report.McpToolCall")
+@Label("MCP Tool Call")
+@Category({"AI Report", "Remote"})
+@Description("一次 MCP 工具调用")
+@StackTrace(false)
+public class McpToolCallEvent extends Event {
+
+    @Label("Run Id")
+    public String runId;
+
+    @Label("Node")
+    public String node;
+
+    @Label("Connection")
+    public String connection;
+
+    @Label("Tool")
+    public String tool;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,34 @@
+package com.sdecloud.dubhe.ai.report.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Graph 节点执行事件（事件起止即节点开始和结束）
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Name("com.sdecloud.report.NodeExecution")
+@Label("Graph Node Execution")
+@Category({"AI Report", "Graph"})
+@Description("报告 Graph 节点的一次执行")
+@StackTrace(false)
+public class NodeExecutionEvent extends Event {
+
+    @Label("Run Id")
+    public String runId;
+
+    @Label("Node")
+    public String node;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Reactive")
+    public boolean reactive;
+}
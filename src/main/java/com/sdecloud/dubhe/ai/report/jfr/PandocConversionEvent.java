@@ -0,0 +1,31 @@
+package com.sdecloud.dubhe.ai.report.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Pandoc 转换事件
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Name("com.sdecloud.report.PandocConversion")
+@Label("Pandoc Conversion")
+@Category({"AI Report", "Process"})
+@Description("一次 Markdown 转 Word 的 Pandoc 进程调用")
+@StackTrace(false)
+public class PandocConversionEvent extends Event {
+
+    @Label("Run Id")
+    public String runId;
+
+    @Label("Input File")
+    public String inputFile;
+
+    @Label("Exit Code")
+    public int exitCode;
+}
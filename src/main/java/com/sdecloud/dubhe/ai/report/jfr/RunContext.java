@@ -0,0 +1,94 @@
+package com.sdecloud.dubhe.ai.report.jfr;
+
+import java.util.Map;
+
+/**
+ * 当前线程正在执行的报告运行ID和节点
+ * 用于给大模型调用、MCP 工具调用、Pandoc 转换等 JFR 事件打上运行ID；响应式调用链通过 Reactor Context 传递，
+ * 工具调用可能在 boundedElastic 等其他线程执行，通过工具上下文（ToolContext）传递
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class RunContext {
+
+    /** 响应式调用链中传递运行信息的 Reactor Context 键 */
+    public static final String CONTEXT_KEY = RunContext.class.getName();
+
+    /** 未在报告运行中时的运行信息 */
+    public static final Run NONE = new Run("", "");
+
+    private static final ThreadLocal<Run> CURRENT = new ThreadLocal<>();
+
+    private RunContext() {
+    }
+
+    /**
+     * 当前线程的运行信息
+     *
+     * @return 运行信息，不在报告运行中时为 {@link #NONE}
+     */
+    public static Run current() {
+        Run run = CURRENT.get();
+        return run != null ? run : NONE;
+    }
+
+    /**
+     * 传给工具调用的上下文内容
+     *
+     * @param run 运行信息
+     * @return 工具上下文
+     */
+    public static Map<String, Object> toolContext(Run run) {
+        return Map.of(CONTEXT_KEY, run);
+    }
+
+    /**
+     * 从工具上下文取得运行信息
+     *
+     * @param toolContext 工具上下文，可为 null
+     * @return 运行信息，工具上下文中没有时取当前线程
+     */
+    public static Run fromToolContext(Map<String, Object> toolContext) {
+        if (toolContext != null && toolContext.get(CONTEXT_KEY) instanceof Run run) {
+            return run;
+        }
+        return current();
+    }
+
+    /**
+     * 进入运行上下文，关闭返回的 Scope 时恢复原上下文
+     *
+     * @param run 运行信息
+     * @return 作用域
+     */
+    public static Scope enter(Run run) {
+        Run previous = CURRENT.get();
+        CURRENT.set(run);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    /**
+     * 运行信息
+     *
+     * @param runId 运行ID
+     * @param node  节点名称
+     */
+    public record Run(String runId, String node) {
+    }
+
+    /**
+     * 运行上下文作用域
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
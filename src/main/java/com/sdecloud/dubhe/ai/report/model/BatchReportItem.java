@@ -0,0 +1,22 @@
+package com.sdecloud.dubhe.ai.report.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量报告单项结果
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReportItem {
+    /** 在批量请求中的序号（从 0 开始） */
+    private int index;
+
+    /** 报告响应 */
+    private ReportResponse response;
+}
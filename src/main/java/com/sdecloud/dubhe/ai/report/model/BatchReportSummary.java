@@ -0,0 +1,30 @@
+package com.sdecloud.dubhe.ai.report.model;
+
+import lombok.Data;
+
+/**
+ * 批量报告汇总
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Data
+public class BatchReportSummary {
+    /** 请求总数 */
+    private int total;
+
+    /** 成功数量 */
+    private int succeeded;
+
+    /** 去重后的问题数（实际执行 NL2SQL 的次数） */
+    private int distinctQuestions;
+
+    /** 去重后的 SQL 数（实际执行查询的次数） */
+    private int distinctSql;
+
+    /** 总耗时（毫秒） */
+    private long elapsedMs;
+
+    /** 吞吐量（报告/分钟） */
+    private double reportsPerMinute;
+}
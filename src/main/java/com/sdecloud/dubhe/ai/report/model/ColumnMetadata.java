@@ -0,0 +1,30 @@
+package com.sdecloud.dubhe.ai.report.model;
+
+import lombok.Data;
+
+/**
+ * 数据库列元数据
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Data
+public class ColumnMetadata {
+    /** 列名 */
+    private String name;
+
+    /** 列类型（如 VARCHAR(50)） */
+    private String type;
+
+    /** 是否主键 */
+    private boolean primaryKey;
+
+    /** 外键引用的表，非外键为 null */
+    private String referencedTable;
+
+    /** 外键引用的列 */
+    private String referencedColumn;
+
+    /** 列注释 */
+    private String comment;
+}
@@ -0,0 +1,74 @@
+package com.sdecloud.dubhe.ai.report.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 透视请求
+ * 在缓存的查询结果上依次执行：筛选 → 分组聚合 → 排序 → 取前 N 行
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+public class PivotRequest {
+
+    /** 筛选条件（同时满足） */
+    private List<Filter> filters = new ArrayList<>();
+
+    /** 分组列，为空且有聚合项时整体聚合为一行 */
+    private List<String> groupBy = new ArrayList<>();
+
+    /** 聚合项，为空时不聚合 */
+    private List<Aggregate> aggregates = new ArrayList<>();
+
+    /** 排序列 */
+    private List<Sort> sort = new ArrayList<>();
+
+    /** 取前 N 行，null 表示不限制 */
+    private Integer limit;
+
+    /** 是否为透视结果生成图表（直接调用 MCP 图表工具，不经过大模型） */
+    private boolean chart;
+
+    /** 图表类型（bar/line/pie 等），null 则自动选择 */
+    private String chartType;
+
+    @Data
+    public static class Filter {
+
+        /** 列名 */
+        private String column;
+
+        /** 条件：eq、ne、in、gt、gte、lt、lte、between、contains */
+        private String op = "eq";
+
+        /** 条件值，between 为上下限（文本列按字典序比较，如 2024-01 ~ 2024-06） */
+        private List<Object> values = new ArrayList<>();
+    }
+
+    @Data
+    public static class Aggregate {
+
+        /** 聚合列，count 可为 * */
+        private String column;
+
+        /** 聚合函数：sum、avg、min、max、count */
+        private String function = "sum";
+
+        /** 结果列名，为空时为 函数_列名 */
+        private String as;
+    }
+
+    @Data
+    public static class Sort {
+
+        /** 列名 */
+        private String column;
+
+        /** 是否降序 */
+        private boolean desc;
+    }
+}
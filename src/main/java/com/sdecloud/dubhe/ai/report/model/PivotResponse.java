@@ -0,0 +1,54 @@
+package com.sdecloud.dubhe.ai.report.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 透视响应
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Data
+public class PivotResponse {
+
+    /** 是否成功 */
+    private boolean success;
+
+    /** 透视的源结果ID */
+    private String sourceResultId;
+
+    /** 透视结果的结果ID，可继续透视 */
+    private String resultId;
+
+    /** 列名 */
+    private List<String> columns;
+
+    /** 结果行 */
+    private List<Map<String, Object>> rows;
+
+    /** 结果总行数 */
+    private int rowCount;
+
+    /** 结果行数超过返回上限时为 true，rows 只包含前若干行 */
+    private boolean truncated;
+
+    /** 透视耗时（毫秒，不含图表生成） */
+    private double elapsedMs;
+
+    /** 图表 URL */
+    private String chartUrl;
+
+    /** 图表类型 */
+    private String chartType;
+
+    /** 错误信息 */
+    private String errorMessage;
+
+    /** HTTP 状态码：成功 200，请求无效 400，结果不存在或已过期 404 */
+    @JsonIgnore
+    private int status = 200;
+}
@@ -22,6 +22,9 @@ public class QueryResponse {
     /** 查询结果 */
     private String queryResult;
 
+    /** 结果ID，可用于 /report/results/{resultId}/pivot，结果不是 JSON 行数据时为 null */
+    private String resultId;
+
     /** 错误信息 */
     private String errorMessage;
 }
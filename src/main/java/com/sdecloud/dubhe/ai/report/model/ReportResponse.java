@@ -10,23 +10,45 @@ import lombok.Data;
  */
 @Data
 public class ReportResponse {
+
+    /** 新鲜度：缓存生成后数据未变化 */
+    public static final String FRESHNESS_FRESH = "FRESH";
+
+    /** 新鲜度：数据已更新，返回旧报告并在后台刷新 */
+    public static final String FRESHNESS_STALE = "STALE";
+
+    /** 新鲜度：实时生成失败（如依赖熔断），返回超过最大陈旧时间的旧报告 */
+    public static final String FRESHNESS_FALLBACK = "FALLBACK";
+
     /** 是否成功 */
     private boolean success;
 
+    /** 运行ID，失败时可用于续跑 */
+    private String runId;
+
     /** 用户问题 */
     private String question;
 
     /** 生成的 SQL */
     private String sql;
 
-    /** 查询结果 */
+    /** 查询结果（落盘的大结果只包含前若干行） */
     private String queryResult;
 
+    /** 查询结果是否省略了部分行 */
+    private boolean queryResultTruncated;
+
+    /** 月度序列预测结果（JSON，含预测区间），问题不含预测意图时为 null */
+    private String forecast;
+
     /** 图表 URL */
     private String chartUrl;
 
     /** 分析报告（Markdown 格式） */
     private String report;
+
+    /** 分析报告是否只包含开头部分，完整内容见报告文件 */
+    private boolean reportTruncated;
     
     /** 报告文件路径（Markdown） */
     private String reportFilePath;
@@ -36,4 +58,22 @@ public class ReportResponse {
 
     /** 错误信息 */
     private String errorMessage;
+
+    /** 是否来自报告缓存 */
+    private boolean cached;
+
+    /** 缓存新鲜度（FRESH / STALE），实时生成时为 null */
+    private String freshness;
+
+    /** 生成报告时的数据版本 */
+    private String dataVersion;
+
+    /** 报告生成时间 */
+    private String generatedAt;
+
+    /** 会话ID（会话追问时返回） */
+    private String sessionId;
+
+    /** 会话追问的执行方式（CACHED / REFINE / FULL） */
+    private String followUpRoute;
 }
@@ -0,0 +1,24 @@
+package com.sdecloud.dubhe.ai.report.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据库表元数据
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Data
+public class TableMetadata {
+    /** 表名 */
+    private String name;
+
+    /** 表注释 */
+    private String comment;
+
+    /** 列定义（按字段顺序） */
+    private List<ColumnMetadata> columns = new ArrayList<>();
+}
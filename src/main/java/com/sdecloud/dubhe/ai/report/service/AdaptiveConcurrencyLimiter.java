@@ -0,0 +1,267 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.LlmLimiterProperties;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 大模型调用自适应并发限制器
+ * 并发上限按 AIMD 调整：上限被用满且耗时正常时每个往返加 1，耗时超过基线的容忍倍数时按比例缩小，
+ * 被服务端限流或超时时大幅缩小；超出上限的调用按优先级排队（排队不占用线程），等待超时后拒绝
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class AdaptiveConcurrencyLimiter {
+
+    /** 基线耗时的平滑系数 */
+    private static final double BASELINE_SMOOTHING = 0.05;
+
+    private final LlmLimiterProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+
+    private long sequence;
+    private double limit;
+    private int inFlight;
+    private double baselineMs;
+
+    public AdaptiveConcurrencyLimiter(LlmLimiterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.limit = properties.getInitialLimit();
+
+        Gauge.builder("report.llm.limit", this, l -> l.limit)
+                .description("大模型调用当前并发上限")
+                .register(meterRegistry);
+        Gauge.builder("report.llm.inflight", this, l -> l.inFlight)
+                .description("大模型调用当前并发数")
+                .register(meterRegistry);
+        Gauge.builder("report.llm.queue.size", this, l -> l.queue.size())
+                .description("等待大模型调用许可的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取调用许可，超出并发上限时按优先级排队（阻塞等待）
+     *
+     * @param priority 调用优先级
+     * @return 调用许可，调用结束后必须通过 {@link #release} 归还
+     */
+    public Permit acquire(ChatPriority priority) {
+        try {
+            return acquireAsync(priority).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * 异步获取调用许可，排队期间不占用线程
+     *
+     * @param priority 调用优先级
+     * @return 获得许可时完成，排队超时或队列已满时异常完成
+     */
+    public CompletableFuture<Permit> acquireAsync(ChatPriority priority) {
+        long start = System.nanoTime();
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (queue.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(granted(priority, start));
+            }
+            if (queue.size() >= properties.getMaxQueueSize()) {
+                return CompletableFuture.failedFuture(rejected(priority, "queue_full", "排队请求过多"));
+            }
+            waiter = new Waiter(priority, sequence++, start);
+            queue.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        CompletableFuture.delayedExecutor(properties.getQueueTimeoutMs(), TimeUnit.MILLISECONDS)
+                .execute(() -> expire(waiter));
+        return waiter.future;
+    }
+
+    /**
+     * 排队超时：仍在队列中的请求被拒绝，已获得许可的不受影响
+     */
+    private void expire(Waiter waiter) {
+        ReportGenerationException timeout;
+        lock.lock();
+        try {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            timeout = rejected(waiter.priority, "timeout", "排队等待超时");
+        } finally {
+            lock.unlock();
+        }
+        waiter.future.completeExceptionally(timeout);
+    }
+
+    /**
+     * 归还调用许可，并根据本次耗时和结果调整并发上限
+     *
+     * @param permit    调用许可
+     * @param throttled 是否被服务端限流或超时
+     */
+    public void release(Permit permit, boolean throttled) {
+        double rttMs = (System.nanoTime() - permit.grantedAt()) / 1_000_000.0;
+        List<Waiter> ready;
+        lock.lock();
+        try {
+            inFlight--;
+            if (throttled) {
+                limit = Math.max(properties.getMinLimit(), limit * properties.getThrottleBackoffRatio());
+                Counter.builder("report.llm.throttled").register(meterRegistry).increment();
+                log.warn("大模型调用被限流，并发上限降为 {}", currentLimit());
+            } else {
+                if (baselineMs > 0 && rttMs > baselineMs * properties.getLatencyTolerance()) {
+                    limit = Math.max(properties.getMinLimit(), limit * properties.getLatencyBackoffRatio());
+                } else if (inFlight + 1 >= currentLimit()) {
+                    // 仅在上限被用满时增长，避免空闲时上限无限抬高
+                    limit = Math.min(properties.getMaxLimit(), limit + 1.0 / limit);
+                }
+                baselineMs = baselineMs > 0 ? baselineMs + BASELINE_SMOOTHING * (rttMs - baselineMs) : rttMs;
+            }
+            ready = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        complete(ready);
+    }
+
+    /**
+     * 判断异常是否为服务端限流或超时
+     *
+     * @param error 异常
+     * @return 是否限流
+     */
+    public static boolean isThrottled(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof TimeoutException || e instanceof SocketTimeoutException) {
+                return true;
+            }
+            String message = e.getMessage();
+            if (message != null) {
+                String lower = message.toLowerCase(Locale.ROOT);
+                if (lower.contains("429") || lower.contains("throttling") || lower.contains("rate limit")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按优先级取出可获得许可的排队请求，直到用满并发上限（调用方持有锁）
+     */
+    private List<Waiter> dispatch() {
+        List<Waiter> ready = new ArrayList<>();
+        while (!queue.isEmpty() && inFlight < currentLimit()) {
+            ready.add(queue.poll());
+            inFlight++;
+        }
+        return ready;
+    }
+
+    /**
+     * 在锁外通知获得许可的请求，避免后续调用在持锁线程上执行
+     */
+    private void complete(List<Waiter> ready) {
+        for (Waiter waiter : ready) {
+            if (!waiter.future.complete(granted(waiter.priority, waiter.enqueuedAt))) {
+                // 等待方已取消，归还许可
+                List<Waiter> next;
+                lock.lock();
+                try {
+                    inFlight--;
+                    next = dispatch();
+                } finally {
+                    lock.unlock();
+                }
+                complete(next);
+            }
+        }
+    }
+
+    private int currentLimit() {
+        return Math.max(properties.getMinLimit(), (int) limit);
+    }
+
+    private Permit granted(ChatPriority priority, long start) {
+        long now = System.nanoTime();
+        Timer.builder("report.llm.queue.wait")
+                .description("大模型调用排队等待时间")
+                .tag("priority", priority.name())
+                .register(meterRegistry)
+                .record(now - start, TimeUnit.NANOSECONDS);
+        return new Permit(priority, now);
+    }
+
+    private ReportGenerationException rejected(ChatPriority priority, String reason, String message) {
+        Counter.builder("report.llm.rejected")
+                .tag("priority", priority.name())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new ReportGenerationException("LLM_OVERLOADED", "chatModel",
+                String.format("%s（并发上限 %d，排队 %d）", message, currentLimit(), queue.size()));
+    }
+
+    /**
+     * 调用许可
+     *
+     * @param priority  调用优先级
+     * @param grantedAt 获得许可的时间（纳秒）
+     */
+    public record Permit(ChatPriority priority, long grantedAt) {
+    }
+
+    private static final class Waiter {
+
+        private final ChatPriority priority;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(ChatPriority priority, long sequence, long enqueuedAt) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        private ChatPriority priority() {
+            return priority;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.graph.Nl2SqlNode;
+import com.sdecloud.dubhe.ai.report.graph.ReportGraphRoutes;
+import com.sdecloud.dubhe.ai.report.graph.SqlExecuteNode;
+import com.sdecloud.dubhe.ai.report.model.BatchReportItem;
+import com.sdecloud.dubhe.ai.report.model.BatchReportSummary;
+import com.sdecloud.dubhe.ai.report.model.ReportRequest;
+import com.sdecloud.dubhe.ai.report.model.ReportResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量报告生成服务
+ * 批量预取问题向量，相同问题只执行一次 NL2SQL，相同 SQL 只查询一次，
+ * 各阶段在有界线程池中并发执行，单项完成后立即推送结果；大模型调用以批量优先级排队
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+public class BatchReportService {
+
+    private final Nl2SqlNode nl2SqlNode;
+    private final SqlExecuteNode sqlExecuteNode;
+    private final ReportGenerationService reportGenerationService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final ExecutorService executor;
+    private final long timeoutMs;
+
+    public BatchReportService(Nl2SqlNode nl2SqlNode, SqlExecuteNode sqlExecuteNode,
+                              ReportGenerationService reportGenerationService,
+                              QueryEmbeddingCache queryEmbeddingCache,
+                              @Value("${report.batch.concurrency:4}") int concurrency,
+                              @Value("${report.batch.timeout-ms:1800000}") long timeoutMs) {
+        this.nl2SqlNode = nl2SqlNode;
+        this.sqlExecuteNode = sqlExecuteNode;
+        this.reportGenerationService = reportGenerationService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.executor = Executors.newFixedThreadPool(concurrency);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 批量生成报告，结果以 SSE 事件逐项返回
+     * 事件 item：单项结果；事件 summary：全部完成后的汇总和吞吐量
+     *
+     * @param requests 报告请求列表
+     * @return SSE 发送器
+     */
+    public SseEmitter generate(List<ReportRequest> requests) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        long start = System.currentTimeMillis();
+        log.info("收到批量报告请求，共 {} 项", requests.size());
+
+        // 1. 一次性预取所有问题的向量，后续检索直接命中缓存
+        CompletableFuture<Void> prefetched = CompletableFuture.runAsync(() -> {
+            try {
+                queryEmbeddingCache.prefetch(requests.stream()
+                        .map(ReportRequest::getQuestion)
+                        .filter(Objects::nonNull)
+                        .toList());
+            } catch (Exception e) {
+                log.warn("批量预取向量失败，退化为逐条向量化: {}", e.getMessage());
+            }
+        }, executor);
+
+        Map<String, CompletableFuture<Map<String, Object>>> nl2sqlFutures = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Map<String, Object>>> sqlFutures = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<ReportResponse>> reportFutures = new LinkedHashMap<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        List<CompletableFuture<Void>> items = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            int index = i;
+            ReportRequest request = requests.get(i);
+            if (request.getQuestion() == null || request.getQuestion().isBlank()) {
+                ReportResponse invalid = failedResponse(request, new IllegalArgumentException("问题不能为空"));
+                items.add(CompletableFuture.runAsync(() -> send(emitter, "item", new BatchReportItem(index, invalid)), executor));
+                continue;
+            }
+
+            // 2. 相同问题只生成一次 SQL
+            CompletableFuture<Map<String, Object>> nl2sql = nl2sqlFutures.computeIfAbsent(questionKey(request),
+                    k -> prefetched.thenApplyAsync(v -> ChatPriority.call(ChatPriority.BATCH, () -> runNl2Sql(request)), executor));
+
+            // 3. 相同 SQL 只查询一次，再为每个不同的请求生成报告
+            CompletableFuture<ReportResponse> report = reportFutures.computeIfAbsent(requestKey(request),
+                    k -> nl2sql.thenCompose(result -> executeOnce(result, sqlFutures))
+                            .thenApplyAsync(state -> ChatPriority.call(ChatPriority.BATCH,
+                                    () -> continueReport(request, state)), executor));
+
+            items.add(report
+                    .exceptionally(e -> failedResponse(request, e))
+                    .thenAccept(response -> {
+                        if (response.isSuccess()) {
+                            succeeded.incrementAndGet();
+                        }
+                        send(emitter, "item", new BatchReportItem(index, response));
+                    }));
+        }
+
+        CompletableFuture.allOf(items.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+            BatchReportSummary summary = new BatchReportSummary();
+            summary.setTotal(requests.size());
+            summary.setSucceeded(succeeded.get());
+            summary.setDistinctQuestions(nl2sqlFutures.size());
+            summary.setDistinctSql(sqlFutures.size());
+            summary.setElapsedMs(System.currentTimeMillis() - start);
+            summary.setReportsPerMinute(summary.getElapsedMs() > 0
+                    ? requests.size() * 60000.0 / summary.getElapsedMs() : 0.0);
+            log.info("批量报告完成: {}/{} 成功，NL2SQL {} 次，SQL查询 {} 次，耗时 {} ms，吞吐 {} 份/分钟",
+                    summary.getSucceeded(), summary.getTotal(), summary.getDistinctQuestions(),
+                    summary.getDistinctSql(), summary.getElapsedMs(), String.format("%.1f", summary.getReportsPerMinute()));
+            send(emitter, "summary", summary);
+            emitter.complete();
+        });
+
+        return emitter;
+    }
+
+    private Map<String, Object> runNl2Sql(ReportRequest request) {
+        OverAllState state = new OverAllState();
+        Map<String, Object> input = new HashMap<>(4);
+        input.put(GraphStateKeys.QUESTION, request.getQuestion());
+        input.put(GraphStateKeys.TOP_K, request.getTopK());
+        state.input(input);
+
+        Map<String, Object> result = new HashMap<>(input);
+        result.putAll(nl2SqlNode.apply(state));
+        return result;
+    }
+
+    /**
+     * 按规范化后的 SQL 去重执行，NL2SQL 失败时原样返回
+     */
+    private CompletableFuture<Map<String, Object>> executeOnce(Map<String, Object> nl2sqlResult,
+                                                              Map<String, CompletableFuture<Map<String, Object>>> sqlFutures) {
+        if (!Boolean.TRUE.equals(nl2sqlResult.get(GraphStateKeys.NL2SQL_SUCCESS))) {
+            return CompletableFuture.completedFuture(nl2sqlResult);
+        }
+        String sql = (String) nl2sqlResult.get(GraphStateKeys.SQL);
+        return sqlFutures.computeIfAbsent(normalizeSql(sql), k -> CompletableFuture.supplyAsync(() -> {
+            OverAllState state = new OverAllState();
+            state.input(Map.of(GraphStateKeys.SQL, sql));
+            return ChatPriority.call(ChatPriority.BATCH, () -> sqlExecuteNode.apply(state));
+        }, executor)).thenApply(sqlResult -> {
+            Map<String, Object> merged = new HashMap<>(nl2sqlResult);
+            merged.putAll(sqlResult);
+            return merged;
+        });
+    }
+
+    private ReportResponse continueReport(ReportRequest request, Map<String, Object> queryState) {
+        Map<String, Object> state = new HashMap<>(queryState);
+        state.put(GraphStateKeys.GENERATE_CHART, request.isGenerateChart());
+        state.put(GraphStateKeys.GENERATE_WORD, request.isGenerateWord());
+        String completedNode = state.containsKey(GraphStateKeys.SQL_EXECUTE_SUCCESS)
+                ? ReportGraphRoutes.SQL_EXECUTE : ReportGraphRoutes.NL2SQL;
+        return reportGenerationService.continueReport(UUID.randomUUID().toString(), state, completedNode);
+    }
+
+    private ReportResponse failedResponse(ReportRequest request, Throwable e) {
+        log.error("批量报告单项失败: {}", request.getQuestion(), e);
+        ReportResponse response = new ReportResponse();
+        response.setQuestion(request.getQuestion());
+        response.setSuccess(false);
+        response.setErrorMessage("报告生成失败: " + e.getMessage());
+        return response;
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("批量报告客户端已断开，丢弃事件 {}: {}", event, e.getMessage());
+        }
+    }
+
+    private static String questionKey(ReportRequest request) {
+        return request.getQuestion().trim() + "|" + request.getTopK();
+    }
+
+    private static String requestKey(ReportRequest request) {
+        return questionKey(request) + "|" + request.isGenerateChart() + "|" + request.isGenerateWord();
+    }
+
+    /**
+     * 规范化 SQL：合并空白、去掉末尾分号
+     */
+    private static String normalizeSql(String sql) {
+        return sql.trim().replaceAll("\\s+", " ").replaceAll(";+$", "").trim();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,361 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 运行状态大对象存储
+ * 超过阈值的状态值（查询结果、报告正文等）写入磁盘文件，状态中只保留句柄（blob:{runId}/{id}），
+ * 单次运行的堆内存占用不随结果大小增长；产生大结果的节点通过 {@link #openWriter(String)} 边生成边落盘，
+ * 读取方通过 {@link #openReader(Object)} 流式读取，或用 {@link #preview(Object)} 只取前若干行。
+ * 句柄随检查点一起保存，续跑时仍可读取；运行成功完成后删除，失败运行的文件与检查点一样按保留期清理
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class BlobStore {
+
+    private static final String PREFIX = "blob:";
+    private static final Pattern HANDLE_PATTERN = Pattern.compile("blob:([A-Za-z0-9-]{1,64})/([0-9a-f-]{36})");
+    private static final Pattern RUN_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    private static final String SUFFIX = ".txt";
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int thresholdChars;
+    private final int previewRows;
+    private final Duration retention;
+    private final Counter spilled;
+
+    public BlobStore(@Value("${report.blob.enabled:true}") boolean enabled,
+                     @Value("${report.blob.dir:report-blobs}") String directory,
+                     @Value("${report.blob.threshold-chars:65536}") int thresholdChars,
+                     @Value("${report.blob.preview-rows:1000}") int previewRows,
+                     @Value("${report.checkpoint.retention-hours:24}") long retentionHours,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.thresholdChars = thresholdChars;
+        this.previewRows = previewRows;
+        this.retention = Duration.ofHours(retentionHours);
+        this.spilled = Counter.builder("report.blob.spilled")
+                .description("写入大对象存储的状态值数量")
+                .register(meterRegistry);
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            log.warn("创建大对象存储目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将超过阈值的字符串值写入磁盘并替换为句柄，其他值原样保留
+     *
+     * @param runId  运行ID（没有运行ID时不落盘）
+     * @param values 状态值
+     * @return 替换后的状态值（没有需要落盘的值时返回原对象）
+     */
+    public Map<String, Object> spillAll(String runId, Map<String, Object> values) {
+        if (!enabled || values == null || runId == null || !RUN_ID_PATTERN.matcher(runId).matches()) {
+            return values;
+        }
+        Map<String, Object> result = null;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof String text && text.length() > thresholdChars && !isHandle(text)) {
+                if (result == null) {
+                    result = new HashMap<>(values);
+                }
+                result.put(entry.getKey(), write(runId, text));
+            }
+        }
+        return result != null ? result : values;
+    }
+
+    /**
+     * 读取状态值：句柄读取文件内容，其他值按字符串返回
+     *
+     * @param value 状态值或句柄
+     * @return 内容，值为 null 时返回 null
+     */
+    public String read(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!isHandle(value)) {
+            return String.valueOf(value);
+        }
+        try {
+            return Files.readString(pathOf((String) value), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw missing(value, e);
+        }
+    }
+
+    /**
+     * 以流的方式读取状态值，避免一次性载入大对象
+     *
+     * @param value 状态值或句柄
+     * @return 读取器，调用方负责关闭
+     */
+    public Reader openReader(Object value) {
+        if (!isHandle(value)) {
+            return new StringReader(value == null ? "" : String.valueOf(value));
+        }
+        try {
+            return Files.newBufferedReader(pathOf((String) value), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw missing(value, e);
+        }
+    }
+
+    /**
+     * 打开写入器，内容超过阈值后转为写入文件，关闭后由 {@link BlobWriter#value()} 取得句柄或内容
+     *
+     * @param runId 运行ID（没有运行ID或未启用时只在内存中缓冲）
+     * @return 写入器，调用方负责关闭
+     */
+    public BlobWriter openWriter(String runId) {
+        boolean spillable = enabled && runId != null && RUN_ID_PATTERN.matcher(runId).matches();
+        return new BlobWriter(spillable ? runId : null);
+    }
+
+    /**
+     * 流式读取查询结果的前 {@code report.blob.preview-rows} 行：JSON 中每个数组最多保留该行数，
+     * 不是 JSON 的内容最多保留阈值长度的文本
+     *
+     * @param value 查询结果或句柄
+     * @return 预览，值为 null 时文本为 null
+     */
+    public QueryResultParser.Preview preview(Object value) {
+        return preview(value, previewRows);
+    }
+
+    /**
+     * 流式读取查询结果的前 maxRows 行，规则同 {@link #preview(Object)}
+     *
+     * @param value   查询结果或句柄
+     * @param maxRows 每个数组最多保留的元素数
+     * @return 预览，值为 null 时文本为 null
+     */
+    public QueryResultParser.Preview preview(Object value, int maxRows) {
+        if (value == null) {
+            return new QueryResultParser.Preview(null, false);
+        }
+        try (Reader reader = openReader(value)) {
+            QueryResultParser.Preview preview = QueryResultParser.preview(reader, maxRows);
+            if (preview != null) {
+                return preview;
+            }
+        } catch (IOException e) {
+            throw missing(value, e);
+        }
+        return readPrefix(value);
+    }
+
+    /**
+     * 句柄只读取预览（{@link #preview(Object)}），未落盘的值原样返回
+     *
+     * @param value 查询结果或句柄
+     * @return 预览
+     */
+    public QueryResultParser.Preview previewIfSpilled(Object value) {
+        return isHandle(value) ? preview(value) : new QueryResultParser.Preview((String) value, false);
+    }
+
+    /**
+     * 读取状态值开头不超过阈值长度的文本
+     *
+     * @param value 状态值或句柄
+     * @return 预览，值为 null 时文本为 null
+     */
+    public QueryResultParser.Preview readPrefix(Object value) {
+        if (value == null) {
+            return new QueryResultParser.Preview(null, false);
+        }
+        try (Reader reader = openReader(value)) {
+            char[] buffer = new char[thresholdChars + 1];
+            int length = 0;
+            int n;
+            while (length < buffer.length && (n = reader.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+            }
+            return new QueryResultParser.Preview(new String(buffer, 0, Math.min(length, thresholdChars)),
+                    length > thresholdChars);
+        } catch (IOException e) {
+            throw missing(value, e);
+        }
+    }
+
+    /**
+     * 是否大对象句柄
+     */
+    public static boolean isHandle(Object value) {
+        return value instanceof String text && text.startsWith(PREFIX) && HANDLE_PATTERN.matcher(text).matches();
+    }
+
+    /**
+     * 删除运行的全部大对象（运行成功完成后调用）
+     *
+     * @param runId 运行ID
+     */
+    public void deleteRun(String runId) {
+        if (runId == null || !RUN_ID_PATTERN.matcher(runId).matches()) {
+            return;
+        }
+        deleteDirectory(directory.resolve(runId));
+    }
+
+    /**
+     * 定时清理超过保留期的运行目录（失败且未续跑的运行）
+     */
+    @Scheduled(fixedDelayString = "${report.checkpoint.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        Instant expireBefore = Instant.now().minus(retention);
+        try (Stream<Path> runs = Files.list(directory)) {
+            runs.filter(Files::isDirectory)
+                    .filter(p -> {
+                        try {
+                            return Files.getLastModifiedTime(p).toInstant().isBefore(expireBefore);
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .forEach(this::deleteDirectory);
+        } catch (IOException e) {
+            log.warn("清理大对象存储失败: {}", e.getMessage());
+        }
+    }
+
+    private String write(String runId, String text) {
+        String id = UUID.randomUUID().toString();
+        Path runDirectory = directory.resolve(runId);
+        try {
+            Files.createDirectories(runDirectory);
+            Files.writeString(runDirectory.resolve(id + SUFFIX), text, StandardCharsets.UTF_8);
+            spilled.increment();
+            log.debug("状态值已落盘: runId={}, {} 字符", runId, text.length());
+            return PREFIX + runId + "/" + id;
+        } catch (IOException e) {
+            // 落盘失败时保留在状态中，只是无法降低内存占用
+            log.warn("状态值落盘失败: runId={}, {}", runId, e.getMessage());
+            return text;
+        }
+    }
+
+    private Path pathOf(String handle) {
+        Matcher matcher = HANDLE_PATTERN.matcher(handle);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("非法的大对象句柄: " + handle);
+        }
+        return directory.resolve(matcher.group(1)).resolve(matcher.group(2) + SUFFIX);
+    }
+
+    private void deleteDirectory(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            log.warn("删除大对象失败: {}, {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 大对象写入器：先在内存中缓冲，超过阈值时创建文件并把已缓冲的内容写入，之后直接写文件
+     */
+    public final class BlobWriter extends Writer {
+
+        private final String runId;
+        private StringBuilder buffer = new StringBuilder();
+        private String id;
+        private Writer file;
+        private long length;
+        private boolean closed;
+
+        private BlobWriter(String runId) {
+            this.runId = runId;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int count) throws IOException {
+            if (closed) {
+                throw new IOException("写入器已关闭");
+            }
+            if (file == null && runId != null && buffer.length() + count > thresholdChars) {
+                id = UUID.randomUUID().toString();
+                Path runDirectory = directory.resolve(runId);
+                Files.createDirectories(runDirectory);
+                file = Files.newBufferedWriter(runDirectory.resolve(id + SUFFIX), StandardCharsets.UTF_8);
+                file.append(buffer);
+                buffer = null;
+                spilled.increment();
+            }
+            if (file != null) {
+                file.write(chars, offset, count);
+            } else {
+                buffer.append(chars, offset, count);
+            }
+            length += count;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (file != null) {
+                file.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (file != null) {
+                file.close();
+                log.debug("状态值已落盘: runId={}, {} 字符", runId, length);
+            }
+        }
+
+        /**
+         * 写入的内容：超过阈值时为句柄，否则为文本
+         */
+        public String value() {
+            if (!closed) {
+                throw new IllegalStateException("写入器尚未关闭");
+            }
+            return file != null ? PREFIX + runId + "/" + id : buffer.toString();
+        }
+    }
+
+    private static ReportGenerationException missing(Object handle, IOException e) {
+        return new ReportGenerationException("BLOB_MISSING", "blobStore", "读取大对象失败: " + handle, e);
+    }
+}
@@ -0,0 +1,222 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 上下文装配服务
+ * 按相关度排序知识库片段，去除近似重复，并在 Token 预算内拼装 Prompt 上下文，
+ * 超出预算的片段按句子边界截断
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+public class ContextPacker {
+
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[。！？；.!?;\\n])");
+    private static final String SEPARATOR = "\n\n";
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final int separatorTokens = tokenCountEstimator.estimate(SEPARATOR);
+    private final MeterRegistry meterRegistry;
+
+    /** 默认 Token 预算 */
+    @Value("${report.context.token-budget:1500}")
+    private int defaultTokenBudget;
+
+    /** 近似重复判定阈值 */
+    @Value("${report.context.duplicate-threshold:0.85}")
+    private double duplicateThreshold;
+
+    /** 剩余预算低于该值时不再截断补充 */
+    @Value("${report.context.min-truncate-tokens:50}")
+    private int minTruncateTokens;
+
+    public ContextPacker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 使用默认预算装配上下文
+     *
+     * @param documents 检索到的文档
+     * @param caller    调用方标识（用于指标标签）
+     * @return 装配结果
+     */
+    public PackedContext pack(List<Document> documents, String caller) {
+        return pack(documents, caller, defaultTokenBudget);
+    }
+
+    /**
+     * 在指定 Token 预算内装配上下文
+     *
+     * @param documents   检索到的文档
+     * @param caller      调用方标识（用于指标标签）
+     * @param tokenBudget Token 预算
+     * @return 装配结果
+     */
+    public PackedContext pack(List<Document> documents, String caller, int tokenBudget) {
+        List<Document> sorted = new ArrayList<>(documents);
+        sorted.sort(Comparator.comparingDouble((Document d) -> d.getScore() != null ? d.getScore() : 0.0).reversed());
+
+        List<String> parts = new ArrayList<>();
+        List<Set<String>> selectedShingles = new ArrayList<>();
+        int usedTokens = 0;
+        int duplicates = 0;
+        int overBudget = 0;
+        boolean truncated = false;
+
+        for (Document document : sorted) {
+            String text = document.getText();
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            Set<String> shingles = shingles(text);
+            if (isNearDuplicate(shingles, selectedShingles)) {
+                duplicates++;
+                continue;
+            }
+
+            // 片段之间的分隔符同样计入预算
+            int separator = parts.isEmpty() ? 0 : separatorTokens;
+            int remaining = tokenBudget - usedTokens - separator;
+            int tokens = tokenCountEstimator.estimate(text);
+            if (tokens <= remaining) {
+                parts.add(text);
+                selectedShingles.add(shingles);
+                usedTokens += separator + tokens;
+                continue;
+            }
+
+            if (!truncated && remaining >= minTruncateTokens) {
+                String head = truncateAtSentence(text, remaining);
+                if (!head.isEmpty()) {
+                    parts.add(head);
+                    selectedShingles.add(shingles);
+                    usedTokens += separator + tokenCountEstimator.estimate(head);
+                    truncated = true;
+                    continue;
+                }
+            }
+            overBudget++;
+        }
+
+        PackedContext packed = new PackedContext(String.join(SEPARATOR, parts), usedTokens, tokenBudget,
+                parts.size(), duplicates, overBudget, truncated);
+        record(caller, packed);
+        log.debug("上下文装配完成[{}]: {}/{} tokens，采用 {} 个片段，去重 {}，超预算 {}，截断: {}",
+                caller, usedTokens, tokenBudget, parts.size(), duplicates, overBudget, truncated);
+        return packed;
+    }
+
+    /**
+     * 按句子边界截断文本，使其不超过指定 Token 数
+     */
+    private String truncateAtSentence(String text, int maxTokens) {
+        StringBuilder head = new StringBuilder();
+        int tokens = 0;
+        for (String sentence : SENTENCE_END.split(text)) {
+            int sentenceTokens = tokenCountEstimator.estimate(sentence);
+            if (tokens + sentenceTokens > maxTokens) {
+                break;
+            }
+            head.append(sentence);
+            tokens += sentenceTokens;
+        }
+        return head.toString().trim();
+    }
+
+    private boolean isNearDuplicate(Set<String> candidate, List<Set<String>> selected) {
+        for (Set<String> existing : selected) {
+            if (jaccard(candidate, existing) >= duplicateThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 字符二元组，兼顾中文（无空格分词）和英文 SQL 片段
+     */
+    private static Set<String> shingles(String text) {
+        String normalized = text.replaceAll("\\s+", " ").toLowerCase();
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            result.add(normalized.substring(i, i + 2));
+        }
+        return result;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String s : smaller) {
+            if (larger.contains(s)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private void record(String caller, PackedContext packed) {
+        DistributionSummary.builder("report.context.tokens")
+                .description("Prompt 上下文使用的 Token 数")
+                .tag("caller", caller)
+                .register(meterRegistry)
+                .record(packed.tokens());
+        DistributionSummary.builder("report.context.budget.usage")
+                .description("Prompt 上下文 Token 预算使用率")
+                .tag("caller", caller)
+                .register(meterRegistry)
+                .record(packed.budget() > 0 ? (double) packed.tokens() / packed.budget() : 0.0);
+        Counter.builder("report.context.dropped")
+                .tag("caller", caller).tag("reason", "duplicate")
+                .register(meterRegistry)
+                .increment(packed.duplicates());
+        Counter.builder("report.context.dropped")
+                .tag("caller", caller).tag("reason", "budget")
+                .register(meterRegistry)
+                .increment(packed.overBudget());
+        if (packed.truncated()) {
+            Counter.builder("report.context.truncated")
+                    .tag("caller", caller)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 上下文装配结果
+     *
+     * @param text       拼装后的上下文
+     * @param tokens     使用的 Token 数
+     * @param budget     Token 预算
+     * @param included   采用的片段数
+     * @param duplicates 因近似重复丢弃的片段数
+     * @param overBudget 因超出预算丢弃的片段数
+     * @param truncated  是否有片段被截断
+     */
+    public record PackedContext(String text, int tokens, int budget, int included,
+                                int duplicates, int overBudget, boolean truncated) {
+    }
+}
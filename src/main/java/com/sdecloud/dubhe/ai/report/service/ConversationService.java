@@ -0,0 +1,242 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.sdecloud.dubhe.ai.report.config.SessionProperties;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import com.sdecloud.dubhe.ai.report.graph.CheckpointingNodeAction;
+import com.sdecloud.dubhe.ai.report.graph.ForecastNode;
+import com.sdecloud.dubhe.ai.report.graph.Nl2SqlNode;
+import com.sdecloud.dubhe.ai.report.graph.ReportGraphRoutes;
+import com.sdecloud.dubhe.ai.report.graph.SqlExecuteNode;
+import com.sdecloud.dubhe.ai.report.model.ReportRequest;
+import com.sdecloud.dubhe.ai.report.model.ReportResponse;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 会话追问服务
+ * 同一会话中的追问（如“2024年销售情况” → “只看技术部” → “按季度呢”）按 {@link FollowUpRouter} 的决策执行：
+ * 直接筛选上一轮结果、在上一轮 SQL 基础上改写后查询，或完整执行 NL2SQL；
+ * 需要报告时从 SQL 执行之后继续报告流程（预测、图表、报告、Word），只查询时问题包含预测意图也返回预测结果。
+ * 每轮提问都有运行ID，节点与报告流程一样经过 {@link CheckpointingNodeAction}（运行上下文、JFR 事件、检查点、大结果落盘）；
+ * 追问的问题只由最近一次完整执行的问题和本轮追问组成，不随轮数增长
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class ConversationService {
+
+    private final SessionStore sessionStore;
+    private final FollowUpRouter router;
+    private final Nl2SqlNode nl2SqlNode;
+    private final SqlExecuteNode sqlExecuteNode;
+    private final ForecastNode forecastNode;
+    private final ReportGenerationService reportGenerationService;
+    private final SessionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ReportCheckpointStore checkpointStore;
+    private final BlobStore blobStore;
+
+    public ConversationService(SessionStore sessionStore, FollowUpRouter router, Nl2SqlNode nl2SqlNode,
+                               SqlExecuteNode sqlExecuteNode, ForecastNode forecastNode,
+                               ReportGenerationService reportGenerationService, SessionProperties properties,
+                               MeterRegistry meterRegistry, ReportCheckpointStore checkpointStore,
+                               BlobStore blobStore) {
+        this.sessionStore = sessionStore;
+        this.router = router;
+        this.nl2SqlNode = nl2SqlNode;
+        this.sqlExecuteNode = sqlExecuteNode;
+        this.forecastNode = forecastNode;
+        this.reportGenerationService = reportGenerationService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.checkpointStore = checkpointStore;
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * 在会话中提问
+     *
+     * @param sessionId 会话ID（由调用方生成，不存在或已过期时视为新会话）
+     * @param request   问题及报告参数
+     * @param report    是否生成报告，否则只返回 SQL 和查询结果
+     * @return 响应，followUpRoute 为本轮的执行方式
+     */
+    public ReportResponse ask(String sessionId, ReportRequest request, boolean report) {
+        String question = request.getQuestion() != null ? request.getQuestion().trim() : "";
+        Optional<SessionStore.Turn> last = sessionStore.last(sessionId);
+        FollowUpRouter.Decision decision = router.route(last, question);
+        log.info("会话 {} 提问: {}，执行方式: {}（{}）", sessionId, question, decision.route(), decision.reason());
+
+        FollowUpRouter.Route route = decision.route();
+        String baseQuestion = route == FollowUpRouter.Route.FULL ? question : last.get().baseQuestion();
+        String effectiveQuestion = route == FollowUpRouter.Route.FULL ? question : baseQuestion + "，" + question;
+        String runId = UUID.randomUUID().toString();
+        Map<String, Object> state = new HashMap<>();
+        state.put(GraphStateKeys.RUN_ID, runId);
+        state.put(GraphStateKeys.QUESTION, effectiveQuestion);
+        state.put(GraphStateKeys.TOP_K, request.getTopK());
+
+        switch (route) {
+            case CACHED -> {
+                // 结果是在上一轮结果上筛选得到的，SQL 前注明筛选条件，避免响应和下一轮改写把原 SQL 当作本轮结果的来源
+                state.put(GraphStateKeys.SQL, "-- 未重新查询，" + decision.reason() + "\n" + last.get().sql());
+                state.put(GraphStateKeys.NL2SQL_SUCCESS, true);
+                state.put(GraphStateKeys.QUERY_RESULT, QueryResultParser.toJson(decision.rows()));
+                state.put(GraphStateKeys.SQL_EXECUTE_SUCCESS, true);
+            }
+            case REFINE -> {
+                SessionStore.Turn previous = last.get();
+                state.putAll(execute(ReportGraphRoutes.NL2SQL, s -> nl2SqlNode.refine(previous.question(),
+                        previous.sql(), previous.summary(), question), state));
+                if (succeeded(state, GraphStateKeys.NL2SQL_SUCCESS)) {
+                    state.putAll(execute(ReportGraphRoutes.SQL_EXECUTE, sqlExecuteNode, state));
+                }
+            }
+            case FULL -> {
+                state.putAll(execute(ReportGraphRoutes.NL2SQL, nl2SqlNode, state));
+                if (succeeded(state, GraphStateKeys.NL2SQL_SUCCESS)) {
+                    state.putAll(execute(ReportGraphRoutes.SQL_EXECUTE, sqlExecuteNode, state));
+                }
+            }
+        }
+        Counter.builder("report.session.routes")
+                .description("会话提问执行方式")
+                .tag("route", route.name())
+                .register(meterRegistry)
+                .increment();
+
+        // 报告流程成功后会删除落盘的查询结果，先读取会话需要的结果行和预览
+        boolean executed = succeeded(state, GraphStateKeys.SQL_EXECUTE_SUCCESS);
+        QueryResultParser.Preview queryResult = null;
+        List<Map<String, Object>> rows = null;
+        if (executed) {
+            queryResult = blobStore.previewIfSpilled(state.get(GraphStateKeys.QUERY_RESULT));
+            rows = route == FollowUpRouter.Route.CACHED ? decision.rows() : sessionRows(state.get(GraphStateKeys.QUERY_RESULT));
+        }
+
+        ReportResponse response;
+        if (report) {
+            response = continueReport(runId, request, state);
+        } else {
+            response = queryResponse(state, queryResult);
+            checkpointStore.delete(runId);
+            blobStore.deleteRun(runId);
+        }
+        response.setSessionId(sessionId);
+        response.setFollowUpRoute(route.name());
+        if (executed) {
+            remember(sessionId, baseQuestion, effectiveQuestion, state, queryResult.text(), rows, response.getReport());
+        }
+        return response;
+    }
+
+    /**
+     * 结束会话
+     *
+     * @param sessionId 会话ID
+     * @return 会话是否存在
+     */
+    public boolean close(String sessionId) {
+        return sessionStore.remove(sessionId);
+    }
+
+    private ReportResponse continueReport(String runId, ReportRequest request, Map<String, Object> state) {
+        state.put(GraphStateKeys.GENERATE_CHART, request.isGenerateChart());
+        state.put(GraphStateKeys.GENERATE_WORD, request.isGenerateWord());
+        String completedNode = state.containsKey(GraphStateKeys.SQL_EXECUTE_SUCCESS)
+                ? ReportGraphRoutes.SQL_EXECUTE : ReportGraphRoutes.NL2SQL;
+        return reportGenerationService.continueReport(runId, state, completedNode);
+    }
+
+    private ReportResponse queryResponse(Map<String, Object> state, QueryResultParser.Preview queryResult) {
+        ReportResponse response = new ReportResponse();
+        response.setQuestion((String) state.get(GraphStateKeys.QUESTION));
+        response.setSql((String) state.get(GraphStateKeys.SQL));
+        response.setSuccess(succeeded(state, GraphStateKeys.SQL_EXECUTE_SUCCESS));
+        if (response.isSuccess()) {
+            response.setQueryResult(queryResult.text());
+            response.setQueryResultTruncated(queryResult.truncated());
+            // 与报告流程一致，问题包含预测意图时对查询结果中的月度序列做预测
+            response.setForecast((String) execute(ReportGraphRoutes.FORECAST, forecastNode, state)
+                    .get(GraphStateKeys.FORECAST));
+        } else {
+            response.setQueryResult((String) state.get(GraphStateKeys.QUERY_RESULT));
+        }
+        if (!response.isSuccess()) {
+            Object error = state.containsKey(GraphStateKeys.NL2SQL_ERROR)
+                    ? state.get(GraphStateKeys.NL2SQL_ERROR) : state.get(GraphStateKeys.SQL_EXECUTE_ERROR);
+            response.setErrorMessage(error != null ? String.valueOf(error) : "查询执行失败");
+        }
+        return response;
+    }
+
+    /**
+     * 上一轮结果行：落盘的结果只流式读取不超过缓存上限的行，超过上限时不保留
+     */
+    private List<Map<String, Object>> sessionRows(Object queryResult) {
+        if (!BlobStore.isHandle(queryResult)) {
+            return router.parseRows((String) queryResult);
+        }
+        QueryResultParser.Preview preview = blobStore.preview(queryResult, properties.getMaxCachedRows());
+        return preview.truncated() ? null : router.parseRows(preview.text());
+    }
+
+    private void remember(String sessionId, String baseQuestion, String question, Map<String, Object> state,
+                          String queryResult, List<Map<String, Object>> rows, String report) {
+        String summary;
+        if (report != null && !report.isBlank()) {
+            summary = truncate(report);
+        } else if (rows != null) {
+            summary = "共 " + rows.size() + " 行" + (rows.isEmpty() ? "" : "，列: " + rows.get(0).keySet());
+        } else {
+            summary = truncate(queryResult);
+        }
+        sessionStore.put(sessionId, new SessionStore.Turn(baseQuestion, question, (String) state.get(GraphStateKeys.SQL),
+                queryResult, rows, summary));
+    }
+
+    private String truncate(String text) {
+        if (text == null) {
+            return "";
+        }
+        int max = properties.getSummaryMaxChars();
+        return text.length() > max ? text.substring(0, max) + "..." : text;
+    }
+
+    /**
+     * 与报告流程相同，经过检查点装饰器执行节点
+     */
+    private Map<String, Object> execute(String nodeId, NodeAction node, Map<String, Object> state) {
+        try {
+            return new CheckpointingNodeAction(nodeId, node, checkpointStore, blobStore).apply(overAllState(state));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ReportGenerationException("NODE_ERROR", nodeId, String.valueOf(e.getMessage()), e);
+        }
+    }
+
+    private static boolean succeeded(Map<String, Object> state, String key) {
+        return Boolean.TRUE.equals(state.get(key));
+    }
+
+    private static OverAllState overAllState(Map<String, Object> data) {
+        OverAllState state = new OverAllState();
+        state.input(new HashMap<>(data));
+        return state;
+    }
+}
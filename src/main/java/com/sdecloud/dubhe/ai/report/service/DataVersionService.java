@@ -0,0 +1,130 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.ReportCacheProperties;
+import com.sdecloud.dubhe.ai.report.model.ColumnMetadata;
+import com.sdecloud.dubhe.ai.report.model.TableMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 数据版本服务
+ * 通过 mysqlDataQuery 工具对 NL2SQL 可用的每张表查询行数和最大主键（发现新增、删除），
+ * 再加上 information_schema 中这些表的最近更新时间（发现原地修改，如部门改名），以结果摘要作为数据版本指纹。
+ * 探测不扫描整行数据，并按固定间隔在后台执行，请求线程只读取缓存的版本
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+public class DataVersionService {
+
+    /** 探测失败时的版本号，此时缓存无法校验 */
+    public static final String UNKNOWN = "unknown";
+
+    /** 表结构尚未加载时的探测SQL，覆盖静态表结构中的全部表 */
+    private static final String DEFAULT_VERSION_SQL = """
+            SELECT 'dept' AS table_name, COUNT(*) AS row_count, MAX(dept_id) AS max_key FROM dept \
+            UNION ALL SELECT 'product', COUNT(*), MAX(product_id) FROM product \
+            UNION ALL SELECT 'sales', COUNT(*), MAX(id) FROM sales \
+            UNION ALL SELECT '@update_time', COUNT(*), MAX(UPDATE_TIME) FROM information_schema.TABLES \
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ('dept', 'product', 'sales');""";
+
+    private final McpToolService mcpToolService;
+    private final SchemaMetadataService schemaMetadataService;
+    private final ReportCacheProperties properties;
+
+    private volatile String version = UNKNOWN;
+
+    public DataVersionService(McpToolService mcpToolService, SchemaMetadataService schemaMetadataService,
+                              ReportCacheProperties properties) {
+        this.mcpToolService = mcpToolService;
+        this.schemaMetadataService = schemaMetadataService;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取最近一次后台探测的数据版本，不访问数据库
+     *
+     * @return 数据版本指纹，尚未探测成功时为 {@link #UNKNOWN}
+     */
+    public String currentVersion() {
+        return version;
+    }
+
+    /**
+     * 定时在后台探测数据版本（启动后立即执行一次）
+     */
+    @Scheduled(fixedDelayString = "${report.cache.version-probe-interval-ms:60000}")
+    public void refresh() {
+        probe();
+    }
+
+    /**
+     * 立即探测数据版本（汇总表重建、预计算等后台任务使用）
+     *
+     * @return 数据版本指纹
+     */
+    public synchronized String probe() {
+        try {
+            String output = mcpToolService.executeSql(versionSql());
+            version = digest(output);
+            log.debug("数据版本: {}", version);
+        } catch (Exception e) {
+            log.warn("数据版本探测失败: {}", e.getMessage());
+            version = UNKNOWN;
+        }
+        return version;
+    }
+
+    /**
+     * 探测SQL：优先使用配置；否则覆盖表结构缓存中的全部表（汇总表等排除的表不在其中），按表名排序使指纹稳定。
+     * 只有单列主键的表查询最大主键，其余只查询行数
+     */
+    private String versionSql() {
+        if (properties.getVersionSql() != null && !properties.getVersionSql().isBlank()) {
+            return properties.getVersionSql();
+        }
+        List<TableMetadata> tables = schemaMetadataService.getTables();
+        if (tables.isEmpty()) {
+            return DEFAULT_VERSION_SQL;
+        }
+        List<TableMetadata> sorted = tables.stream()
+                .sorted(Comparator.comparing(TableMetadata::getName))
+                .toList();
+        String counts = sorted.stream()
+                .map(t -> String.format("SELECT '%s' AS table_name, COUNT(*) AS row_count, %s AS max_key FROM `%s`",
+                        t.getName(), maxKey(t), t.getName()))
+                .collect(Collectors.joining(" UNION ALL "));
+        String names = sorted.stream()
+                .map(t -> "'" + t.getName() + "'")
+                .collect(Collectors.joining(", "));
+        return counts + " UNION ALL SELECT '@update_time', COUNT(*), MAX(UPDATE_TIME) FROM information_schema.TABLES"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN (" + names + ");";
+    }
+
+    private static String maxKey(TableMetadata table) {
+        List<ColumnMetadata> keys = table.getColumns().stream()
+                .filter(ColumnMetadata::isPrimaryKey)
+                .toList();
+        return keys.size() == 1 ? "MAX(`" + keys.get(0).getName() + "`)" : "NULL";
+    }
+
+    private static String digest(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.LlmLimiterProperties;
+import com.sdecloud.dubhe.ai.report.config.ResilienceProperties;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 下游依赖熔断器与隔离舱
+ * 每个依赖（大模型、向量模型、各 MCP 服务）独立统计最近调用的失败率，超过阈值后熔断，熔断期间调用立即失败；
+ * 熔断时间结束后放行少量试探调用，全部成功则恢复。每个依赖还有独立的并发许可（隔离舱），
+ * 某个依赖卡住时最多占用自己的许可数个线程，不会拖垮其他接口。
+ * 大模型调用在隔离舱之后还要经过自适应并发限制器按优先级排队，启用限制器时大模型隔离舱至少容纳
+ * 最大并发上限 + 排队上限个调用，由限制器决定排队和拒绝
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class DependencyGuard {
+
+    /** 大模型 */
+    public static final String CHAT = "chat";
+
+    /** 向量模型 */
+    public static final String EMBEDDING = "embedding";
+
+    /** MCP 服务依赖名前缀，后接连接名 */
+    public static final String MCP_PREFIX = "mcp-";
+
+    /** 上游主动拒绝（熔断、隔离舱已满、限流）或嵌套的 MCP 依赖失败，不是被调用依赖本身的故障 */
+    private static final Set<String> REJECTION_CODES = Set.of(
+            "CIRCUIT_OPEN", "BULKHEAD_FULL", "LLM_OVERLOADED", "MCP_UNAVAILABLE", "MCP_ERROR");
+
+    private final ResilienceProperties properties;
+    private final LlmLimiterProperties limiterProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public DependencyGuard(ResilienceProperties properties, LlmLimiterProperties limiterProperties,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limiterProperties = limiterProperties;
+        this.meterRegistry = meterRegistry;
+        register(CHAT);
+        register(EMBEDDING);
+    }
+
+    /**
+     * 预先登记依赖，使其在调用前就出现在指标和 actuator 中
+     *
+     * @param dependency 依赖名
+     */
+    public void register(String dependency) {
+        breaker(dependency);
+    }
+
+    /**
+     * 在熔断器和隔离舱保护下调用依赖
+     *
+     * @param dependency 依赖名
+     * @param action     调用
+     * @return 调用结果
+     */
+    public <T> T call(String dependency, Supplier<T> action) {
+        Permit permit = acquire(dependency);
+        Throwable error = null;
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            release(permit, error);
+        }
+    }
+
+    /**
+     * 获取调用许可（流式调用在流结束时归还）
+     *
+     * @param dependency 依赖名
+     * @return 调用许可
+     * @throws ReportGenerationException 熔断中（CIRCUIT_OPEN）或隔离舱已满（BULKHEAD_FULL）
+     */
+    public Permit acquire(String dependency) {
+        return acquire(dependency, true);
+    }
+
+    /**
+     * 响应式获取调用许可：隔离舱有空闲许可时在当前线程立即获得；需要等待时（maxWaitMs 大于 0）
+     * 切换到 boundedElastic 线程等待，不阻塞事件循环线程
+     *
+     * @param dependency 依赖名
+     * @return 调用许可，熔断或隔离舱已满时异常结束
+     */
+    public Mono<Permit> acquireReactive(String dependency) {
+        return Mono.defer(() -> {
+            Permit permit = acquire(dependency, false);
+            return permit != null ? Mono.just(permit)
+                    : Mono.fromCallable(() -> acquire(dependency)).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * 获取调用许可
+     *
+     * @param dependency 依赖名
+     * @param wait       隔离舱已满时是否按 maxWaitMs 等待
+     * @return 调用许可；不等待且需要等待时为 null
+     */
+    private Permit acquire(String dependency, boolean wait) {
+        if (!properties.isEnabled()) {
+            return new Permit(null, false);
+        }
+        Breaker breaker = breaker(dependency);
+        Admission admission = breaker.admit();
+        if (admission == Admission.REJECTED) {
+            rejected(dependency, "circuit_open").increment();
+            throw new ReportGenerationException("CIRCUIT_OPEN", dependency, "依赖已熔断，请稍后重试");
+        }
+        boolean trial = admission == Admission.TRIAL;
+        if (!breaker.enterBulkhead(wait)) {
+            if (trial) {
+                breaker.cancelTrial();
+            }
+            if (!wait && breaker.policy.getMaxWaitMs() > 0) {
+                return null;
+            }
+            rejected(dependency, "bulkhead_full").increment();
+            throw new ReportGenerationException("BULKHEAD_FULL", dependency,
+                    "依赖并发已满（" + breaker.policy.getMaxConcurrent() + "），请稍后重试");
+        }
+        return new Permit(breaker, trial);
+    }
+
+    /**
+     * 归还调用许可并记录调用结果
+     *
+     * @param permit 调用许可
+     * @param error  调用异常，成功时为 null
+     */
+    public void release(Permit permit, Throwable error) {
+        Breaker breaker = permit.breaker;
+        if (breaker == null) {
+            return;
+        }
+        // 上游主动拒绝（熔断、限流、嵌套依赖失败）不是该依赖本身的故障，不计入失败率
+        if (error != null && isRejection(error)) {
+            cancel(permit);
+            return;
+        }
+        breaker.bulkhead.release();
+        breaker.record(permit.trial, error != null);
+    }
+
+    /**
+     * 归还调用许可，不记录调用结果（如流式调用被客户端取消）
+     *
+     * @param permit 调用许可
+     */
+    public void cancel(Permit permit) {
+        Breaker breaker = permit.breaker;
+        if (breaker == null) {
+            return;
+        }
+        breaker.bulkhead.release();
+        if (permit.trial) {
+            breaker.cancelTrial();
+        }
+    }
+
+    /**
+     * 依赖是否处于熔断状态
+     *
+     * @param dependency 依赖名
+     * @return 是否熔断
+     */
+    public boolean isOpen(String dependency) {
+        Breaker breaker = breakers.get(dependency);
+        return breaker != null && breaker.state == State.OPEN;
+    }
+
+    /**
+     * 所有依赖的熔断器和隔离舱状态
+     *
+     * @return 依赖名 → 状态
+     */
+    public Map<String, Snapshot> snapshots() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        breakers.forEach((name, breaker) -> snapshots.put(name, breaker.snapshot()));
+        return snapshots;
+    }
+
+    private Breaker breaker(String dependency) {
+        return breakers.computeIfAbsent(dependency, name -> {
+            Breaker breaker = new Breaker(name, policyFor(name));
+            Gauge.builder("report.dependency.state", breaker, b -> b.state.ordinal())
+                    .description("依赖熔断状态（0 关闭，1 半开，2 熔断）")
+                    .tag("dependency", name)
+                    .register(meterRegistry);
+            Gauge.builder("report.dependency.inflight", breaker,
+                            b -> b.policy.getMaxConcurrent() - b.bulkhead.availablePermits())
+                    .description("依赖当前并发调用数")
+                    .tag("dependency", name)
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    /**
+     * 依赖的策略；大模型隔离舱不小于并发限制器的容量，否则限制器的优先级排队不会生效
+     */
+    private ResilienceProperties.Policy policyFor(String dependency) {
+        ResilienceProperties.Policy policy = properties.policyFor(dependency);
+        if (!CHAT.equals(dependency) || !limiterProperties.isEnabled()) {
+            return policy;
+        }
+        int capacity = limiterProperties.getMaxLimit() + limiterProperties.getMaxQueueSize();
+        if (policy.getMaxConcurrent() >= capacity) {
+            return policy;
+        }
+        log.info("大模型隔离舱并发上限 {} 小于并发限制器容量 {}，按限制器容量调整", policy.getMaxConcurrent(), capacity);
+        return policy.withMaxConcurrent(capacity);
+    }
+
+    private Counter rejected(String dependency, String reason) {
+        return Counter.builder("report.dependency.rejected")
+                .description("熔断或隔离舱拒绝的调用数")
+                .tag("dependency", dependency)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static boolean isRejection(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof ReportGenerationException rge && REJECTION_CODES.contains(rge.getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        /** 正常放行 */
+        CLOSED,
+        /** 放行试探调用 */
+        HALF_OPEN,
+        /** 熔断，调用立即失败 */
+        OPEN
+    }
+
+    private enum Admission {
+        NORMAL, TRIAL, REJECTED
+    }
+
+    /**
+     * 调用许可
+     */
+    public static final class Permit {
+
+        private final Breaker breaker;
+        private final boolean trial;
+
+        private Permit(Breaker breaker, boolean trial) {
+            this.breaker = breaker;
+            this.trial = trial;
+        }
+    }
+
+    /**
+     * 依赖状态快照
+     *
+     * @param state         熔断器状态
+     * @param failureRate   最近调用的失败率
+     * @param bufferedCalls 参与统计的最近调用数
+     * @param inFlight      当前并发调用数
+     * @param maxConcurrent 隔离舱并发上限
+     * @param openRemainMs  熔断剩余时间（毫秒），未熔断时为 0
+     */
+    public record Snapshot(State state, double failureRate, int bufferedCalls, int inFlight, int maxConcurrent,
+                           long openRemainMs) {
+    }
+
+    private final class Breaker {
+
+        private final String name;
+        private final ResilienceProperties.Policy policy;
+        private final Semaphore bulkhead;
+        private final boolean[] window;
+        private volatile State state = State.CLOSED;
+        private int index;
+        private int buffered;
+        private int failures;
+        private long openedAt;
+        private int trialsInFlight;
+        private int trialSuccesses;
+
+        private Breaker(String name, ResilienceProperties.Policy policy) {
+            this.name = name;
+            this.policy = policy;
+            this.bulkhead = new Semaphore(policy.getMaxConcurrent(), true);
+            this.window = new boolean[Math.max(1, policy.getWindowSize())];
+        }
+
+        private synchronized Admission admit() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < policy.getOpenDurationMs()) {
+                    return Admission.REJECTED;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsInFlight + trialSuccesses >= policy.getHalfOpenCalls()) {
+                    return Admission.REJECTED;
+                }
+                trialsInFlight++;
+                return Admission.TRIAL;
+            }
+            return Admission.NORMAL;
+        }
+
+        private boolean enterBulkhead(boolean wait) {
+            try {
+                return !wait || policy.getMaxWaitMs() <= 0
+                        ? bulkhead.tryAcquire()
+                        : bulkhead.tryAcquire(policy.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private synchronized void cancelTrial() {
+            trialsInFlight = Math.max(0, trialsInFlight - 1);
+        }
+
+        private synchronized void record(boolean trial, boolean failed) {
+            if (trial) {
+                trialsInFlight = Math.max(0, trialsInFlight - 1);
+                if (state != State.HALF_OPEN) {
+                    return;
+                }
+                if (failed) {
+                    open();
+                } else if (++trialSuccesses >= policy.getHalfOpenCalls()) {
+                    transition(State.CLOSED);
+                }
+                return;
+            }
+            if (state != State.CLOSED) {
+                return;
+            }
+            if (buffered == window.length) {
+                failures -= window[index] ? 1 : 0;
+            } else {
+                buffered++;
+            }
+            window[index] = failed;
+            failures += failed ? 1 : 0;
+            index = (index + 1) % window.length;
+
+            if (buffered >= policy.getMinimumCalls() && failureRate() >= policy.getFailureRateThreshold()) {
+                open();
+            }
+        }
+
+        private void open() {
+            openedAt = System.currentTimeMillis();
+            transition(State.OPEN);
+        }
+
+        private void transition(State target) {
+            log.warn("依赖 {} 熔断器状态 {} -> {}，最近失败率 {}", name, state, target, String.format("%.2f", failureRate()));
+            state = target;
+            trialsInFlight = 0;
+            trialSuccesses = 0;
+            if (target == State.CLOSED) {
+                buffered = 0;
+                failures = 0;
+                index = 0;
+            }
+            Counter.builder("report.dependency.transitions")
+                    .description("熔断器状态切换次数")
+                    .tag("dependency", name)
+                    .tag("state", target.name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        private double failureRate() {
+            return buffered == 0 ? 0.0 : (double) failures / buffered;
+        }
+
+        private synchronized Snapshot snapshot() {
+            long remain = state == State.OPEN
+                    ? Math.max(0, policy.getOpenDurationMs() - (System.currentTimeMillis() - openedAt))
+                    : 0;
+            return new Snapshot(state, failureRate(), buffered,
+                    policy.getMaxConcurrent() - bulkhead.availablePermits(), policy.getMaxConcurrent(), remain);
+        }
+    }
+}
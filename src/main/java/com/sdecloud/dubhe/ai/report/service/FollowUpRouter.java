@@ -0,0 +1,151 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.SessionProperties;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 追问路由
+ * 判断会话中的新问题能否直接在上一轮结果上回答：
+ * 短问题且以“只看”“按”“那”等开头或以“呢”结尾时视为追问；追问只提到上一轮结果中已有的值（如部门名）且不改变分组维度时，
+ * 直接筛选缓存的结果行（{@link Route#CACHED}），“去掉”“排除”“除了”等否定追问则去掉匹配的行；
+ * 其他追问在上一轮 SQL 基础上改写（{@link Route#REFINE}）；
+ * 非追问或没有上一轮结果时完整执行（{@link Route#FULL}）
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Service
+public class FollowUpRouter {
+
+    /** 追问特征：省略主语的开头或句末“呢” */
+    private static final Pattern FOLLOW_UP = Pattern.compile(
+            "^(那|那么|再|只看|仅看|只要|只统计|换成|改成|改为|按|其中|去掉|排除|除了|如果)|呢[？?]?$");
+
+    /** 改变分组维度、时间粒度或聚合方式的追问，缓存的行无法直接回答 */
+    private static final Pattern REGROUP = Pattern.compile(
+            "按|每|分组|季度|月份|月度|年度|同比|环比|趋势|平均|合计|总计|汇总|占比|排名|最高|最低");
+
+    /** 否定追问：去掉提到的值，保留其余行 */
+    private static final Pattern NEGATION = Pattern.compile("去掉|排除|除了|不看|不要|不含|不包括|剔除");
+
+    /** 参与匹配的值的最小长度，避免单字误匹配 */
+    private static final int MIN_VALUE_CHARS = 2;
+
+    private final SessionProperties properties;
+
+    public FollowUpRouter(SessionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 为新问题选择执行方式
+     *
+     * @param last     会话的上一轮，新会话为空
+     * @param question 新问题
+     * @return 路由决策
+     */
+    public Decision route(Optional<SessionStore.Turn> last, String question) {
+        if (last.isEmpty() || last.get().sql() == null) {
+            return new Decision(Route.FULL, null, "无上一轮结果");
+        }
+        String text = question.trim();
+        if (text.length() > properties.getFollowUpMaxChars() || !FOLLOW_UP.matcher(text).find()) {
+            return new Decision(Route.FULL, null, "独立问题");
+        }
+        List<Map<String, Object>> rows = last.get().rows();
+        if (rows != null && !REGROUP.matcher(text).find()) {
+            Map<String, Set<String>> mentioned = mentionedValues(rows, text);
+            if (!mentioned.isEmpty()) {
+                boolean exclude = NEGATION.matcher(text).find();
+                List<Map<String, Object>> filtered = filter(rows, mentioned, exclude);
+                if (!filtered.isEmpty()) {
+                    return new Decision(Route.CACHED, filtered,
+                            (exclude ? "从上一轮结果中排除 " : "在上一轮结果中只保留 ") + describe(mentioned));
+                }
+            }
+        }
+        return new Decision(Route.REFINE, null, "在上一轮SQL基础上改写");
+    }
+
+    /**
+     * 将查询结果解析为行
+     *
+     * @param queryResult 查询结果原文
+     * @return 结果行，无法解析或超过缓存行数上限时为 null
+     */
+    public List<Map<String, Object>> parseRows(String queryResult) {
+        List<Map<String, Object>> rows = QueryResultParser.parseRows(queryResult);
+        return rows != null && rows.size() <= properties.getMaxCachedRows() ? rows : null;
+    }
+
+    /**
+     * 问题中提到的各列取值
+     */
+    private Map<String, Set<String>> mentionedValues(List<Map<String, Object>> rows, String question) {
+        Map<String, Set<String>> mentioned = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            row.forEach((column, value) -> {
+                if (value instanceof String text && text.length() >= MIN_VALUE_CHARS && question.contains(text)) {
+                    mentioned.computeIfAbsent(column, k -> new HashSet<>()).add(text);
+                }
+            });
+        }
+        return mentioned;
+    }
+
+    /**
+     * 保留匹配全部提到的值的行；exclude 时保留其余行
+     */
+    private static List<Map<String, Object>> filter(List<Map<String, Object>> rows, Map<String, Set<String>> mentioned,
+                                                    boolean exclude) {
+        List<Map<String, Object>> filtered = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            boolean matches = mentioned.entrySet().stream()
+                    .allMatch(e -> e.getValue().contains(String.valueOf(row.get(e.getKey()))));
+            if (matches != exclude) {
+                filtered.add(row);
+            }
+        }
+        return filtered;
+    }
+
+    private static String describe(Map<String, Set<String>> mentioned) {
+        return mentioned.entrySet().stream()
+                .map(e -> e.getKey() + " = " + String.join("/", new TreeSet<>(e.getValue())))
+                .collect(Collectors.joining("，"));
+    }
+
+    /**
+     * 执行方式
+     */
+    public enum Route {
+        /** 直接筛选上一轮结果，不调用大模型和数据库 */
+        CACHED,
+        /** 在上一轮 SQL 基础上改写后查询 */
+        REFINE,
+        /** 按独立问题完整执行 */
+        FULL
+    }
+
+    /**
+     * 路由决策
+     *
+     * @param route  执行方式
+     * @param rows   {@link Route#CACHED} 时筛选后的结果行
+     * @param reason 决策原因，{@link Route#CACHED} 时为筛选条件说明
+     */
+    public record Decision(Route route, List<Map<String, Object>> rows, String reason) {
+    }
+}
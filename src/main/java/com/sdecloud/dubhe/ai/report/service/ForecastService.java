@@ -0,0 +1,333 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.config.ForecastProperties;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import com.sdecloud.dubhe.ai.report.util.TimeSeriesForecaster;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 报告预测服务
+ * 从查询结果中识别月份列（如 2024-01、202401、2024年1月，或年份、月份两列，或只有 1~12 的月份列）和数值指标列，
+ * 按月汇总为连续序列（缺失月份线性插值）后由 {@link TimeSeriesForecaster} 拟合外推，
+ * 预测值和预测区间写入报告状态，大模型只负责解读
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class ForecastService {
+
+    private static final Pattern MONTH_PATTERN =
+            Pattern.compile("^(\\d{4})(?:\\s*[-/.年]\\s*(\\d{1,2})\\s*月?(?:[-/.日\\sT].*)?|(\\d{2}))$");
+    private static final Set<String> YEAR_COLUMNS = Set.of("year", "年", "年份");
+    private static final Set<String> MONTH_COLUMNS = Set.of("month", "月", "月份");
+    private static final Pattern QUESTION_YEAR = Pattern.compile("((?:19|20)\\d{2})\\s*年?");
+
+    private final ForecastProperties properties;
+    private final Pattern questionPattern;
+    private final Timer fitTimer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ForecastService(ForecastProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.questionPattern = Pattern.compile(properties.getQuestionPattern());
+        this.fitTimer = Timer.builder("report.forecast.fit")
+                .description("时间序列模型拟合耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 问题是否需要预测
+     *
+     * @param question 用户问题
+     * @return 启用预测且问题包含预测意图时为 true
+     */
+    public boolean requested(String question) {
+        return properties.isEnabled() && question != null && questionPattern.matcher(question).find();
+    }
+
+    /**
+     * 对查询结果中的月度序列做预测
+     * 查询结果是子查询合并的对象时，分别识别每个子查询的结果
+     *
+     * @param queryResult 查询结果
+     * @param question    用户问题，查询结果只有月份没有年份时从中确定年份
+     * @return 预测结果 JSON，没有可预测的月度序列时为空
+     */
+    public Optional<String> forecast(String queryResult, String question) {
+        int year = questionYear(question);
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (Map.Entry<String, List<Map<String, Object>>> source : sources(queryResult).entrySet()) {
+            forecastRows(source.getKey(), source.getValue(), year, series);
+        }
+        if (series.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("horizon", properties.getHorizon());
+        result.put("confidence", properties.getConfidence());
+        result.put("series", series);
+        try {
+            return Optional.of(objectMapper.writeValueAsString(result));
+        } catch (JsonProcessingException e) {
+            log.warn("预测结果序列化失败: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 查询结果中的行数据：单个结果，或子查询名称 → 结果
+     */
+    private Map<String, List<Map<String, Object>>> sources(String queryResult) {
+        Map<String, List<Map<String, Object>>> sources = new LinkedHashMap<>();
+        List<Map<String, Object>> rows = QueryResultParser.parseRows(queryResult);
+        try {
+            JsonNode root = queryResult != null ? objectMapper.readTree(queryResult) : null;
+            if (root != null && root.isObject() && root.size() > 1) {
+                Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    List<Map<String, Object>> subRows = QueryResultParser.parseRows(field.getValue().toString());
+                    if (subRows != null) {
+                        sources.put(field.getKey(), subRows);
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            log.debug("查询结果不是 JSON 格式，跳过预测");
+        }
+        if (sources.isEmpty() && rows != null) {
+            sources.put("", rows);
+        }
+        return sources;
+    }
+
+    private void forecastRows(String source, List<Map<String, Object>> rows, int year,
+                              List<Map<String, Object>> output) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String monthColumn = columns.stream().filter(c -> isMonthColumn(rows, c)).findFirst().orElse(null);
+        String yearColumn = null;
+        boolean monthOnly = false;
+        if (monthColumn == null) {
+            yearColumn = columns.stream().filter(c -> YEAR_COLUMNS.contains(c.toLowerCase(Locale.ROOT)))
+                    .findFirst().orElse(null);
+            monthColumn = columns.stream().filter(c -> MONTH_COLUMNS.contains(c.toLowerCase(Locale.ROOT)))
+                    .findFirst().orElse(null);
+            if (monthColumn == null) {
+                return;
+            }
+            // 只有月份列（如 MONTH(sales_date) AS month）时视为同一年的 1~12 月
+            monthOnly = yearColumn == null;
+            if (monthOnly && !isMonthNumberColumn(rows, monthColumn)) {
+                return;
+            }
+        }
+
+        int measures = 0;
+        for (String column : columns) {
+            if (measures == properties.getMaxMeasures()) {
+                break;
+            }
+            if (column.equals(monthColumn) || column.equals(yearColumn) || isIdentifier(column)
+                    || !isNumericColumn(rows, column)) {
+                continue;
+            }
+            TreeMap<YearMonth, Double> monthly = new TreeMap<>();
+            for (Map<String, Object> row : rows) {
+                YearMonth month = monthOnly ? yearMonth(year, row.get(monthColumn))
+                        : yearColumn == null ? parseMonth(row.get(monthColumn))
+                        : yearMonth(row.get(yearColumn), row.get(monthColumn));
+                Double value = number(row.get(column));
+                if (month != null && value != null) {
+                    monthly.merge(month, value, Double::sum);
+                }
+            }
+            if (monthly.size() < TimeSeriesForecaster.MIN_POINTS) {
+                continue;
+            }
+            Map<String, Object> forecast = forecastSeries(source, column, monthly);
+            if (forecast != null) {
+                measures++;
+                output.add(forecast);
+            }
+        }
+    }
+
+    private Map<String, Object> forecastSeries(String source, String measure, TreeMap<YearMonth, Double> monthly) {
+        YearMonth first = monthly.firstKey();
+        YearMonth last = monthly.lastKey();
+        int length = (int) (first.until(last, ChronoUnit.MONTHS) + 1);
+        double[] values = new double[length];
+        boolean[] present = new boolean[length];
+        monthly.forEach((month, value) -> {
+            int index = (int) first.until(month, ChronoUnit.MONTHS);
+            values[index] = value;
+            present[index] = true;
+        });
+        interpolate(values, present);
+
+        long start = System.nanoTime();
+        TimeSeriesForecaster.Forecast forecast = TimeSeriesForecaster.forecast(values, properties.getPeriod(),
+                properties.getHorizon(), properties.getConfidence());
+        fitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (forecast == null) {
+            return null;
+        }
+
+        List<Map<String, Object>> history = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("month", first.plusMonths(i).toString());
+            point.put("value", round(values[i]));
+            history.add(point);
+        }
+        List<Map<String, Object>> future = new ArrayList<>(forecast.point().length);
+        for (int h = 0; h < forecast.point().length; h++) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("month", last.plusMonths(h + 1L).toString());
+            point.put("value", round(forecast.point()[h]));
+            point.put("lower", round(forecast.lower()[h]));
+            point.put("upper", round(forecast.upper()[h]));
+            future.add(point);
+        }
+
+        log.info("预测 {}{}：{} 个月历史，模型 {}，残差标准差 {}", source.isEmpty() ? "" : source + ".",
+                measure, length, forecast.method(), round(forecast.rmse()));
+        Map<String, Object> series = new LinkedHashMap<>();
+        if (!source.isEmpty()) {
+            series.put("source", source);
+        }
+        series.put("measure", measure);
+        series.put("method", forecast.method());
+        series.put("rmse", round(forecast.rmse()));
+        series.put("history", history);
+        series.put("forecast", future);
+        return series;
+    }
+
+    /**
+     * 缺失月份按相邻月份线性插值
+     */
+    private static void interpolate(double[] values, boolean[] present) {
+        int previous = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (!present[i]) {
+                continue;
+            }
+            for (int j = previous + 1; j < i; j++) {
+                values[j] = values[previous] + (values[i] - values[previous]) * (j - previous) / (i - previous);
+            }
+            previous = i;
+        }
+    }
+
+    private static boolean isMonthColumn(List<Map<String, Object>> rows, String column) {
+        return rows.stream().allMatch(row -> parseMonth(row.get(column)) != null);
+    }
+
+    private static boolean isMonthNumberColumn(List<Map<String, Object>> rows, String column) {
+        return rows.stream().allMatch(row -> {
+            Double month = number(row.get(column));
+            return month != null && month == Math.rint(month) && month >= 1 && month <= 12;
+        });
+    }
+
+    /**
+     * 问题中的年份（如“2024年”“今年”“去年”），未提到时为当前年份
+     */
+    private static int questionYear(String question) {
+        int current = Year.now().getValue();
+        if (question == null) {
+            return current;
+        }
+        Matcher matcher = QUESTION_YEAR.matcher(question);
+        if (matcher.find()) {
+            return Integer.parseInt(matcher.group(1));
+        }
+        if (question.contains("前年")) {
+            return current - 2;
+        }
+        return question.contains("去年") ? current - 1 : current;
+    }
+
+    private static boolean isNumericColumn(List<Map<String, Object>> rows, String column) {
+        return rows.stream().allMatch(row -> row.get(column) == null || number(row.get(column)) != null);
+    }
+
+    private static boolean isIdentifier(String column) {
+        String lower = column.toLowerCase(Locale.ROOT);
+        return lower.equals("id") || lower.endsWith("_id") || lower.endsWith("编号");
+    }
+
+    /**
+     * 解析月份：字符串支持 2024-01、2024/1、2024年1月、202401 及带日期时间的形式，数值只接受 yyyyMM
+     */
+    private static YearMonth parseMonth(Object value) {
+        if (value instanceof Number number) {
+            long n = number.longValue();
+            return n == number.doubleValue() ? yearMonth(n / 100, n % 100) : null;
+        }
+        if (!(value instanceof String text)) {
+            return null;
+        }
+        Matcher matcher = MONTH_PATTERN.matcher(text.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return yearMonth(matcher.group(1), matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+    }
+
+    private static YearMonth yearMonth(Object year, Object month) {
+        Double y = number(year);
+        Double m = number(month);
+        if (y == null || m == null || y < 1900 || y > 2100 || m < 1 || m > 12) {
+            return null;
+        }
+        return YearMonth.of(y.intValue(), m.intValue());
+    }
+
+    private static Double number(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            try {
+                return Double.parseDouble(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
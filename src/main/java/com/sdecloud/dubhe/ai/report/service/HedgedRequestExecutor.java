@@ -0,0 +1,352 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.HedgingProperties;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 大模型对冲请求执行器
+ * 原始请求在调用线程上执行；超过该节点近期的 p95 耗时仍未返回时，在有界线程池中再发出一个相同的请求，
+ * 先成功返回的结果胜出：对冲请求胜出时中断调用线程上的原始请求，原始请求胜出时取消对冲请求。
+ * 对冲次数受全局预算限制（默认不超过总调用数的 5%），线程池已满时不再对冲，每次调用最多额外占用一个线程。
+ * 由共享的大模型装饰链调用，节点名称由 {@link ModelRouter} 通过 {@link #callForNode(String, Supplier)} 设置
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class HedgedRequestExecutor {
+
+    private static final ThreadLocal<String> CURRENT_NODE = new ThreadLocal<>();
+
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "llm-hedge-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** 对冲预算令牌，每次调用增加 budgetRatio，每次对冲消耗 1 */
+    private double budgetTokens;
+
+    public HedgedRequestExecutor(HedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger sequence = new AtomicInteger();
+        // 不排队：没有空闲线程时直接拒绝，由调用方放弃本次对冲
+        this.executor = new ThreadPoolExecutor(0, properties.getMaxConcurrent(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "llm-hedge-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 以指定节点名称执行任务，任务中的大模型调用按该节点的配置对冲
+     *
+     * @param node 节点名称
+     * @param task 任务
+     * @return 任务结果
+     */
+    public static <T> T callForNode(String node, Supplier<T> task) {
+        String previous = CURRENT_NODE.get();
+        CURRENT_NODE.set(node);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT_NODE.set(previous);
+            } else {
+                CURRENT_NODE.remove();
+            }
+        }
+    }
+
+    /**
+     * 当前线程正在调用大模型的节点
+     *
+     * @return 节点名称，不在节点调用中时为 null
+     */
+    public static String currentNode() {
+        return CURRENT_NODE.get();
+    }
+
+    /**
+     * 执行调用，节点启用对冲且耗时超过阈值时发出对冲请求
+     *
+     * @param node 节点名称，为 null 时直接调用
+     * @param call 大模型调用
+     * @return 调用结果
+     */
+    public <T> T execute(String node, Supplier<T> call) {
+        if (node == null || !properties.isEnabled() || !properties.getNodes().contains(node)) {
+            return call.get();
+        }
+        LatencyWindow window = windows.computeIfAbsent(node, k -> new LatencyWindow(properties.getWindowSize()));
+        addBudget();
+
+        long threshold = window.percentile(properties.getPercentile(), properties.getMinSamples());
+        if (threshold < 0) {
+            // 样本不足，不对冲
+            return timed(window, call).get();
+        }
+
+        ChatPriority priority = ChatPriority.current();
+        RunContext.Run run = RunContext.current();
+        Attempts<T> attempts = new Attempts<>(Thread.currentThread());
+        ScheduledFuture<?> hedgeTimer = timer.schedule(() -> fireHedge(node, threshold, attempts,
+                () -> inContext(priority, run, timed(window, call))),
+                Math.max(threshold, properties.getMinDelayMs()), TimeUnit.MILLISECONDS);
+
+        // 原始请求在调用线程执行
+        try {
+            attempts.primarySucceeded(timed(window, call).get());
+        } catch (RuntimeException e) {
+            attempts.primaryFailed(e);
+        } finally {
+            hedgeTimer.cancel(false);
+        }
+
+        try {
+            T result = attempts.result.get();
+            if (attempts.hedgeWon) {
+                count("report.llm.hedge.won", node);
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw unwrap(node, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReportGenerationException("LLM_ERROR", node, "大模型调用被中断", e);
+        } finally {
+            attempts.cancelHedge();
+        }
+    }
+
+    /**
+     * 原始请求超时未返回时发出对冲请求（在定时线程执行，不阻塞）
+     */
+    private <T> void fireHedge(String node, long threshold, Attempts<T> attempts, Supplier<T> call) {
+        if (!tryAcquireBudget()) {
+            count("report.llm.hedge.skipped", node, "budget");
+            return;
+        }
+        Attempts.Start start = attempts.startHedge(executor, call);
+        if (start == Attempts.Start.REJECTED) {
+            returnBudget();
+            count("report.llm.hedge.skipped", node, "saturated");
+        } else if (start == Attempts.Start.STARTED) {
+            log.debug("节点 {} 调用超过 {} ms，发出对冲请求", node, threshold);
+            count("report.llm.hedge.fired", node);
+        } else {
+            returnBudget();
+        }
+    }
+
+    /**
+     * 在线程池中恢复调用方的优先级和运行上下文
+     */
+    private static <T> T inContext(ChatPriority priority, RunContext.Run run, Supplier<T> call) {
+        try (RunContext.Scope ignored = RunContext.enter(run)) {
+            return ChatPriority.call(priority, call);
+        }
+    }
+
+    private <T> Supplier<T> timed(LatencyWindow window, Supplier<T> call) {
+        return () -> {
+            long start = System.nanoTime();
+            T result = call.get();
+            window.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        };
+    }
+
+    private synchronized void addBudget() {
+        budgetTokens = Math.min(properties.getMaxBurst(), budgetTokens + properties.getBudgetRatio());
+    }
+
+    private synchronized boolean tryAcquireBudget() {
+        if (budgetTokens < 1.0) {
+            return false;
+        }
+        budgetTokens -= 1.0;
+        return true;
+    }
+
+    private synchronized void returnBudget() {
+        budgetTokens = Math.min(properties.getMaxBurst(), budgetTokens + 1.0);
+    }
+
+    private void count(String name, String node) {
+        Counter.builder(name).tag("node", node).register(meterRegistry).increment();
+    }
+
+    private void count(String name, String node, String reason) {
+        Counter.builder(name).tag("node", node).tag("reason", reason).register(meterRegistry).increment();
+    }
+
+    private static RuntimeException unwrap(String node, Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new ReportGenerationException("LLM_ERROR", node, String.valueOf(cause.getMessage()), cause);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 一次调用的原始请求和对冲请求：先成功的结果写入 result，两个请求都失败时 result 以先出现的错误结束
+     */
+    private static final class Attempts<T> {
+
+        enum Start { STARTED, REJECTED, NOT_NEEDED }
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final Thread caller;
+        private int pending = 1;
+        private boolean primaryDone;
+        private Throwable firstError;
+        private Future<?> hedge;
+        private volatile boolean hedgeWon;
+
+        private Attempts(Thread caller) {
+            this.caller = caller;
+        }
+
+        /**
+         * 原始请求未结束时提交对冲请求，线程池已满时返回 REJECTED
+         */
+        private synchronized Start startHedge(ExecutorService executor, Supplier<T> call) {
+            if (primaryDone || result.isDone()) {
+                return Start.NOT_NEEDED;
+            }
+            try {
+                hedge = executor.submit(() -> {
+                    try {
+                        hedgeSucceeded(call.get());
+                    } catch (RuntimeException e) {
+                        failed(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                return Start.REJECTED;
+            }
+            pending++;
+            return Start.STARTED;
+        }
+
+        private synchronized void hedgeSucceeded(T value) {
+            if (result.complete(value)) {
+                hedgeWon = true;
+                if (!primaryDone) {
+                    // 中断调用线程上仍在等待的原始请求
+                    caller.interrupt();
+                }
+            }
+        }
+
+        private void primarySucceeded(T value) {
+            synchronized (this) {
+                primaryDone = true;
+                result.complete(value);
+            }
+            clearHedgeInterrupt();
+        }
+
+        private void primaryFailed(RuntimeException e) {
+            synchronized (this) {
+                primaryDone = true;
+            }
+            clearHedgeInterrupt();
+            failed(e);
+        }
+
+        private synchronized void failed(Throwable e) {
+            if (firstError == null) {
+                firstError = e;
+            }
+            if (--pending == 0) {
+                result.completeExceptionally(firstError);
+            }
+        }
+
+        /**
+         * 对冲请求胜出时调用线程被中断过，原始请求结束后清除中断标记
+         */
+        private void clearHedgeInterrupt() {
+            if (hedgeWon) {
+                Thread.interrupted();
+            }
+        }
+
+        private synchronized void cancelHedge() {
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 最近 N 次成功调用的耗时窗口
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        private LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        private synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * 计算分位耗时，样本不足时返回 -1
+         */
+        private synchronized long percentile(double percentile, int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.util.MetadataFilters;
+import com.sdecloud.dubhe.ai.report.util.SimilarityKernel;
+import com.sdecloud.dubhe.ai.report.util.SimilarityKernels;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * 使用 {@link SimilarityKernels#get()} 计算余弦相似度的内存向量存储
+ * 存储、持久化与 SimpleVectorStore 相同，检索时用相似度内核（可用时为 SIMD 实现）打分，
+ * 并用容量为 topK 的小顶堆代替全量排序
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public class KernelSimpleVectorStore extends SimpleVectorStore {
+
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+
+    public KernelSimpleVectorStore(SimpleVectorStoreBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        Predicate<Map<String, Object>> filter = MetadataFilters.predicate(request.getFilterExpression());
+        float[] query = embeddingModel.embed(request.getQuery());
+        int topK = Math.max(1, request.getTopK());
+
+        PriorityQueue<Scored> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Scored::score));
+        for (SimpleVectorStoreContent content : store.values()) {
+            if (!filter.test(content.getMetadata())) {
+                continue;
+            }
+            double score = kernel.cosine(query, content.getEmbedding());
+            if (score < request.getSimilarityThreshold()) {
+                continue;
+            }
+            if (heap.size() < topK) {
+                heap.add(new Scored(content, score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new Scored(content, score));
+            }
+        }
+
+        List<Scored> ranked = new ArrayList<>(heap);
+        ranked.sort(Comparator.comparingDouble(Scored::score).reversed());
+        return ranked.stream().map(s -> s.content().toDocument(s.score())).toList();
+    }
+
+    private record Scored(SimpleVectorStoreContent content, double score) {
+    }
+}
@@ -1,20 +1,36 @@
 package com.sdecloud.dubhe.ai.report.service;
 
+import com.sdecloud.dubhe.ai.report.util.MarkdownStructureSplitter;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.TextReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * 知识库服务，负责加载和向量化知识库文档
+ * 向量化在后台线程执行，不阻塞应用启动；完成前 {@link #isReady()} 为 false，由就绪拦截器拒绝依赖知识库的请求
  *
  * @author liangjun
  * @since 2025-10-14
@@ -25,19 +41,57 @@ public class KnowledgeBaseService {
 
 	private final VectorStore vectorStore;
 
+	/** 父章节文本，key 为章节ID，检索命中多个子单元时用于回溯扩展 */
+	private final Map<String, MarkdownStructureSplitter.Section> parentSections = new ConcurrentHashMap<>();
+
+	/** 知识库加载完成信号 */
+	private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+	private final ScheduledExecutorService ingestExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "knowledge-ingest");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** 最近一次加载失败的原因，加载成功后清空 */
+	private volatile String lastError;
+
 	@Value("classpath:知识库文档.md")
 	private Resource knowledgeBaseFile;
 
+	/** 检索单元最大字符数 */
+	@Value("${report.knowledge.max-unit-chars:600}")
+	private int maxUnitChars;
+
+	/** 同一章节命中单元数达到该值时扩展为整个章节 */
+	@Value("${report.knowledge.parent-expand-min-hits:2}")
+	private int parentExpandMinHits;
+
+	/** 允许扩展的父章节最大字符数，超出则仅保留命中的单元 */
+	@Value("${report.knowledge.parent-max-chars:2000}")
+	private int parentMaxChars;
+
+	/** 加载失败后的重试间隔（毫秒） */
+	@Value("${report.knowledge.ingest-retry-ms:30000}")
+	private long ingestRetryMs;
+
 	public KnowledgeBaseService(VectorStore vectorStore) {
 		this.vectorStore = vectorStore;
 	}
 
 	/**
-	 * 应用启动时初始化知识库
-	 * 读取知识库文档，进行文本分割，然后向量化存储
+	 * 应用启动时在后台初始化知识库，不阻塞 Spring 上下文启动
 	 */
 	@PostConstruct
 	public void initKnowledgeBase() {
+		ingestExecutor.execute(this::ingest);
+	}
+
+	/**
+	 * 读取知识库文档，按标题/表格结构分割为小单元，然后向量化存储；失败时按间隔重试
+	 */
+	private void ingest() {
+		long start = System.currentTimeMillis();
 		try {
 			log.info("开始加载知识库文档: {}", knowledgeBaseFile.getFilename());
 
@@ -46,23 +100,83 @@ public class KnowledgeBaseService {
 			List<Document> documents = textReader.get();
 			log.info("文档读取完成，共 {} 个文档", documents.size());
 
-			// 2. 文本分割（每个chunk大小为800个token，重叠100个token）
-			TokenTextSplitter textSplitter = new TokenTextSplitter(800, 100, 5, 10000, false);
-			List<Document> splitDocuments = textSplitter.apply(documents);
-			log.info("文档分割完成，共 {} 个文档片段", splitDocuments.size());
+			// 2. 结构感知分割（一个指标、一张表格或一段说明为一个单元），父章节单独保存
+			MarkdownStructureSplitter splitter = new MarkdownStructureSplitter(maxUnitChars);
+			List<Document> splitDocuments = new ArrayList<>();
+			for (Document document : documents) {
+				for (MarkdownStructureSplitter.Section section : splitter.parseSections(document)) {
+					parentSections.put(section.id(), section);
+					splitDocuments.addAll(section.units());
+				}
+			}
+			log.info("文档分割完成，共 {} 个章节，{} 个检索单元", parentSections.size(), splitDocuments.size());
 
-			// 3. 向量化并存储到向量库
+			// 3. 向量化并存储到向量库（持久化的向量库清理已删除章节的旧向量）
 			vectorStore.add(splitDocuments);
-			log.info("知识库向量化完成，已存储 {} 个向量", splitDocuments.size());
+			if (vectorStore instanceof MappedVectorStore mappedVectorStore) {
+				mappedVectorStore.retainOnly(splitDocuments.stream().map(Document::getId).collect(Collectors.toSet()));
+			}
+			lastError = null;
+			ready.complete(null);
+			log.info("知识库向量化完成，已存储 {} 个向量，耗时 {} ms", splitDocuments.size(),
+					System.currentTimeMillis() - start);
+
+		} catch (Exception e) {
+			lastError = e.getMessage();
+			log.error("知识库初始化失败，{} ms 后重试", ingestRetryMs, e);
+			ingestExecutor.schedule(this::ingest, ingestRetryMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 知识库是否已加载完成
+	 *
+	 * @return 是否可以检索
+	 */
+	public boolean isReady() {
+		return ready.isDone();
+	}
 
+	/**
+	 * 等待知识库加载完成
+	 *
+	 * @param timeoutMs 最长等待时间（毫秒），不大于 0 时不等待
+	 * @return 是否已加载完成
+	 */
+	public boolean awaitReady(long timeoutMs) {
+		if (isReady() || timeoutMs <= 0) {
+			return isReady();
+		}
+		try {
+			ready.get(timeoutMs, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
 		} catch (Exception e) {
-			log.error("知识库初始化失败", e);
-			throw new RuntimeException("知识库初始化失败", e);
+			return isReady();
 		}
 	}
 
+	/**
+	 * 最近一次加载失败的原因
+	 *
+	 * @return 失败原因，未失败时为 null
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		ingestExecutor.shutdownNow();
+	}
+
 	/**
 	 * 根据问题查询相似的知识库内容
+	 * 命中结果会去重，同一章节的相邻单元合并，命中过多时扩展为整个父章节
 	 *
 	 * @param question 用户问题
 	 * @param topK     返回最相似的K个结果
@@ -74,10 +188,102 @@ public class KnowledgeBaseService {
 				.query(question)
 				.topK(topK)
 				.build();
-		List<Document> similarDocs = vectorStore.similaritySearch(searchRequest);
-		log.info("找到 {} 个相似文档", similarDocs.size());
+		List<Document> hits = vectorStore.similaritySearch(searchRequest);
+		List<Document> similarDocs = mergeHits(hits);
+		log.info("找到 {} 个相似单元，合并后 {} 个文档", hits.size(), similarDocs.size());
 		return similarDocs;
 	}
 
-}
+	/**
+	 * 合并检索结果：去重、相邻单元拼接、按需扩展父章节
+	 */
+	private List<Document> mergeHits(List<Document> hits) {
+		Map<String, List<Document>> bySection = new LinkedHashMap<>();
+		Set<String> seen = new LinkedHashSet<>();
+		for (Document hit : hits) {
+			if (!seen.add(hit.getId()) || !seen.add("text:" + hit.getText())) {
+				continue;
+			}
+			String sectionId = String.valueOf(hit.getMetadata().get(MarkdownStructureSplitter.META_SECTION_ID));
+			bySection.computeIfAbsent(sectionId, k -> new ArrayList<>()).add(hit);
+		}
+
+		List<Document> merged = new ArrayList<>();
+		for (Map.Entry<String, List<Document>> entry : bySection.entrySet()) {
+			List<Document> group = entry.getValue();
+			double bestScore = group.stream().mapToDouble(KnowledgeBaseService::scoreOf).max().orElse(0.0);
+			MarkdownStructureSplitter.Section parent = parentSections.get(entry.getKey());
+
+			if (parent != null && group.size() >= parentExpandMinHits && parent.text().length() <= parentMaxChars) {
+				Map<String, Object> metadata = new HashMap<>(group.get(0).getMetadata());
+				metadata.remove(MarkdownStructureSplitter.META_UNIT_INDEX);
+				metadata.put("expanded", true);
+				metadata.put("merged_units", group.size());
+				merged.add(Document.builder()
+						.id("section-" + parent.id())
+						.text(parent.text())
+						.metadata(metadata)
+						.score(bestScore)
+						.build());
+				continue;
+			}
+			merged.addAll(mergeAdjacent(group));
+		}
+
+		merged.sort(Comparator.comparingDouble(KnowledgeBaseService::scoreOf).reversed());
+		return merged;
+	}
+
+	/**
+	 * 同一章节内序号连续的单元拼接为一个文档，避免重复的章节前缀和碎片化上下文
+	 */
+	private List<Document> mergeAdjacent(List<Document> group) {
+		List<Document> sorted = new ArrayList<>(group);
+		sorted.sort(Comparator.comparingInt(KnowledgeBaseService::unitIndexOf));
 
+		List<Document> result = new ArrayList<>();
+		List<Document> run = new ArrayList<>();
+		for (Document doc : sorted) {
+			if (!run.isEmpty() && unitIndexOf(doc) != unitIndexOf(run.get(run.size() - 1)) + 1) {
+				result.add(joinRun(run));
+				run = new ArrayList<>();
+			}
+			run.add(doc);
+		}
+		if (!run.isEmpty()) {
+			result.add(joinRun(run));
+		}
+		return result;
+	}
+
+	private Document joinRun(List<Document> run) {
+		if (run.size() == 1) {
+			return run.get(0);
+		}
+		StringBuilder text = new StringBuilder(run.get(0).getText());
+		for (Document doc : run.subList(1, run.size())) {
+			// 去掉后续单元重复的章节前缀行
+			String body = doc.getText();
+			int firstLineEnd = body.indexOf('\n');
+			text.append("\n\n").append(body.startsWith("【") && firstLineEnd > 0 ? body.substring(firstLineEnd + 1) : body);
+		}
+		Map<String, Object> metadata = new HashMap<>(run.get(0).getMetadata());
+		metadata.put("merged_units", run.size());
+		return Document.builder()
+				.id(run.get(0).getId())
+				.text(text.toString())
+				.metadata(metadata)
+				.score(run.stream().mapToDouble(KnowledgeBaseService::scoreOf).max().orElse(0.0))
+				.build();
+	}
+
+	private static double scoreOf(Document doc) {
+		return doc.getScore() != null ? doc.getScore() : 0.0;
+	}
+
+	private static int unitIndexOf(Document doc) {
+		Object index = doc.getMetadata().get(MarkdownStructureSplitter.META_UNIT_INDEX);
+		return index instanceof Number number ? number.intValue() : -1;
+	}
+
+}
@@ -0,0 +1,675 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.util.MappedFile;
+import com.sdecloud.dubhe.ai.report.util.MetadataFilters;
+import com.sdecloud.dubhe.ai.report.util.SimilarityKernel;
+import com.sdecloud.dubhe.ai.report.util.SimilarityKernels;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * int8 量化 + 内存映射文件的向量存储
+ * 向量归一化后按记录做对称 int8 量化（每条记录一个缩放系数），检索时先用量化向量扫描出 topK × rescoreFactor 个候选，
+ * 再用全精度向量重新打分；量化向量、全精度向量、文档内容分别存放在独立的内存映射文件中，不占用堆内存，
+ * 同一主机上多个实例映射同一目录时共享页缓存。写入通过文件锁互斥，其他实例在检索时发现新写入并加载索引。
+ * 相同ID且内容未变化的文档再次写入时跳过，不重复调用向量模型。ID 到记录号的索引是内存映射文件中的开放寻址哈希表，
+ * 由写入方在文件锁内维护，各实例共享，记录数很多时也不占用堆内存。过滤条件按文档元数据逐条求值（线性扫描）。
+ * 相似度计算使用 {@link SimilarityKernels#get()}（可用时为 SIMD 实现），记录较多时按分区并行扫描
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+public class MappedVectorStore implements VectorStore, Closeable {
+
+    /** 文件标识 "MVS1" */
+    private static final int MAGIC = 0x4D565331;
+    private static final int FORMAT_VERSION = 2;
+
+    /** 元数据：magic、格式版本、维度、已提交记录数、修改计数、ID 哈希表容量和已用槽位数 */
+    private static final int META_BYTES = 64;
+    private static final int META_MAGIC = 0;
+    private static final int META_VERSION = 4;
+    private static final int META_DIMENSIONS = 8;
+    private static final int META_COUNT = 12;
+    private static final int META_MOD_COUNT = 16;
+    private static final int META_ID_CAPACITY = 20;
+    private static final int META_ID_USED = 24;
+
+    /** 索引记录：文档偏移(long)、ID长度(int)、文档长度(int)、标志(int)、保留(int) */
+    private static final int INDEX_RECORD_BYTES = 24;
+    private static final int FLAG_DELETED = 1;
+
+    /** ID 哈希表槽位：记录号 + 1(int，0 为空槽)、ID 哈希(int)；使用率超过一半时扩容 */
+    private static final int ID_SLOT_BYTES = 8;
+    private static final int MIN_ID_CAPACITY = 1024;
+
+    private final EmbeddingModel embeddingModel;
+    private final BatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final int chunkBytes;
+    private final int rescoreFactor;
+    private final int parallelThreshold;
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+    private final FileChannel lockChannel;
+    private final MappedFile meta;
+    private final MappedFile index;
+    private final MappedFile docs;
+    private final MappedFile idTable;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 以下状态由 lock 保护 */
+    private final BitSet deleted = new BitSet();
+    private MappedFile codes;
+    private MappedFile vectors;
+    private int dimensions;
+    private volatile int count;
+    private volatile int modCount;
+    private long docsEnd;
+
+    /**
+     * 打开（不存在时创建）向量存储
+     *
+     * @param embeddingModel    向量模型
+     * @param directory         数据目录
+     * @param chunkBytes        内存映射块大小（字节）
+     * @param rescoreFactor     重新打分的候选倍数
+     * @param parallelThreshold 每个并行扫描分区的最少记录数
+     */
+    public MappedVectorStore(EmbeddingModel embeddingModel, Path directory, int chunkBytes, int rescoreFactor,
+                             int parallelThreshold) throws IOException {
+        this.embeddingModel = embeddingModel;
+        this.directory = directory;
+        this.chunkBytes = chunkBytes;
+        this.rescoreFactor = Math.max(1, rescoreFactor);
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve("write.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        this.meta = new MappedFile(directory.resolve("meta.bin"), META_BYTES, 0);
+        this.meta.ensureCapacity(META_BYTES);
+        this.index = new MappedFile(directory.resolve("index.bin"), chunkBytes, INDEX_RECORD_BYTES);
+        this.docs = new MappedFile(directory.resolve("docs.bin"), chunkBytes, 0);
+        this.idTable = new MappedFile(directory.resolve("ids.bin"), chunkBytes, ID_SLOT_BYTES);
+
+        lock.writeLock().lock();
+        try (FileLock ignored = lockChannel.lock()) {
+            ByteBuffer header = meta.chunk(0);
+            int version = header.getInt(META_VERSION);
+            if (header.getInt(META_MAGIC) == 0) {
+                header.putInt(META_MAGIC, MAGIC);
+                header.putInt(META_VERSION, FORMAT_VERSION);
+            } else if (header.getInt(META_MAGIC) != MAGIC || version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("向量存储文件格式不兼容: " + directory);
+            }
+            refresh();
+            if (version < FORMAT_VERSION || header.getInt(META_ID_CAPACITY) == 0) {
+                // 版本 1 没有 ID 哈希表，按索引重建
+                rebuildIdTable(MIN_ID_CAPACITY);
+                header.putInt(META_VERSION, FORMAT_VERSION);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("内存映射向量存储已打开: {}，已有 {} 条记录，维度 {}", directory.toAbsolutePath(), count, dimensions);
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        // 1. 跳过ID和内容都未变化的文档
+        refresh();
+        List<Document> changed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Document document : documents) {
+                int record = findRecord(document.getId());
+                if (record < 0 || !sameContent(record, document)) {
+                    changed.add(document);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (changed.isEmpty()) {
+            log.info("{} 个文档均未变化，跳过向量化", documents.size());
+            return;
+        }
+
+        // 2. 向量化（不持有锁）
+        List<float[]> embeddings = embeddingModel.embed(changed, EmbeddingOptionsBuilder.builder().build(),
+                batchingStrategy);
+
+        // 3. 追加写入
+        lock.writeLock().lock();
+        try (FileLock ignored = lockChannel.lock()) {
+            refresh();
+            for (int i = 0; i < changed.size(); i++) {
+                append(changed.get(i), embeddings.get(i));
+            }
+            publish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入向量存储失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("写入 {} 个文档（跳过未变化 {} 个），共 {} 条记录", changed.size(),
+                documents.size() - changed.size(), count);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        lock.writeLock().lock();
+        try (FileLock ignored = lockChannel.lock()) {
+            refresh();
+            for (String id : idList) {
+                int record = findRecord(id);
+                if (record >= 0) {
+                    markDeleted(record);
+                }
+            }
+            publish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除向量失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除元数据满足过滤条件的文档（逐条读取元数据求值）
+     *
+     * @param filterExpression 过滤条件
+     */
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilters.predicate(filterExpression);
+        int removed = 0;
+        lock.writeLock().lock();
+        try (FileLock ignored = lockChannel.lock()) {
+            refresh();
+            for (int record = 0; record < count; record++) {
+                if (!deleted.get(record) && filter.test(readMetadata(record))) {
+                    markDeleted(record);
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                publish();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除向量失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("按过滤条件删除文档 {} 个", removed);
+    }
+
+    /**
+     * 删除不在给定ID集合中的文档（知识库文档删除章节后清理旧向量）
+     *
+     * @param keepIds 保留的文档ID
+     */
+    public void retainOnly(Set<String> keepIds) {
+        List<String> stale = new ArrayList<>();
+        refresh();
+        lock.readLock().lock();
+        try {
+            for (int record = 0; record < count; record++) {
+                if (!deleted.get(record) && !keepIds.contains(readId(record))) {
+                    stale.add(readId(record));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!stale.isEmpty()) {
+            delete(stale);
+            log.info("清理已不存在的文档 {} 个", stale.size());
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        refresh();
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+
+        lock.readLock().lock();
+        try {
+            if (count == 0) {
+                return List.of();
+            }
+            if (query.length != dimensions) {
+                throw new IllegalArgumentException("查询向量维度 " + query.length + " 与存储维度 " + dimensions + " 不一致");
+            }
+
+            // 1. 量化向量扫描（记录较多时按分区并行），保留 topK × rescoreFactor 个候选；有过滤条件时先排除不满足的记录
+            BitSet excluded = request.hasFilterExpression() ? excluded(request.getFilterExpression()) : deleted;
+            int candidates = Math.max(1, request.getTopK() * rescoreFactor);
+            int total = count;
+            int partitions = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), total / parallelThreshold));
+            int partitionSize = (total + partitions - 1) / partitions;
+            PriorityQueue<Candidate> heap = IntStream.range(0, partitions)
+                    .parallel()
+                    .mapToObj(p -> scan(query, p * partitionSize, Math.min(total, (p + 1) * partitionSize), candidates,
+                            excluded))
+                    .reduce((left, right) -> {
+                        right.forEach(candidate -> offer(left, candidate, candidates));
+                        return left;
+                    })
+                    .orElseGet(PriorityQueue::new);
+
+            // 2. 全精度向量重新打分
+            float[] vector = new float[dimensions];
+            List<Candidate> rescored = new ArrayList<>(heap.size());
+            for (Candidate candidate : heap) {
+                readVector(candidate.record(), vector);
+                double score = kernel.dot(query, vector);
+                if (score >= request.getSimilarityThreshold()) {
+                    rescored.add(new Candidate(candidate.record(), score));
+                }
+            }
+            rescored.sort(Comparator.comparingDouble(Candidate::score).reversed());
+
+            List<Document> results = new ArrayList<>(request.getTopK());
+            for (Candidate candidate : rescored.subList(0, Math.min(request.getTopK(), rescored.size()))) {
+                results.add(readDocument(candidate.record(), candidate.score()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除或元数据不满足过滤条件的记录（调用方持有读锁）
+     */
+    private BitSet excluded(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilters.predicate(filterExpression);
+        BitSet excluded = (BitSet) deleted.clone();
+        for (int record = 0; record < count; record++) {
+            if (!excluded.get(record) && !filter.test(readMetadata(record))) {
+                excluded.set(record);
+            }
+        }
+        return excluded;
+    }
+
+    /**
+     * 扫描一个分区的量化向量，返回得分最高的候选（小顶堆，容量有界）
+     */
+    private PriorityQueue<Candidate> scan(float[] query, int from, int to, int candidates, BitSet excluded) {
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(candidates + 1, Comparator.comparingDouble(Candidate::score));
+        byte[] code = new byte[dimensions];
+        for (int record = from; record < to; record++) {
+            if (excluded.get(record)) {
+                continue;
+            }
+            long position = codes.recordPosition(record);
+            ByteBuffer chunk = codes.chunk(position);
+            int offset = codes.offset(position);
+            chunk.get(offset + Float.BYTES, code);
+            offer(heap, new Candidate(record, chunk.getFloat(offset) * kernel.dot(query, code)), candidates);
+        }
+        return heap;
+    }
+
+    private static void offer(PriorityQueue<Candidate> heap, Candidate candidate, int capacity) {
+        if (heap.size() < capacity) {
+            heap.add(candidate);
+        } else if (candidate.score() > heap.peek().score()) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    /**
+     * 加载其他实例（或本实例）已提交但尚未加载的记录和删除标记
+     */
+    private void refresh() {
+        ByteBuffer header = meta.chunk(0);
+        if (header.getInt(META_MOD_COUNT) == modCount && header.getInt(META_COUNT) == count) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int committedCount = header.getInt(META_COUNT);
+            int committedModCount = header.getInt(META_MOD_COUNT);
+            if (dimensions == 0 && header.getInt(META_DIMENSIONS) > 0) {
+                openVectorFiles(header.getInt(META_DIMENSIONS));
+            }
+            index.ensureCapacity(index.recordPosition(committedCount) + INDEX_RECORD_BYTES);
+            // 其他实例追加的记录可能超出本实例已映射的范围，先扩展映射再发布记录数，避免扫描时越界
+            if (dimensions > 0 && committedCount > 0) {
+                codes.ensureCapacity(codes.recordPosition(committedCount - 1) + Float.BYTES + dimensions);
+                vectors.ensureCapacity(vectors.recordPosition(committedCount - 1) + (long) dimensions * Float.BYTES);
+            }
+
+            // 已加载记录的删除标记可能被其他实例修改
+            for (int record = 0; record < count; record++) {
+                if (!deleted.get(record) && (indexInt(record, 16) & FLAG_DELETED) != 0) {
+                    deleted.set(record);
+                }
+            }
+            for (int record = count; record < committedCount; record++) {
+                long end = indexLong(record, 0) + indexInt(record, 8) + indexInt(record, 12);
+                docs.ensureCapacity(end);
+                docsEnd = Math.max(docsEnd, end);
+                if ((indexInt(record, 16) & FLAG_DELETED) != 0) {
+                    deleted.set(record);
+                }
+            }
+            count = committedCount;
+            modCount = committedModCount;
+        } catch (IOException e) {
+            throw new UncheckedIOException("加载向量存储索引失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 追加一条记录，同ID的旧记录标记为删除（调用方持有写锁和文件锁）
+     */
+    private void append(Document document, float[] embedding) throws IOException {
+        if (dimensions == 0) {
+            openVectorFiles(embedding.length);
+            meta.chunk(0).putInt(META_DIMENSIONS, embedding.length);
+        }
+        if (embedding.length != dimensions) {
+            throw new IllegalArgumentException("向量维度 " + embedding.length + " 与存储维度 " + dimensions + " 不一致");
+        }
+        int record = count;
+        float[] unit = normalize(embedding);
+
+        // 量化向量：缩放系数 + int8 编码
+        float maxAbs = 0f;
+        for (float v : unit) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+        float scale = maxAbs == 0f ? 1f : maxAbs / 127f;
+        byte[] code = new byte[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            code[i] = (byte) Math.round(unit[i] / scale);
+        }
+        long codePosition = codes.recordPosition(record);
+        codes.ensureCapacity(codePosition + Float.BYTES + dimensions);
+        codes.chunk(codePosition).putFloat(codes.offset(codePosition), scale);
+        codes.chunk(codePosition).put(codes.offset(codePosition) + Float.BYTES, code);
+
+        // 全精度向量
+        ByteBuffer vectorBytes = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        vectorBytes.asFloatBuffer().put(unit);
+        long vectorPosition = vectors.recordPosition(record);
+        vectors.write(vectorPosition, vectorBytes.array());
+
+        // 文档：ID + JSON（正文和元数据）
+        byte[] id = document.getId().getBytes(StandardCharsets.UTF_8);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("text", document.getText());
+        body.put("metadata", document.getMetadata());
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        docs.write(docsEnd, id);
+        docs.write(docsEnd + id.length, json);
+
+        long indexPosition = index.recordPosition(record);
+        index.ensureCapacity(indexPosition + INDEX_RECORD_BYTES);
+        ByteBuffer chunk = index.chunk(indexPosition);
+        int offset = index.offset(indexPosition);
+        chunk.putLong(offset, docsEnd);
+        chunk.putInt(offset + 8, id.length);
+        chunk.putInt(offset + 12, json.length);
+        chunk.putInt(offset + 16, 0);
+
+        docsEnd += id.length + json.length;
+        int previous = findRecord(document.getId());
+        count++;
+        putRecord(document.getId(), record);
+        if (previous >= 0) {
+            markDeleted(previous);
+        }
+    }
+
+    /**
+     * 按 ID 查找未删除的记录；也在不持有文件锁时调用，槽位指向的记录号越界或 ID 不一致时视为不存在
+     *
+     * @return 记录号，不存在时为 -1
+     */
+    private int findRecord(String id) {
+        int capacity = meta.chunk(0).getInt(META_ID_CAPACITY);
+        if (capacity == 0) {
+            return -1;
+        }
+        try {
+            // 其他实例可能已扩容哈希表
+            idTable.ensureCapacity(idTable.recordPosition(capacity - 1) + ID_SLOT_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("加载向量存储ID索引失败", e);
+        }
+        int hash = idHash(id);
+        int slot = hash & (capacity - 1);
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & (capacity - 1)) {
+            long position = idTable.recordPosition(slot);
+            ByteBuffer chunk = idTable.chunk(position);
+            int offset = idTable.offset(position);
+            int record = chunk.getInt(offset) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            if (chunk.getInt(offset + 4) == hash && record < count && id.equals(readId(record))) {
+                return deleted.get(record) ? -1 : record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 将 ID 指向新记录（调用方持有写锁和文件锁），已存在的槽位直接覆盖，使用率超过一半时扩容
+     */
+    private void putRecord(String id, int record) throws IOException {
+        ByteBuffer header = meta.chunk(0);
+        int capacity = header.getInt(META_ID_CAPACITY);
+        if ((header.getInt(META_ID_USED) + 1) * 2L > capacity) {
+            rebuildIdTable(capacity * 2);
+            capacity = header.getInt(META_ID_CAPACITY);
+        }
+        int hash = idHash(id);
+        for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            long position = idTable.recordPosition(slot);
+            ByteBuffer chunk = idTable.chunk(position);
+            int offset = idTable.offset(position);
+            int existing = chunk.getInt(offset) - 1;
+            if (existing < 0) {
+                chunk.putInt(offset + 4, hash);
+                chunk.putInt(offset, record + 1);
+                header.putInt(META_ID_USED, header.getInt(META_ID_USED) + 1);
+                return;
+            }
+            if (chunk.getInt(offset + 4) == hash && id.equals(readId(existing))) {
+                chunk.putInt(offset, record + 1);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 按索引中未删除的记录重建 ID 哈希表（调用方持有写锁和文件锁），已删除文档的 ID 不再占用槽位
+     */
+    private void rebuildIdTable(int minCapacity) throws IOException {
+        int live = count - deleted.cardinality();
+        int capacity = MIN_ID_CAPACITY;
+        while (capacity < minCapacity || capacity < (live + 1) * 2L) {
+            capacity *= 2;
+        }
+        idTable.ensureCapacity(idTable.recordPosition(capacity - 1) + ID_SLOT_BYTES);
+        for (int slot = 0; slot < capacity; slot++) {
+            long position = idTable.recordPosition(slot);
+            idTable.chunk(position).putLong(idTable.offset(position), 0L);
+        }
+        ByteBuffer header = meta.chunk(0);
+        header.putInt(META_ID_CAPACITY, capacity);
+        header.putInt(META_ID_USED, 0);
+        for (int record = 0; record < count; record++) {
+            if (!deleted.get(record)) {
+                putRecord(readId(record), record);
+            }
+        }
+    }
+
+    private static int idHash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 提交写入：先写数据后更新记录数，其他实例看到新的记录数时数据已完整
+     */
+    private void publish() {
+        ByteBuffer header = meta.chunk(0);
+        modCount++;
+        header.putInt(META_COUNT, count);
+        header.putInt(META_MOD_COUNT, modCount);
+    }
+
+    private void markDeleted(int record) {
+        deleted.set(record);
+        long position = index.recordPosition(record);
+        ByteBuffer chunk = index.chunk(position);
+        int offset = index.offset(position) + 16;
+        chunk.putInt(offset, chunk.getInt(offset) | FLAG_DELETED);
+    }
+
+    private void openVectorFiles(int dims) throws IOException {
+        this.codes = new MappedFile(directory.resolve("codes.bin"), chunkBytes, Float.BYTES + dims);
+        this.vectors = new MappedFile(directory.resolve("vectors.bin"), chunkBytes, dims * Float.BYTES);
+        this.dimensions = dims;
+    }
+
+    private boolean sameContent(int record, Document document) {
+        Map<String, Object> body = readBody(record);
+        return Objects.equals(body.get("text"), document.getText())
+                && Objects.equals(body.get("metadata"), objectMapper.convertValue(document.getMetadata(),
+                new TypeReference<Map<String, Object>>() {
+                }));
+    }
+
+    private void readVector(int record, float[] vector) {
+        long position = vectors.recordPosition(record);
+        ByteBuffer chunk = vectors.chunk(position).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        chunk.position(vectors.offset(position));
+        chunk.asFloatBuffer().get(vector);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readMetadata(int record) {
+        return (Map<String, Object>) readBody(record).getOrDefault("metadata", Map.of());
+    }
+
+    private Document readDocument(int record, double score) {
+        Map<String, Object> body = readBody(record);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metadata = new HashMap<>((Map<String, Object>) body.getOrDefault("metadata", Map.of()));
+        metadata.put("distance", 1.0 - score);
+        return Document.builder()
+                .id(readId(record))
+                .text((String) body.get("text"))
+                .metadata(metadata)
+                .score(score)
+                .build();
+    }
+
+    private String readId(int record) {
+        byte[] id = new byte[indexInt(record, 8)];
+        docs.read(indexLong(record, 0), id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> readBody(int record) {
+        byte[] json = new byte[indexInt(record, 12)];
+        docs.read(indexLong(record, 0) + indexInt(record, 8), json);
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取向量存储文档失败", e);
+        }
+    }
+
+    private long indexLong(int record, int field) {
+        long position = index.recordPosition(record);
+        return index.chunk(position).getLong(index.offset(position) + field);
+    }
+
+    private int indexInt(int record, int field) {
+        long position = index.recordPosition(record);
+        return index.chunk(position).getInt(index.offset(position) + field);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = norm == 0.0 ? 0f : (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedFile file : new MappedFile[]{meta, index, docs, idTable, codes, vectors}) {
+                if (file != null) {
+                    file.force();
+                    file.close();
+                }
+            }
+            lockChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record Candidate(int record, double score) {
+    }
+}
@@ -0,0 +1,344 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.config.McpClientProperties;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import com.sdecloud.dubhe.ai.report.jfr.McpToolCallEvent;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.WebFluxSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.SyncMcpToolCallback;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MCP 连接管理器
+ * 负责创建 mysqlDataQuery、antvChart 等 SSE 连接：启动时预先建立连接并加载工具，定时 ping 保活，
+ * 断线后按带抖动的指数退避重连；连接不可用期间工具调用立即失败，不再等待请求超时。
+ * 建立连接和 ping 在独立线程执行，某个连接初始化卡住不影响其他连接的保活和重连。
+ * 每个工具对应一个稳定的回调对象，重连后指向新客户端，调用方无需重新获取工具列表。
+ * 每个连接的工具调用经过独立的熔断器和隔离舱（依赖名 mcp-{连接名}），某个服务卡住时只占用自己的并发许可。
+ * 同时作为应用唯一的 {@link ToolCallbackProvider}
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class McpConnectionManager implements ToolCallbackProvider {
+
+    private final McpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final DependencyGuard guard;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, ManagedConnection> connections = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mcp-connection-manager");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** 建立连接、ping 等可能长时间阻塞的操作，调度线程只负责定时 */
+    private final ExecutorService worker = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mcp-connection-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public McpConnectionManager(McpClientProperties properties, MeterRegistry meterRegistry, DependencyGuard guard) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.guard = guard;
+    }
+
+    /**
+     * 启动时在后台建立所有连接（不阻塞应用启动），并开始定时保活
+     */
+    @PostConstruct
+    public void start() {
+        properties.getConnections().forEach((name, connection) -> {
+            ManagedConnection managed = new ManagedConnection(name, connection);
+            connections.put(name, managed);
+            guard.register(DependencyGuard.MCP_PREFIX + name);
+            Gauge.builder("report.mcp.connection.state", managed, c -> c.state == State.UP ? 1 : 0)
+                    .description("MCP 连接状态（1 可用，0 不可用）")
+                    .tag("connection", name)
+                    .register(meterRegistry);
+            worker.execute(() -> connect(managed));
+        });
+        scheduler.scheduleWithFixedDelay(this::keepAlive, properties.getPingIntervalMs(),
+                properties.getPingIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 当前所有连接的工具（连接断开期间保留上次加载的工具，调用时立即失败）
+     * 返回的回调在重连后仍然有效，但连接建立前工具列表为空，调用方应在每次请求时获取
+     */
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        List<ToolCallback> callbacks = new ArrayList<>();
+        connections.values().forEach(c -> callbacks.addAll(c.tools));
+        return callbacks.toArray(new ToolCallback[0]);
+    }
+
+    /**
+     * 各连接的状态
+     *
+     * @return 连接名 → 状态
+     */
+    public Map<String, State> states() {
+        Map<String, State> states = new LinkedHashMap<>();
+        connections.forEach((name, c) -> states.put(name, c.state));
+        return states;
+    }
+
+    /**
+     * 建立连接：创建客户端、初始化并加载工具，失败时按退避时间重试
+     */
+    private void connect(ManagedConnection connection) {
+        if (!connection.connecting.compareAndSet(false, true)) {
+            return;
+        }
+        connection.state = State.CONNECTING;
+        closeQuietly(connection.client);
+        long retryIn = -1;
+        try {
+            WebFluxSseClientTransport transport = WebFluxSseClientTransport
+                    .builder(WebClient.builder().baseUrl(connection.config.getUrl()))
+                    .sseEndpoint(connection.config.getSseEndpoint())
+                    .objectMapper(objectMapper)
+                    .build();
+            McpSyncClient client = McpClient.sync(transport)
+                    .clientInfo(new McpSchema.Implementation(properties.getName() + " - " + connection.name,
+                            properties.getVersion()))
+                    .requestTimeout(properties.getRequestTimeout())
+                    .build();
+            connection.client = client;
+            client.initialize();
+
+            // 已有的回调改为指向新客户端，服务端不再提供的工具调用时立即失败
+            Map<String, ManagedToolCallback> previous = new LinkedHashMap<>();
+            connection.tools.forEach(tool -> previous.put(tool.name, tool));
+            List<ManagedToolCallback> tools = new ArrayList<>();
+            for (McpSchema.Tool tool : client.listTools().tools()) {
+                ManagedToolCallback callback = previous.remove(tool.name());
+                if (callback == null) {
+                    callback = new ManagedToolCallback(connection, tool.name());
+                }
+                callback.bind(new SyncMcpToolCallback(client, tool));
+                tools.add(callback);
+            }
+            previous.values().forEach(removed -> removed.bind(null));
+            connection.tools = Collections.unmodifiableList(tools);
+            connection.failures = 0;
+            connection.state = State.UP;
+            reconnectCounter(connection, "success").increment();
+            log.info("MCP 连接 {} 已建立，加载工具 {} 个", connection.name, tools.size());
+        } catch (Exception e) {
+            connection.failures++;
+            connection.state = State.DOWN;
+            reconnectCounter(connection, "failure").increment();
+            retryIn = backoff(connection.failures);
+            log.warn("MCP 连接 {} 建立失败（第 {} 次），{} ms 后重试: {}",
+                    connection.name, connection.failures, retryIn, e.getMessage());
+        } finally {
+            connection.connecting.set(false);
+        }
+        if (retryIn >= 0) {
+            scheduler.schedule(() -> worker.execute(() -> connect(connection)), retryIn, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 定时 ping 所有可用连接，失败的连接进入重连
+     */
+    private void keepAlive() {
+        connections.values().forEach(connection -> worker.execute(() -> check(connection)));
+    }
+
+    private void check(ManagedConnection connection) {
+        if (connection.state != State.UP || connection.connecting.get()) {
+            return;
+        }
+        try {
+            connection.client.ping();
+        } catch (Exception e) {
+            log.warn("MCP 连接 {} ping 失败，开始重连: {}", connection.name, e.getMessage());
+            connection.state = State.DOWN;
+            connect(connection);
+        }
+    }
+
+    /**
+     * 带抖动的指数退避时间
+     */
+    private long backoff(int failures) {
+        double base = Math.min(properties.getMaxBackoffMs(),
+                properties.getInitialBackoffMs() * Math.pow(2, Math.min(failures - 1, 16)));
+        double jitter = base * properties.getJitterRatio() * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Math.max(0, (long) (base + jitter));
+    }
+
+    private Counter reconnectCounter(ManagedConnection connection, String outcome) {
+        return Counter.builder("report.mcp.connects")
+                .description("MCP 连接建立次数")
+                .tag("connection", connection.name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static void closeQuietly(McpSyncClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.closeGracefully();
+        } catch (Exception e) {
+            log.debug("关闭 MCP 客户端失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        worker.shutdownNow();
+        connections.values().forEach(c -> closeQuietly(c.client));
+    }
+
+    /**
+     * 连接状态
+     */
+    public enum State {
+        /** 正在建立连接 */
+        CONNECTING,
+        /** 可用 */
+        UP,
+        /** 不可用，等待重连 */
+        DOWN
+    }
+
+    private static final class ManagedConnection {
+
+        private final String name;
+        private final McpClientProperties.Connection config;
+        private volatile McpSyncClient client;
+        private volatile State state = State.CONNECTING;
+        private volatile List<ManagedToolCallback> tools = Collections.emptyList();
+        private volatile int failures;
+        private final AtomicBoolean connecting = new AtomicBoolean();
+
+        private ManagedConnection(String name, McpClientProperties.Connection config) {
+            this.name = name;
+            this.config = config;
+        }
+    }
+
+    /**
+     * 受管理的工具：调用时使用连接当前的客户端，连接不可用时立即失败，记录调用耗时，调用失败时立即检查连接
+     */
+    private final class ManagedToolCallback implements ToolCallback {
+
+        private final ManagedConnection connection;
+        private final String name;
+        /** 当前客户端上的工具，重连后替换；服务端不再提供该工具时为 null */
+        private volatile ToolCallback delegate;
+        private volatile ToolDefinition definition;
+
+        private ManagedToolCallback(ManagedConnection connection, String name) {
+            this.connection = connection;
+            this.name = name;
+        }
+
+        private void bind(ToolCallback delegate) {
+            this.delegate = delegate;
+            if (delegate != null) {
+                this.definition = delegate.getToolDefinition();
+            }
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        /**
+         * 运行ID优先取自工具上下文：响应式调用中工具在 boundedElastic 线程执行，线程上没有运行上下文
+         */
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            RunContext.Run run = RunContext.fromToolContext(toolContext != null ? toolContext.getContext() : null);
+            ToolCallback delegate = this.delegate;
+            if (connection.state != State.UP || delegate == null) {
+                throw new ReportGenerationException("MCP_UNAVAILABLE", connection.name,
+                        "MCP连接不可用（" + connection.state + "），请稍后重试");
+            }
+            long start = System.nanoTime();
+            String outcome = "success";
+            McpToolCallEvent event = new McpToolCallEvent();
+            event.begin();
+            try {
+                return guard.call(DependencyGuard.MCP_PREFIX + connection.name, () -> delegate.call(toolInput));
+            } catch (ReportGenerationException e) {
+                // 熔断或隔离舱已满，未实际调用
+                outcome = "rejected";
+                throw e;
+            } catch (ToolExecutionException e) {
+                outcome = "error";
+                worker.execute(() -> check(connection));
+                throw e;
+            } catch (RuntimeException e) {
+                outcome = "error";
+                // 工具报错和连接断开无法从异常类型区分，立即 ping 确认连接是否可用
+                worker.execute(() -> check(connection));
+                // 包装为业务异常，外层大模型调用的熔断器不把 MCP 故障计为大模型故障
+                throw new ReportGenerationException("MCP_ERROR", connection.name, e.getMessage(), e);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.runId = run.runId();
+                    event.node = run.node();
+                    event.connection = connection.name;
+                    event.tool = name;
+                    event.outcome = outcome;
+                    event.commit();
+                }
+                Timer.builder("report.mcp.tool.calls")
+                        .description("MCP 工具调用耗时")
+                        .tag("connection", connection.name)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
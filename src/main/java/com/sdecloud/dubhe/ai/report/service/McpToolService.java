@@ -0,0 +1,201 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MCP工具直连服务
+ * 不经过大模型，直接调用 mysqlDataQuery 等 MCP 工具，用于元数据查询等确定性场景
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+public class McpToolService {
+
+    private final ToolCallbackProvider tools;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** SQL查询工具名称（匹配工具名中包含该关键字的工具） */
+    @Value("${report.mcp.sql-tool:mysqlDataQuery}")
+    private String sqlToolName;
+
+    /** 图表工具名称模板，%s 为图表类型（如 generate_bar_chart） */
+    @Value("${report.mcp.chart-tool-pattern:generate_%s_chart}")
+    private String chartToolPattern;
+
+    public McpToolService(ToolCallbackProvider tools) {
+        this.tools = tools;
+    }
+
+    /**
+     * 通过 mysqlDataQuery 工具执行SQL，返回工具原始输出
+     *
+     * @param sql SQL语句
+     * @return 工具输出文本
+     */
+    public String executeSql(String sql) {
+        ToolCallback tool = findTool(sqlToolName);
+        try {
+            String input = objectMapper.writeValueAsString(Map.of("sql", sql));
+            return unwrapContent(tool.call(input));
+        } catch (JsonProcessingException e) {
+            throw new ReportGenerationException("MCP_ERROR", "mcpTool", "构建工具参数失败", e);
+        }
+    }
+
+    /**
+     * 执行SQL并解析为行列表，解析失败时返回空列表
+     *
+     * @param sql SQL语句
+     * @return 行数据（列名 → 值）
+     */
+    public List<Map<String, Object>> queryForRows(String sql) {
+        String output = executeSql(sql);
+        try {
+            JsonNode node = objectMapper.readTree(output);
+            // 兼容 {"data": [...]} / {"rows": [...]} 包装格式
+            if (node.isObject()) {
+                node = node.has("data") ? node.get("data") : node.get("rows");
+            }
+            if (node == null || !node.isArray()) {
+                log.warn("MCP工具返回结果不是行数组，无法解析");
+                return Collections.emptyList();
+            }
+            return objectMapper.convertValue(node, new TypeReference<>() {
+            });
+        } catch (JsonProcessingException e) {
+            log.warn("MCP工具返回结果不是 JSON: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 直接调用图表工具生成图表，返回工具输出（图表 URL）
+     *
+     * @param chartType 图表类型（bar/line/pie 等）
+     * @param data      图表数据，如 [{"category": "技术部", "value": 100}]
+     * @param title     图表标题
+     * @return 工具输出文本
+     */
+    public String renderChart(String chartType, List<Map<String, Object>> data, String title) {
+        ToolCallback tool = findTool(String.format(chartToolPattern, chartType));
+        try {
+            String input = objectMapper.writeValueAsString(Map.of("data", data, "title", title));
+            return unwrapContent(tool.call(input)).trim();
+        } catch (JsonProcessingException e) {
+            throw new ReportGenerationException("MCP_ERROR", "mcpTool", "构建工具参数失败", e);
+        }
+    }
+
+    /**
+     * 按名称查找工具，名称大小写不敏感，支持 MCP 客户端添加的前缀
+     *
+     * @param name 工具名称关键字
+     * @return 工具回调
+     */
+    public ToolCallback findTool(String name) {
+        String keyword = name.toLowerCase(Locale.ROOT);
+        return Arrays.stream(tools.getToolCallbacks())
+                .filter(tool -> tool.getToolDefinition().name().toLowerCase(Locale.ROOT).contains(keyword))
+                .findFirst()
+                .orElseThrow(() -> new ReportGenerationException("MCP_ERROR", "mcpTool", "未找到MCP工具: " + name));
+    }
+
+    /**
+     * 是否 SQL 查询工具
+     *
+     * @param tool 工具回调
+     * @return 工具名包含 SQL 工具名称关键字时为 true
+     */
+    public boolean isSqlTool(ToolCallback tool) {
+        return tool.getToolDefinition().name().toLowerCase(Locale.ROOT).contains(sqlToolName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * MCP 工具回调返回的是内容数组 [{"type":"text","text":"..."}]，流式提取其中的文本写入 writer，
+     * 不是内容数组时原样写入
+     *
+     * @param output 工具输出
+     * @param writer 目标
+     * @throws IOException 写入失败
+     */
+    public void unwrapContent(String output, Writer writer) throws IOException {
+        if (!isContentArray(output)) {
+            writer.write(output);
+            return;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(output)) {
+            parser.nextToken();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken().isScalarValue() && "text".equals(field)) {
+                        parser.getText(writer);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+
+    private String unwrapContent(String output) {
+        StringWriter text = new StringWriter();
+        try {
+            unwrapContent(output, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * 输出是合法 JSON，且为首个元素包含 text 字段的数组
+     */
+    private boolean isContentArray(String output) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(output)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            boolean hasText = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                hasText |= "text".equals(parser.currentName());
+                parser.nextToken();
+                parser.skipChildren();
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+            return hasText;
+        } catch (IOException e) {
+            log.debug("MCP工具输出不是 JSON，直接返回");
+            return false;
+        }
+    }
+}
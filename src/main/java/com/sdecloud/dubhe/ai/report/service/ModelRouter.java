@@ -0,0 +1,185 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
+import com.sdecloud.dubhe.ai.report.config.ModelRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 大模型路由服务
+ * 按节点选择模型参数：机械性的工具调用和简单 NL2SQL 使用快速模型，只有报告叙述使用大模型，
+ * 并按节点、模型记录调用耗时；调用期间标记节点名称，启用对冲的节点由大模型装饰链在长尾时发出对冲请求
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class ModelRouter {
+
+    private final ModelRoutingProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /** 未配置节点时使用的默认模型（仅用于指标标签） */
+    @Value("${spring.ai.dashscope.chat.options.model:default}")
+    private String defaultModel;
+
+    public ModelRouter(ModelRoutingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 使用节点配置的模型调用大模型
+     *
+     * @param node       节点名称
+     * @param invocation 使用给定模型参数的调用
+     * @return 调用结果
+     */
+    public <T> T call(String node, Function<ChatOptions, T> invocation) {
+        ModelRoutingProperties.ModelProfile profile = properties.getNodes().get(node);
+        return invoke(node, profile, invocation);
+    }
+
+    /**
+     * 使用升级模型调用大模型
+     *
+     * @param node       节点名称
+     * @param invocation 使用给定模型参数的调用
+     * @return 调用结果
+     */
+    public <T> T callEscalated(String node, Function<ChatOptions, T> invocation) {
+        return invoke(node, escalationProfile(node), invocation);
+    }
+
+    /**
+     * 使用节点配置的模型异步调用大模型（响应式模式，不经过对冲）
+     *
+     * @param node       节点名称
+     * @param invocation 使用给定模型参数的异步调用
+     * @return 调用结果
+     */
+    public <T> Mono<T> callReactive(String node, Function<ChatOptions, Mono<T>> invocation) {
+        return invokeReactive(node, properties.getNodes().get(node), invocation);
+    }
+
+    /**
+     * 使用升级模型异步调用大模型
+     *
+     * @param node       节点名称
+     * @param invocation 使用给定模型参数的异步调用
+     * @return 调用结果
+     */
+    public <T> Mono<T> callEscalatedReactive(String node, Function<ChatOptions, Mono<T>> invocation) {
+        return Mono.defer(() -> invokeReactive(node, escalationProfile(node), invocation));
+    }
+
+    /**
+     * 是否启用了 SQL 校验失败后的模型升级（节点已使用升级模型时无需升级）
+     *
+     * @param node 节点名称
+     * @return 是否可升级
+     */
+    public boolean canEscalate(String node) {
+        return properties.getEscalation().isEnabled()
+                && !properties.getEscalation().getModel().equals(modelOf(properties.getNodes().get(node)));
+    }
+
+    /**
+     * 表结构缓存不可用时是否通过 EXPLAIN 校验 SQL
+     *
+     * @return 是否启用
+     */
+    public boolean isExplainEnabled() {
+        return properties.getEscalation().isExplain();
+    }
+
+    private <T> T invoke(String node, ModelRoutingProperties.ModelProfile profile, Function<ChatOptions, T> invocation) {
+        String model = modelOf(profile);
+        ChatOptions options = optionsOf(profile);
+        long start = System.nanoTime();
+        try {
+            // 对冲由共享的大模型装饰链按节点名称执行
+            T result = HedgedRequestExecutor.callForNode(node, () -> invocation.apply(options));
+            record(node, model, "success", start);
+            return result;
+        } catch (RuntimeException e) {
+            record(node, model, "error", start);
+            throw e;
+        }
+    }
+
+    private <T> Mono<T> invokeReactive(String node, ModelRoutingProperties.ModelProfile profile,
+                                       Function<ChatOptions, Mono<T>> invocation) {
+        String model = modelOf(profile);
+        ChatOptions options = optionsOf(profile);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return invocation.apply(options)
+                    .doOnSuccess(result -> record(node, model, "success", start))
+                    .doOnError(e -> record(node, model, "error", start));
+        });
+    }
+
+    /**
+     * 升级模型参数：替换模型，保留节点的温度等参数，并记录升级次数
+     */
+    private ModelRoutingProperties.ModelProfile escalationProfile(String node) {
+        ModelRoutingProperties.ModelProfile base = properties.getNodes().get(node);
+        ModelRoutingProperties.ModelProfile profile = new ModelRoutingProperties.ModelProfile();
+        profile.setModel(properties.getEscalation().getModel());
+        if (base != null) {
+            profile.setTemperature(base.getTemperature());
+            profile.setMaxTokens(base.getMaxTokens());
+        }
+        Counter.builder("report.llm.escalations")
+                .description("校验失败后升级到大模型的次数")
+                .tag("node", node)
+                .register(meterRegistry)
+                .increment();
+        return profile;
+    }
+
+    private void record(String node, String model, String outcome, long start) {
+        Timer.builder("report.llm.node.calls")
+                .description("各节点大模型调用耗时")
+                .tag("node", node)
+                .tag("model", model)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.debug("节点 {} 使用模型 {} 调用完成: {}", node, model, outcome);
+    }
+
+    /**
+     * 构建运行时模型参数，未设置的字段由 DashScope 默认参数补齐
+     */
+    private static ChatOptions optionsOf(ModelRoutingProperties.ModelProfile profile) {
+        var builder = DashScopeChatOptions.builder();
+        if (profile != null) {
+            if (profile.getModel() != null) {
+                builder.withModel(profile.getModel());
+            }
+            if (profile.getTemperature() != null) {
+                builder.withTemperature(profile.getTemperature());
+            }
+            if (profile.getMaxTokens() != null) {
+                builder.withMaxToken(profile.getMaxTokens());
+            }
+        }
+        return builder.build();
+    }
+
+    private String modelOf(ModelRoutingProperties.ModelProfile profile) {
+        return profile != null && profile.getModel() != null ? profile.getModel() : defaultModel;
+    }
+}
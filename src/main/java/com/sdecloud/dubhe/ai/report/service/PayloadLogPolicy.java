@@ -0,0 +1,126 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.PayloadLoggingProperties;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 大段内容日志策略
+ * 提示词、查询结果、报告正文默认只在 DEBUG 级别输出长度和摘要哈希（同一内容哈希相同，可跨日志关联）；
+ * 按运行抽样的少量运行在 INFO 级别输出截断后的内容；指定运行ID完整记录，用于排查单个运行。
+ * 抽样按运行ID决定，同一运行的所有内容要么都输出要么都不输出
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Service
+public class PayloadLogPolicy {
+
+    private static final int SAMPLE_BUCKETS = 10000;
+
+    private final PayloadLoggingProperties properties;
+    private final Set<String> capturedRunIds = ConcurrentHashMap.newKeySet();
+
+    public PayloadLogPolicy(PayloadLoggingProperties properties) {
+        this.properties = properties;
+        capturedRunIds.addAll(properties.getCaptureRunIds());
+    }
+
+    /**
+     * 按当前线程的运行记录内容
+     *
+     * @param logger  日志
+     * @param label   内容说明
+     * @param payload 内容
+     */
+    public void log(Logger logger, String label, String payload) {
+        log(logger, RunContext.current(), label, payload);
+    }
+
+    /**
+     * 按指定运行记录内容（响应式调用链中运行信息来自 Reactor Context）
+     *
+     * @param logger  日志
+     * @param run     运行信息
+     * @param label   内容说明
+     * @param payload 内容
+     */
+    public void log(Logger logger, RunContext.Run run, String label, String payload) {
+        if (payload == null) {
+            return;
+        }
+        String runId = run.runId();
+        if (!runId.isEmpty() && capturedRunIds.contains(runId)) {
+            logger.info("[{}] {} ({}): {}", runId, label, summary(payload), payload);
+        } else if (sampled(runId) && logger.isInfoEnabled()) {
+            logger.info("[{}] {} ({}): {}", runId, label, summary(payload), truncate(payload));
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("[{}] {} ({})", runId, label, summary(payload));
+        }
+    }
+
+    /**
+     * 开始完整记录指定运行的内容
+     *
+     * @param runId 运行ID
+     */
+    public void capture(String runId) {
+        capturedRunIds.add(runId);
+    }
+
+    /**
+     * 停止完整记录指定运行的内容
+     *
+     * @param runId 运行ID
+     * @return 之前是否在完整记录
+     */
+    public boolean release(String runId) {
+        return capturedRunIds.remove(runId);
+    }
+
+    /**
+     * 当前完整记录的运行ID
+     */
+    public Set<String> capturedRunIds() {
+        return new TreeSet<>(capturedRunIds);
+    }
+
+    private boolean sampled(String runId) {
+        double rate = properties.getSampleRate();
+        if (rate <= 0) {
+            return false;
+        }
+        int bucket = runId.isEmpty()
+                ? ThreadLocalRandom.current().nextInt(SAMPLE_BUCKETS)
+                : Math.floorMod(runId.hashCode(), SAMPLE_BUCKETS);
+        return bucket < rate * SAMPLE_BUCKETS;
+    }
+
+    private String truncate(String payload) {
+        int max = properties.getMaxChars();
+        return payload.length() > max ? payload.substring(0, max) + "...[截断]" : payload;
+    }
+
+    private static String summary(String payload) {
+        return "length=" + payload.length() + ", sha256=" + hash(payload);
+    }
+
+    private static String hash(String payload) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(payload.hashCode());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.ResultSetProperties;
+import com.sdecloud.dubhe.ai.report.model.PivotRequest;
+import com.sdecloud.dubhe.ai.report.model.PivotResponse;
+import com.sdecloud.dubhe.ai.report.util.ColumnarTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 结果透视服务
+ * 在缓存的查询结果上执行筛选、分组聚合、排序和取前 N 行，不调用大模型和数据库；
+ * 透视结果同样缓存，可继续下钻，需要时直接调用 MCP 图表工具生成新图表
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class PivotService {
+
+    /** 按列名判断时间维度，时间维度默认使用折线图 */
+    private static final Pattern TIME_COLUMN = Pattern.compile("date|time|month|year|quarter|day|日期|时间|月|年|季度");
+
+    private final ResultSetCache resultSetCache;
+    private final McpToolService mcpToolService;
+    private final ResultSetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public PivotService(ResultSetCache resultSetCache, McpToolService mcpToolService,
+                        ResultSetProperties properties, MeterRegistry meterRegistry) {
+        this.resultSetCache = resultSetCache;
+        this.mcpToolService = mcpToolService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 透视缓存的查询结果
+     *
+     * @param resultId 结果ID
+     * @param request  透视请求
+     * @return 透视响应
+     */
+    public PivotResponse pivot(String resultId, PivotRequest request) {
+        PivotResponse response = new PivotResponse();
+        response.setSourceResultId(resultId);
+
+        Optional<ResultSetCache.CachedResult> cached = resultSetCache.get(resultId);
+        if (cached.isEmpty()) {
+            response.setSuccess(false);
+            response.setStatus(404);
+            response.setErrorMessage("结果不存在或已过期，请重新查询: " + resultId);
+            return response;
+        }
+
+        long start = System.nanoTime();
+        ColumnarTable table;
+        try {
+            table = apply(cached.get().table(), request);
+        } catch (IllegalArgumentException e) {
+            response.setSuccess(false);
+            response.setStatus(400);
+            response.setErrorMessage(e.getMessage());
+            return response;
+        } catch (ArithmeticException e) {
+            // 分组键按各分组列基数的混合进制合成，组合数超出 long 范围
+            response.setSuccess(false);
+            response.setStatus(400);
+            response.setErrorMessage("分组组合过多（too many group-by combinations），请减少分组列或先筛选: "
+                    + request.getGroupBy());
+            return response;
+        }
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("report.pivot")
+                .description("结果透视耗时（不含图表生成）")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+
+        List<Map<String, Object>> rows = table.toRows();
+        response.setSuccess(true);
+        response.setResultId(resultSetCache.put(cached.get().question(), cached.get().sql(), table));
+        response.setColumns(table.columnNames());
+        response.setRowCount(rows.size());
+        response.setTruncated(rows.size() > properties.getMaxResponseRows());
+        response.setRows(response.isTruncated() ? rows.subList(0, properties.getMaxResponseRows()) : rows);
+        response.setElapsedMs(elapsed / 1_000_000.0);
+        log.info("透视结果 {}：{} 行 → {} 行，耗时 {} ms", resultId, cached.get().table().rowCount(),
+                rows.size(), String.format("%.2f", response.getElapsedMs()));
+
+        if (request.isChart()) {
+            renderChart(table, rows, request, cached.get().question(), response);
+        }
+        return response;
+    }
+
+    /**
+     * 依次执行筛选 → 分组聚合 → 排序 → 取前 N 行
+     */
+    private ColumnarTable apply(ColumnarTable source, PivotRequest request) {
+        int[] selection = source.allRows();
+        for (PivotRequest.Filter filter : request.getFilters()) {
+            selection = source.filter(selection, filter.getColumn(), filter.getOp(), filter.getValues());
+        }
+
+        ColumnarTable table;
+        if (!request.getAggregates().isEmpty()) {
+            List<ColumnarTable.Aggregate> aggregates = request.getAggregates().stream()
+                    .map(a -> new ColumnarTable.Aggregate(a.getColumn(), a.getFunction(), a.getAs()))
+                    .toList();
+            table = source.aggregate(selection, request.getGroupBy(), aggregates);
+        } else if (!request.getGroupBy().isEmpty()) {
+            throw new IllegalArgumentException("分组时需要至少一个聚合项");
+        } else {
+            table = source.select(selection);
+        }
+
+        int[] rows = table.allRows();
+        if (!request.getSort().isEmpty()) {
+            rows = table.sort(rows, request.getSort().stream()
+                    .map(s -> new ColumnarTable.SortKey(s.getColumn(), s.isDesc()))
+                    .toList());
+        }
+        if (request.getLimit() != null && request.getLimit() >= 0 && request.getLimit() < rows.length) {
+            int[] limited = new int[request.getLimit()];
+            System.arraycopy(rows, 0, limited, 0, limited.length);
+            rows = limited;
+        }
+        return table.select(rows);
+    }
+
+    /**
+     * 以第一个文本列为类别、第一个数值列为值生成图表，图表失败不影响透视结果
+     */
+    private void renderChart(ColumnarTable table, List<Map<String, Object>> rows, PivotRequest request,
+                             String question, PivotResponse response) {
+        if (table.columnNames().isEmpty()) {
+            response.setErrorMessage("透视结果为空，无法生成图表");
+            return;
+        }
+        String category = table.columnNames().stream().filter(c -> !table.isNumeric(c)).findFirst()
+                .orElse(table.columnNames().get(0));
+        Optional<String> value = table.columnNames().stream().filter(table::isNumeric)
+                .filter(c -> !c.equals(category)).findFirst();
+        if (value.isEmpty()) {
+            response.setErrorMessage("透视结果没有数值列，无法生成图表");
+            return;
+        }
+        String chartType = request.getChartType() != null ? request.getChartType()
+                : TIME_COLUMN.matcher(category.toLowerCase(Locale.ROOT)).find() ? "line" : "bar";
+        String categoryKey = "line".equals(chartType) ? "time" : "category";
+
+        List<Map<String, Object>> data = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put(categoryKey, String.valueOf(row.get(category)));
+            point.put("value", row.get(value.get()));
+            data.add(point);
+        }
+        try {
+            response.setChartUrl(mcpToolService.renderChart(chartType, data, question));
+            response.setChartType(chartType);
+        } catch (Exception e) {
+            log.warn("透视结果图表生成失败: {}", e.getMessage());
+            response.setErrorMessage("图表生成失败: " + e.getMessage());
+        }
+    }
+}
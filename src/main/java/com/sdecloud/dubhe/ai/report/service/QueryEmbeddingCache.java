@@ -0,0 +1,88 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询向量缓存
+ * 缓存检索问题的向量，批量场景下可一次性预取多个问题的向量，避免逐条调用向量模型
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+public class QueryEmbeddingCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final DependencyGuard guard;
+    private final Map<String, float[]> cache;
+    private final int batchSize;
+
+    public QueryEmbeddingCache(EmbeddingModel embeddingModel, DependencyGuard guard,
+                               @Value("${report.embedding.query-cache-size:1000}") int maxSize,
+                               @Value("${report.embedding.batch-size:10}") int batchSize) {
+        this.embeddingModel = embeddingModel;
+        this.guard = guard;
+        this.batchSize = Math.max(1, batchSize);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的向量
+     *
+     * @param text 查询文本
+     * @return 向量，未缓存时返回 null
+     */
+    public synchronized float[] get(String text) {
+        return cache.get(text);
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param text      查询文本
+     * @param embedding 向量
+     */
+    public synchronized void put(String text, float[] embedding) {
+        cache.put(text, embedding);
+    }
+
+    /**
+     * 批量预取未缓存问题的向量（按向量模型单次请求的条数上限分批调用）
+     *
+     * @param texts 查询文本
+     */
+    public void prefetch(List<String> texts) {
+        List<String> missing;
+        synchronized (this) {
+            missing = texts.stream()
+                    .filter(t -> t != null && !t.isBlank())
+                    .distinct()
+                    .filter(t -> !cache.containsKey(t))
+                    .toList();
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < missing.size(); from += batchSize) {
+            List<String> batch = missing.subList(from, Math.min(from + batchSize, missing.size()));
+            List<float[]> embeddings = guard.call(DependencyGuard.EMBEDDING, () -> embeddingModel.embed(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                put(batch.get(i), embeddings.get(i));
+            }
+        }
+        log.info("批量预取查询向量 {} 条，分 {} 批", missing.size(), (missing.size() + batchSize - 1) / batchSize);
+    }
+}
@@ -0,0 +1,83 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.ReportCacheProperties;
+import com.sdecloud.dubhe.ai.report.model.ReportRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 问题频次统计
+ * 记录报告请求的出现次数，供预计算挑选热门报告；每轮预计算后次数减半，使热度随时间衰减。
+ * 不同请求数超过上限时提前衰减，淘汰只出现过一次的请求，内存占用有界
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Service
+public class QuestionFrequencyTracker {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReportCacheProperties properties;
+
+    public QuestionFrequencyTracker(ReportCacheProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param request 报告请求
+     */
+    public void record(ReportRequest request) {
+        entries.computeIfAbsent(ReportCache.keyOf(request), k -> new Entry(request)).count.incrementAndGet();
+        if (entries.size() > properties.getPrecompute().getMaxTracked()) {
+            trim();
+        }
+    }
+
+    /**
+     * 获取请求次数最多的前 N 个报告请求
+     *
+     * @param n 数量
+     * @return 热门报告请求
+     */
+    public List<ReportRequest> top(int n) {
+        return entries.values().stream()
+                .sorted(Comparator.comparingLong((Entry e) -> e.count.get()).reversed())
+                .limit(n)
+                .map(e -> e.request)
+                .toList();
+    }
+
+    /**
+     * 次数减半，移除已无热度的问题
+     */
+    public void decay() {
+        entries.values().forEach(e -> e.count.updateAndGet(c -> c / 2));
+        entries.values().removeIf(e -> e.count.get() == 0);
+    }
+
+    /**
+     * 反复衰减直到不超过上限，保留相对热度
+     */
+    private synchronized void trim() {
+        int max = properties.getPrecompute().getMaxTracked();
+        while (entries.size() > max) {
+            decay();
+        }
+    }
+
+    private static final class Entry {
+        private final ReportRequest request;
+        private final AtomicLong count = new AtomicLong();
+
+        private Entry(ReportRequest request) {
+            this.request = request;
+        }
+    }
+}
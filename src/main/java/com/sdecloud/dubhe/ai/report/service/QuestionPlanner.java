@@ -0,0 +1,144 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.config.DecompositionProperties;
+import com.sdecloud.dubhe.ai.report.config.PayloadLoggingAdvisor;
+import com.sdecloud.dubhe.ai.report.graph.ReportGraphRoutes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 问题拆分规划
+ * 复合分析问题（如“总结2024年销售情况，给出后续建议及预测”）需要多个相互独立的统计查询，
+ * 由快速模型规划为若干命名子问题，分别生成 SQL 后并发执行；单一问题或规划失败时返回空列表，按单条 SQL 处理
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class QuestionPlanner {
+
+    private static final TypeReference<List<Map<String, Object>>> PLAN_TYPE = new TypeReference<>() {
+    };
+
+    private final ChatClient chatClient;
+    private final ModelRouter modelRouter;
+    private final DecompositionProperties properties;
+    private final PromptTemplate planPromptTemplate;
+    private final Pattern compositePattern;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public QuestionPlanner(ChatModel chatModel, PayloadLoggingAdvisor payloadLoggingAdvisor, ModelRouter modelRouter,
+                           DecompositionProperties properties, MeterRegistry meterRegistry,
+                           @Value("classpath:prompts/question-plan-prompt.txt") Resource planPromptResource) {
+        this.chatClient = ChatClient.builder(chatModel).defaultAdvisors(payloadLoggingAdvisor).build();
+        this.modelRouter = modelRouter;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.planPromptTemplate = new PromptTemplate(planPromptResource);
+        this.compositePattern = Pattern.compile(properties.getCompositePattern());
+    }
+
+    /**
+     * 规划子问题
+     *
+     * @param question 用户问题
+     * @return 子问题（至少两个），不需要拆分时为空列表
+     */
+    public List<SubQuestion> plan(String question) {
+        if (!properties.isEnabled() || properties.getMaxSubQueries() < 2
+                || !compositePattern.matcher(question).find()) {
+            return List.of();
+        }
+        try {
+            String prompt = planPromptTemplate.render(Map.of(
+                    "question", question,
+                    "maxSubQueries", properties.getMaxSubQueries()
+            ));
+            String content = modelRouter.call(ReportGraphRoutes.NL2SQL, options -> chatClient.prompt()
+                    .options(options)
+                    .user(prompt)
+                    .call()
+                    .content());
+            List<SubQuestion> plan = parse(content);
+            count(plan.isEmpty() ? "single" : "decomposed");
+            if (!plan.isEmpty()) {
+                log.info("问题拆分为 {} 个子查询: {}", plan.size(), plan.stream().map(SubQuestion::name).toList());
+            }
+            return plan;
+        } catch (Exception e) {
+            count("failed");
+            log.warn("问题拆分失败，按单条 SQL 处理: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 解析模型返回的 JSON 数组，去掉空子问题并保证名称唯一
+     */
+    private List<SubQuestion> parse(String content) throws Exception {
+        if (content == null) {
+            return List.of();
+        }
+        int start = content.indexOf('[');
+        int end = content.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            return List.of();
+        }
+        List<Map<String, Object>> items = objectMapper.readValue(content.substring(start, end + 1), PLAN_TYPE);
+        List<SubQuestion> plan = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Map<String, Object> item : items) {
+            Object subQuestion = item.get("question");
+            if (subQuestion == null || String.valueOf(subQuestion).isBlank()) {
+                continue;
+            }
+            Object name = item.get("name");
+            String base = name != null && !String.valueOf(name).isBlank()
+                    ? String.valueOf(name).trim() : "子查询" + (plan.size() + 1);
+            String unique = base;
+            for (int i = 2; !names.add(unique); i++) {
+                unique = base + i;
+            }
+            plan.add(new SubQuestion(unique, String.valueOf(subQuestion).trim()));
+            if (plan.size() == properties.getMaxSubQueries()) {
+                break;
+            }
+        }
+        return plan.size() > 1 ? plan : List.of();
+    }
+
+    private void count(String outcome) {
+        Counter.builder("report.decompose.plans")
+                .description("复合问题拆分规划次数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 子问题
+     *
+     * @param name     子查询名称，作为合并后查询结果中的键
+     * @param question 子问题
+     */
+    public record SubQuestion(String name, String question) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.graph.ChartGenerateNode;
+import com.sdecloud.dubhe.ai.report.graph.CheckpointingNodeAction;
+import com.sdecloud.dubhe.ai.report.graph.ErrorHandleNode;
+import com.sdecloud.dubhe.ai.report.graph.ForecastNode;
+import com.sdecloud.dubhe.ai.report.graph.Nl2SqlNode;
+import com.sdecloud.dubhe.ai.report.graph.ReactiveNodeAction;
+import com.sdecloud.dubhe.ai.report.graph.ReportGenerateNode;
+import com.sdecloud.dubhe.ai.report.graph.ReportGraphRoutes;
+import com.sdecloud.dubhe.ai.report.graph.SqlExecuteNode;
+import com.sdecloud.dubhe.ai.report.graph.WordConvertNode;
+import com.sdecloud.dubhe.ai.report.jfr.NodeExecutionEvent;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import com.sdecloud.dubhe.ai.report.model.ReportRequest;
+import com.sdecloud.dubhe.ai.report.model.ReportResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 响应式报告生成服务
+ * 与报告Graph使用同一套路由规则（{@link ReportGraphRoutes}）和检查点，
+ * 但节点以 {@link ReactiveNodeAction} 非阻塞执行：等待大模型期间不占用线程，
+ * 大量并发的慢调用只需要少量线程
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class ReactiveReportService {
+
+    private final Map<String, ReactiveNodeAction> nodes;
+    private final ReportCheckpointStore checkpointStore;
+    private final ReportGenerationService reportGenerationService;
+    private final SlowRunRecorder slowRunRecorder;
+    private final BlobStore blobStore;
+
+    public ReactiveReportService(Nl2SqlNode nl2SqlNode, SqlExecuteNode sqlExecuteNode,
+                                 ForecastNode forecastNode, ChartGenerateNode chartGenerateNode, ReportGenerateNode reportGenerateNode,
+                                 WordConvertNode wordConvertNode, ErrorHandleNode errorHandleNode,
+                                 ReportCheckpointStore checkpointStore,
+                                 ReportGenerationService reportGenerationService,
+                                 SlowRunRecorder slowRunRecorder, BlobStore blobStore) {
+        this.nodes = Map.of(
+                ReportGraphRoutes.NL2SQL, nl2SqlNode,
+                ReportGraphRoutes.SQL_EXECUTE, sqlExecuteNode,
+                ReportGraphRoutes.FORECAST, forecastNode,
+                ReportGraphRoutes.CHART_GENERATE, chartGenerateNode,
+                ReportGraphRoutes.REPORT_GENERATE, reportGenerateNode,
+                ReportGraphRoutes.WORD_CONVERT, wordConvertNode,
+                ReportGraphRoutes.ERROR, errorHandleNode
+        );
+        this.checkpointStore = checkpointStore;
+        this.reportGenerationService = reportGenerationService;
+        this.slowRunRecorder = slowRunRecorder;
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * 非阻塞生成完整的数据分析报告
+     *
+     * @param request 报告生成请求
+     * @return 报告响应
+     */
+    public Mono<ReportResponse> generateReport(ReportRequest request) {
+        String runId = UUID.randomUUID().toString();
+        ReportResponse response = new ReportResponse();
+        response.setQuestion(request.getQuestion());
+        response.setRunId(runId);
+
+        Map<String, Object> state = new HashMap<>();
+        state.put(GraphStateKeys.RUN_ID, runId);
+        state.put(GraphStateKeys.QUESTION, request.getQuestion());
+        state.put(GraphStateKeys.TOP_K, request.getTopK());
+        state.put(GraphStateKeys.GENERATE_CHART, request.isGenerateChart());
+        state.put(GraphStateKeys.GENERATE_WORD, request.isGenerateWord());
+
+        log.info("使用响应式模式执行报告生成流程，runId: {}", runId);
+        long start = System.currentTimeMillis();
+        return execute(ReportGraphRoutes.fromStart(state), state)
+                .doOnNext(result -> slowRunRecorder.record(runId, "reactive-report",
+                        System.currentTimeMillis() - start, result))
+                .map(result -> {
+                    reportGenerationService.fillReportResponse(response, result);
+                    if (response.isSuccess() && !ReportGraphRoutes.wordConvertPending(result)) {
+                        checkpointStore.delete(runId);
+                        blobStore.deleteRun(runId);
+                    }
+                    return response;
+                })
+                .onErrorResume(e -> {
+                    log.error("报告生成失败", e);
+                    response.setSuccess(false);
+                    response.setErrorMessage("报告生成失败: " + e.getMessage());
+                    return Mono.just(response);
+                })
+                .contextWrite(Context.of(ChatPriority.CONTEXT_KEY, ChatPriority.REPORT));
+    }
+
+    /**
+     * 执行节点，合并输出后按路由规则继续执行下一个节点，直到结束
+     */
+    private Mono<Map<String, Object>> execute(String node, Map<String, Object> state) {
+        if (StateGraph.END.equals(node)) {
+            return Mono.just(state);
+        }
+        ReactiveNodeAction action = nodes.get(node);
+        if (action == null) {
+            return Mono.error(new IllegalStateException("未知节点: " + node));
+        }
+
+        OverAllState nodeState = new OverAllState();
+        nodeState.input(state);
+        String runId = (String) state.get(GraphStateKeys.RUN_ID);
+        return Mono.defer(() -> recorded(runId, node, action.applyReactive(nodeState)))
+                .contextWrite(context -> context.put(RunContext.CONTEXT_KEY, new RunContext.Run(runId, node)))
+                // 检查点写入是阻塞 IO，切换到 boundedElastic 执行
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(output -> {
+                    Map<String, Object> merged = new HashMap<>(state);
+                    if (!ReportGraphRoutes.ERROR.equals(node) && CheckpointingNodeAction.succeeded(output)) {
+                        merged.putAll(blobStore.spillAll(runId, output));
+                        checkpointStore.save(runId, node, merged);
+                    } else {
+                        merged.putAll(output);
+                    }
+                    return execute(ReportGraphRoutes.next(node, merged), merged);
+                });
+    }
+
+    /**
+     * 记录节点执行的 JFR 事件（订阅时开始，完成时结束）
+     */
+    private Mono<Map<String, Object>> recorded(String runId, String node, Mono<Map<String, Object>> execution) {
+        NodeExecutionEvent event = new NodeExecutionEvent();
+        event.begin();
+        return execution
+                .doOnNext(output -> event.success = CheckpointingNodeAction.succeeded(output))
+                .doFinally(signal -> {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.runId = runId;
+                        event.node = node;
+                        event.reactive = true;
+                        event.commit();
+                    }
+                });
+    }
+}
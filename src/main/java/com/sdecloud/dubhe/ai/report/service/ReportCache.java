@@ -0,0 +1,221 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.config.ReportCacheProperties;
+import com.sdecloud.dubhe.ai.report.model.ReportRequest;
+import com.sdecloud.dubhe.ai.report.model.ReportResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 完整报告缓存
+ * 按规范化请求缓存成功生成的报告，并记录生成时的数据版本；
+ * 按条数和估算内存占用做 LRU 淘汰，正文较大的报告写入磁盘，内存中只保留索引
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+public class ReportCache {
+
+    /** 单个缓存项的固定开销估算（字节） */
+    private static final long ENTRY_OVERHEAD_BYTES = 512;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReportCacheProperties properties;
+    private final Path spillDirectory;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private long memoryBytes;
+
+    public ReportCache(ReportCacheProperties properties) {
+        this.properties = properties;
+        this.spillDirectory = Paths.get(properties.getSpillDir());
+        // 缓存索引只在内存中，启动时清理上次运行遗留的落盘文件
+        try {
+            Files.createDirectories(spillDirectory);
+            try (Stream<Path> files = Files.list(spillDirectory)) {
+                files.forEach(p -> p.toFile().delete());
+            }
+        } catch (IOException e) {
+            log.warn("初始化报告缓存目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param request 报告请求
+     * @return 缓存的报告
+     */
+    public Optional<CachedReport> get(ReportRequest request) {
+        String key = keyOf(request);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.spillFile() == null) {
+            return Optional.of(new CachedReport(entry.response(), entry.dataVersion(), entry.cachedAt()));
+        }
+        try {
+            ReportResponse response = objectMapper.readValue(entry.spillFile().toFile(), ReportResponse.class);
+            return Optional.of(new CachedReport(response, entry.dataVersion(), entry.cachedAt()));
+        } catch (IOException e) {
+            log.warn("读取落盘报告失败，丢弃缓存: {}, {}", key, e.getMessage());
+            synchronized (this) {
+                if (entries.get(key) == entry) {
+                    remove(key);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param request     报告请求
+     * @param response    报告响应（仅缓存成功的报告）
+     * @param dataVersion 生成时的数据版本
+     */
+    public void put(ReportRequest request, ReportResponse response, String dataVersion) {
+        if (!response.isSuccess()) {
+            return;
+        }
+        String key = keyOf(request);
+        long cachedAt = System.currentTimeMillis();
+        int bodyChars = length(response.getReport()) + length(response.getQueryResult());
+
+        Entry entry;
+        if (bodyChars > properties.getSpillThresholdChars()) {
+            Path file = spillDirectory.resolve(UUID.randomUUID() + ".json");
+            try {
+                objectMapper.writeValue(file.toFile(), response);
+                entry = new Entry(null, file, dataVersion, cachedAt, ENTRY_OVERHEAD_BYTES);
+            } catch (IOException e) {
+                log.warn("报告落盘失败，不缓存: {}, {}", request.getQuestion(), e.getMessage());
+                return;
+            }
+        } else {
+            entry = new Entry(copy(response), null, dataVersion, cachedAt, ENTRY_OVERHEAD_BYTES + bodyChars * 2L);
+        }
+
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            memoryBytes += entry.weight();
+            evict();
+        }
+        log.debug("报告已缓存: {}, 数据版本: {}, 落盘: {}", request.getQuestion(), dataVersion, entry.spillFile() != null);
+    }
+
+    /**
+     * 标记请求开始后台刷新，同一请求同时只允许一个刷新任务
+     *
+     * @param request 报告请求
+     * @return 是否获得刷新权
+     */
+    public boolean tryStartRefresh(ReportRequest request) {
+        return refreshing.add(keyOf(request));
+    }
+
+    /**
+     * 标记请求的后台刷新已结束
+     *
+     * @param request 报告请求
+     */
+    public void finishRefresh(ReportRequest request) {
+        refreshing.remove(keyOf(request));
+    }
+
+    /**
+     * 复制响应，避免调用方修改缓存中的对象
+     *
+     * @param response 报告响应
+     * @return 副本
+     */
+    public ReportResponse copy(ReportResponse response) {
+        return objectMapper.convertValue(response, ReportResponse.class);
+    }
+
+    /**
+     * 规范化请求作为缓存键：合并问题中的空白，包含影响结果的参数
+     *
+     * @param request 报告请求
+     * @return 缓存键
+     */
+    public static String keyOf(ReportRequest request) {
+        String question = request.getQuestion() == null ? "" : request.getQuestion().trim().replaceAll("\\s+", " ");
+        return String.join("|", question, String.valueOf(request.getTopK()),
+                String.valueOf(request.isGenerateChart()), String.valueOf(request.isGenerateWord()));
+    }
+
+    /**
+     * 超出条数或内存上限时淘汰最久未使用的报告
+     */
+    private void evict() {
+        long maxBytes = properties.getMaxMemoryMb() * 1024 * 1024;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > properties.getMaxEntries() || memoryBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            release(eldest.getValue());
+            log.debug("淘汰缓存报告: {}", eldest.getKey());
+        }
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    private void release(Entry entry) {
+        memoryBytes -= entry.weight();
+        if (entry.spillFile() != null) {
+            try {
+                Files.deleteIfExists(entry.spillFile());
+            } catch (IOException e) {
+                log.debug("删除落盘报告失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * 缓存项
+     *
+     * @param response    报告响应
+     * @param dataVersion 生成时的数据版本
+     * @param cachedAt    缓存时间（毫秒）
+     */
+    public record CachedReport(ReportResponse response, String dataVersion, long cachedAt) {
+    }
+
+    /**
+     * 内部缓存项，正文较大时 response 为 null，内容在 spillFile 中
+     */
+    private record Entry(ReportResponse response, Path spillFile, String dataVersion, long cachedAt, long weight) {
+    }
+}
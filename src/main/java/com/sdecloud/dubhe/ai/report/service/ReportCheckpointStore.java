@@ -0,0 +1,146 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 报告运行检查点存储
+ * 每个节点成功后将完整状态快照写入磁盘（一次运行一个文件），失败的运行可从最后成功的节点续跑
+ *
+ * @author liangjun
+ * @since 2025-10-21
+ */
+@Slf4j
+@Service
+public class ReportCheckpointStore {
+
+    private static final Pattern RUN_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    private static final String SUFFIX = ".json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final Duration retention;
+
+    public ReportCheckpointStore(@Value("${report.checkpoint.dir:report-checkpoints}") String directory,
+                                 @Value("${report.checkpoint.retention-hours:24}") long retentionHours) {
+        this.directory = Paths.get(directory);
+        this.retention = Duration.ofHours(retentionHours);
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            log.warn("创建检查点目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 保存节点完成后的状态快照（先写临时文件再原子替换，避免写入一半的快照）
+     *
+     * @param runId  运行ID
+     * @param nodeId 完成的节点
+     * @param state  节点完成后的完整状态
+     */
+    public void save(String runId, String nodeId, Map<String, Object> state) {
+        Path target = pathOf(runId);
+        Path temp = directory.resolve(runId + SUFFIX + ".tmp");
+        try {
+            Checkpoint checkpoint = new Checkpoint(runId, nodeId, Instant.now().toEpochMilli(), state);
+            Files.write(temp, objectMapper.writeValueAsBytes(checkpoint));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("检查点已保存: runId={}, node={}", runId, nodeId);
+        } catch (IOException e) {
+            // 检查点写入失败不影响本次运行，只是无法续跑
+            log.warn("保存检查点失败: runId={}, node={}, {}", runId, nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取运行的最新检查点
+     *
+     * @param runId 运行ID
+     * @return 检查点，不存在时为空
+     */
+    public Optional<Checkpoint> load(String runId) {
+        Path path = pathOf(runId);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(path.toFile(), Checkpoint.class));
+        } catch (IOException e) {
+            log.warn("读取检查点失败: runId={}, {}", runId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 删除运行的检查点（运行成功完成后调用）
+     *
+     * @param runId 运行ID
+     */
+    public void delete(String runId) {
+        try {
+            Files.deleteIfExists(pathOf(runId));
+        } catch (IOException e) {
+            log.warn("删除检查点失败: runId={}, {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时清理超过保留期的检查点
+     */
+    @Scheduled(fixedDelayString = "${report.checkpoint.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        Instant expireBefore = Instant.now().minus(retention);
+        try (Stream<Path> files = Files.list(directory)) {
+            long removed = files
+                    .filter(p -> p.getFileName().toString().contains(SUFFIX))
+                    .filter(p -> {
+                        try {
+                            return Files.getLastModifiedTime(p).toInstant().isBefore(expireBefore);
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .filter(p -> p.toFile().delete())
+                    .count();
+            if (removed > 0) {
+                log.info("已清理 {} 个过期检查点", removed);
+            }
+        } catch (IOException e) {
+            log.warn("清理检查点失败: {}", e.getMessage());
+        }
+    }
+
+    private Path pathOf(String runId) {
+        if (runId == null || !RUN_ID_PATTERN.matcher(runId).matches()) {
+            throw new IllegalArgumentException("非法的运行ID: " + runId);
+        }
+        return directory.resolve(runId + SUFFIX);
+    }
+
+    /**
+     * 检查点
+     *
+     * @param runId     运行ID
+     * @param lastNode  最后成功完成的节点
+     * @param updatedAt 保存时间（毫秒）
+     * @param state     节点完成后的完整状态
+     */
+    public record Checkpoint(String runId, String lastNode, long updatedAt, Map<String, Object> state) {
+    }
+}
@@ -2,15 +2,29 @@ package com.sdecloud.dubhe.ai.report.service;
 
 import com.alibaba.cloud.ai.graph.CompiledGraph;
 import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.StateGraph;
+import com.sdecloud.dubhe.ai.report.config.ReportCacheProperties;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.constant.GraphStateKeys;
+import com.sdecloud.dubhe.ai.report.graph.ReportGraphRoutes;
 import com.sdecloud.dubhe.ai.report.model.QueryResponse;
 import com.sdecloud.dubhe.ai.report.model.ReportRequest;
 import com.sdecloud.dubhe.ai.report.model.ReportResponse;
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 报告生成服务
@@ -24,8 +38,19 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ReportGenerationService {
 
+    private static final DateTimeFormatter GENERATED_AT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final CompiledGraph compiledReportGraph;
     private final CompiledGraph compiledQueryGraph;
+    private final ReportCheckpointStore checkpointStore;
+    private final ReportCache reportCache;
+    private final DataVersionService dataVersionService;
+    private final QuestionFrequencyTracker frequencyTracker;
+    private final ReportCacheProperties cacheProperties;
+    private final SlowRunRecorder slowRunRecorder;
+    private final ResultSetCache resultSetCache;
+    private final BlobStore blobStore;
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
 
     /**
      * 仅执行 NL2SQL + 查询（不生成报告）
@@ -44,8 +69,8 @@ public class ReportGenerationService {
         try {
             // 使用查询专用Graph（只执行NL2SQL和SQL执行）
             Map<String, Object> input = new HashMap<>();
-            input.put("question", question);
-            input.put("topK", topK);
+            input.put(GraphStateKeys.QUESTION, question);
+            input.put(GraphStateKeys.TOP_K, topK);
 
             // 执行查询Graph流程（只有两个节点）
             OverAllState resultState = compiledQueryGraph.invoke(input).orElseThrow(
@@ -53,10 +78,10 @@ public class ReportGenerationService {
             );
 
             Map<String, Object> graphResult = resultState.data();
-            String sql = (String) graphResult.get("sql");
-            String queryResult = (String) graphResult.get("queryResult");
-            Boolean nl2sqlSuccess = (Boolean) graphResult.get("nl2sql_success");
-            Boolean sqlExecuteSuccess = (Boolean) graphResult.get("sql_execute_success");
+            String sql = (String) graphResult.get(GraphStateKeys.SQL);
+            String queryResult = (String) graphResult.get(GraphStateKeys.QUERY_RESULT);
+            Boolean nl2sqlSuccess = (Boolean) graphResult.get(GraphStateKeys.NL2SQL_SUCCESS);
+            Boolean sqlExecuteSuccess = (Boolean) graphResult.get(GraphStateKeys.SQL_EXECUTE_SUCCESS);
 
             response.setSql(sql);
             response.setQueryResult(queryResult);
@@ -64,10 +89,13 @@ public class ReportGenerationService {
             if (nl2sqlSuccess != null && nl2sqlSuccess &&
                     sqlExecuteSuccess != null && sqlExecuteSuccess) {
                 response.setSuccess(true);
+                // 缓存结构化结果，后续透视、筛选、排序不再查询数据库
+                resultSetCache.put(question, sql, QueryResultParser.parseRows(queryResult))
+                        .ifPresent(response::setResultId);
                 log.info("查询执行成功");
             } else {
                 response.setSuccess(false);
-                response.setErrorMessage("查询执行失败");
+                response.setErrorMessage(errorMessage(graphResult, "查询执行失败"));
             }
 
         } catch (Exception e) {
@@ -82,6 +110,8 @@ public class ReportGenerationService {
     /**
      * 生成完整的数据分析报告（使用Graph）
      * 流程：NL2SQL → 执行查询 → 生成图表 → 生成报告 → 保存文件 → 转换 Word
+     * 每个节点成功后写入检查点，失败时可通过运行ID续跑；数据版本未变化时直接返回缓存，
+     * 数据已更新时在最大陈旧时间内先返回旧报告并后台刷新，实时生成失败时返回更旧的缓存报告
      *
      * @param request 报告生成请求
      * @return 完整的分析报告响应
@@ -89,73 +119,259 @@ public class ReportGenerationService {
     public ReportResponse generateReport(ReportRequest request) {
         log.info("收到报告生成请求，问题: {}", request.getQuestion());
 
+        if (!cacheProperties.isEnabled()) {
+            return runReport(request);
+        }
+
+        frequencyTracker.record(request);
+        String dataVersion = dataVersionService.currentVersion();
+        Optional<ReportCache.CachedReport> cached = reportCache.get(request);
+        if (cached.isPresent()) {
+            ReportCache.CachedReport entry = cached.get();
+            // 数据版本未变化时直接返回缓存的报告
+            if (!DataVersionService.UNKNOWN.equals(dataVersion) && entry.dataVersion().equals(dataVersion)) {
+                log.info("命中报告缓存，数据版本: {}", dataVersion);
+                return fromCache(entry, ReportResponse.FRESHNESS_FRESH);
+            }
+            // 数据已更新但未超过最大陈旧时间：先返回旧报告，后台刷新
+            if (System.currentTimeMillis() - entry.cachedAt() <= cacheProperties.getMaxStalenessMs()) {
+                log.info("返回陈旧报告并后台刷新，缓存版本: {}, 当前版本: {}", entry.dataVersion(), dataVersion);
+                refreshInBackground(request);
+                return fromCache(entry, ReportResponse.FRESHNESS_STALE);
+            }
+        }
+
+        ReportResponse response = generateAndCache(request, dataVersion);
+        // 实时生成失败（如下游依赖熔断）时退回到更旧的缓存报告
+        if (!response.isSuccess() && cached.isPresent()) {
+            log.warn("报告实时生成失败，返回缓存报告: {}", response.getErrorMessage());
+            return fromCache(cached.get(), ReportResponse.FRESHNESS_FALLBACK);
+        }
+        return response;
+    }
+
+    /**
+     * 实时生成报告并写入缓存（预计算也通过此方法刷新缓存）
+     *
+     * @param request     报告生成请求
+     * @param dataVersion 生成前探测的数据版本
+     * @return 报告响应
+     */
+    public ReportResponse generateAndCache(ReportRequest request, String dataVersion) {
+        ReportResponse response = runReport(request);
+        response.setDataVersion(dataVersion);
+        reportCache.put(request, response, dataVersion);
+        return response;
+    }
+
+    private ReportResponse fromCache(ReportCache.CachedReport entry, String freshness) {
+        ReportResponse response = reportCache.copy(entry.response());
+        response.setCached(true);
+        response.setFreshness(freshness);
+        return response;
+    }
+
+    /**
+     * 后台重新生成报告，同一请求同时只有一个刷新任务
+     */
+    private void refreshInBackground(ReportRequest request) {
+        if (!reportCache.tryStartRefresh(request)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    ChatPriority.call(ChatPriority.BATCH,
+                            () -> generateAndCache(request, dataVersionService.currentVersion()));
+                } catch (Exception e) {
+                    log.warn("后台刷新报告失败: {}, {}", request.getQuestion(), e.getMessage());
+                } finally {
+                    reportCache.finishRefresh(request);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reportCache.finishRefresh(request);
+        }
+    }
+
+    /**
+     * 执行报告Graph生成报告（不经过缓存）
+     */
+    private ReportResponse runReport(ReportRequest request) {
+        String runId = UUID.randomUUID().toString();
         ReportResponse response = new ReportResponse();
         response.setQuestion(request.getQuestion());
+        response.setRunId(runId);
 
-        try {
-            // 使用Graph执行完整流程
-            log.info("使用Graph执行报告生成流程");
+        // 创建初始输入
+        Map<String, Object> input = new HashMap<>();
+        input.put(GraphStateKeys.RUN_ID, runId);
+        input.put(GraphStateKeys.QUESTION, request.getQuestion());
+        input.put(GraphStateKeys.TOP_K, request.getTopK());
+        input.put(GraphStateKeys.GENERATE_CHART, request.isGenerateChart());
+        input.put(GraphStateKeys.GENERATE_WORD, request.isGenerateWord());
 
-            // 创建初始输入
-            Map<String, Object> input = new HashMap<>();
-            input.put("question", request.getQuestion());
-            input.put("topK", request.getTopK());
-            input.put("generateChart", request.isGenerateChart());
-            input.put("generateWord", request.isGenerateWord());
+        log.info("使用Graph执行报告生成流程，runId: {}", runId);
+        return runReportGraph(input, response);
+    }
+
+    /**
+     * 从检查点续跑失败的报告生成流程
+     * 从最后一个成功节点之后继续执行，已完成的 NL2SQL、SQL执行等步骤不再重复
+     *
+     * @param runId 运行ID
+     * @return 报告响应
+     */
+    public ReportResponse resumeReport(String runId) {
+        ReportResponse response = new ReportResponse();
+        response.setRunId(runId);
+
+        Optional<ReportCheckpointStore.Checkpoint> checkpoint = checkpointStore.load(runId);
+        if (checkpoint.isEmpty()) {
+            response.setSuccess(false);
+            response.setErrorMessage("未找到运行检查点: " + runId);
+            return response;
+        }
+
+        log.info("续跑报告生成流程，runId: {}, 最后完成节点: {}", runId, checkpoint.get().lastNode());
+        return continueReport(runId, checkpoint.get().state(), checkpoint.get().lastNode());
+    }
+
+    /**
+     * 从已完成节点之后继续执行报告生成流程
+     * 用于检查点续跑，以及批量生成时复用已执行的 NL2SQL 和 SQL 查询结果
+     *
+     * @param runId         运行ID
+     * @param state         已完成节点之后的状态
+     * @param completedNode 最后完成的节点
+     * @return 报告响应
+     */
+    public ReportResponse continueReport(String runId, Map<String, Object> state, String completedNode) {
+        ReportResponse response = new ReportResponse();
+        response.setRunId(runId);
+
+        // 复用的查询结果可能很大，先落盘，图状态和检查点中只保留句柄
+        Map<String, Object> input = new HashMap<>(blobStore.spillAll(runId, state));
+        input.put(GraphStateKeys.RUN_ID, runId);
+        response.setQuestion((String) input.get(GraphStateKeys.QUESTION));
+        String nextNode = ReportGraphRoutes.next(completedNode, input);
+        log.debug("runId: {}, 从节点 {} 继续执行", runId, nextNode);
+
+        if (StateGraph.END.equals(nextNode)) {
+            // 检查点已是终态（如保存后服务重启），直接返回结果
+            fillReportResponse(response, input);
+            checkpointStore.delete(runId);
+            blobStore.deleteRun(runId);
+            return response;
+        }
+
+        input.put(GraphStateKeys.RESUME_FROM, nextNode);
+        return runReportGraph(input, response);
+    }
 
+    /**
+     * 执行报告Graph并转换为响应，成功时清理检查点
+     */
+    private ReportResponse runReportGraph(Map<String, Object> input, ReportResponse response) {
+        long start = System.currentTimeMillis();
+        Map<String, Object> finalState = input;
+        try {
             // 执行Graph流程
             OverAllState resultState = compiledReportGraph.invoke(input).orElseThrow(
                     () -> new RuntimeException("Graph执行失败，未返回结果")
             );
 
             log.info("Graph执行完成");
-            log.debug("Graph执行结果: {}", resultState.data());
-
-            // 从Graph结果中提取数据
-            Map<String, Object> graphResult = resultState.data();
-            String sql = (String) graphResult.get("sql");
-            String queryResult = (String) graphResult.get("queryResult");
-            String chartUrl = (String) graphResult.get("chartUrl");
-            String report = (String) graphResult.get("report");
-            String reportFilePath = (String) graphResult.get("reportFilePath");
-            String wordFilePath = (String) graphResult.get("wordFilePath");
-
-            // 设置响应数据
-            response.setSql(sql);
-            response.setQueryResult(queryResult);
-            response.setChartUrl(chartUrl);
-            response.setReport(report);
-            response.setReportFilePath(reportFilePath);
-            response.setWordFilePath(wordFilePath);
-
-            // 检查各步骤是否成功
-            Boolean nl2sqlSuccess = (Boolean) graphResult.get("nl2sql_success");
-            Boolean sqlExecuteSuccess = (Boolean) graphResult.get("sql_execute_success");
-            Boolean reportGenerateSuccess = (Boolean) graphResult.get("report_generate_success");
+            log.debug("Graph执行结果状态键: {}", resultState.data().keySet());
 
-            if (nl2sqlSuccess != null && nl2sqlSuccess &&
-                    sqlExecuteSuccess != null && sqlExecuteSuccess &&
-                    reportGenerateSuccess != null && reportGenerateSuccess) {
-                response.setSuccess(true);
-                log.info("Graph执行成功，报告生成完成");
-                log.info("- SQL: {}", sql);
-                log.info("- 报告文件: {}", reportFilePath);
-                if (wordFilePath != null) {
-                    log.info("- Word文档: {}", wordFilePath);
-                }
-            } else {
-                response.setSuccess(false);
-                response.setErrorMessage("Graph执行过程中某些步骤失败");
-                log.warn("Graph执行部分失败，nl2sql: {}, sqlExecute: {}, reportGenerate: {}",
-                        nl2sqlSuccess, sqlExecuteSuccess, reportGenerateSuccess);
+            finalState = resultState.data();
+            fillReportResponse(response, finalState);
+            // Word 转换失败时保留检查点，续跑只重新执行 Word 转换
+            if (response.isSuccess() && !ReportGraphRoutes.wordConvertPending(finalState)) {
+                checkpointStore.delete(response.getRunId());
+                blobStore.deleteRun(response.getRunId());
             }
 
         } catch (Exception e) {
             log.error("报告生成失败", e);
             response.setSuccess(false);
             response.setErrorMessage("报告生成失败: " + e.getMessage());
+        } finally {
+            slowRunRecorder.record(response.getRunId(), "report", System.currentTimeMillis() - start, finalState);
         }
 
         return response;
     }
+
+    /**
+     * 从Graph结果中提取数据填充响应（响应式模式共用）
+     * 落盘的查询结果只流式读取前若干行，落盘的报告只读取阈值长度的开头，完整报告见报告文件
+     */
+    void fillReportResponse(ReportResponse response, Map<String, Object> graphResult) {
+        String sql = (String) graphResult.get(GraphStateKeys.SQL);
+        QueryResultParser.Preview queryResult = blobStore.previewIfSpilled(graphResult.get(GraphStateKeys.QUERY_RESULT));
+        String forecast = (String) graphResult.get(GraphStateKeys.FORECAST);
+        String chartUrl = (String) graphResult.get(GraphStateKeys.CHART_URL);
+        Object reportValue = graphResult.get(GraphStateKeys.REPORT);
+        QueryResultParser.Preview report = BlobStore.isHandle(reportValue)
+                ? blobStore.readPrefix(reportValue) : new QueryResultParser.Preview((String) reportValue, false);
+        String reportFilePath = (String) graphResult.get(GraphStateKeys.REPORT_FILE_PATH);
+        String wordFilePath = (String) graphResult.get(GraphStateKeys.WORD_FILE_PATH);
+
+        // 设置响应数据
+        response.setGeneratedAt(LocalDateTime.now().format(GENERATED_AT_FORMATTER));
+        response.setSql(sql);
+        response.setQueryResult(queryResult.text());
+        response.setQueryResultTruncated(queryResult.truncated());
+        response.setForecast(forecast);
+        response.setChartUrl(chartUrl);
+        response.setReport(report.text());
+        response.setReportTruncated(report.truncated());
+        response.setReportFilePath(reportFilePath);
+        response.setWordFilePath(wordFilePath);
+
+        // 检查各步骤是否成功
+        Boolean nl2sqlSuccess = (Boolean) graphResult.get(GraphStateKeys.NL2SQL_SUCCESS);
+        Boolean sqlExecuteSuccess = (Boolean) graphResult.get(GraphStateKeys.SQL_EXECUTE_SUCCESS);
+        Boolean reportGenerateSuccess = (Boolean) graphResult.get(GraphStateKeys.REPORT_GENERATE_SUCCESS);
+
+        if (nl2sqlSuccess != null && nl2sqlSuccess &&
+                sqlExecuteSuccess != null && sqlExecuteSuccess &&
+                reportGenerateSuccess != null && reportGenerateSuccess) {
+            response.setSuccess(true);
+            log.info("Graph执行成功，报告生成完成");
+            log.info("- SQL: {}", sql);
+            log.info("- 报告文件: {}", reportFilePath);
+            if (wordFilePath != null) {
+                log.info("- Word文档: {}", wordFilePath);
+            }
+            if (ReportGraphRoutes.wordConvertPending(graphResult)) {
+                response.setErrorMessage("Word转换失败: " + graphResult.get(GraphStateKeys.WORD_CONVERT_ERROR)
+                        + "，可通过 runId 续跑");
+                log.warn("Word转换失败，可通过 runId {} 续跑", response.getRunId());
+            }
+        } else {
+            response.setSuccess(false);
+            response.setErrorMessage(errorMessage(graphResult, "Graph执行过程中某些步骤失败"));
+            log.warn("Graph执行部分失败，nl2sql: {}, sqlExecute: {}, reportGenerate: {}，可通过 runId {} 续跑",
+                    nl2sqlSuccess, sqlExecuteSuccess, reportGenerateSuccess, response.getRunId());
+        }
+    }
+
+    /**
+     * 从Graph结果中提取错误节点记录的失败步骤和原因
+     */
+    private String errorMessage(Map<String, Object> graphResult, String defaultMessage) {
+        Object step = graphResult.get(GraphStateKeys.ERROR_STEP);
+        Object message = graphResult.get(GraphStateKeys.ERROR_MESSAGE);
+        if (step == null || message == null) {
+            return defaultMessage;
+        }
+        return String.format("%s 步骤失败: %s", step, message);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
 }
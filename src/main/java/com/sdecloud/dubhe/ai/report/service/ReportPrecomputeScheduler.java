@@ -0,0 +1,80 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.ReportCacheProperties;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.model.ReportRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 热门报告预计算
+ * 在业务低峰期重新生成请求最多的报告并写入缓存，早高峰的首个请求可直接命中
+ *
+ * @author liangjun
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+public class ReportPrecomputeScheduler {
+
+    private final QuestionFrequencyTracker frequencyTracker;
+    private final ReportGenerationService reportGenerationService;
+    private final ReportCache reportCache;
+    private final DataVersionService dataVersionService;
+    private final ReportCacheProperties properties;
+    private final KnowledgeBaseService knowledgeBaseService;
+
+    public ReportPrecomputeScheduler(QuestionFrequencyTracker frequencyTracker,
+                                     ReportGenerationService reportGenerationService,
+                                     ReportCache reportCache,
+                                     DataVersionService dataVersionService,
+                                     ReportCacheProperties properties,
+                                     KnowledgeBaseService knowledgeBaseService) {
+        this.frequencyTracker = frequencyTracker;
+        this.reportGenerationService = reportGenerationService;
+        this.reportCache = reportCache;
+        this.dataVersionService = dataVersionService;
+        this.properties = properties;
+        this.knowledgeBaseService = knowledgeBaseService;
+    }
+
+    /**
+     * 按配置的 cron 预计算热门报告，数据版本未变化的缓存跳过
+     */
+    @Scheduled(cron = "${report.cache.precompute.cron:0 30 5 * * *}")
+    public void precompute() {
+        if (!properties.isEnabled() || !properties.getPrecompute().isEnabled()) {
+            return;
+        }
+        if (!knowledgeBaseService.isReady()) {
+            log.warn("知识库尚未就绪，跳过本次热门报告预计算");
+            return;
+        }
+
+        List<ReportRequest> popular = frequencyTracker.top(properties.getPrecompute().getTopN());
+        String version = dataVersionService.probe();
+        log.info("开始预计算热门报告，共 {} 个，数据版本: {}", popular.size(), version);
+
+        int generated = 0;
+        for (ReportRequest request : popular) {
+            boolean upToDate = reportCache.get(request)
+                    .map(cached -> cached.dataVersion().equals(version) && !DataVersionService.UNKNOWN.equals(version))
+                    .orElse(false);
+            if (upToDate) {
+                continue;
+            }
+            try {
+                ChatPriority.call(ChatPriority.BATCH, () -> reportGenerationService.generateAndCache(request, version));
+                generated++;
+            } catch (Exception e) {
+                log.warn("预计算报告失败: {}, {}", request.getQuestion(), e.getMessage());
+            }
+        }
+
+        frequencyTracker.decay();
+        log.info("热门报告预计算完成，重新生成 {} 个", generated);
+    }
+}
@@ -0,0 +1,81 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.ResultSetProperties;
+import com.sdecloud.dubhe.ai.report.util.ColumnarTable;
+import com.sdecloud.dubhe.ai.report.util.ExpiringLruCache;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 查询结果缓存
+ * 将查询返回的行转换为 {@link ColumnarTable} 按结果ID缓存，供透视、筛选、排序等操作直接在内存中执行；
+ * 按数量做 LRU 淘汰，超过保留时间未使用的结果失效
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Service
+public class ResultSetCache {
+
+    private final ResultSetProperties properties;
+    private final ExpiringLruCache<String, CachedResult> results;
+
+    public ResultSetCache(ResultSetProperties properties) {
+        this.properties = properties;
+        // 按最后使用时间过期
+        this.results = new ExpiringLruCache<>(properties.getMaxEntries(), properties.getTtlMs(), true);
+    }
+
+    /**
+     * 缓存查询结果
+     *
+     * @param question 问题
+     * @param sql      SQL
+     * @param rows     结果行
+     * @return 结果ID，行数超过上限时为空
+     */
+    public Optional<String> put(String question, String sql, List<Map<String, Object>> rows) {
+        if (rows == null || rows.size() > properties.getMaxRows()) {
+            return Optional.empty();
+        }
+        return Optional.of(put(question, sql, ColumnarTable.fromRows(rows)));
+    }
+
+    /**
+     * 缓存列式结果（透视结果可继续透视）
+     *
+     * @param question 问题
+     * @param sql      SQL
+     * @param table    列式结果
+     * @return 结果ID
+     */
+    public String put(String question, String sql, ColumnarTable table) {
+        String id = UUID.randomUUID().toString();
+        results.put(id, new CachedResult(question, sql, table));
+        return id;
+    }
+
+    /**
+     * 读取缓存的结果
+     *
+     * @param id 结果ID
+     * @return 缓存的结果，不存在或已过期时为空
+     */
+    public Optional<CachedResult> get(String id) {
+        return results.get(id);
+    }
+
+    /**
+     * 缓存的结果
+     *
+     * @param question 问题
+     * @param sql      SQL
+     * @param table    列式结果
+     */
+    public record CachedResult(String question, String sql, ColumnarTable table) {
+    }
+}
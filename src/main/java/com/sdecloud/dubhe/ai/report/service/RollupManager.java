@@ -0,0 +1,250 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.RollupProperties;
+import com.sdecloud.dubhe.ai.report.util.RollupSqlRewriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 销售汇总表管理
+ * 通过 mysqlDataQuery 工具维护 月份 × 部门 × 产品 的汇总表：先写入临时表，再用 RENAME TABLE 原子替换，
+ * 重建期间查询仍使用旧表。汇总表只在构建时的数据版本与当前数据版本一致时参与改写，
+ * NL2SQL 生成的 SQL 能在汇总表上等价计算时由 {@link RollupSqlRewriter} 改写，否则原样执行。
+ * 可按比例抽样在原表上执行同一查询比对结果，不一致时停用汇总表并重建
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class RollupManager {
+
+    private static final List<String> OUTCOMES = List.of("rewritten", "not_applicable", "stale", "unavailable");
+
+    private final RollupProperties properties;
+    private final McpToolService mcpToolService;
+    private final DataVersionService dataVersionService;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> queries = new LinkedHashMap<>();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), r -> {
+        Thread thread = new Thread(r, "rollup-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private volatile boolean ready;
+    private volatile String builtVersion = DataVersionService.UNKNOWN;
+    private volatile Instant builtAt;
+    private volatile long rows;
+
+    public RollupManager(RollupProperties properties, McpToolService mcpToolService,
+                         DataVersionService dataVersionService, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.mcpToolService = mcpToolService;
+        this.dataVersionService = dataVersionService;
+        this.meterRegistry = meterRegistry;
+        for (String outcome : OUTCOMES) {
+            queries.put(outcome, Counter.builder("report.rollup.queries")
+                    .description("SQL 执行前的汇总表改写结果")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("report.rollup.ready", this, m -> m.ready ? 1 : 0)
+                .description("汇总表是否可用于改写（1 可用，0 不可用）")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 返回实际执行的 SQL：能在可用的汇总表上等价计算时返回改写后的 SQL，否则返回原 SQL
+     *
+     * @param sql NL2SQL 生成的 SQL
+     * @return 实际执行的 SQL
+     */
+    public String rewrite(String sql) {
+        if (!properties.isEnabled()) {
+            return sql;
+        }
+        Optional<String> rewritten = RollupSqlRewriter.rewrite(sql, properties.getTable());
+        if (rewritten.isEmpty()) {
+            queries.get("not_applicable").increment();
+            return sql;
+        }
+        if (!ready) {
+            queries.get("unavailable").increment();
+            return sql;
+        }
+        String version = dataVersionService.currentVersion();
+        if (DataVersionService.UNKNOWN.equals(version) || !version.equals(builtVersion)) {
+            queries.get("stale").increment();
+            executor.execute(this::refreshIfStale);
+            return sql;
+        }
+
+        queries.get("rewritten").increment();
+        log.debug("SQL 改写为查询汇总表: {}", rewritten.get());
+        if (ThreadLocalRandom.current().nextDouble() < properties.getVerifySampleRate()) {
+            executor.execute(() -> verify(sql, rewritten.get()));
+        }
+        return rewritten.get();
+    }
+
+    /**
+     * 定时检查数据版本，汇总表不存在或数据已变化时重建
+     */
+    @Scheduled(fixedDelayString = "${report.rollup.refresh-interval-ms:600000}", initialDelay = 30000)
+    public void refreshIfStale() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String version = dataVersionService.currentVersion();
+        if (!ready || DataVersionService.UNKNOWN.equals(version) || !version.equals(builtVersion)) {
+            refresh();
+        }
+    }
+
+    /**
+     * 立即重建汇总表
+     *
+     * @return 是否成功
+     */
+    public synchronized boolean refresh() {
+        String table = properties.getTable();
+        long start = System.currentTimeMillis();
+        try {
+            // 以开始构建时的数据版本标记汇总表，构建期间数据变化会在下次检查时再次重建
+            String version = dataVersionService.probe();
+            for (String statement : buildStatements(table)) {
+                mcpToolService.executeSql(statement);
+            }
+            List<Map<String, Object>> count = mcpToolService.queryForRows(
+                    "SELECT COUNT(*) AS rollup_rows FROM " + table);
+            if (count.isEmpty()) {
+                throw new IllegalStateException("无法读取汇总表 " + table);
+            }
+            rows = new BigDecimal(String.valueOf(count.get(0).get("rollup_rows"))).longValue();
+            builtVersion = version;
+            builtAt = Instant.now();
+            ready = true;
+            log.info("汇总表 {} 重建完成，{} 行，数据版本 {}，耗时 {} ms", table, rows, version,
+                    System.currentTimeMillis() - start);
+            return true;
+        } catch (Exception e) {
+            ready = false;
+            log.warn("汇总表 {} 重建失败，查询按原表执行: {}", table, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 汇总表状态和改写命中率
+     *
+     * @return 状态
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", properties.isEnabled());
+        status.put("table", properties.getTable());
+        status.put("ready", ready);
+        status.put("rows", rows);
+        status.put("builtVersion", builtVersion);
+        status.put("builtAt", builtAt != null ? builtAt.toString() : null);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        queries.forEach((outcome, counter) -> counts.put(outcome, (long) counter.count()));
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        status.put("queries", counts);
+        status.put("hitRate", total == 0 ? 0.0 : (double) counts.get("rewritten") / total);
+        return status;
+    }
+
+    /**
+     * 在原表和汇总表上分别执行查询并比对（数值按两位小数比较，行顺序不影响结果）
+     */
+    private void verify(String original, String rewritten) {
+        String outcome;
+        try {
+            List<String> expected = canonical(mcpToolService.queryForRows(original));
+            List<String> actual = canonical(mcpToolService.queryForRows(rewritten));
+            if (expected.equals(actual)) {
+                outcome = "match";
+            } else {
+                outcome = "mismatch";
+                ready = false;
+                log.warn("汇总表查询结果与原表不一致，停用汇总表并重建。原SQL: {}，改写SQL: {}，原表 {} 行，汇总表 {} 行",
+                        original, rewritten, expected.size(), actual.size());
+                executor.execute(this::refresh);
+            }
+        } catch (Exception e) {
+            outcome = "error";
+            log.warn("汇总表结果比对失败: {}", e.getMessage());
+        }
+        Counter.builder("report.rollup.verifications")
+                .description("汇总表改写结果与原表的比对次数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static List<String> canonical(List<Map<String, Object>> rows) {
+        return rows.stream()
+                .map(row -> row.values().stream().map(RollupManager::normalize).toList().toString())
+                .sorted()
+                .toList();
+    }
+
+    private static String normalize(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        String text = String.valueOf(value);
+        try {
+            return new BigDecimal(text).setScale(2, RoundingMode.HALF_UP).toPlainString();
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+
+    /**
+     * 重建语句：写入临时表后原子替换，sales_date 为空的行归入 month_start 为空的分组
+     */
+    private static List<String> buildStatements(String table) {
+        String build = table + "_build";
+        String old = table + "_old";
+        return List.of(
+                "DROP TABLE IF EXISTS " + build,
+                "CREATE TABLE " + build + " ("
+                        + "month_start DATE, dept_id INT, product_id INT, "
+                        + "amount_sum DECIMAL(20,2), amount_count BIGINT NOT NULL, row_count BIGINT NOT NULL, "
+                        + "KEY idx_month (month_start), KEY idx_dept (dept_id), KEY idx_product (product_id))",
+                "INSERT INTO " + build + " (month_start, dept_id, product_id, amount_sum, amount_count, row_count) "
+                        + "SELECT DATE_FORMAT(sales_date, '%Y-%m-01'), dept_id, product_id, "
+                        + "SUM(sales_amount), COUNT(sales_amount), COUNT(*) FROM sales "
+                        + "GROUP BY DATE_FORMAT(sales_date, '%Y-%m-01'), dept_id, product_id",
+                "CREATE TABLE IF NOT EXISTS " + table + " LIKE " + build,
+                "RENAME TABLE " + table + " TO " + old + ", " + build + " TO " + table,
+                "DROP TABLE IF EXISTS " + old
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,349 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.SchemaProperties;
+import com.sdecloud.dubhe.ai.report.model.ColumnMetadata;
+import com.sdecloud.dubhe.ai.report.model.TableMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 数据库Schema元数据服务
+ * 通过 mysqlDataQuery 工具读取 information_schema 并缓存，按问题关联相关的表和列，
+ * 使 NL2SQL Prompt 只携带裁剪后的表结构
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+public class SchemaMetadataService {
+
+    private static final String COLUMNS_SQL = """
+            SELECT c.TABLE_NAME, c.COLUMN_NAME, c.COLUMN_TYPE, c.COLUMN_KEY, c.COLUMN_COMMENT, t.TABLE_COMMENT \
+            FROM information_schema.COLUMNS c \
+            JOIN information_schema.TABLES t ON t.TABLE_SCHEMA = c.TABLE_SCHEMA AND t.TABLE_NAME = c.TABLE_NAME \
+            WHERE c.TABLE_SCHEMA = DATABASE() AND t.TABLE_TYPE = 'BASE TABLE' \
+            ORDER BY c.TABLE_NAME, c.ORDINAL_POSITION;""";
+
+    private static final String FOREIGN_KEYS_SQL = """
+            SELECT TABLE_NAME, COLUMN_NAME, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME \
+            FROM information_schema.KEY_COLUMN_USAGE \
+            WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_NAME IS NOT NULL;""";
+
+    private final McpToolService mcpToolService;
+    private final SchemaProperties schemaProperties;
+
+    /** 缓存的表结构，key 为小写表名 */
+    private volatile Map<String, TableMetadata> tables = Collections.emptyMap();
+    private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "schema-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SchemaMetadataService(McpToolService mcpToolService, SchemaProperties schemaProperties) {
+        this.mcpToolService = mcpToolService;
+        this.schemaProperties = schemaProperties;
+    }
+
+    /**
+     * 应用启动时在后台加载表结构，不阻塞 Spring 上下文启动
+     */
+    @PostConstruct
+    public void warmUp() {
+        loader.execute(this::load);
+    }
+
+    /**
+     * 首次加载，MCP 连接尚未建立等原因未读取到表结构时按间隔重试
+     */
+    private void load() {
+        refresh();
+        if (schemaProperties.isEnabled() && tables.isEmpty()) {
+            loader.schedule(this::load, schemaProperties.getLoadRetryMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 获取缓存的全部表结构，首次加载完成前为空（NL2SQL 使用静态表结构）
+     *
+     * @return 表结构列表
+     */
+    public List<TableMetadata> getTables() {
+        return new ArrayList<>(tables.values());
+    }
+
+    /**
+     * 定时刷新表结构缓存
+     * 加载失败时保留旧缓存，等待下次刷新
+     */
+    @Scheduled(fixedDelayString = "${report.schema.refresh-interval-ms:1800000}",
+            initialDelayString = "${report.schema.refresh-interval-ms:1800000}")
+    public synchronized void refresh() {
+        if (!schemaProperties.isEnabled()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<Map<String, Object>> columnRows = mcpToolService.queryForRows(COLUMNS_SQL);
+            if (columnRows.isEmpty()) {
+                log.warn("未从 information_schema 读取到表结构，继续使用现有缓存");
+                return;
+            }
+
+            Set<String> excluded = schemaProperties.getExcludedTables().stream()
+                    .map(t -> t.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            Map<String, TableMetadata> loaded = new LinkedHashMap<>();
+            for (Map<String, Object> row : columnRows) {
+                String tableName = valueOf(row, "TABLE_NAME");
+                if (excluded.contains(tableName.toLowerCase(Locale.ROOT))) {
+                    continue;
+                }
+                TableMetadata table = loaded.computeIfAbsent(tableName.toLowerCase(Locale.ROOT), k -> {
+                    TableMetadata t = new TableMetadata();
+                    t.setName(tableName);
+                    t.setComment(valueOf(row, "TABLE_COMMENT"));
+                    return t;
+                });
+                ColumnMetadata column = new ColumnMetadata();
+                column.setName(valueOf(row, "COLUMN_NAME"));
+                column.setType(valueOf(row, "COLUMN_TYPE").toUpperCase(Locale.ROOT));
+                column.setPrimaryKey("PRI".equalsIgnoreCase(valueOf(row, "COLUMN_KEY")));
+                column.setComment(valueOf(row, "COLUMN_COMMENT"));
+                table.getColumns().add(column);
+            }
+
+            for (Map<String, Object> row : mcpToolService.queryForRows(FOREIGN_KEYS_SQL)) {
+                TableMetadata table = loaded.get(valueOf(row, "TABLE_NAME").toLowerCase(Locale.ROOT));
+                if (table == null) {
+                    continue;
+                }
+                String columnName = valueOf(row, "COLUMN_NAME");
+                table.getColumns().stream()
+                        .filter(c -> c.getName().equalsIgnoreCase(columnName))
+                        .forEach(c -> {
+                            c.setReferencedTable(valueOf(row, "REFERENCED_TABLE_NAME"));
+                            c.setReferencedColumn(valueOf(row, "REFERENCED_COLUMN_NAME"));
+                        });
+            }
+
+            tables = loaded;
+            log.info("表结构缓存刷新完成，共 {} 张表，耗时 {} ms", loaded.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("表结构缓存刷新失败，继续使用现有缓存: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 根据问题裁剪出相关的表结构并渲染为 DDL
+     *
+     * @param question 用户问题
+     * @return 相关表的 DDL，元数据不可用时返回 null
+     */
+    public String renderRelevantSchema(String question) {
+        List<TableMetadata> all = getTables();
+        if (all.isEmpty()) {
+            return null;
+        }
+
+        String q = question.toLowerCase(Locale.ROOT);
+        Map<String, Set<String>> matchedColumns = new LinkedHashMap<>();
+        for (TableMetadata table : all) {
+            Set<String> columns = new HashSet<>();
+            boolean tableMatched = matchesAny(q, tableTerms(table));
+            for (ColumnMetadata column : table.getColumns()) {
+                if (matchesAny(q, columnTerms(column))) {
+                    columns.add(column.getName());
+                }
+            }
+            if (tableMatched || !columns.isEmpty()) {
+                matchedColumns.put(table.getName().toLowerCase(Locale.ROOT), columns);
+            }
+        }
+
+        Set<String> selected = completeJoinPath(all, matchedColumns.keySet());
+        if (selected.isEmpty()) {
+            // 未关联到任何表时按外键关联度取前 N 张表
+            Map<String, Integer> degree = foreignKeyDegrees(all);
+            all.stream()
+                    .sorted(Comparator.comparingInt((TableMetadata t) -> degree.getOrDefault(t.getName(), 0)).reversed())
+                    .limit(schemaProperties.getMaxTables())
+                    .forEach(t -> selected.add(t.getName().toLowerCase(Locale.ROOT)));
+        }
+
+        StringBuilder ddl = new StringBuilder();
+        selected.stream().limit(schemaProperties.getMaxTables()).forEach(name -> {
+            TableMetadata table = tables.get(name);
+            if (table != null) {
+                appendDdl(ddl, table, matchedColumns.getOrDefault(name, Collections.emptySet()));
+            }
+        });
+        log.debug("问题关联到 {} 张表: {}", selected.size(), selected);
+        return ddl.toString().trim();
+    }
+
+    /**
+     * 补全关联路径：引用多个已选表的桥接表，以及只选中维度表时引用它的事实表
+     */
+    private Set<String> completeJoinPath(List<TableMetadata> all, Set<String> matched) {
+        Set<String> selected = new LinkedHashSet<>(matched);
+        if (matched.isEmpty()) {
+            return selected;
+        }
+        boolean factMatched = all.stream()
+                .filter(t -> matched.contains(t.getName().toLowerCase(Locale.ROOT)))
+                .anyMatch(t -> t.getColumns().stream().anyMatch(c -> c.getReferencedTable() != null));
+
+        for (TableMetadata table : all) {
+            String name = table.getName().toLowerCase(Locale.ROOT);
+            if (selected.contains(name)) {
+                continue;
+            }
+            long references = table.getColumns().stream()
+                    .map(ColumnMetadata::getReferencedTable)
+                    .filter(ref -> ref != null && matched.contains(ref.toLowerCase(Locale.ROOT)))
+                    .distinct()
+                    .count();
+            if (references >= 2 || (references == 1 && !factMatched)) {
+                selected.add(name);
+            }
+        }
+        return selected;
+    }
+
+    private void appendDdl(StringBuilder ddl, TableMetadata table, Set<String> matchedColumns) {
+        List<ColumnMetadata> columns = table.getColumns();
+        int omitted = 0;
+        if (columns.size() > schemaProperties.getMaxColumnsPerTable()) {
+            List<ColumnMetadata> kept = new ArrayList<>();
+            for (ColumnMetadata column : columns) {
+                boolean key = column.isPrimaryKey() || column.getReferencedTable() != null
+                        || matchedColumns.contains(column.getName());
+                if (key || kept.size() < schemaProperties.getMaxColumnsPerTable()) {
+                    kept.add(column);
+                }
+            }
+            omitted = columns.size() - kept.size();
+            columns = kept;
+        }
+
+        if (table.getComment() != null && !table.getComment().isBlank()) {
+            ddl.append("-- ").append(singleLine(table.getComment())).append('\n');
+        }
+        ddl.append("CREATE TABLE ").append(table.getName()).append(" (\n");
+        List<String> lines = new ArrayList<>();
+        for (ColumnMetadata column : columns) {
+            StringBuilder line = new StringBuilder("    ").append(column.getName()).append(' ').append(column.getType());
+            if (column.isPrimaryKey()) {
+                line.append(" PRIMARY KEY");
+            }
+            if (column.getComment() != null && !column.getComment().isBlank()) {
+                line.append(" COMMENT '").append(singleLine(column.getComment()).replace("'", "''")).append('\'');
+            }
+            lines.add(line.toString());
+        }
+        for (ColumnMetadata column : columns) {
+            if (column.getReferencedTable() != null) {
+                lines.add(String.format("    FOREIGN KEY (%s) REFERENCES %s(%s)",
+                        column.getName(), column.getReferencedTable(), column.getReferencedColumn()));
+            }
+        }
+        ddl.append(String.join(",\n", lines)).append("\n);\n");
+        if (omitted > 0) {
+            ddl.append("-- 其余 ").append(omitted).append(" 列与问题无关，已省略\n");
+        }
+        ddl.append('\n');
+    }
+
+    /**
+     * 注释中的换行会打断渲染的 DDL，替换为空格
+     */
+    private static String singleLine(String comment) {
+        return comment.replaceAll("\\s*[\\r\\n]+\\s*", " ");
+    }
+
+    private List<String> tableTerms(TableMetadata table) {
+        List<String> terms = new ArrayList<>();
+        terms.add(table.getName());
+        terms.addAll(schemaProperties.getAliases().getOrDefault(table.getName(), Collections.emptyList()));
+        terms.addAll(commentTerms(table.getComment()));
+        return terms;
+    }
+
+    private List<String> columnTerms(ColumnMetadata column) {
+        List<String> terms = new ArrayList<>();
+        // 过短的列名（如 id）容易误匹配
+        if (column.getName().length() >= 3) {
+            terms.add(column.getName());
+        }
+        terms.addAll(commentTerms(column.getComment()));
+        return terms;
+    }
+
+    private static List<String> commentTerms(String comment) {
+        List<String> terms = new ArrayList<>();
+        if (comment == null || comment.isBlank()) {
+            return terms;
+        }
+        for (String term : comment.split("[\\s,，。;；:：()（）/、]+")) {
+            if (term.length() >= 2) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean matchesAny(String question, List<String> terms) {
+        return terms.stream().anyMatch(term -> question.contains(term.toLowerCase(Locale.ROOT)));
+    }
+
+    private static Map<String, Integer> foreignKeyDegrees(List<TableMetadata> all) {
+        Map<String, Integer> degree = new HashMap<>();
+        for (TableMetadata t : all) {
+            for (ColumnMetadata c : t.getColumns()) {
+                if (c.getReferencedTable() != null) {
+                    degree.merge(t.getName(), 1, Integer::sum);
+                    degree.merge(c.getReferencedTable(), 1, Integer::sum);
+                }
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * 大小写不敏感地读取列值（不同 MySQL 版本返回的列名大小写不一致）
+     */
+    private static String valueOf(Map<String, Object> row, String key) {
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(key)) {
+                return entry.getValue() != null ? String.valueOf(entry.getValue()) : "";
+            }
+        }
+        return "";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,72 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.SessionProperties;
+import com.sdecloud.dubhe.ai.report.util.ExpiringLruCache;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 会话存储
+ * 每个会话只保留最后一轮的问题、SQL、查询结果（含解析后的行）和摘要；
+ * 按会话数量做 LRU 淘汰，超过保留时间未提问的会话失效
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Service
+public class SessionStore {
+
+    private final ExpiringLruCache<String, Turn> sessions;
+
+    public SessionStore(SessionProperties properties) {
+        // 读取不延长保留时间，会话按最后一次提问的时间过期
+        this.sessions = new ExpiringLruCache<>(properties.getMaxSessions(), properties.getTtlMs(), false);
+    }
+
+    /**
+     * 会话的最后一轮
+     *
+     * @param sessionId 会话ID
+     * @return 最后一轮，会话不存在或已过期时为空
+     */
+    public Optional<Turn> last(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * 记录会话的最新一轮，同时清理过期会话并按数量淘汰
+     *
+     * @param sessionId 会话ID
+     * @param turn      最新一轮
+     */
+    public void put(String sessionId, Turn turn) {
+        sessions.put(sessionId, turn);
+    }
+
+    /**
+     * 结束会话
+     *
+     * @param sessionId 会话ID
+     * @return 会话是否存在
+     */
+    public boolean remove(String sessionId) {
+        return sessions.remove(sessionId);
+    }
+
+    /**
+     * 会话的一轮问答
+     *
+     * @param baseQuestion 会话中最近一次完整执行的问题
+     * @param question     本轮问题（追问时为 baseQuestion 加本轮追问）
+     * @param sql          本轮结果对应的 SQL
+     * @param queryResult  查询结果（落盘的大结果只保留前若干行）
+     * @param rows         解析后的结果行，结果不是 JSON 行或行数过多时为 null
+     * @param summary      结果摘要
+     */
+    public record Turn(String baseQuestion, String question, String sql, String queryResult,
+                       List<Map<String, Object>> rows, String summary) {
+    }
+}
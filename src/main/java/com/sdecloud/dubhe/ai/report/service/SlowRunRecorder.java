@@ -0,0 +1,164 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdecloud.dubhe.ai.report.config.FlightRecorderProperties;
+import com.sdecloud.dubhe.ai.report.jfr.ChatCallEvent;
+import com.sdecloud.dubhe.ai.report.jfr.McpToolCallEvent;
+import com.sdecloud.dubhe.ai.report.jfr.NodeExecutionEvent;
+import com.sdecloud.dubhe.ai.report.jfr.PandocConversionEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 慢请求录制器
+ * 启动后以低开销配置持续进行 JFR 录制（只保留最近一段时间），报告运行耗时超过阈值时转储 JFR 快照，
+ * 并写出该运行的状态键摘要，事后可在 JDK Mission Control 中按运行ID查看节点、大模型、MCP 和 Pandoc 事件
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class SlowRunRecorder {
+
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final FlightRecorderProperties properties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong lastDumpAt = new AtomicLong();
+    private final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "slow-run-recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Recording recording;
+
+    public SlowRunRecorder(FlightRecorderProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 启动持续录制
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled() || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration(properties.getSettings()));
+            continuous.setName("ai-report-continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(properties.getMaxAge());
+            continuous.setMaxSize(properties.getMaxSizeMb() * 1024L * 1024L);
+            continuous.enable(NodeExecutionEvent.class);
+            continuous.enable(ChatCallEvent.class);
+            continuous.enable(McpToolCallEvent.class);
+            continuous.enable(PandocConversionEvent.class);
+            continuous.start();
+            this.recording = continuous;
+            log.info("JFR 持续录制已启动，配置: {}，慢请求阈值: {} ms", properties.getSettings(),
+                    properties.getSlowThresholdMs());
+        } catch (Exception e) {
+            log.warn("启动 JFR 持续录制失败，慢请求转储不可用: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一次运行的耗时，超过阈值时异步转储 JFR 快照和状态键摘要
+     *
+     * @param runId     运行ID
+     * @param kind      运行类型（report、reactive-report、query 等）
+     * @param elapsedMs 耗时（毫秒）
+     * @param state     运行结束时的状态
+     */
+    public void record(String runId, String kind, long elapsedMs, Map<String, Object> state) {
+        Recording current = recording;
+        if (current == null || elapsedMs < properties.getSlowThresholdMs()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastDumpAt.get();
+        if (now - last < properties.getMinDumpIntervalMs() || !lastDumpAt.compareAndSet(last, now)) {
+            log.warn("慢请求 {}（{}）耗时 {} ms，距上次转储过近，跳过转储", runId, kind, elapsedMs);
+            return;
+        }
+        Map<String, Object> summary = summarize(state);
+        dumpExecutor.execute(() -> dump(current, runId, kind, elapsedMs, summary));
+    }
+
+    private void dump(Recording current, String runId, String kind, long elapsedMs, Map<String, Object> summary) {
+        try {
+            Path dir = Paths.get(properties.getDumpDir());
+            Files.createDirectories(dir);
+            String base = LocalDateTime.now().format(FILE_NAME_FORMATTER) + "_" + kind + "_" + runId;
+            Path jfrFile = dir.resolve(base + ".jfr");
+            current.dump(jfrFile);
+
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("runId", runId);
+            info.put("kind", kind);
+            info.put("elapsedMs", elapsedMs);
+            info.put("thresholdMs", properties.getSlowThresholdMs());
+            info.put("jfrFile", jfrFile.getFileName().toString());
+            info.put("state", summary);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(dir.resolve(base + ".json").toFile(), info);
+            log.warn("慢请求 {}（{}）耗时 {} ms，已转储: {}", runId, kind, elapsedMs, jfrFile);
+        } catch (Exception e) {
+            log.warn("慢请求转储失败: {}, {}", runId, e.getMessage());
+        }
+    }
+
+    /**
+     * 状态键摘要：布尔和数值原样保留，字符串截断并记录长度，集合记录大小
+     */
+    private Map<String, Object> summarize(Map<String, Object> state) {
+        Map<String, Object> summary = new TreeMap<>();
+        if (state == null) {
+            return summary;
+        }
+        state.forEach((key, value) -> {
+            if (value == null || value instanceof Boolean || value instanceof Number) {
+                summary.put(key, value);
+            } else if (value instanceof String text) {
+                int max = properties.getStateValueMaxChars();
+                summary.put(key, Map.of("length", text.length(),
+                        "value", text.length() > max ? text.substring(0, max) + "..." : text));
+            } else if (value instanceof Collection<?> collection) {
+                summary.put(key, Map.of("type", value.getClass().getSimpleName(), "size", collection.size()));
+            } else if (value instanceof Map<?, ?> map) {
+                summary.put(key, Map.of("type", value.getClass().getSimpleName(), "size", map.size()));
+            } else {
+                summary.put(key, Map.of("type", value.getClass().getSimpleName()));
+            }
+        });
+        return summary;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dumpExecutor.shutdownNow();
+        Recording current = recording;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.model.ColumnMetadata;
+import com.sdecloud.dubhe.ai.report.model.TableMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * SQL 校验服务
+ * 对模型生成的 SQL 做轻量校验（只读、单条、括号匹配），并用缓存的表结构检查表名和带表别名的列名；
+ * 表结构未加载时可选通过 EXPLAIN 让数据库校验，避免每次校验都多一次 MCP 调用
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class SqlValidator {
+
+    private static final Pattern CODE_FENCE = Pattern.compile("^```(?:sql)?\\s*|\\s*```$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern EXPLAIN_ERROR = Pattern.compile(
+            "(?i)(error|exception|unknown column|doesn't exist|syntax|错误|失败)");
+    /** 字符串字面量（支持 '' 和反斜杠转义） */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'|\"(?:[^\"\\\\]|\\\\.|\"\")*\"");
+    private static final Pattern TABLE_REFERENCE = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+(?:`?\\w+`?\\s*\\.\\s*)?`?(\\w+)`?(?:\\s+(?:AS\\s+)?`?(\\w+)`?)?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CTE_NAME = Pattern.compile("\\b(\\w+)\\s+AS\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern QUALIFIED_COLUMN = Pattern.compile("`?(\\w+)`?\\s*\\.\\s*`?(\\w+)`?");
+    private static final Set<String> KEYWORDS = Set.of("where", "join", "left", "right", "inner", "outer", "cross",
+            "natural", "straight_join", "on", "using", "group", "order", "having", "limit", "union", "select",
+            "window", "lateral");
+
+    private final McpToolService mcpToolService;
+    private final SchemaMetadataService schemaMetadataService;
+
+    public SqlValidator(McpToolService mcpToolService, SchemaMetadataService schemaMetadataService) {
+        this.mcpToolService = mcpToolService;
+        this.schemaMetadataService = schemaMetadataService;
+    }
+
+    /**
+     * 校验 SQL
+     *
+     * @param sql     模型生成的 SQL
+     * @param explain 表结构未加载、无法在本地校验表名和列名时是否执行 EXPLAIN
+     * @return 校验失败原因，通过时为空
+     */
+    public Optional<String> validate(String sql, boolean explain) {
+        if (sql == null || sql.isBlank()) {
+            return Optional.of("SQL为空");
+        }
+        String statement = CODE_FENCE.matcher(sql.trim()).replaceAll("").trim().replaceAll(";+$", "").trim();
+        String upper = statement.toUpperCase(Locale.ROOT);
+        if (!upper.startsWith("SELECT") && !upper.startsWith("WITH")) {
+            return Optional.of("不是查询语句");
+        }
+        // 字符串字面量中的分号、括号不影响语句结构
+        String structure = STRING_LITERAL.matcher(statement).replaceAll("''");
+        if (structure.contains(";")) {
+            return Optional.of("包含多条语句");
+        }
+        if (!parenthesesBalanced(structure)) {
+            return Optional.of("括号不匹配");
+        }
+
+        List<TableMetadata> tables = schemaMetadataService.getTables();
+        if (!tables.isEmpty()) {
+            return checkIdentifiers(structure, tables);
+        }
+        if (!explain) {
+            return Optional.empty();
+        }
+
+        try {
+            String output = mcpToolService.executeSql("EXPLAIN " + statement);
+            if (output == null || EXPLAIN_ERROR.matcher(output).find()) {
+                return Optional.of("EXPLAIN 失败: " + output);
+            }
+        } catch (Exception e) {
+            // 数据库不可用时不以此判定 SQL 无效
+            log.warn("EXPLAIN 校验不可用: {}", e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 用缓存的表结构检查 FROM / JOIN 的表名，以及以表名或表别名限定的列名
+     * CTE、派生表等本地无法确定的引用不判定为无效
+     */
+    private static Optional<String> checkIdentifiers(String sql, List<TableMetadata> tables) {
+        Map<String, Set<String>> columnsByTable = new HashMap<>();
+        for (TableMetadata table : tables) {
+            columnsByTable.put(table.getName().toLowerCase(Locale.ROOT), table.getColumns().stream()
+                    .map(ColumnMetadata::getName)
+                    .map(c -> c.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet()));
+        }
+        Set<String> ctes = CTE_NAME.matcher(sql).results()
+                .map(m -> m.group(1).toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        Set<String> allColumns = columnsByTable.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+
+        Map<String, String> aliases = new HashMap<>();
+        Matcher reference = TABLE_REFERENCE.matcher(sql);
+        while (reference.find()) {
+            String table = reference.group(1).toLowerCase(Locale.ROOT);
+            // EXTRACT(YEAR FROM sales_date)、SUBSTRING(x FROM 2) 等函数参数中的 FROM 不是表引用
+            if (ctes.contains(table) || allColumns.contains(table) || table.chars().allMatch(Character::isDigit)) {
+                continue;
+            }
+            if (!columnsByTable.containsKey(table)) {
+                return Optional.of("未知表 " + reference.group(1));
+            }
+            aliases.put(table, table);
+            String alias = reference.group(2);
+            if (alias != null && !KEYWORDS.contains(alias.toLowerCase(Locale.ROOT))) {
+                aliases.put(alias.toLowerCase(Locale.ROOT), table);
+            }
+        }
+
+        Matcher column = QUALIFIED_COLUMN.matcher(sql);
+        while (column.find()) {
+            String table = aliases.get(column.group(1).toLowerCase(Locale.ROOT));
+            if (table != null && !columnsByTable.get(table).contains(column.group(2).toLowerCase(Locale.ROOT))) {
+                return Optional.of("未知列 " + column.group(1) + "." + column.group(2));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean parenthesesBalanced(String sql) {
+        int depth = 0;
+        boolean quoted = false;
+        char quote = 0;
+        for (char c : sql.toCharArray()) {
+            if (quoted) {
+                quoted = c != quote;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quoted = true;
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+}
@@ -0,0 +1,143 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.DecompositionProperties;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 子查询执行器
+ * 复合问题拆分出的子查询并发生成 SQL 和执行，总耗时取决于最慢的子查询；
+ * 并发度按每次调用限制（最多 concurrency 个线程依次领取任务），所有请求共享有界线程池（max-threads 个线程，
+ * 排队上限 queue-capacity），排队已满时不再提交新的工作任务，一个都未提交成功时子查询在调用线程上依次执行。
+ * 超时或出错时中断仍在执行的任务；任务继承调用线程的运行上下文和大模型调用优先级
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+@Service
+public class SubQueryExecutor {
+
+    private final DecompositionProperties properties;
+    private final ExecutorService executor;
+
+    public SubQueryExecutor(DecompositionProperties properties) {
+        this.properties = properties;
+        AtomicInteger sequence = new AtomicInteger();
+        // 线程和排队任务都有上限，空闲线程 60 秒后回收；已满时快速失败，由 invokeAll 在调用线程执行
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(properties.getMaxThreads(), properties.getMaxThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), r -> {
+            Thread thread = new Thread(r, "sub-query-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * 并发执行任务并按提交顺序返回结果，只有一个任务时在当前线程执行
+     *
+     * @param tasks 任务
+     * @return 各任务结果
+     */
+    public <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        if (tasks.size() == 1) {
+            return List.of(tasks.get(0).get());
+        }
+        RunContext.Run run = RunContext.current();
+        ChatPriority priority = ChatPriority.current();
+        Object[] results = new Object[tasks.size()];
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(properties.getConcurrency(), tasks.size());
+        List<Future<?>> futures = new ArrayList<>(workers);
+        Runnable worker = () -> {
+            try (RunContext.Scope ignored = RunContext.enter(run)) {
+                for (int i = next.getAndIncrement(); i < tasks.size(); i = next.getAndIncrement()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    results[i] = ChatPriority.call(priority, tasks.get(i));
+                }
+            }
+        };
+        for (int w = 0; w < workers; w++) {
+            try {
+                futures.add(executor.submit(worker));
+            } catch (RejectedExecutionException e) {
+                // 线程池和队列已满，已提交的工作任务会领取全部子查询
+                break;
+            }
+        }
+        if (futures.isEmpty()) {
+            log.warn("子查询线程池已满，{} 个子查询在当前线程依次执行", tasks.size());
+            worker.run();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new ReportGenerationException("SUB_QUERY_INTERRUPTED", run.node(), "子查询被中断");
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getTimeoutMs());
+        try {
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            cancel(futures);
+            throw new ReportGenerationException("SUB_QUERY_TIMEOUT", run.node(),
+                    "子查询超过 " + properties.getTimeoutMs() + " ms 未完成");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new ReportGenerationException("SUB_QUERY_INTERRUPTED", run.node(), "子查询被中断", e);
+        } catch (ExecutionException e) {
+            // 一个任务失败时整组失败，中断其余任务
+            cancel(futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new ReportGenerationException("SUB_QUERY_ERROR", run.node(), String.valueOf(cause.getMessage()), cause);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * 取消并中断仍在执行的任务
+     */
+    private static void cancel(List<Future<?>> futures) {
+        futures.forEach(f -> f.cancel(true));
+    }
+
+    /**
+     * 响应式调用链中子查询的并发度
+     */
+    public int concurrency() {
+        return properties.getConcurrency();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,506 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 列式结果集
+ * 查询结果按列存放在基本类型数组中：数值列为 double[]（空值为 NaN），文本列按字典编码为 int[]（空值为 -1）。
+ * 筛选、分组聚合、排序都在行号数组上进行，文本列的条件先在字典上求值一次，再按编码扫描
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class ColumnarTable {
+
+    private static final Set<String> AGGREGATE_FUNCTIONS = Set.of("sum", "avg", "min", "max", "count");
+
+    private final List<String> names;
+    private final Map<String, Column> columns;
+    private final int rowCount;
+
+    private ColumnarTable(List<String> names, Map<String, Column> columns, int rowCount) {
+        this.names = names;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * 从行数据构建：所有非空值都是数值（或可解析为数值的文本）的列为数值列，其余为文本列
+     *
+     * @param rows 行数据（列名 → 值）
+     * @return 列式结果集
+     */
+    public static ColumnarTable fromRows(List<Map<String, Object>> rows) {
+        Set<String> names = new LinkedHashSet<>();
+        rows.forEach(row -> names.addAll(row.keySet()));
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (String name : names) {
+            columns.put(name, numeric(rows, name) ? NumberColumn.of(rows, name) : StringColumn.of(rows, name));
+        }
+        return new ColumnarTable(new ArrayList<>(names), columns, rows.size());
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public List<String> columnNames() {
+        return names;
+    }
+
+    /**
+     * 全部行号
+     */
+    public int[] allRows() {
+        return IntStream.range(0, rowCount).toArray();
+    }
+
+    /**
+     * 按条件筛选行
+     *
+     * @param selection 候选行号
+     * @param column    列名
+     * @param op        条件：eq、ne、in、gt、gte、lt、lte、between、contains
+     * @param values    条件值（between 为上下限）
+     * @return 满足条件的行号
+     */
+    public int[] filter(int[] selection, String column, String op, List<Object> values) {
+        Column col = column(column);
+        Operator operator = Operator.of(op);
+        if (values == null || values.isEmpty() || (operator == Operator.BETWEEN && values.size() < 2)) {
+            throw new IllegalArgumentException("条件 " + op + " 缺少取值: " + column);
+        }
+        return col.filter(selection, operator, values);
+    }
+
+    /**
+     * 分组聚合
+     *
+     * @param selection  参与聚合的行号
+     * @param groupBy    分组列，为空时整体聚合为一行
+     * @param aggregates 聚合项
+     * @return 聚合结果（分组列 + 聚合列）
+     * @throws ArithmeticException 各分组列基数之积超出 long 范围（分组组合过多）
+     */
+    public ColumnarTable aggregate(int[] selection, List<String> groupBy, List<Aggregate> aggregates) {
+        List<Column> groupColumns = groupBy.stream().map(this::column).toList();
+
+        // 1. 每个分组列的行编码和基数，按混合进制合成分组键
+        int[][] codes = new int[groupColumns.size()][];
+        long[] radix = new long[groupColumns.size()];
+        for (int g = 0; g < groupColumns.size(); g++) {
+            codes[g] = new int[rowCount];
+            radix[g] = groupColumns.get(g).encode(selection, codes[g]);
+        }
+        Map<Long, Integer> groupIndex = new HashMap<>();
+        int[] groupOf = new int[selection.length];
+        int[] firstRow = new int[selection.length];
+        for (int i = 0; i < selection.length; i++) {
+            int row = selection[i];
+            long key = 0;
+            for (int g = 0; g < codes.length; g++) {
+                key = Math.addExact(Math.multiplyExact(key, radix[g]), codes[g][row]);
+            }
+            Integer group = groupIndex.get(key);
+            if (group == null) {
+                group = groupIndex.size();
+                groupIndex.put(key, group);
+                firstRow[group] = row;
+            }
+            groupOf[i] = group;
+        }
+        int groups = groupBy.isEmpty() ? 1 : groupIndex.size();
+
+        // 2. 聚合
+        List<String> outNames = new ArrayList<>(groupBy);
+        Map<String, Column> outColumns = new LinkedHashMap<>();
+        int[] firstRows = Arrays.copyOf(firstRow, groups);
+        for (int g = 0; g < groupColumns.size(); g++) {
+            outColumns.put(groupBy.get(g), groupColumns.get(g).subset(firstRows));
+        }
+        for (Aggregate aggregate : aggregates) {
+            String alias = aggregate.alias();
+            outNames.add(alias);
+            outColumns.put(alias, new NumberColumn(aggregate(selection, groupOf, groups, aggregate)));
+        }
+        return new ColumnarTable(outNames, outColumns, groups);
+    }
+
+    private double[] aggregate(int[] selection, int[] groupOf, int groups, Aggregate aggregate) {
+        String function = aggregate.function() == null ? "" : aggregate.function().toLowerCase(Locale.ROOT);
+        if (!AGGREGATE_FUNCTIONS.contains(function)) {
+            throw new IllegalArgumentException("不支持的聚合函数: " + aggregate.function());
+        }
+        boolean countAll = "count".equals(function) && ("*".equals(aggregate.column()) || aggregate.column() == null);
+        double[] values = countAll ? null : numberColumn(aggregate.column()).values;
+        double[] result = new double[groups];
+        long[] counts = new long[groups];
+        if ("min".equals(function) || "max".equals(function)) {
+            Arrays.fill(result, Double.NaN);
+        }
+        for (int i = 0; i < selection.length; i++) {
+            int group = groupOf[i];
+            if (countAll) {
+                counts[group]++;
+                continue;
+            }
+            double v = values[selection[i]];
+            if (Double.isNaN(v)) {
+                continue;
+            }
+            counts[group]++;
+            switch (function) {
+                case "sum", "avg" -> result[group] += v;
+                case "min" -> result[group] = Double.isNaN(result[group]) ? v : Math.min(result[group], v);
+                case "max" -> result[group] = Double.isNaN(result[group]) ? v : Math.max(result[group], v);
+                default -> {
+                }
+            }
+        }
+        for (int group = 0; group < groups; group++) {
+            switch (function) {
+                case "count" -> result[group] = counts[group];
+                case "avg" -> result[group] = counts[group] == 0 ? Double.NaN : result[group] / counts[group];
+                case "sum" -> result[group] = counts[group] == 0 ? Double.NaN : result[group];
+                default -> {
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按多列排序，空值排在最后
+     *
+     * @param selection 行号
+     * @param keys      排序列
+     * @return 排序后的行号
+     */
+    public int[] sort(int[] selection, List<SortKey> keys) {
+        Comparator<Integer> comparator = (a, b) -> 0;
+        for (SortKey key : keys) {
+            Column col = column(key.column());
+            Comparator<Integer> byColumn = key.descending()
+                    ? (a, b) -> col.compare(b, a, true)
+                    : (a, b) -> col.compare(a, b, false);
+            comparator = comparator.thenComparing(byColumn);
+        }
+        return Arrays.stream(selection).boxed().sorted(comparator).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 取行号对应的子集
+     */
+    public ColumnarTable select(int[] selection) {
+        Map<String, Column> subset = new LinkedHashMap<>();
+        columns.forEach((name, column) -> subset.put(name, column.subset(selection)));
+        return new ColumnarTable(names, subset, selection.length);
+    }
+
+    /**
+     * 转换为行数据，整数值输出为 long
+     */
+    public List<Map<String, Object>> toRows() {
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String name : names) {
+                values.put(name, columns.get(name).value(row));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * 是否数值列
+     */
+    public boolean isNumeric(String column) {
+        return column(column) instanceof NumberColumn;
+    }
+
+    private Column column(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("列不存在: " + name + "，可用列: " + names);
+        }
+        return column;
+    }
+
+    private NumberColumn numberColumn(String name) {
+        if (column(name) instanceof NumberColumn number) {
+            return number;
+        }
+        throw new IllegalArgumentException("列不是数值列，无法聚合: " + name);
+    }
+
+    private static boolean numeric(List<Map<String, Object>> rows, String name) {
+        boolean any = false;
+        for (Map<String, Object> row : rows) {
+            Object value = row.get(name);
+            if (value == null) {
+                continue;
+            }
+            if (!(value instanceof Number) && Double.isNaN(parse(value))) {
+                return false;
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private static double parse(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        try {
+            double parsed = Double.parseDouble(String.valueOf(value).trim());
+            return Double.isFinite(parsed) ? parsed : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 聚合项
+     *
+     * @param column   聚合列（count 可为 *）
+     * @param function 聚合函数：sum、avg、min、max、count
+     * @param as       结果列名，为空时为 函数_列名
+     */
+    public record Aggregate(String column, String function, String as) {
+
+        public String alias() {
+            if (as != null && !as.isBlank()) {
+                return as;
+            }
+            return String.valueOf(function).toLowerCase(Locale.ROOT) + "_" + ("*".equals(column) || column == null ? "all" : column);
+        }
+    }
+
+    /**
+     * 排序列
+     *
+     * @param column     列名
+     * @param descending 是否降序
+     */
+    public record SortKey(String column, boolean descending) {
+    }
+
+    private enum Operator {
+        EQ, NE, IN, GT, GTE, LT, LTE, BETWEEN, CONTAINS;
+
+        static Operator of(String op) {
+            try {
+                return valueOf(op.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("不支持的筛选条件: " + op);
+            }
+        }
+    }
+
+    private abstract static sealed class Column permits NumberColumn, StringColumn {
+
+        abstract int[] filter(int[] selection, Operator op, List<Object> values);
+
+        /**
+         * 为分组生成每行的编码，返回基数
+         */
+        abstract long encode(int[] selection, int[] codes);
+
+        abstract int compare(int a, int b, boolean nullsFirst);
+
+        abstract Column subset(int[] rows);
+
+        abstract Object value(int row);
+    }
+
+    private static final class NumberColumn extends Column {
+
+        private final double[] values;
+
+        private NumberColumn(double[] values) {
+            this.values = values;
+        }
+
+        static NumberColumn of(List<Map<String, Object>> rows, String name) {
+            double[] values = new double[rows.size()];
+            for (int i = 0; i < values.length; i++) {
+                Object value = rows.get(i).get(name);
+                values[i] = value == null ? Double.NaN : parse(value);
+            }
+            return new NumberColumn(values);
+        }
+
+        @Override
+        int[] filter(int[] selection, Operator op, List<Object> values) {
+            double[] operands = values.stream().mapToDouble(ColumnarTable::parse).toArray();
+            for (double operand : operands) {
+                if (Double.isNaN(operand)) {
+                    throw new IllegalArgumentException("数值列的条件值不是数值: " + values);
+                }
+            }
+            return Arrays.stream(selection).filter(row -> {
+                double v = this.values[row];
+                if (Double.isNaN(v)) {
+                    return op == Operator.NE;
+                }
+                return switch (op) {
+                    case EQ -> v == operands[0];
+                    case NE -> v != operands[0];
+                    case IN -> Arrays.stream(operands).anyMatch(o -> o == v);
+                    case GT -> v > operands[0];
+                    case GTE -> v >= operands[0];
+                    case LT -> v < operands[0];
+                    case LTE -> v <= operands[0];
+                    case BETWEEN -> v >= operands[0] && v <= operands[1];
+                    case CONTAINS -> throw new IllegalArgumentException("数值列不支持 contains 条件");
+                };
+            }).toArray();
+        }
+
+        @Override
+        long encode(int[] selection, int[] codes) {
+            Map<Double, Integer> dictionary = new HashMap<>();
+            for (int row : selection) {
+                codes[row] = dictionary.computeIfAbsent(values[row], k -> dictionary.size());
+            }
+            return Math.max(1, dictionary.size());
+        }
+
+        @Override
+        int compare(int a, int b, boolean nullsFirst) {
+            boolean nullA = Double.isNaN(values[a]);
+            boolean nullB = Double.isNaN(values[b]);
+            if (nullA || nullB) {
+                return nullA == nullB ? 0 : (nullA != nullsFirst ? 1 : -1);
+            }
+            return Double.compare(values[a], values[b]);
+        }
+
+        @Override
+        Column subset(int[] rows) {
+            double[] subset = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                subset[i] = values[rows[i]];
+            }
+            return new NumberColumn(subset);
+        }
+
+        @Override
+        Object value(int row) {
+            double v = values[row];
+            if (Double.isNaN(v)) {
+                return null;
+            }
+            return v == Math.rint(v) && Math.abs(v) < 1e15 ? (Object) (long) v : (Object) v;
+        }
+    }
+
+    private static final class StringColumn extends Column {
+
+        private final int[] codes;
+        private final String[] dictionary;
+        private int[] ranks;
+
+        private StringColumn(int[] codes, String[] dictionary) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        static StringColumn of(List<Map<String, Object>> rows, String name) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            int[] codes = new int[rows.size()];
+            for (int i = 0; i < codes.length; i++) {
+                Object value = rows.get(i).get(name);
+                codes[i] = value == null ? -1
+                        : dictionary.computeIfAbsent(String.valueOf(value), k -> dictionary.size());
+            }
+            return new StringColumn(codes, dictionary.keySet().toArray(new String[0]));
+        }
+
+        @Override
+        int[] filter(int[] selection, Operator op, List<Object> values) {
+            List<String> operands = values.stream().map(String::valueOf).toList();
+            // 条件只在字典上求值一次
+            boolean[] matches = new boolean[dictionary.length];
+            for (int code = 0; code < dictionary.length; code++) {
+                String v = dictionary[code];
+                matches[code] = switch (op) {
+                    case EQ -> v.equals(operands.get(0));
+                    case NE -> !v.equals(operands.get(0));
+                    case IN -> operands.contains(v);
+                    case GT -> v.compareTo(operands.get(0)) > 0;
+                    case GTE -> v.compareTo(operands.get(0)) >= 0;
+                    case LT -> v.compareTo(operands.get(0)) < 0;
+                    case LTE -> v.compareTo(operands.get(0)) <= 0;
+                    case BETWEEN -> v.compareTo(operands.get(0)) >= 0 && v.compareTo(operands.get(1)) <= 0;
+                    case CONTAINS -> v.contains(operands.get(0));
+                };
+            }
+            return Arrays.stream(selection)
+                    .filter(row -> codes[row] >= 0 ? matches[codes[row]] : op == Operator.NE)
+                    .toArray();
+        }
+
+        @Override
+        long encode(int[] selection, int[] codes) {
+            for (int row : selection) {
+                // 空值编码为字典长度
+                codes[row] = this.codes[row] >= 0 ? this.codes[row] : dictionary.length;
+            }
+            return dictionary.length + 1L;
+        }
+
+        @Override
+        int compare(int a, int b, boolean nullsFirst) {
+            int codeA = codes[a];
+            int codeB = codes[b];
+            if (codeA < 0 || codeB < 0) {
+                return codeA == codeB ? 0 : ((codeA < 0) != nullsFirst ? 1 : -1);
+            }
+            int[] r = ranks();
+            return Integer.compare(r[codeA], r[codeB]);
+        }
+
+        /**
+         * 字典项的排序名次，排序时只比较整数
+         */
+        private int[] ranks() {
+            if (ranks == null) {
+                Integer[] order = IntStream.range(0, dictionary.length).boxed().toArray(Integer[]::new);
+                Arrays.sort(order, Comparator.comparing(code -> dictionary[code]));
+                int[] computed = new int[dictionary.length];
+                for (int rank = 0; rank < order.length; rank++) {
+                    computed[order[rank]] = rank;
+                }
+                ranks = computed;
+            }
+            return ranks;
+        }
+
+        @Override
+        Column subset(int[] rows) {
+            int[] subset = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                subset[i] = codes[rows[i]];
+            }
+            return new StringColumn(subset, dictionary);
+        }
+
+        @Override
+        Object value(int row) {
+            return codes[row] >= 0 ? dictionary[codes[row]] : null;
+        }
+    }
+}
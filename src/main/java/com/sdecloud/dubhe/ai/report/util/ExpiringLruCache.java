@@ -0,0 +1,109 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * 按数量 LRU 淘汰、按时间过期的内存缓存
+ * 写入时清理过期条目并淘汰最久未使用的条目，读取到过期条目时立即移除；
+ * refreshOnRead 为 true 时读取会重新开始计算保留时间（按最后使用时间过期），否则按写入时间过期
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final boolean refreshOnRead;
+    private final LongSupplier clock;
+    private final Map<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ExpiringLruCache(int maxEntries, long ttlMs, boolean refreshOnRead) {
+        this(maxEntries, ttlMs, refreshOnRead, System::currentTimeMillis);
+    }
+
+    public ExpiringLruCache(int maxEntries, long ttlMs, boolean refreshOnRead, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.refreshOnRead = refreshOnRead;
+        this.clock = clock;
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 键
+     * @return 值，不存在或已过期时为空
+     */
+    public synchronized Optional<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        long now = clock.getAsLong();
+        if (expired(entry, now)) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        if (refreshOnRead) {
+            entry.touchedAt = now;
+        }
+        return Optional.of(entry.value);
+    }
+
+    /**
+     * 写入缓存，同时清理过期条目并按数量淘汰
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public synchronized void put(K key, V value) {
+        long now = clock.getAsLong();
+        entries.put(key, new Entry<>(value, now));
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        int size = entries.size();
+        while (iterator.hasNext()) {
+            Entry<V> oldest = iterator.next();
+            if (size > maxEntries || expired(oldest, now)) {
+                iterator.remove();
+                size--;
+            }
+        }
+    }
+
+    /**
+     * 移除缓存
+     *
+     * @param key 键
+     * @return 是否存在
+     */
+    public synchronized boolean remove(K key) {
+        return entries.remove(key) != null;
+    }
+
+    /**
+     * 当前条目数（含尚未清理的过期条目）
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean expired(Entry<V> entry, long now) {
+        return now - entry.touchedAt > ttlMs;
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private long touchedAt;
+
+        private Entry(V value, long touchedAt) {
+            this.value = value;
+            this.touchedAt = touchedAt;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 分块内存映射文件
+ * 文件按固定大小的块映射（单个 MappedByteBuffer 不能超过 2GB），写入超出已映射范围时自动追加映射新块；
+ * 定长记录文件保证单条记录不跨块，可直接通过 {@link #chunk(long)} 和 {@link #offset(long)} 按记录读取。
+ * 多个进程映射同一文件时共享操作系统页缓存
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class MappedFile implements Closeable {
+
+    private final FileChannel channel;
+    private final int chunkBytes;
+    private final int recordBytes;
+    private final int recordsPerChunk;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /**
+     * 打开（不存在时创建）映射文件
+     *
+     * @param path        文件路径
+     * @param chunkBytes  映射块大小（字节）
+     * @param recordBytes 定长记录大小（字节），变长内容传 0
+     */
+    public MappedFile(Path path, int chunkBytes, int recordBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.chunkBytes = chunkBytes;
+        this.recordBytes = recordBytes;
+        this.recordsPerChunk = recordBytes > 0 ? chunkBytes / recordBytes : 0;
+        if (recordBytes > chunkBytes) {
+            throw new IllegalArgumentException("记录大小超过映射块大小: " + recordBytes);
+        }
+        ensureCapacity(channel.size());
+    }
+
+    /**
+     * 定长记录的起始位置（记录不跨块）
+     *
+     * @param record 记录序号
+     * @return 文件内位置
+     */
+    public long recordPosition(long record) {
+        return (record / recordsPerChunk) * chunkBytes + (record % recordsPerChunk) * recordBytes;
+    }
+
+    /**
+     * 位置所在的映射块（只读视图，位置需已映射）
+     *
+     * @param position 文件内位置
+     * @return 映射块
+     */
+    public ByteBuffer chunk(long position) {
+        return chunks[(int) (position / chunkBytes)];
+    }
+
+    /**
+     * 位置在映射块内的偏移
+     *
+     * @param position 文件内位置
+     * @return 块内偏移
+     */
+    public int offset(long position) {
+        return (int) (position % chunkBytes);
+    }
+
+    /**
+     * 确保文件已映射到指定大小，不足时按块扩展
+     *
+     * @param bytes 需要的大小（字节）
+     */
+    public synchronized void ensureCapacity(long bytes) throws IOException {
+        MappedByteBuffer[] current = chunks;
+        int needed = (int) ((bytes + chunkBytes - 1) / chunkBytes);
+        if (needed <= current.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkBytes, chunkBytes);
+            grown[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        chunks = grown;
+    }
+
+    /**
+     * 写入字节（可跨块）
+     *
+     * @param position 文件内位置
+     * @param src      内容
+     */
+    public void write(long position, byte[] src) throws IOException {
+        ensureCapacity(position + src.length);
+        int written = 0;
+        while (written < src.length) {
+            long pos = position + written;
+            int length = Math.min(src.length - written, chunkBytes - offset(pos));
+            chunk(pos).put(offset(pos), src, written, length);
+            written += length;
+        }
+    }
+
+    /**
+     * 读取字节（可跨块）
+     *
+     * @param position 文件内位置
+     * @param dst      目标数组，读取其长度的字节
+     */
+    public void read(long position, byte[] dst) {
+        int read = 0;
+        while (read < dst.length) {
+            long pos = position + read;
+            int length = Math.min(dst.length - read, chunkBytes - offset(pos));
+            chunk(pos).get(offset(pos), dst, read, length);
+            read += length;
+        }
+    }
+
+    /**
+     * 将已写入的内容刷到磁盘
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
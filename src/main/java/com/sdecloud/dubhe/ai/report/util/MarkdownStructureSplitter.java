@@ -0,0 +1,238 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentTransformer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown结构感知分割器
+ * 按标题层级和表格边界切分知识库文档，使每个最小检索单元对应一个指标定义、一张表格或一段说明，
+ * 并在元数据中记录所属章节，检索时可回溯到父章节
+ *
+ * @author liangjun
+ * @since 2025-10-20
+ */
+@Slf4j
+public class MarkdownStructureSplitter implements DocumentTransformer {
+
+    /** 所属章节ID（二级标题） */
+    public static final String META_SECTION_ID = "section_id";
+    /** 所属章节标题 */
+    public static final String META_SECTION_TITLE = "section_title";
+    /** 单元标题（三级标题或章节标题） */
+    public static final String META_UNIT_TITLE = "unit_title";
+    /** 单元类型：text/table */
+    public static final String META_UNIT_TYPE = "unit_type";
+    /** 单元在章节内的序号，用于判断相邻 */
+    public static final String META_UNIT_INDEX = "unit_index";
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*)$");
+    private static final String TYPE_TEXT = "text";
+    private static final String TYPE_TABLE = "table";
+
+    /** 单元最大字符数，超出时按段落或表格行再切分 */
+    private final int maxUnitChars;
+
+    public MarkdownStructureSplitter(int maxUnitChars) {
+        this.maxUnitChars = maxUnitChars;
+    }
+
+    @Override
+    public List<Document> apply(List<Document> documents) {
+        List<Document> units = new ArrayList<>();
+        for (Document document : documents) {
+            for (Section section : parseSections(document)) {
+                units.addAll(section.units());
+            }
+        }
+        return units;
+    }
+
+    /**
+     * 解析文档章节（二级及以上标题为一个章节），每个章节包含其检索单元
+     *
+     * @param document 原始文档
+     * @return 章节列表
+     */
+    public List<Section> parseSections(Document document) {
+        String source = String.valueOf(document.getMetadata().getOrDefault("source", "knowledge"));
+        List<Section> sections = new ArrayList<>();
+
+        SectionBuilder section = new SectionBuilder("0", source, source);
+        Block block = null;
+
+        for (String line : document.getText().split("\\R")) {
+            Matcher matcher = HEADING.matcher(line.trim());
+            if (matcher.matches()) {
+                section.addBlock(block);
+                block = null;
+                int level = matcher.group(1).length();
+                String title = cleanTitle(matcher.group(2));
+                if (level <= 2) {
+                    addSection(sections, section);
+                    section = new SectionBuilder(String.valueOf(sections.size() + 1), title, source);
+                    section.lines.add(line);
+                } else {
+                    section.lines.add(line);
+                    block = new Block(TYPE_TEXT, title);
+                }
+                continue;
+            }
+
+            String trimmed = line.trim();
+            // 跳过导出工具遗留的孤立列表符
+            if ("-".equals(trimmed)) {
+                continue;
+            }
+            section.lines.add(line);
+
+            if (block != null && block.headed) {
+                block.lines.add(line);
+                continue;
+            }
+            String type = trimmed.startsWith("|") ? TYPE_TABLE : TYPE_TEXT;
+            if (trimmed.isEmpty() && block != null && TYPE_TABLE.equals(block.type)) {
+                section.addBlock(block);
+                block = null;
+                continue;
+            }
+            if (block == null || !block.type.equals(type)) {
+                section.addBlock(block);
+                block = new Block(type, null);
+            }
+            block.lines.add(line);
+        }
+        section.addBlock(block);
+        addSection(sections, section);
+
+        log.debug("文档 {} 解析为 {} 个章节", source, sections.size());
+        return sections;
+    }
+
+    private void addSection(List<Section> sections, SectionBuilder builder) {
+        String text = String.join("\n", builder.lines).trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        List<Document> units = new ArrayList<>();
+        for (Block block : builder.blocks) {
+            String unitTitle = block.title != null ? block.title
+                    : TYPE_TABLE.equals(block.type) ? builder.title + "（表格）" : builder.title;
+            for (String piece : splitOversized(block)) {
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("source", builder.source);
+                metadata.put(META_SECTION_ID, builder.id);
+                metadata.put(META_SECTION_TITLE, builder.title);
+                metadata.put(META_UNIT_TITLE, unitTitle);
+                metadata.put(META_UNIT_TYPE, block.type);
+                metadata.put(META_UNIT_INDEX, units.size());
+                // 单元正文前附带章节路径，保证脱离上下文时语义依然完整
+                String header = block.headed || unitTitle.equals(builder.title)
+                        ? "【" + builder.title + "】\n"
+                        : "【" + builder.title + "】" + unitTitle + "\n";
+                units.add(new Document("kb-" + builder.id + "-" + units.size(), header + piece, metadata));
+            }
+        }
+        sections.add(new Section(builder.id, builder.title, text, units));
+    }
+
+    /**
+     * 超长单元再切分：表格按行切分并重复表头，文本按空行段落切分
+     */
+    private List<String> splitOversized(Block block) {
+        String text = block.text();
+        List<String> pieces = new ArrayList<>();
+        if (text.length() <= maxUnitChars) {
+            pieces.add(text);
+            return pieces;
+        }
+
+        List<String> parts = new ArrayList<>();
+        String prefix = "";
+        if (TYPE_TABLE.equals(block.type) && block.lines.size() > 2) {
+            prefix = block.lines.get(0) + "\n" + block.lines.get(1) + "\n";
+            parts.addAll(block.lines.subList(2, block.lines.size()));
+        } else {
+            parts.addAll(List.of(text.split("\\n\\s*\\n")));
+        }
+
+        StringBuilder current = new StringBuilder(prefix);
+        for (String part : parts) {
+            if (part.isBlank()) {
+                continue;
+            }
+            if (current.length() > prefix.length() && current.length() + part.length() > maxUnitChars) {
+                pieces.add(current.toString().trim());
+                current = new StringBuilder(prefix);
+            }
+            current.append(part).append(TYPE_TABLE.equals(block.type) ? "\n" : "\n\n");
+        }
+        if (current.length() > prefix.length()) {
+            pieces.add(current.toString().trim());
+        }
+        return pieces;
+    }
+
+    private static String cleanTitle(String raw) {
+        return raw.replace("\\", "").trim();
+    }
+
+    /**
+     * 文档章节
+     *
+     * @param id    章节ID
+     * @param title 章节标题
+     * @param text  章节完整文本（父文档）
+     * @param units 章节内的检索单元
+     */
+    public record Section(String id, String title, String text, List<Document> units) {
+    }
+
+    private static final class SectionBuilder {
+        private final String id;
+        private final String title;
+        private final String source;
+        private final List<String> lines = new ArrayList<>();
+        private final List<Block> blocks = new ArrayList<>();
+
+        private SectionBuilder(String id, String title, String source) {
+            this.id = id;
+            this.title = title;
+            this.source = source;
+        }
+
+        private void addBlock(Block block) {
+            if (block != null && !block.text().isBlank()) {
+                blocks.add(block);
+            }
+        }
+    }
+
+    private static final class Block {
+        private final String type;
+        private final String title;
+        private final boolean headed;
+        private final List<String> lines = new ArrayList<>();
+
+        private Block(String type, String title) {
+            this.type = type;
+            this.title = title;
+            this.headed = title != null;
+            if (headed) {
+                lines.add("### " + title);
+            }
+        }
+
+        private String text() {
+            boolean hasContent = lines.stream().skip(headed ? 1 : 0).anyMatch(l -> !l.isBlank());
+            return hasContent ? String.join("\n", lines).trim() : "";
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 向量存储过滤条件求值
+ * 与 SimpleVectorStore 相同：过滤条件转换为 SpEL 表达式，以文档元数据（变量 #metadata）求值；
+ * 表达式只解析一次，供逐条扫描时复用
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class MetadataFilters {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    private MetadataFilters() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * 将过滤条件转换为元数据断言
+     *
+     * @param filterExpression 过滤条件，为空时匹配全部文档
+     * @return 元数据断言
+     */
+    public static Predicate<Map<String, Object>> predicate(Filter.Expression filterExpression) {
+        if (filterExpression == null) {
+            return metadata -> true;
+        }
+        // 转换器内部使用 SimpleDateFormat，不能跨线程共享
+        Expression expression = PARSER.parseExpression(
+                new SimpleVectorStoreFilterExpressionConverter().convertExpression(filterExpression));
+        return metadata -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", metadata);
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+}
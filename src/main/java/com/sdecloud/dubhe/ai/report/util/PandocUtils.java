@@ -1,5 +1,7 @@
 package com.sdecloud.dubhe.ai.report.util;
 
+import com.sdecloud.dubhe.ai.report.jfr.PandocConversionEvent;
+import com.sdecloud.dubhe.ai.report.jfr.RunContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -26,6 +28,9 @@ public class PandocUtils {
      * @return Word 文件路径，转换失败返回 null
      */
     public static String convertMarkdownToWord(String markdownFilePath) {
+        PandocConversionEvent event = new PandocConversionEvent();
+        event.exitCode = -1;
+        event.begin();
         try {
             // 生成 Word 文件路径（替换 .md 为 .docx）
             String wordFilePath = markdownFilePath.replaceAll("\\.md$", ".docx");
@@ -62,6 +67,7 @@ public class PandocUtils {
             
             // 等待进程完成
             int exitCode = process.waitFor();
+            event.exitCode = exitCode;
             
             if (exitCode == 0) {
                 log.info("Markdown 转 Word 成功: {} -> {}", markdownFilePath, wordFilePath);
@@ -78,6 +84,13 @@ public class PandocUtils {
             log.error("Pandoc 进程被中断", e);
             Thread.currentThread().interrupt();
             return null;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.runId = RunContext.current().runId();
+                event.inputFile = markdownFilePath;
+                event.commit();
+            }
         }
     }
 }
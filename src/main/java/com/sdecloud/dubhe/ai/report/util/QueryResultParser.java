@@ -0,0 +1,175 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询结果解析工具
+ * 将 SQL 执行节点返回的查询结果解析为行：支持 JSON 对象数组，或包含对象数组字段（如 data、rows）的 JSON 对象
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class QueryResultParser {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private QueryResultParser() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * 解析查询结果
+     *
+     * @param queryResult 查询结果原文
+     * @return 结果行，不是 JSON 行数据时为 null
+     */
+    public static List<Map<String, Object>> parseRows(String queryResult) {
+        if (queryResult == null || queryResult.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode node = OBJECT_MAPPER.readTree(queryResult);
+            if (node.isObject()) {
+                Iterator<JsonNode> values = node.elements();
+                node = null;
+                while (values.hasNext()) {
+                    JsonNode value = values.next();
+                    if (value.isArray()) {
+                        node = value;
+                        break;
+                    }
+                }
+            }
+            if (node == null || !node.isArray()) {
+                return null;
+            }
+            for (JsonNode row : node) {
+                if (!row.isObject()) {
+                    return null;
+                }
+            }
+            return OBJECT_MAPPER.convertValue(node, new TypeReference<List<Map<String, Object>>>() {
+            });
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 查询结果是否没有任何数据行：空文本、空数组，或各子查询结果均为空数组或错误的 JSON 对象
+     *
+     * @param queryResult 查询结果原文
+     * @return 是否为空结果，无法解析的文本视为非空
+     */
+    public static boolean isEmpty(String queryResult) {
+        if (queryResult == null || queryResult.isBlank()) {
+            return true;
+        }
+        try {
+            JsonNode node = OBJECT_MAPPER.readTree(queryResult);
+            if (node.isArray()) {
+                return node.isEmpty();
+            }
+            if (node.isObject() && !node.isEmpty()) {
+                for (JsonNode value : node) {
+                    boolean empty = value.isArray() && value.isEmpty();
+                    boolean error = value.isObject() && value.has("error");
+                    if (!empty && !error) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 流式复制 JSON，每个数组最多保留 maxRows 个元素，内存占用只与保留的行数有关
+     *
+     * @param reader  查询结果
+     * @param maxRows 每个数组最多保留的元素数
+     * @return 预览，不是 JSON 时为 null
+     * @throws IOException 读取失败
+     */
+    public static Preview preview(Reader reader, int maxRows) throws IOException {
+        StringWriter text = new StringWriter();
+        boolean truncated = false;
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(reader);
+             JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(text)) {
+            // 每层容器已复制的元素数，对象为 -1
+            Deque<int[]> containers = new ArrayDeque<>();
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            while (token != null) {
+                int[] elements = containers.peek();
+                if (elements != null && elements[0] >= 0 && token != JsonToken.END_ARRAY) {
+                    if (elements[0] >= maxRows) {
+                        parser.skipChildren();
+                        truncated = true;
+                        token = parser.nextToken();
+                        continue;
+                    }
+                    elements[0]++;
+                }
+                generator.copyCurrentEvent(parser);
+                if (token == JsonToken.START_ARRAY) {
+                    containers.push(new int[]{0});
+                } else if (token == JsonToken.START_OBJECT) {
+                    containers.push(new int[]{-1});
+                } else if (token.isStructEnd()) {
+                    containers.pop();
+                }
+                if (containers.isEmpty()) {
+                    break;
+                }
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        return new Preview(text.toString(), truncated);
+    }
+
+    /**
+     * 结果行序列化为 JSON
+     *
+     * @param rows 结果行
+     * @return JSON 文本
+     */
+    public static String toJson(List<Map<String, Object>> rows) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(rows);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("结果序列化失败", e);
+        }
+    }
+
+    /**
+     * 查询结果预览
+     *
+     * @param text      预览文本
+     * @param truncated 是否省略了部分内容
+     */
+    public record Preview(String text, boolean truncated) {
+    }
+}
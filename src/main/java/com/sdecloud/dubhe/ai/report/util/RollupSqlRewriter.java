@@ -0,0 +1,209 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 销售汇总表 SQL 改写
+ * 汇总表按 月份 × dept_id × product_id 预聚合 sales（列：month_start、dept_id、product_id、amount_sum、amount_count、row_count），
+ * 只有结果与在 sales 上执行完全相同的聚合查询才改写：
+ * <ul>
+ *     <li>SUM / AVG / COUNT(sales_amount) 和 COUNT(*) / COUNT(id) 改为汇总列的 SUM</li>
+ *     <li>sales_date 只能以月及以上粒度使用：DATE_FORMAT（只含年、月格式符）、YEAR、MONTH、QUARTER，
+ *     以及按整月对齐的比较（>= / < 月初，<= / > 月末，BETWEEN 月初 AND 月末，LIKE 'yyyy-mm%'），sales_date 为 DATE 类型</li>
+ *     <li>dept_id、product_id 及关联 dept、product 表的列原样保留</li>
+ *     <li>其他聚合只允许 COUNT(DISTINCT 维度) 和 MIN / MAX(维度)，它们的结果与行数无关；
+ *     COUNT(dept_id)、COUNT(product_name)、SUM / AVG(维度) 等按行计数的聚合在汇总表上会变成按汇总行计数</li>
+ * </ul>
+ * 子查询、UNION、窗口函数、明细查询，以及以其他方式引用 id、sales_amount、sales_date 的查询不改写
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class RollupSqlRewriter {
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE;
+    /** 可选的表别名限定，如 s. 或 `s`. */
+    private static final String QUALIFIER = "((?:`?\\w+`?\\s*\\.\\s*)?)";
+
+    private static final Pattern FACT_TABLE = Pattern.compile("\\b(FROM|JOIN)\\s+`?sales`?(?=[\\s,)]|$)", FLAGS);
+    private static final Pattern ALIAS = Pattern.compile("^\\s+(?:AS\\s+)?`?(\\w+)`?", FLAGS);
+    private static final Set<String> KEYWORDS = Set.of("where", "join", "left", "right", "inner", "outer", "cross",
+            "natural", "straight_join", "on", "using", "group", "order", "having", "limit", "union");
+
+    private static final Pattern UNSUPPORTED = Pattern.compile(
+            "\\(\\s*SELECT\\b|\\bUNION\\b|\\bOVER\\s*\\(|\\bINTO\\b|\\bFOR\\s+UPDATE\\b|(?:SELECT|,)\\s*(?:`?\\w+`?\\s*\\.\\s*)?\\*",
+            FLAGS);
+    private static final Pattern AGGREGATE = Pattern.compile(
+            "\\b(?:SUM|COUNT|AVG|MIN|MAX)\\s*\\(|\\bGROUP\\s+BY\\b|^\\s*SELECT\\s+DISTINCT\\b", FLAGS);
+
+    private static final Pattern SUM_AMOUNT = Pattern.compile("\\bSUM\\s*\\(\\s*" + QUALIFIER + "`?sales_amount`?\\s*\\)", FLAGS);
+    private static final Pattern AVG_AMOUNT = Pattern.compile("\\bAVG\\s*\\(\\s*" + QUALIFIER + "`?sales_amount`?\\s*\\)", FLAGS);
+    private static final Pattern COUNT_AMOUNT = Pattern.compile("\\bCOUNT\\s*\\(\\s*" + QUALIFIER + "`?sales_amount`?\\s*\\)", FLAGS);
+    private static final Pattern COUNT_ROWS = Pattern.compile("\\bCOUNT\\s*\\(\\s*(?:\\*|1|" + QUALIFIER + "`?id`?)\\s*\\)", FLAGS);
+
+    private static final Pattern DATE_FUNCTION = Pattern.compile("\\b(YEAR|MONTH|QUARTER)\\s*\\(\\s*" + QUALIFIER + "`?sales_date`?\\s*\\)", FLAGS);
+    private static final Pattern DATE_FORMAT = Pattern.compile(
+            "\\bDATE_FORMAT\\s*\\(\\s*" + QUALIFIER + "`?sales_date`?\\s*,\\s*'([^']*)'\\s*\\)", FLAGS);
+    private static final Pattern DATE_BETWEEN = Pattern.compile(
+            QUALIFIER + "`?sales_date`?\\s+BETWEEN\\s+'(\\d{4}-\\d{2}-\\d{2})'\\s+AND\\s+'(\\d{4}-\\d{2}-\\d{2})'", FLAGS);
+    private static final Pattern DATE_COMPARE = Pattern.compile(
+            QUALIFIER + "`?sales_date`?\\s*(>=|<=|<|>)\\s*'(\\d{4}-\\d{2}-\\d{2})'", FLAGS);
+    private static final Pattern DATE_LIKE = Pattern.compile(
+            QUALIFIER + "`?sales_date`?\\s+LIKE\\s+'(\\d{4}(?:-\\d{2})?-?%)'", FLAGS);
+
+    private static final Pattern AGGREGATE_CALL = Pattern.compile("\\b(SUM|COUNT|AVG|MIN|MAX)\\s*\\(", FLAGS);
+    /** 由 sales 明细聚合改写得到的汇总列求和 */
+    private static final Pattern ROLLUP_SUM = Pattern.compile(
+            "^\\s*(?:`?\\w+`?\\s*\\.\\s*)?(?:amount_sum|amount_count|row_count)\\s*$", FLAGS);
+    private static final Pattern DISTINCT = Pattern.compile("^\\s*DISTINCT\\b", FLAGS);
+
+    /** 改写后仍残留的明细列引用 */
+    private static final Pattern RESIDUAL = Pattern.compile(
+            "\\bsales_amount\\b|\\bsales_date\\b|(?<![\\w.`])`?id`?\\b|\\.\\s*`?id`?\\b", FLAGS);
+
+    private RollupSqlRewriter() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * 将 sales 上的聚合查询改写为查询汇总表
+     *
+     * @param sql         原始 SQL
+     * @param rollupTable 汇总表名
+     * @return 改写后的 SQL，不能等价改写时为空
+     */
+    public static Optional<String> rewrite(String sql, String rollupTable) {
+        if (sql == null) {
+            return Optional.empty();
+        }
+        String text = sql.trim();
+        if (text.endsWith(";")) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        if (!text.regionMatches(true, 0, "SELECT", 0, 6) || text.contains(";")
+                || UNSUPPORTED.matcher(text).find() || !AGGREGATE.matcher(text).find()) {
+            return Optional.empty();
+        }
+
+        Matcher fact = FACT_TABLE.matcher(text);
+        if (!fact.find() || fact.find()) {
+            // 未引用 sales，或自关联等多次引用 sales 的查询不改写
+            return Optional.empty();
+        }
+
+        String rewritten = replace(text, SUM_AMOUNT, m -> "SUM(" + m.group(1) + "amount_sum)");
+        rewritten = replace(rewritten, AVG_AMOUNT,
+                m -> "(SUM(" + m.group(1) + "amount_sum) / SUM(" + m.group(1) + "amount_count))");
+        rewritten = replace(rewritten, COUNT_AMOUNT, m -> "SUM(" + m.group(1) + "amount_count)");
+        rewritten = replace(rewritten, COUNT_ROWS, m -> "SUM(" + (m.group(1) != null ? m.group(1) : "") + "row_count)");
+        rewritten = replace(rewritten, DATE_FUNCTION, m -> m.group(1) + "(" + m.group(2) + "month_start)");
+        rewritten = replace(rewritten, DATE_FORMAT, m -> monthFormat(m.group(2))
+                ? "DATE_FORMAT(" + m.group(1) + "month_start, '" + m.group(2) + "')" : m.group());
+        rewritten = replace(rewritten, DATE_BETWEEN, m -> monthStart(m.group(2)) && monthEnd(m.group(3))
+                ? m.group(1) + "month_start BETWEEN '" + m.group(2) + "' AND '" + m.group(3) + "'" : m.group());
+        rewritten = replace(rewritten, DATE_COMPARE, m -> alignedComparison(m.group(2), m.group(3))
+                ? m.group(1) + "month_start " + m.group(2) + " '" + m.group(3) + "'" : m.group());
+        rewritten = replace(rewritten, DATE_LIKE, m -> m.group(1) + "month_start LIKE '" + m.group(2) + "'");
+
+        // 仍有无法在汇总表上等价计算的明细列引用或聚合时放弃改写
+        if (RESIDUAL.matcher(rewritten).find() || !aggregatesPreserved(rewritten)) {
+            return Optional.empty();
+        }
+        Matcher table = FACT_TABLE.matcher(rewritten);
+        table.find();
+        Matcher alias = ALIAS.matcher(rewritten.substring(table.end()));
+        boolean hasAlias = alias.find() && !KEYWORDS.contains(alias.group(1).toLowerCase());
+        String replacement = table.group(1) + " " + rollupTable + (hasAlias ? "" : " sales");
+        return Optional.of(rewritten.substring(0, table.start()) + replacement + rewritten.substring(table.end()));
+    }
+
+    /**
+     * 改写后的每个聚合都与被聚合的行数无关：汇总列的 SUM、COUNT(DISTINCT ...)、MIN / MAX
+     */
+    private static boolean aggregatesPreserved(String sql) {
+        Matcher call = AGGREGATE_CALL.matcher(sql);
+        while (call.find()) {
+            int close = closingParenthesis(sql, call.end());
+            if (close < 0) {
+                return false;
+            }
+            String argument = sql.substring(call.end(), close);
+            boolean preserved = switch (call.group(1).toUpperCase()) {
+                case "SUM" -> ROLLUP_SUM.matcher(argument).matches();
+                case "COUNT" -> DISTINCT.matcher(argument).find();
+                case "MIN", "MAX" -> true;
+                default -> false;
+            };
+            if (!preserved) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从左括号之后开始查找匹配的右括号，忽略字符串中的括号
+     */
+    private static int closingParenthesis(String sql, int start) {
+        int depth = 1;
+        boolean quoted = false;
+        for (int i = start; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String replace(String text, Pattern pattern, Function<MatchResult, String> replacer) {
+        return pattern.matcher(text).replaceAll(m -> Matcher.quoteReplacement(replacer.apply(m)));
+    }
+
+    /**
+     * DATE_FORMAT 格式只包含年、月格式符时结果与月初日期一致
+     */
+    private static boolean monthFormat(String format) {
+        return !format.replaceAll("%[YymcbM]", "").contains("%");
+    }
+
+    /**
+     * >= 和 < 需要月初日期，<= 和 > 需要月末日期，月份内的比较在汇总表上不等价
+     */
+    private static boolean alignedComparison(String operator, String date) {
+        return switch (operator) {
+            case ">=", "<" -> monthStart(date);
+            case "<=", ">" -> monthEnd(date);
+            default -> false;
+        };
+    }
+
+    private static boolean monthStart(String date) {
+        LocalDate parsed = parse(date);
+        return parsed != null && parsed.getDayOfMonth() == 1;
+    }
+
+    private static boolean monthEnd(String date) {
+        LocalDate parsed = parse(date);
+        return parsed != null && parsed.getDayOfMonth() == parsed.lengthOfMonth();
+    }
+
+    private static LocalDate parse(String date) {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+/**
+ * 向量相似度计算内核
+ * 标量实现见 {@link ScalarSimilarityKernel}，使用 Java Vector API 的 SIMD 实现在 simd profile 中编译，
+ * 通过 {@link SimilarityKernels#get()} 获取当前可用的最快实现
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public interface SimilarityKernel {
+
+    /**
+     * 浮点向量点积
+     *
+     * @param a 向量
+     * @param b 向量（长度与 a 相同）
+     * @return 点积
+     */
+    float dot(float[] a, float[] b);
+
+    /**
+     * 浮点向量与 int8 量化向量的点积（未乘缩放系数）
+     *
+     * @param a    浮点向量
+     * @param code int8 量化向量（长度与 a 相同）
+     * @return 点积
+     */
+    float dot(float[] a, byte[] code);
+
+    /**
+     * int8 量化向量点积（未乘缩放系数）
+     *
+     * @param a int8 向量
+     * @param b int8 向量（长度与 a 相同）
+     * @return 点积
+     */
+    int dot(byte[] a, byte[] b);
+
+    /**
+     * 余弦相似度
+     *
+     * @param a 向量
+     * @param b 向量（长度与 a 相同）
+     * @return 余弦相似度，任一向量为零向量时返回 0
+     */
+    float cosine(float[] a, float[] b);
+
+    /**
+     * 实现名称，用于日志和指标
+     *
+     * @return 名称
+     */
+    String name();
+}
@@ -0,0 +1,53 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 相似度计算内核选择
+ * 运行时加载了 jdk.incubator.vector 模块（--add-modules jdk.incubator.vector）且 SIMD 实现已编译（mvn -Psimd）时
+ * 使用 Vector API 实现，否则使用标量实现；可通过 -Dreport.similarity.kernel=scalar 强制使用标量实现
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+@Slf4j
+public final class SimilarityKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "com.sdecloud.dubhe.ai.report.util.VectorApiSimilarityKernel";
+
+    private static final SimilarityKernel INSTANCE = select();
+
+    private SimilarityKernels() {
+    }
+
+    /**
+     * 当前可用的最快实现
+     *
+     * @return 相似度计算内核
+     */
+    public static SimilarityKernel get() {
+        return INSTANCE;
+    }
+
+    private static SimilarityKernel select() {
+        if ("scalar".equalsIgnoreCase(System.getProperty("report.similarity.kernel"))) {
+            log.info("相似度计算使用标量实现（已配置）");
+            return new ScalarSimilarityKernel();
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("未加载 {} 模块，相似度计算使用标量实现", VECTOR_MODULE);
+            return new ScalarSimilarityKernel();
+        }
+        try {
+            // 通过反射加载，避免未加载模块时链接 Vector API 类
+            SimilarityKernel kernel = (SimilarityKernel) Class.forName(VECTOR_KERNEL_CLASS)
+                    .getDeclaredConstructor().newInstance();
+            log.info("相似度计算使用 SIMD 实现: {}", kernel.name());
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.info("SIMD 实现不可用（{}），相似度计算使用标量实现", e.toString());
+            return new ScalarSimilarityKernel();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 时间序列预测工具
+ * 对等间隔序列（如月度销售额）拟合以下模型，按滚动原点的样本外一步预测误差选择模型外推并给出预测区间：
+ * <ul>
+ *     <li>线性趋势（最小二乘），序列覆盖两个完整周期时叠加加法季节项</li>
+ *     <li>Holt 线性指数平滑，ETS(A,A,N)</li>
+ *     <li>Holt-Winters 加法季节指数平滑，ETS(A,A,A)，需要两个完整周期</li>
+ * </ul>
+ * 各模型在相同的时间点上比较：依次只用之前的观测拟合并预测下一个点，预测误差均方最小的模型胜出。
+ * 平滑参数在固定网格上搜索，几十个点的序列完成模型选择耗时在毫秒级
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+public final class TimeSeriesForecaster {
+
+    /** 至少需要的观测数 */
+    public static final int MIN_POINTS = 3;
+
+    private static final double[] ALPHAS = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9};
+    private static final double[] BETAS = {0.01, 0.05, 0.1, 0.2, 0.3, 0.5};
+    private static final double[] GAMMAS = {0.05, 0.1, 0.2, 0.3, 0.5, 0.7};
+
+    private TimeSeriesForecaster() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * 拟合并外推
+     *
+     * @param series     按时间顺序排列的观测值
+     * @param period     季节周期（月度数据为 12），小于 2 时不考虑季节性
+     * @param horizon    预测步数
+     * @param confidence 预测区间的置信水平（0~1）
+     * @return 预测结果，观测数不足 {@link #MIN_POINTS} 时返回 null
+     */
+    public static Forecast forecast(double[] series, int period, int horizon, double confidence) {
+        if (series.length < MIN_POINTS || horizon < 1) {
+            return null;
+        }
+        double z = normalQuantile(0.5 + confidence / 2);
+        boolean seasonal = period >= 2 && series.length >= 2 * period;
+        int linearPeriod = seasonal ? period : 0;
+
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(prefix -> linear(prefix, linearPeriod, 1, z).point()[0]);
+        if (series.length >= 4) {
+            candidates.add(prefix -> smoothing(prefix, 0, 1, z).point()[0]);
+        }
+        if (seasonal) {
+            candidates.add(prefix -> smoothing(prefix, period, 1, z).point()[0]);
+        }
+
+        // 季节模型至少需要一个完整周期加两个观测才能拟合，所有模型从同一个原点开始比较
+        int origin = seasonal ? period + 2 : MIN_POINTS;
+        int best = 0;
+        double bestError = Double.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            double error = oneStepError(series, origin, candidates.get(i));
+            if (error < bestError) {
+                bestError = error;
+                best = i;
+            }
+        }
+        return switch (best) {
+            case 0 -> linear(series, linearPeriod, horizon, z);
+            case 1 -> smoothing(series, 0, horizon, z);
+            default -> smoothing(series, period, horizon, z);
+        };
+    }
+
+    /**
+     * 滚动原点的样本外一步预测误差均方：对 origin 之后的每个点，只用之前的观测拟合模型并预测该点
+     */
+    static double oneStepError(double[] y, int origin, Candidate candidate) {
+        double sse = 0;
+        int count = 0;
+        for (int t = origin; t < y.length; t++) {
+            double error = y[t] - candidate.next(Arrays.copyOf(y, t));
+            sse += error * error;
+            count++;
+        }
+        return count == 0 ? 0 : sse / count;
+    }
+
+    /**
+     * 线性趋势 + 可选的加法季节项，预测区间按回归预测方差计算
+     */
+    static Forecast linear(double[] y, int period, int horizon, double z) {
+        int n = y.length;
+        double tMean = (n - 1) / 2.0;
+        double yMean = 0;
+        for (double v : y) {
+            yMean += v;
+        }
+        yMean /= n;
+        double sxx = 0;
+        double sxy = 0;
+        for (int t = 0; t < n; t++) {
+            sxx += (t - tMean) * (t - tMean);
+            sxy += (t - tMean) * (y[t] - yMean);
+        }
+        double slope = sxy / sxx;
+        double intercept = yMean - slope * tMean;
+
+        double[] season = new double[Math.max(period, 1)];
+        if (period > 0) {
+            int[] counts = new int[period];
+            for (int t = 0; t < n; t++) {
+                season[t % period] += y[t] - (intercept + slope * t);
+                counts[t % period]++;
+            }
+            double seasonMean = 0;
+            for (int k = 0; k < period; k++) {
+                season[k] /= counts[k];
+                seasonMean += season[k] / period;
+            }
+            for (int k = 0; k < period; k++) {
+                season[k] -= seasonMean;
+            }
+        }
+
+        double sse = 0;
+        for (int t = 0; t < n; t++) {
+            double e = y[t] - (intercept + slope * t + (period > 0 ? season[t % period] : 0));
+            sse += e * e;
+        }
+        int parameters = 2 + (period > 0 ? period - 1 : 0);
+        double sigma = Math.sqrt(sse / Math.max(n - parameters, 1));
+
+        double[] point = new double[horizon];
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        for (int h = 0; h < horizon; h++) {
+            int t = n + h;
+            point[h] = intercept + slope * t + (period > 0 ? season[t % period] : 0);
+            double width = z * sigma * Math.sqrt(1 + 1.0 / n + (t - tMean) * (t - tMean) / sxx);
+            lower[h] = point[h] - width;
+            upper[h] = point[h] + width;
+        }
+        return new Forecast(period > 0 ? "linear-seasonal" : "linear", point, lower, upper, sigma);
+    }
+
+    /**
+     * Holt（period 为 0）或 Holt-Winters 加法模型，网格搜索平滑参数使一步预测误差平方和最小
+     */
+    static Forecast smoothing(double[] y, int period, int horizon, double z) {
+        double[] gammas = period > 0 ? GAMMAS : new double[]{0};
+        double bestSse = Double.MAX_VALUE;
+        double bestAlpha = 0;
+        double bestBeta = 0;
+        double bestGamma = 0;
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : gammas) {
+                    double sse = run(y, period, alpha, beta, gamma, 0, null);
+                    if (sse < bestSse) {
+                        bestSse = sse;
+                        bestAlpha = alpha;
+                        bestBeta = beta;
+                        bestGamma = gamma;
+                    }
+                }
+            }
+        }
+
+        double[] point = new double[horizon];
+        run(y, period, bestAlpha, bestBeta, bestGamma, horizon, point);
+        int start = period > 0 ? period : 1;
+        int parameters = 3 + (period > 0 ? 1 : 0);
+        double sigma = Math.sqrt(bestSse / Math.max(y.length - start - parameters, 1));
+
+        // ETS 加法模型 h 步预测方差：σ²(1 + Σ c_j²)，c_j = α(1 + jβ) + γ·[j 为周期整数倍]
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        double variance = 1;
+        for (int h = 0; h < horizon; h++) {
+            if (h > 0) {
+                double c = bestAlpha * (1 + h * bestBeta) + (period > 0 && h % period == 0 ? bestGamma : 0);
+                variance += c * c;
+            }
+            double width = z * sigma * Math.sqrt(variance);
+            lower[h] = point[h] - width;
+            upper[h] = point[h] + width;
+        }
+        return new Forecast(period > 0 ? "holt-winters" : "holt", point, lower, upper, sigma);
+    }
+
+    /**
+     * 执行一遍平滑递推
+     *
+     * @param forecast 非 null 时写入递推结束后的 horizon 步预测
+     * @return 一步预测误差平方和
+     */
+    private static double run(double[] y, int period, double alpha, double beta, double gamma,
+                              int horizon, double[] forecast) {
+        double level;
+        double trend;
+        double[] season = new double[Math.max(period, 1)];
+        int start;
+        if (period > 0) {
+            // 第一个周期的均值作为初始水平，前两个周期均值之差作为初始趋势（不足两个周期时初始趋势为 0）
+            double first = 0;
+            for (int i = 0; i < period; i++) {
+                first += y[i];
+            }
+            first /= period;
+            level = first;
+            trend = 0;
+            if (y.length >= 2 * period) {
+                double second = 0;
+                for (int i = 0; i < period; i++) {
+                    second += y[i + period];
+                }
+                trend = (second / period - first) / period;
+            }
+            for (int i = 0; i < period; i++) {
+                season[i] = y[i] - first;
+            }
+            start = period;
+        } else {
+            level = y[0];
+            trend = y[1] - y[0];
+            start = 1;
+        }
+
+        double sse = 0;
+        for (int t = start; t < y.length; t++) {
+            double s = period > 0 ? season[t % period] : 0;
+            double error = y[t] - (level + trend + s);
+            sse += error * error;
+            double previousLevel = level;
+            level = alpha * (y[t] - s) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            if (period > 0) {
+                season[t % period] = gamma * (y[t] - level) + (1 - gamma) * s;
+            }
+        }
+
+        if (forecast != null) {
+            for (int h = 0; h < horizon; h++) {
+                forecast[h] = level + (h + 1) * trend + (period > 0 ? season[(y.length + h) % period] : 0);
+            }
+        }
+        return sse;
+    }
+
+    /**
+     * 参与选择的模型：用给定的观测预测下一个点
+     */
+    @FunctionalInterface
+    interface Candidate {
+
+        double next(double[] prefix);
+    }
+
+    /**
+     * 标准正态分布分位数（Acklam 有理逼近，相对误差约 1e-9）
+     */
+    static double normalQuantile(double p) {
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("概率必须在 (0, 1) 之间: " + p);
+        }
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * 预测结果
+     *
+     * @param method 选中的模型：linear、linear-seasonal、holt、holt-winters
+     * @param point  各步预测值
+     * @param lower  预测区间下限
+     * @param upper  预测区间上限
+     * @param rmse   模型的残差标准差（一步预测误差）
+     */
+    public record Forecast(String method, double[] point, double[] lower, double[] upper, double rmse) {
+    }
+}
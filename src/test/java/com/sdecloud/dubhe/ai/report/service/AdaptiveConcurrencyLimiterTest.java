@@ -0,0 +1,145 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.LlmLimiterProperties;
+import com.sdecloud.dubhe.ai.report.constant.ChatPriority;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 自适应并发限制器测试：AIMD 增长与缩小、排队按优先级出队、排队超时、等待方取消时归还许可
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void growsWhenSaturatedAndBacksOffOnLatencyOrThrottling() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(2, 10), meterRegistry);
+
+        // 上限用满时增长 1/limit（每个往返窗口加 1）
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(ChatPriority.REPORT);
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire(ChatPriority.REPORT);
+        limiter.release(first, false);
+        assertEquals(2.5, gauge("report.llm.limit"), 1e-9);
+
+        // 上限未用满时不增长
+        limiter.release(second, false);
+        limiter.release(limiter.acquire(ChatPriority.REPORT), false);
+        assertEquals(2.5, gauge("report.llm.limit"), 1e-9);
+
+        // 耗时远超基线时按比例缩小
+        AdaptiveConcurrencyLimiter.Permit slow = limiter.acquire(ChatPriority.REPORT);
+        limiter.release(new AdaptiveConcurrencyLimiter.Permit(slow.priority(),
+                slow.grantedAt() - TimeUnit.SECONDS.toNanos(10)), false);
+        assertEquals(2.25, gauge("report.llm.limit"), 1e-9);
+
+        // 被限流时大幅缩小，不低于最小上限
+        limiter.release(limiter.acquire(ChatPriority.REPORT), true);
+        assertEquals(1.125, gauge("report.llm.limit"), 1e-9);
+        limiter.release(limiter.acquire(ChatPriority.REPORT), true);
+        assertEquals(1.0, gauge("report.llm.limit"), 1e-9);
+        assertEquals(2.0, meterRegistry.counter("report.llm.throttled").count());
+        assertEquals(0.0, gauge("report.llm.inflight"));
+    }
+
+    @Test
+    void dispatchesWaitersByPriorityThenArrival() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(1, 1), meterRegistry);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(ChatPriority.REPORT);
+
+        List<CompletableFuture<AdaptiveConcurrencyLimiter.Permit>> waiters = new ArrayList<>();
+        for (ChatPriority priority : List.of(ChatPriority.BATCH, ChatPriority.INTERACTIVE, ChatPriority.REPORT,
+                ChatPriority.INTERACTIVE)) {
+            waiters.add(limiter.acquireAsync(priority));
+        }
+        assertEquals(4.0, gauge("report.llm.queue.size"));
+
+        List<Integer> order = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit current = held;
+        for (int i = 0; i < waiters.size(); i++) {
+            limiter.release(current, false);
+            int granted = -1;
+            for (int w = 0; w < waiters.size(); w++) {
+                if (waiters.get(w).isDone() && !order.contains(w)) {
+                    assertEquals(-1, granted, "并发上限为 1 时每次只放行一个请求");
+                    granted = w;
+                }
+            }
+            order.add(granted);
+            current = waiters.get(granted).get();
+        }
+        assertEquals(List.of(1, 3, 2, 0), order);
+        limiter.release(current, false);
+        assertEquals(0.0, gauge("report.llm.inflight"));
+    }
+
+    @Test
+    void rejectsWaitersAfterQueueTimeoutOrWhenQueueIsFull() throws Exception {
+        LlmLimiterProperties properties = properties(1, 1);
+        properties.setQueueTimeoutMs(50);
+        properties.setMaxQueueSize(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(ChatPriority.REPORT);
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiter = limiter.acquireAsync(ChatPriority.BATCH);
+        assertThrows(ReportGenerationException.class, () -> limiter.acquire(ChatPriority.REPORT));
+
+        ExecutionException timeout = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ReportGenerationException.class, timeout.getCause());
+        assertEquals(1.0, meterRegistry.counter("report.llm.rejected", "priority", "BATCH", "reason", "timeout").count());
+        assertEquals(1.0, meterRegistry.counter("report.llm.rejected", "priority", "REPORT", "reason", "queue_full").count());
+        assertEquals(0.0, gauge("report.llm.queue.size"));
+
+        // 超时的请求不再占用许可
+        limiter.release(held, false);
+        assertEquals(0.0, gauge("report.llm.inflight"));
+    }
+
+    @Test
+    void returnsPermitWhenWaiterIsCancelled() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(1, 1), meterRegistry);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(ChatPriority.REPORT);
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> cancelled = limiter.acquireAsync(ChatPriority.INTERACTIVE);
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> next = limiter.acquireAsync(ChatPriority.REPORT);
+        assertTrue(cancelled.cancel(false));
+
+        limiter.release(held, false);
+        assertTrue(next.isDone());
+        assertFalse(next.isCompletedExceptionally());
+        assertEquals(1.0, gauge("report.llm.inflight"));
+
+        limiter.release(next.get(), false);
+        assertEquals(0.0, gauge("report.llm.inflight"));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private static LlmLimiterProperties properties(int initialLimit, int maxLimit) {
+        LlmLimiterProperties properties = new LlmLimiterProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(maxLimit);
+        // 测试中的调用耗时只有微秒级，放宽容忍倍数避免计时抖动触发缩小
+        properties.setLatencyTolerance(1000);
+        return properties;
+    }
+}
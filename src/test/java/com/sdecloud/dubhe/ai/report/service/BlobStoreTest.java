@@ -0,0 +1,83 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.util.QueryResultParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 大对象存储测试：写入器超过阈值后落盘、查询结果流式预览
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class BlobStoreTest {
+
+    private static final int THRESHOLD = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writerKeepsSmallValuesInMemoryAndSpillsLargeOnes() throws Exception {
+        BlobStore store = open();
+
+        BlobStore.BlobWriter small = store.openWriter("run-1");
+        small.write("[]");
+        small.close();
+        assertEquals("[]", small.value());
+
+        String text = "x".repeat(THRESHOLD * 3);
+        BlobStore.BlobWriter large = store.openWriter("run-1");
+        for (int i = 0; i < text.length(); i += 10) {
+            large.write(text, i, Math.min(10, text.length() - i));
+        }
+        large.close();
+        assertTrue(BlobStore.isHandle(large.value()));
+        assertEquals(text, store.read(large.value()));
+
+        BlobStore.BlobWriter withoutRun = store.openWriter(null);
+        withoutRun.write(text);
+        withoutRun.close();
+        assertEquals(text, withoutRun.value());
+    }
+
+    @Test
+    void previewKeepsLeadingRowsOfEachArray() throws Exception {
+        BlobStore store = open();
+        BlobStore.BlobWriter writer = store.openWriter("run-2");
+        writer.write("{\"a\":[{\"v\":1},{\"v\":2},{\"v\":3}],\"b\":{\"data\":[{\"v\":4},{\"v\":5}]},\"c\":{\"error\":\"x\"}}"
+                + " ".repeat(THRESHOLD));
+        writer.close();
+
+        QueryResultParser.Preview preview = store.preview(writer.value());
+        assertTrue(preview.truncated());
+        assertEquals("{\"a\":[{\"v\":1},{\"v\":2}],\"b\":{\"data\":[{\"v\":4},{\"v\":5}]},\"c\":{\"error\":\"x\"}}",
+                preview.text());
+
+        QueryResultParser.Preview exact = store.preview("[{\"v\":1},{\"v\":2}]");
+        assertFalse(exact.truncated());
+        assertEquals("[{\"v\":1},{\"v\":2}]", exact.text());
+    }
+
+    @Test
+    void previewFallsBackToPrefixForPlainText() {
+        BlobStore store = open();
+        String text = "查询失败：" + "y".repeat(THRESHOLD * 2);
+
+        QueryResultParser.Preview preview = store.preview(text);
+        assertTrue(preview.truncated());
+        assertEquals(text.substring(0, THRESHOLD), preview.text());
+        assertFalse(store.preview("short").truncated());
+    }
+
+    private BlobStore open() {
+        return new BlobStore(true, dir.toString(), THRESHOLD, 2, 24, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,89 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 上下文装配测试：按相关度在 Token 预算内装配、去除近似重复、超出预算时按句子截断
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class ContextPackerTest {
+
+    private static final String CALLER = "test";
+
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ContextPacker packer;
+
+    @BeforeEach
+    void setUp() {
+        packer = new ContextPacker(meterRegistry);
+        ReflectionTestUtils.setField(packer, "defaultTokenBudget", 1500);
+        ReflectionTestUtils.setField(packer, "duplicateThreshold", 0.85);
+        ReflectionTestUtils.setField(packer, "minTruncateTokens", 5);
+    }
+
+    @Test
+    void packsByScoreWithinBudget() {
+        String low = "毛利率等于毛利除以销售额。";
+        String high = "销售额等于订单金额之和。";
+
+        ContextPacker.PackedContext packed = packer.pack(List.of(doc(low, 0.2), doc(high, 0.9)), CALLER);
+
+        assertEquals(high + "\n\n" + low, packed.text());
+        assertEquals(2, packed.included());
+        assertEquals(estimator.estimate(high) + estimator.estimate("\n\n") + estimator.estimate(low), packed.tokens());
+        assertFalse(packed.truncated());
+    }
+
+    @Test
+    void dropsNearDuplicates() {
+        String text = "销售额统计口径：含税订单金额，按下单日期归属月份，退款订单不计入。";
+
+        ContextPacker.PackedContext packed = packer.pack(List.of(doc(text, 0.9), doc(text + " ", 0.8),
+                doc("部门编码以 T 开头为技术部。", 0.5)), CALLER);
+
+        assertEquals(2, packed.included());
+        assertEquals(1, packed.duplicates());
+        assertEquals(1.0, meterRegistry.counter("report.context.dropped", "caller", CALLER, "reason", "duplicate").count());
+    }
+
+    @Test
+    void truncatesAtSentenceBoundaryAndDropsTheRest() {
+        String first = "销售额等于订单金额之和。";
+        String second = "毛利率等于毛利除以销售额。毛利等于销售额减去成本。成本包含采购和物流费用。"
+                + "物流费用按订单重量分摊。采购费用按入库批次计算。";
+        String third = "部门编码以 T 开头为技术部，以 S 开头为销售部。";
+        int budget = estimator.estimate(first) + estimator.estimate("\n\n") + estimator.estimate(second) / 2;
+
+        ContextPacker.PackedContext packed = packer.pack(List.of(doc(first, 0.9), doc(second, 0.8),
+                doc(third, 0.7)), CALLER, budget);
+
+        assertTrue(packed.truncated());
+        assertEquals(2, packed.included());
+        assertEquals(1, packed.overBudget());
+        assertTrue(packed.tokens() <= budget, packed.tokens() + " > " + budget);
+        String head = packed.text().substring(first.length() + 2);
+        assertTrue(second.startsWith(head) && head.length() < second.length(), head);
+        assertTrue(head.endsWith("。"), head);
+        assertEquals(1.0, meterRegistry.counter("report.context.truncated", "caller", CALLER).count());
+    }
+
+    private static Document doc(String text, double score) {
+        return Document.builder().text(text).metadata(Map.of()).score(score).build();
+    }
+}
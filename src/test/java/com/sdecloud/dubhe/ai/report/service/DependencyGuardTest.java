@@ -0,0 +1,149 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.LlmLimiterProperties;
+import com.sdecloud.dubhe.ai.report.config.ResilienceProperties;
+import com.sdecloud.dubhe.ai.report.exception.ReportGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 依赖熔断器与隔离舱测试：熔断器状态切换、隔离舱已满时拒绝、响应式获取许可不阻塞订阅线程
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class DependencyGuardTest {
+
+    private static final String DEPENDENCY = "mcp-test";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void opensOnFailureRateThenHalfOpensAndCloses() throws Exception {
+        DependencyGuard guard = guard(policy(100, 0));
+
+        succeed(guard);
+        fail(guard, "boom");
+        succeed(guard);
+        assertEquals(DependencyGuard.State.CLOSED, state(guard));
+        fail(guard, "boom");
+        assertEquals(DependencyGuard.State.OPEN, state(guard));
+        assertTrue(guard.isOpen(DEPENDENCY));
+        assertEquals("CIRCUIT_OPEN", code(() -> succeed(guard)));
+
+        // 熔断时间结束后放行试探调用，试探失败重新熔断
+        Thread.sleep(150);
+        fail(guard, "boom");
+        assertEquals(DependencyGuard.State.OPEN, state(guard));
+
+        // 试探调用全部成功后关闭
+        Thread.sleep(150);
+        succeed(guard);
+        assertEquals(DependencyGuard.State.HALF_OPEN, state(guard));
+        succeed(guard);
+        assertEquals(DependencyGuard.State.CLOSED, state(guard));
+        assertEquals(0, guard.snapshots().get(DEPENDENCY).bufferedCalls());
+        assertEquals(1.0, meterRegistry.counter("report.dependency.transitions",
+                "dependency", DEPENDENCY, "state", "CLOSED").count());
+    }
+
+    @Test
+    void upstreamRejectionsDoNotCountAsFailures() {
+        DependencyGuard guard = guard(policy(100, 0));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ReportGenerationException.class, () -> guard.call(DEPENDENCY, () -> {
+                throw new ReportGenerationException("LLM_OVERLOADED", "chatModel", "排队请求过多");
+            }));
+        }
+        assertEquals(DependencyGuard.State.CLOSED, state(guard));
+        assertEquals(0, guard.snapshots().get(DEPENDENCY).bufferedCalls());
+    }
+
+    @Test
+    void bulkheadRejectsWhenFull() {
+        DependencyGuard guard = guard(policy(100, 0));
+        DependencyGuard.Permit held = guard.acquire(DEPENDENCY);
+
+        assertEquals("BULKHEAD_FULL", code(() -> guard.acquire(DEPENDENCY)));
+        assertEquals("BULKHEAD_FULL", code(() -> guard.acquireReactive(DEPENDENCY).block()));
+        assertEquals(2.0, meterRegistry.counter("report.dependency.rejected",
+                "dependency", DEPENDENCY, "reason", "bulkhead_full").count());
+        assertEquals(1, guard.snapshots().get(DEPENDENCY).inFlight());
+
+        guard.release(held, null);
+        guard.release(guard.acquire(DEPENDENCY), null);
+        assertEquals(0, guard.snapshots().get(DEPENDENCY).inFlight());
+        // 隔离舱拒绝不计入失败率
+        assertEquals(2, guard.snapshots().get(DEPENDENCY).bufferedCalls());
+    }
+
+    @Test
+    void reactiveAcquireWaitsOffTheSubscribingThread() throws Exception {
+        DependencyGuard guard = guard(policy(100, 5000));
+
+        Thread caller = Thread.currentThread();
+        assertSame(caller, guard.acquireReactive(DEPENDENCY)
+                .doOnNext(permit -> guard.release(permit, null))
+                .map(permit -> Thread.currentThread())
+                .block());
+
+        DependencyGuard.Permit held = guard.acquire(DEPENDENCY);
+        CompletableFuture<Thread> waiter = guard.acquireReactive(DEPENDENCY)
+                .doOnNext(permit -> guard.release(permit, null))
+                .map(permit -> Thread.currentThread())
+                .toFuture();
+        Thread.sleep(50);
+        assertFalse(waiter.isDone());
+
+        guard.release(held, null);
+        Thread thread = waiter.get(5, TimeUnit.SECONDS);
+        assertTrue(thread.getName().startsWith("boundedElastic"), thread.getName());
+        assertEquals(0, guard.snapshots().get(DEPENDENCY).inFlight());
+    }
+
+    private DependencyGuard guard(ResilienceProperties.Policy policy) {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getDependencies().put(DEPENDENCY, policy);
+        return new DependencyGuard(properties, new LlmLimiterProperties(), meterRegistry);
+    }
+
+    private static ResilienceProperties.Policy policy(long openDurationMs, long maxWaitMs) {
+        ResilienceProperties.Policy policy = new ResilienceProperties.Policy();
+        policy.setWindowSize(4);
+        policy.setMinimumCalls(4);
+        policy.setFailureRateThreshold(0.5);
+        policy.setOpenDurationMs(openDurationMs);
+        policy.setHalfOpenCalls(2);
+        policy.setMaxConcurrent(1);
+        policy.setMaxWaitMs(maxWaitMs);
+        return policy;
+    }
+
+    private static void succeed(DependencyGuard guard) {
+        guard.call(DEPENDENCY, () -> "ok");
+    }
+
+    private static void fail(DependencyGuard guard, String message) {
+        assertThrows(IllegalStateException.class, () -> guard.call(DEPENDENCY, () -> {
+            throw new IllegalStateException(message);
+        }));
+    }
+
+    private static DependencyGuard.State state(DependencyGuard guard) {
+        return guard.snapshots().get(DEPENDENCY).state();
+    }
+
+    private static String code(Runnable action) {
+        return assertThrows(ReportGenerationException.class, action::run).getErrorCode();
+    }
+}
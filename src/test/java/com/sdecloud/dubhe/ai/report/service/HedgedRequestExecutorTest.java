@@ -0,0 +1,127 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.HedgingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 对冲请求执行器测试：原始请求在调用线程执行、对冲胜出时中断原始请求、线程池已满时不对冲
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class HedgedRequestExecutorTest {
+
+    private static final String NODE = "nl2sql";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HedgedRequestExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void runsPrimaryOnCallerThread() {
+        executor = new HedgedRequestExecutor(properties(1), meterRegistry);
+        warmUp();
+        Thread caller = Thread.currentThread();
+
+        assertSame(caller, executor.execute(NODE, Thread::currentThread));
+        assertSame(caller, executor.execute(null, Thread::currentThread));
+    }
+
+    @Test
+    void hedgeWinsAndInterruptsSlowPrimary() {
+        executor = new HedgedRequestExecutor(properties(1), meterRegistry);
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = executor.execute(NODE, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(5000);
+                return "primary";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(1.0, meterRegistry.counter("report.llm.hedge.won", "node", NODE).count());
+    }
+
+    @Test
+    void skipsHedgeWhenPoolIsSaturated() throws Exception {
+        executor = new HedgedRequestExecutor(properties(1), meterRegistry);
+        warmUp();
+        CountDownLatch hedgeStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // 第一次调用的对冲请求一直占用唯一的对冲线程
+        Thread first = new Thread(() -> executor.execute(NODE, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                await(release);
+                return "primary";
+            }
+            hedgeStarted.countDown();
+            await(release);
+            return "hedge";
+        }));
+        first.start();
+        hedgeStarted.await(5, TimeUnit.SECONDS);
+
+        assertEquals("second", executor.execute(NODE, () -> {
+            sleep(200);
+            return "second";
+        }));
+        assertEquals(1.0, meterRegistry.counter("report.llm.hedge.skipped", "node", NODE, "reason", "saturated").count());
+
+        release.countDown();
+        first.join(5000);
+    }
+
+    private void warmUp() {
+        executor.execute(NODE, () -> "warm-up");
+    }
+
+    private static HedgingProperties properties(int maxConcurrent) {
+        HedgingProperties properties = new HedgingProperties();
+        properties.setEnabled(true);
+        properties.setNodes(List.of(NODE));
+        properties.setMinSamples(1);
+        properties.setMinDelayMs(20);
+        properties.setBudgetRatio(1.0);
+        properties.setMaxConcurrent(maxConcurrent);
+        return properties;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        }
+    }
+}
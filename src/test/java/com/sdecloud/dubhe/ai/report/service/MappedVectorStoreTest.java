@@ -0,0 +1,150 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内存映射向量存储测试：ID 索引、过滤条件检索与删除、多实例共享
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class MappedVectorStoreTest {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private final FakeEmbeddingModel model = new FakeEmbeddingModel();
+
+    @Test
+    void skipsUnchangedDocumentsAndReplacesChangedOnes() throws Exception {
+        try (MappedVectorStore store = open()) {
+            store.add(List.of(doc("a", "alpha", "x"), doc("b", "beta", "y")));
+            store.add(List.of(doc("a", "alpha", "x")));
+            assertEquals(2, model.embedded.get());
+
+            store.add(List.of(doc("a", "alpha v2", "x")));
+            assertEquals(3, model.embedded.get());
+            List<Document> results = store.similaritySearch(SearchRequest.builder().query("alpha v2").topK(5).build());
+            assertEquals(2, results.size());
+            assertEquals("a", results.get(0).getId());
+            assertEquals("alpha v2", results.get(0).getText());
+        }
+    }
+
+    @Test
+    void filtersSearchAndDeletesByMetadata() throws Exception {
+        try (MappedVectorStore store = open()) {
+            store.add(List.of(doc("a", "alpha", "x"), doc("b", "beta", "y"), doc("c", "gamma", "x")));
+
+            List<Document> filtered = store.similaritySearch(SearchRequest.builder()
+                    .query("beta").topK(5).filterExpression("source == 'x'").build());
+            assertEquals(Set.of("a", "c"), ids(filtered));
+
+            store.delete("source == 'x'");
+            assertEquals(Set.of("b"), ids(store.similaritySearch(SearchRequest.builder().query("alpha").topK(5).build())));
+        }
+    }
+
+    @Test
+    void idIndexSurvivesGrowthDeletionAndReopen() throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            documents.add(doc("doc-" + i, "text " + i, i % 2 == 0 ? "even" : "odd"));
+        }
+        try (MappedVectorStore store = open()) {
+            store.add(documents);
+            store.delete(List.of("doc-1", "doc-2"));
+            store.retainOnly(Set.of("doc-0", "doc-3", "doc-4"));
+        }
+        try (MappedVectorStore store = open()) {
+            model.embedded.set(0);
+            store.add(List.of(doc("doc-0", "text 0", "even"), doc("doc-1", "text 1", "odd")));
+            // doc-0 未变化，已删除的 doc-1 重新写入
+            assertEquals(1, model.embedded.get());
+            assertEquals(Set.of("doc-0", "doc-1", "doc-3", "doc-4"),
+                    ids(store.similaritySearch(SearchRequest.builder().query("text 0").topK(10).build())));
+        }
+    }
+
+    @Test
+    void secondInstanceSeesWritesThroughSharedIndex() throws Exception {
+        try (MappedVectorStore writer = open(); MappedVectorStore reader = open()) {
+            writer.add(List.of(doc("a", "alpha", "x")));
+            reader.add(List.of(doc("a", "alpha", "x")));
+            assertEquals(1, model.embedded.get());
+
+            reader.delete(List.of("a"));
+            assertTrue(writer.similaritySearch(SearchRequest.builder().query("alpha").topK(5).build()).isEmpty());
+        }
+    }
+
+    private MappedVectorStore open() throws Exception {
+        return new MappedVectorStore(model, dir, CHUNK_BYTES, 4, 1000);
+    }
+
+    private static Document doc(String id, String text, String source) {
+        return new Document(id, text, Map.of("source", source));
+    }
+
+    private static Set<String> ids(List<Document> documents) {
+        return Set.copyOf(documents.stream().map(Document::getId).toList());
+    }
+
+    /**
+     * 按文本哈希生成确定的 8 维向量，并统计向量化的文档数
+     */
+    private static class FakeEmbeddingModel implements EmbeddingModel {
+
+        private final AtomicInteger embedded = new AtomicInteger();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embedded.incrementAndGet();
+                embeddings.add(new Embedding(vector(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(String text) {
+            return vector(text);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        private static float[] vector(String text) {
+            float[] vector = new float[8];
+            int h = text.hashCode();
+            for (int i = 0; i < vector.length; i++) {
+                h = h * 31 + i;
+                vector[i] = Math.floorMod(h, 1000) / 1000f;
+            }
+            vector[0] += 0.01f;
+            return vector;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.sdecloud.dubhe.ai.report.service;
+
+import com.sdecloud.dubhe.ai.report.config.DecompositionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+/**
+ * 子查询执行器测试：按提交顺序返回结果、线程池已满时在调用线程执行
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class SubQueryExecutorTest {
+
+    private SubQueryExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void returnsResultsInSubmissionOrder() {
+        executor = new SubQueryExecutor(properties(4, 4));
+        Thread caller = Thread.currentThread();
+
+        List<Supplier<Thread>> tasks = List.of(Thread::currentThread, Thread::currentThread, Thread::currentThread);
+        List<Thread> threads = executor.invokeAll(tasks);
+        assertEquals(3, threads.size());
+        threads.forEach(thread -> assertNotSame(caller, thread));
+
+        assertEquals(List.of(1, 2, 3), executor.invokeAll(List.<Supplier<Integer>>of(() -> 1, () -> 2, () -> 3)));
+    }
+
+    @Test
+    void runsOnCallerThreadWhenPoolAndQueueAreFull() throws Exception {
+        executor = new SubQueryExecutor(properties(1, 1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Integer> blocking = () -> {
+            started.countDown();
+            await(release);
+            return 0;
+        };
+
+        // 占满唯一的线程和唯一的排队位置
+        Thread first = new Thread(() -> executor.invokeAll(List.of(blocking, blocking)));
+        first.start();
+        started.await(5, TimeUnit.SECONDS);
+        Thread second = new Thread(() -> executor.invokeAll(List.of(blocking, blocking)));
+        second.start();
+        Thread.sleep(100);
+
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = executor.invokeAll(List.<Supplier<Thread>>of(Thread::currentThread, Thread::currentThread));
+        assertEquals(List.of(caller, caller), threads);
+
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+    }
+
+    private static DecompositionProperties properties(int maxThreads, int queueCapacity) {
+        DecompositionProperties properties = new DecompositionProperties();
+        properties.setConcurrency(2);
+        properties.setTimeoutMs(5000);
+        properties.setMaxThreads(maxThreads);
+        properties.setQueueCapacity(queueCapacity);
+        return properties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 列式结果集测试：筛选和聚合中的空值、多列分组键及其溢出、降序排序空值在后
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class ColumnarTableTest {
+
+    private final ColumnarTable table = ColumnarTable.fromRows(List.of(
+            row("dept", "技术部", "month", "2024-01", "amount", 100),
+            row("dept", "技术部", "month", "2024-02", "amount", null),
+            row("dept", "销售部", "month", "2024-01", "amount", 300),
+            row("dept", null, "month", "2024-01", "amount", 50),
+            row("dept", "销售部", "month", "2024-02", "amount", 200),
+            row("dept", "技术部", "month", "2024-01", "amount", 150)));
+
+    @Test
+    void filtersMatchNullsOnlyForNotEqual() {
+        int[] all = table.allRows();
+
+        assertArrayEquals(new int[]{0, 1, 5}, table.filter(all, "dept", "eq", List.of("技术部")));
+        assertArrayEquals(new int[]{2, 3, 4}, table.filter(all, "dept", "ne", List.of("技术部")));
+        assertArrayEquals(new int[]{2, 4}, table.filter(all, "amount", "gte", List.of(200)));
+        assertArrayEquals(new int[]{0, 1, 2, 4, 5}, table.filter(all, "amount", "ne", List.of(50)));
+        assertArrayEquals(new int[]{0, 3, 5}, table.filter(all, "amount", "between", List.of("50", "150")));
+        assertThrows(IllegalArgumentException.class, () -> table.filter(all, "amount", "eq", List.of("abc")));
+    }
+
+    @Test
+    void aggregatesSkipNullValuesAndGroupNullKeys() {
+        List<Map<String, Object>> rows = table.aggregate(table.allRows(), List.of("dept"), List.of(
+                new ColumnarTable.Aggregate("amount", "sum", null),
+                new ColumnarTable.Aggregate("amount", "avg", null),
+                new ColumnarTable.Aggregate("amount", "min", null),
+                new ColumnarTable.Aggregate("amount", "count", null),
+                new ColumnarTable.Aggregate("*", "count", "rows"))).toRows();
+
+        assertEquals(3, rows.size());
+        assertEquals(row("dept", "技术部", "sum_amount", 250L, "avg_amount", 125L, "min_amount", 100L,
+                "count_amount", 2L, "rows", 3L), rows.get(0));
+        assertEquals(row("dept", "销售部", "sum_amount", 500L, "avg_amount", 250L, "min_amount", 200L,
+                "count_amount", 2L, "rows", 2L), rows.get(1));
+        assertEquals(row("dept", null, "sum_amount", 50L, "avg_amount", 50L, "min_amount", 50L,
+                "count_amount", 1L, "rows", 1L), rows.get(2));
+
+        // 全为空值的分组：sum、avg、min 为空，count 为 0
+        Map<String, Object> empty = table.aggregate(new int[]{1}, List.of(), List.of(
+                new ColumnarTable.Aggregate("amount", "sum", null),
+                new ColumnarTable.Aggregate("amount", "avg", null),
+                new ColumnarTable.Aggregate("amount", "max", null),
+                new ColumnarTable.Aggregate("amount", "count", null))).toRows().get(0);
+        assertNull(empty.get("sum_amount"));
+        assertNull(empty.get("avg_amount"));
+        assertNull(empty.get("max_amount"));
+        assertEquals(0L, empty.get("count_amount"));
+    }
+
+    @Test
+    void groupsByMultipleColumns() {
+        ColumnarTable grouped = table.aggregate(table.allRows(), List.of("dept", "month"),
+                List.of(new ColumnarTable.Aggregate("amount", "sum", "total")));
+
+        assertEquals(List.of("dept", "month", "total"), grouped.columnNames());
+        assertEquals(List.of(
+                row("dept", "技术部", "month", "2024-01", "total", 250L),
+                row("dept", "技术部", "month", "2024-02", "total", null),
+                row("dept", "销售部", "month", "2024-01", "total", 300L),
+                row("dept", null, "month", "2024-01", "total", 50L),
+                row("dept", "销售部", "month", "2024-02", "total", 200L)), grouped.toRows());
+    }
+
+    @Test
+    void groupKeyOverflowIsReported() {
+        // 7 个分组列各 1000 个取值，基数之积约为 1e21，超出 long 范围
+        int columns = 7;
+        int distinct = 1000;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < distinct; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int c = 0; c < columns; c++) {
+                row.put("c" + c, "v" + i);
+            }
+            rows.add(row);
+        }
+        ColumnarTable wide = ColumnarTable.fromRows(rows);
+        List<String> groupBy = new ArrayList<>(wide.columnNames());
+
+        assertThrows(ArithmeticException.class, () -> wide.aggregate(wide.allRows(), groupBy,
+                List.of(new ColumnarTable.Aggregate("*", "count", null))));
+        assertEquals(distinct, wide.aggregate(wide.allRows(), groupBy.subList(0, 6),
+                List.of(new ColumnarTable.Aggregate("*", "count", null))).rowCount());
+    }
+
+    @Test
+    void descendingSortKeepsNullsLast() {
+        int[] all = table.allRows();
+
+        assertArrayEquals(new int[]{2, 4, 5, 0, 3, 1},
+                table.sort(all, List.of(new ColumnarTable.SortKey("amount", true))));
+        assertArrayEquals(new int[]{3, 0, 5, 4, 2, 1},
+                table.sort(all, List.of(new ColumnarTable.SortKey("amount", false))));
+        assertArrayEquals(new int[]{2, 4, 5, 0, 1, 3}, table.sort(all, List.of(
+                new ColumnarTable.SortKey("dept", true), new ColumnarTable.SortKey("amount", true))));
+    }
+
+    private static Map<String, Object> row(Object... keyValues) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,72 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 过期 LRU 缓存测试：按数量淘汰最久未使用的条目、按写入时间或最后使用时间过期
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class ExpiringLruCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(2, 1000, false, now::get);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(Optional.of(1), cache.get("a"));
+        assertTrue(cache.get("b").isEmpty());
+        assertEquals(Optional.of(3), cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void expiresByWriteTimeWithoutRefreshOnRead() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, 100, false, now::get);
+        cache.put("a", 1);
+        now.set(80);
+        assertEquals(Optional.of(1), cache.get("a"));
+
+        now.set(150);
+        assertTrue(cache.get("a").isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void refreshOnReadExtendsLifetime() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, 100, true, now::get);
+        cache.put("a", 1);
+        now.set(80);
+        assertEquals(Optional.of(1), cache.get("a"));
+
+        now.set(150);
+        assertEquals(Optional.of(1), cache.get("a"));
+        now.set(300);
+        assertTrue(cache.get("a").isEmpty());
+    }
+
+    @Test
+    void putPurgesExpiredEntries() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, 100, false, now::get);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        now.set(200);
+        cache.put("c", 3);
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.remove("c"));
+        assertEquals(0, cache.size());
+    }
+}
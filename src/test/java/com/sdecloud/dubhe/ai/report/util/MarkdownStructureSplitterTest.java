@@ -0,0 +1,94 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Markdown 结构感知分割器测试：按标题层级切分章节和单元、在表格边界切分、超长表格按行切分并重复表头
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class MarkdownStructureSplitterTest {
+
+    private static final String MANUAL = String.join("\n",
+            "# 指标手册",
+            "前言说明。",
+            "## 销售指标",
+            "### 销售额",
+            "销售额=订单金额之和。",
+            "-",
+            "### 毛利率",
+            "毛利率=毛利/销售额。",
+            "## 部门表",
+            "部门说明文字。",
+            "| 部门 | 编码 |",
+            "|---|---|",
+            "| 技术部 | T01 |",
+            "| 销售部 | S01 |",
+            "",
+            "表后说明。");
+
+    @Test
+    void splitsSectionsAtLevelTwoHeadingsAndUnitsAtLevelThree() {
+        List<MarkdownStructureSplitter.Section> sections = new MarkdownStructureSplitter(2000)
+                .parseSections(new Document(MANUAL, Map.of("source", "manual.md")));
+
+        assertEquals(List.of("指标手册", "销售指标", "部门表"),
+                sections.stream().map(MarkdownStructureSplitter.Section::title).toList());
+        assertEquals(List.of("1", "2", "3"), sections.stream().map(MarkdownStructureSplitter.Section::id).toList());
+
+        MarkdownStructureSplitter.Section metrics = sections.get(1);
+        assertTrue(metrics.text().startsWith("## 销售指标"));
+        assertEquals(2, metrics.units().size());
+        Document revenue = metrics.units().get(0);
+        assertEquals("【销售指标】\n### 销售额\n销售额=订单金额之和。", revenue.getText());
+        assertEquals("销售额", revenue.getMetadata().get(MarkdownStructureSplitter.META_UNIT_TITLE));
+        assertEquals("2", revenue.getMetadata().get(MarkdownStructureSplitter.META_SECTION_ID));
+        assertEquals("manual.md", revenue.getMetadata().get("source"));
+        assertEquals("kb-2-1", metrics.units().get(1).getId());
+        assertEquals(1, metrics.units().get(1).getMetadata().get(MarkdownStructureSplitter.META_UNIT_INDEX));
+    }
+
+    @Test
+    void splitsAtTableBoundaries() {
+        List<Document> units = new MarkdownStructureSplitter(2000)
+                .apply(List.of(new Document(MANUAL, Map.of("source", "manual.md"))));
+        List<Document> departments = units.stream()
+                .filter(u -> "部门表".equals(u.getMetadata().get(MarkdownStructureSplitter.META_SECTION_TITLE)))
+                .toList();
+
+        assertEquals(List.of("text", "table", "text"), departments.stream()
+                .map(u -> u.getMetadata().get(MarkdownStructureSplitter.META_UNIT_TYPE)).toList());
+        assertEquals("【部门表】\n部门说明文字。", departments.get(0).getText());
+        assertEquals("【部门表】部门表（表格）\n| 部门 | 编码 |\n|---|---|\n| 技术部 | T01 |\n| 销售部 | S01 |",
+                departments.get(1).getText());
+        assertEquals("【部门表】\n表后说明。", departments.get(2).getText());
+    }
+
+    @Test
+    void splitsOversizedTableByRowsWithRepeatedHeader() {
+        StringBuilder text = new StringBuilder("## 员工表\n| 姓名 | 部门 |\n|---|---|\n");
+        for (int i = 0; i < 20; i++) {
+            text.append("| 员工").append(i).append(" | 技术部 |\n");
+        }
+
+        List<Document> units = new MarkdownStructureSplitter(80)
+                .apply(List.of(new Document(text.toString(), Map.of("source", "staff.md"))));
+
+        assertTrue(units.size() > 1);
+        int rows = 0;
+        for (Document unit : units) {
+            String body = unit.getText().substring(unit.getText().indexOf('\n') + 1);
+            assertTrue(body.startsWith("| 姓名 | 部门 |\n|---|---|\n"), body);
+            rows += (int) body.lines().skip(2).count();
+        }
+        assertEquals(20, rows);
+    }
+}
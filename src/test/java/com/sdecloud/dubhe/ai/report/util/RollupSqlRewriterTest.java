@@ -0,0 +1,105 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 销售汇总表 SQL 改写规则测试
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class RollupSqlRewriterTest {
+
+    private static final String ROLLUP = "sales_rollup_month";
+
+    @Test
+    void rewritesSumWithTableAlias() {
+        assertRewritten("SELECT d.dept_name, SUM(s.amount_sum) AS total FROM sales_rollup_month s "
+                        + "JOIN dept d ON s.dept_id = d.dept_id GROUP BY d.dept_name",
+                "SELECT d.dept_name, SUM(s.sales_amount) AS total FROM sales s "
+                        + "JOIN dept d ON s.dept_id = d.dept_id GROUP BY d.dept_name;");
+    }
+
+    @Test
+    void rewritesAvgAndRowCountWithMonthAlignedRange() {
+        assertRewritten("SELECT (SUM(amount_sum) / SUM(amount_count)), SUM(row_count) FROM sales_rollup_month sales "
+                        + "WHERE month_start >= '2024-01-01' AND month_start < '2024-04-01'",
+                "SELECT AVG(sales_amount), COUNT(*) FROM sales "
+                        + "WHERE sales_date >= '2024-01-01' AND sales_date < '2024-04-01'");
+    }
+
+    @Test
+    void rewritesMonthFormatAndAmountCount() {
+        assertRewritten("SELECT DATE_FORMAT(month_start, '%Y-%m') AS m, SUM(amount_count) "
+                        + "FROM sales_rollup_month sales GROUP BY m",
+                "SELECT DATE_FORMAT(sales_date, '%Y-%m') AS m, COUNT(sales_amount) FROM sales GROUP BY m");
+    }
+
+    @Test
+    void rewritesWholeMonthBetweenAndYearLike() {
+        assertRewritten("SELECT SUM(amount_sum) FROM sales_rollup_month sales "
+                        + "WHERE month_start BETWEEN '2024-01-01' AND '2024-03-31'",
+                "SELECT SUM(sales_amount) FROM sales WHERE sales_date BETWEEN '2024-01-01' AND '2024-03-31'");
+        assertRewritten("SELECT YEAR(month_start) y, SUM(amount_sum) FROM sales_rollup_month sales "
+                        + "WHERE month_start LIKE '2024%' GROUP BY y",
+                "SELECT YEAR(sales_date) y, SUM(sales_amount) FROM sales WHERE sales_date LIKE '2024%' GROUP BY y");
+    }
+
+    @Test
+    void keepsAggregatesIndependentOfRowCount() {
+        assertRewritten("SELECT d.dept_name, COUNT(DISTINCT s.product_id), MAX(p.product_name) "
+                        + "FROM sales_rollup_month s JOIN product p ON s.product_id = p.product_id "
+                        + "JOIN dept d ON s.dept_id = d.dept_id GROUP BY d.dept_name",
+                "SELECT d.dept_name, COUNT(DISTINCT s.product_id), MAX(p.product_name) "
+                        + "FROM sales s JOIN product p ON s.product_id = p.product_id "
+                        + "JOIN dept d ON s.dept_id = d.dept_id GROUP BY d.dept_name");
+    }
+
+    /**
+     * 按行计数或求和的维度聚合在汇总表上会变成按汇总行计算
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "SELECT s.product_id, COUNT(s.dept_id) FROM sales s GROUP BY s.product_id",
+            "SELECT COUNT(s.product_id) FROM sales s",
+            "SELECT d.dept_name, COUNT(p.product_name) FROM sales s JOIN product p ON s.product_id = p.product_id "
+                    + "JOIN dept d ON s.dept_id = d.dept_id GROUP BY d.dept_name",
+            "SELECT p.category, COUNT(d.dept_name) FROM sales s JOIN product p ON s.product_id = p.product_id "
+                    + "JOIN dept d ON s.dept_id = d.dept_id GROUP BY p.category",
+            "SELECT AVG(p.price) FROM sales s JOIN product p ON s.product_id = p.product_id",
+            "SELECT SUM(s.dept_id) FROM sales s"
+    })
+    void rejectsRowDependentDimensionAggregates(String sql) {
+        assertNotRewritten(sql);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "SELECT SUM(sales_amount) FROM sales WHERE sales_date >= '2024-01-15'",
+            "SELECT SUM(sales_amount) FROM sales WHERE sales_date BETWEEN '2024-01-01' AND '2024-03-30'",
+            "SELECT DATE_FORMAT(sales_date, '%Y-%m-%d') AS d, SUM(sales_amount) FROM sales GROUP BY d",
+            "SELECT SUM(sales_amount) FROM sales WHERE dept_id IN (SELECT dept_id FROM dept)",
+            "SELECT id, sales_amount FROM sales WHERE id > 10 GROUP BY id",
+            "SELECT MAX(sales_amount) FROM sales",
+            "SELECT sales_amount FROM sales",
+            "SELECT COUNT(*) FROM dept"
+    })
+    void rejectsQueriesWithoutEquivalentRollup(String sql) {
+        assertNotRewritten(sql);
+    }
+
+    private static void assertRewritten(String expected, String sql) {
+        assertEquals(Optional.of(expected), RollupSqlRewriter.rewrite(sql, ROLLUP));
+    }
+
+    private static void assertNotRewritten(String sql) {
+        assertTrue(RollupSqlRewriter.rewrite(sql, ROLLUP).isEmpty(), sql);
+    }
+}
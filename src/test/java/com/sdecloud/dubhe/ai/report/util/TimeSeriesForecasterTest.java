@@ -0,0 +1,84 @@
+package com.sdecloud.dubhe.ai.report.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间序列预测测试：合成的线性趋势序列、季节序列，以及观测数或预测步数不足
+ *
+ * @author liangjun
+ * @since 2025-10-23
+ */
+class TimeSeriesForecasterTest {
+
+    private static final int PERIOD = 12;
+
+    @Test
+    void extrapolatesLinearTrend() {
+        double[] series = new double[12];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = 10 + 2 * t;
+        }
+
+        TimeSeriesForecaster.Forecast forecast = TimeSeriesForecaster.forecast(series, PERIOD, 3, 0.95);
+
+        assertEquals("linear", forecast.method());
+        assertEquals(3, forecast.point().length);
+        for (int h = 0; h < 3; h++) {
+            assertEquals(10 + 2 * (12 + h), forecast.point()[h], 1e-6);
+            assertTrue(forecast.lower()[h] <= forecast.point()[h] && forecast.point()[h] <= forecast.upper()[h]);
+        }
+    }
+
+    @Test
+    void followsSeasonalPattern() {
+        double[] series = new double[36];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = seasonal(t) + (t % 5 - 2) * 0.3;
+        }
+
+        TimeSeriesForecaster.Forecast forecast = TimeSeriesForecaster.forecast(series, PERIOD, PERIOD, 0.95);
+
+        assertTrue(Set.of("linear-seasonal", "holt-winters").contains(forecast.method()), forecast.method());
+        int peak = 0;
+        for (int h = 0; h < PERIOD; h++) {
+            // 振幅为 20，平滑参数取自网格，允许少量偏差
+            assertEquals(seasonal(series.length + h), forecast.point()[h], 5.0);
+            assertTrue(forecast.upper()[h] - forecast.lower()[h] > 0);
+            if (forecast.point()[h] > forecast.point()[peak]) {
+                peak = h;
+            }
+        }
+        // 峰值落在季节项最大的月份（t ≡ 3 mod 12）
+        assertEquals(3, (series.length + peak) % PERIOD);
+        // 预测区间随步数变宽
+        assertTrue(forecast.upper()[PERIOD - 1] - forecast.lower()[PERIOD - 1]
+                >= forecast.upper()[0] - forecast.lower()[0]);
+    }
+
+    @Test
+    void returnsNullForShortSeriesOrEmptyHorizon() {
+        assertNull(TimeSeriesForecaster.forecast(new double[]{1, 2}, PERIOD, 3, 0.95));
+        assertNull(TimeSeriesForecaster.forecast(new double[]{1, 2, 3, 4}, PERIOD, 0, 0.95));
+
+        // 不足两个周期时不使用季节模型
+        TimeSeriesForecaster.Forecast forecast = TimeSeriesForecaster.forecast(new double[]{5, 7, 6, 8, 7, 9}, PERIOD, 2, 0.95);
+        assertTrue(Set.of("linear", "holt").contains(forecast.method()), forecast.method());
+    }
+
+    @Test
+    void normalQuantileMatchesKnownValues() {
+        assertEquals(1.959964, TimeSeriesForecaster.normalQuantile(0.975), 1e-5);
+        assertEquals(0.0, TimeSeriesForecaster.normalQuantile(0.5), 1e-9);
+        assertEquals(-2.326348, TimeSeriesForecaster.normalQuantile(0.01), 1e-5);
+    }
+
+    private static double seasonal(int t) {
+        return 100 + 0.5 * t + 20 * Math.sin(2 * Math.PI * t / PERIOD);
+    }
+}